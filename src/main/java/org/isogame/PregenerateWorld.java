@@ -0,0 +1,206 @@
+package org.isogame;
+
+import org.isogame.constants.Constants;
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.map.Map;
+import org.isogame.savegame.BinarySaveCodec;
+import org.isogame.savegame.ChunkCodec;
+import org.isogame.savegame.GameSaveState;
+import org.isogame.savegame.MapSaveData;
+import org.isogame.savegame.PlayerSaveData;
+import org.isogame.savegame.RegionFileStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Headless world pregeneration: generates and lights every chunk within a square
+ * radius around the spawn and writes the result as a regular save, so players
+ * never wait on generation in that area. No window or GL context is created.
+ *
+ * Usage: {@code PregenerateWorld <seed> <radiusChunks> [worldName]}
+ *
+ * Chunks are generated in parallel by the map's generation service a few rows
+ * ahead of the lighting pass. Lighting runs the same per-chunk skylight
+ * initialization and border propagation as chunk activation in game. Finished
+ * rows are written to the region files and unloaded, so memory stays bounded by
+ * a few rows regardless of the radius. Chunks are stored whole, light included
+ * ({@link ChunkCodec#VERSION_LIT}), rather than as diffs against the generated
+ * terrain (which would be empty), so loading them skips generation, and
+ * activating them skips skylight initialization and the border exchange with
+ * other pregenerated chunks.
+ *
+ * Prints chunks/s, lighting nodes/s, bytes written and peak heap, for comparing
+ * versions.
+ */
+public class PregenerateWorld {
+
+    private static final String SAVES_DIRECTORY = "saves";
+    // Rows requested from the generator ahead of the row being lit.
+    private static final int GENERATION_LOOKAHEAD_ROWS = 4;
+    // Rows kept loaded behind the row being lit; light from that row can still reach them.
+    private static final int LIGHTING_TRAIL_ROWS = 2;
+
+    private final Map map;
+    private final LightManager lightManager;
+    private final int radius;
+    private long peakHeapBytes;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 2) {
+            System.err.println("Usage: PregenerateWorld <seed> <radiusChunks> [worldName]");
+            System.exit(2);
+        }
+        long seed;
+        int radius;
+        try {
+            seed = Long.parseLong(args[0]);
+            radius = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            System.err.println("PregenerateWorld: Seed and radius must be numbers: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (radius < 0) {
+            System.err.println("PregenerateWorld: Radius must not be negative.");
+            System.exit(2);
+        }
+        String worldName = (args.length > 2) ? args[2] : "Pregenerated";
+        Path saveFile = Paths.get(SAVES_DIRECTORY, worldName + BinarySaveCodec.FILE_EXTENSION);
+        Path regionDirectory = Paths.get(SAVES_DIRECTORY, worldName + ".regions");
+        if (Files.exists(saveFile) || Files.exists(regionDirectory)) {
+            System.err.println("PregenerateWorld: World '" + worldName + "' already exists; pick another name.");
+            System.exit(1);
+        }
+        Files.createDirectories(saveFile.getParent());
+
+        Map map = new Map(seed, regionDirectory);
+        boolean success;
+        try {
+            success = new PregenerateWorld(map, radius).run(seed, saveFile);
+        } finally {
+            map.shutdown();
+        }
+        System.exit(success ? 0 : 1);
+    }
+
+    private PregenerateWorld(Map map, int radius) {
+        this.map = map;
+        this.lightManager = map.getLightManager();
+        this.radius = radius;
+    }
+
+    private boolean run(long seed, Path saveFile) throws Exception {
+        int side = 2 * radius + 1;
+        int centerX = Math.floorDiv(map.getCharacterSpawnCol(), Constants.CHUNK_SIZE_TILES);
+        int centerY = Math.floorDiv(map.getCharacterSpawnRow(), Constants.CHUNK_SIZE_TILES);
+        System.out.println("PregenerateWorld: Seed " + seed + ", " + side + "x" + side + " chunks around chunk ("
+                + centerX + "," + centerY + ").");
+        RegionFileStore regions = map.getRegionStore();
+
+        long start = System.nanoTime();
+        long lightingNanos = 0;
+        long nodesBefore = lightManager.getNodesProcessed();
+        long tilesLit = 0;
+        int requestedRows = 0;
+        boolean writeOk = true;
+        for (int row = 0; row < side; row++) {
+            for (; requestedRows < Math.min(side, row + 1 + GENERATION_LOOKAHEAD_ROWS); requestedRows++) {
+                for (int col = 0; col < side; col++) {
+                    map.requestChunk(centerX - radius + col, centerY - radius + requestedRows);
+                }
+            }
+            // Moves finished chunks into the map; also clears the handoff queue of chunks claimed below.
+            map.publishGeneratedChunks(Integer.MAX_VALUE);
+            int cy = centerY - radius + row;
+            for (int col = 0; col < side; col++) {
+                // Blocks until a worker has it (or generates it here if none picked it up yet).
+                map.getOrGenerateChunkTiles(centerX - radius + col, cy);
+            }
+
+            long lightStart = System.nanoTime();
+            for (int col = 0; col < side; col++) {
+                LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(centerX - radius + col, cy);
+                lightManager.initializeSkylightForChunk(coord);
+                tilesLit += ChunkData.TILE_COUNT;
+                // Same border exchange as chunk activation, with the neighbours already lit.
+                if (col > 0) propagateBorder(coord, new LightManager.ChunkCoordinate(coord.chunkX - 1, cy));
+                if (row > 0) propagateBorder(coord, new LightManager.ChunkCoordinate(coord.chunkX, cy - 1));
+            }
+            lightManager.processAllQueuesToCompletion();
+            lightManager.getDirtyChunksAndClear(); // no meshes to rebuild here
+            lightingNanos += System.nanoTime() - lightStart;
+
+            if (row >= LIGHTING_TRAIL_ROWS) writeOk &= flushRow(centerX, centerY - radius + row - LIGHTING_TRAIL_ROWS);
+            sampleHeap();
+        }
+        for (int row = Math.max(0, side - LIGHTING_TRAIL_ROWS); row < side; row++) {
+            writeOk &= flushRow(centerX, centerY - radius + row);
+        }
+        writeOk &= regions.commit();
+        double generationSeconds = (System.nanoTime() - start) / 1e9;
+
+        GameSaveState state = new GameSaveState();
+        state.worldSeed = seed;
+        state.pseudoTimeOfDay = 0.0005;
+        state.mapData = new MapSaveData();
+        map.populateSaveData(state.mapData);
+        state.mapData.regionGeneration = regions.getGeneration();
+        state.playerData = new PlayerSaveData();
+        state.playerData.mapRow = map.getCharacterSpawnRow();
+        state.playerData.mapCol = map.getCharacterSpawnCol();
+        state.playerData.inventory = new ArrayList<>();
+        if (writeOk) {
+            BinarySaveCodec.writeAtomically(state, saveFile);
+            regions.onSaveWritten(state.mapData.regionGeneration);
+        }
+        sampleHeap();
+
+        long chunks = (long) side * side;
+        long nodes = lightManager.getNodesProcessed() - nodesBefore;
+        double lightingSeconds = lightingNanos / 1e9;
+        long bytesWritten = regions.getStoredBytes() + (writeOk ? Files.size(saveFile) : 0);
+        System.out.printf("Chunks: %d in %.2f s (%.0f chunks/s, %s)%n", chunks, generationSeconds,
+                chunks / generationSeconds, map.getGenerationService());
+        System.out.printf("Lighting: %d tiles initialized, %d queue nodes in %.2f s (%.0f nodes/s)%n",
+                tilesLit, nodes, lightingSeconds, lightingSeconds > 0 ? nodes / lightingSeconds : 0);
+        System.out.printf("Bytes written: %d (%s)%n", bytesWritten, regions);
+        System.out.printf("Peak heap: %.1f MB%n", peakHeapBytes / (1024.0 * 1024.0));
+        if (!writeOk) {
+            System.err.println("PregenerateWorld: Writing the world failed; no save file was written.");
+            return false;
+        }
+        System.out.println("PregenerateWorld: Saved " + saveFile);
+        return true;
+    }
+
+    private void propagateBorder(LightManager.ChunkCoordinate a, LightManager.ChunkCoordinate b) {
+        map.propagateLightAcrossChunkBorder(a, b, lightManager);
+        map.propagateLightAcrossChunkBorder(b, a, lightManager);
+    }
+
+    /**
+     * Writes one row of chunks to the region files and unloads it. Lighting never
+     * loads chunks outside the area (light reaching them is kept as pending border
+     * light and dropped with its sources). Returns false if a write failed.
+     */
+    private boolean flushRow(int centerX, int cy) {
+        boolean ok = true;
+        for (int cx = centerX - radius; cx <= centerX + radius; cx++) {
+            ChunkData chunk = map.getLoadedChunk(cx, cy);
+            if (chunk == null) continue;
+            ok &= map.getRegionStore().writeEncoded(cx, cy, ChunkCodec.encodeLitToArray(chunk));
+            map.unloadChunkData(cx, cy);
+        }
+        return ok;
+    }
+
+    private void sampleHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        peakHeapBytes = Math.max(peakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+    }
+}
@@ -3,6 +3,7 @@ package org.isogame.camera;
 import org.isogame.render.Chunk;
 import org.joml.Matrix4f;
 import static org.isogame.constants.Constants.*;
+import org.isogame.map.ChunkData;
 import org.isogame.map.Map;
 import org.isogame.tile.Tile;
 import org.joml.FrustumIntersection;
@@ -212,16 +213,18 @@ public class CameraManager {
 
         for (int r = baseRow - searchRadius; r <= baseRow + searchRadius; r++) {
             for (int c = baseCol - searchRadius; c <= baseCol + searchRadius; c++) {
-                Tile tile = gameMap.getTile(r, c);
-                if (tile == null || tile.getType() == Tile.TileType.AIR) continue;
+                ChunkData chunk = gameMap.getChunkForTile(r, c);
+                int index = ChunkData.indexOfGlobal(r, c);
+                if (chunk.getType(index) == Tile.TileType.AIR) continue;
+                int elevation = chunk.getElevation(index);
 
                 // Check if the mouse is inside this tile's diamond, considering its elevation
-                int[] tileScreenCenter = mapToScreenCoordsForPicking((float) c, (float) r, tile.getElevation());
+                int[] tileScreenCenter = mapToScreenCoordsForPicking((float) c, (float) r, elevation);
 
                 if (isPointInDiamond(mouseScreenX, mouseScreenY,
                         tileScreenCenter[0], tileScreenCenter[1],
                         TILE_WIDTH * this.zoom, TILE_HEIGHT * this.zoom)) {
-                    candidates.add(new int[]{c, r, tile.getElevation()});
+                    candidates.add(new int[]{c, r, elevation});
                 }
             }
         }
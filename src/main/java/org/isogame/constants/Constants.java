@@ -1,7 +1,5 @@
 package org.isogame.constants;
 
-import org.isogame.render.Renderer;
-
 public class Constants {
     // Tile dimensions
     public static final int TILE_WIDTH = 64;
@@ -15,6 +13,12 @@ public class Constants {
     public static final int MAP_WIDTH = 200;
     public static final int MAP_HEIGHT = 200;
     public static final int CHUNK_SIZE_TILES = 16;
+    // Heap budget for unloaded modified chunks kept compressed in memory before they go to region files.
+    public static final long COMPRESSED_CHUNK_BUDGET_BYTES = 16L * 1024 * 1024;
+    // Chunks stay active until they are this many chunks beyond the render distance, so walking along a chunk line doesn't thrash.
+    public static final int CHUNK_UNLOAD_HYSTERESIS_CHUNKS = 1;
+    // Tile data plus mesh bytes of recently deactivated chunks kept ready for reactivation.
+    public static final long CHUNK_RETENTION_BUDGET_BYTES = 64L * 1024 * 1024;
 
     // Map generation
     public static final double NOISE_SCALE = 0.02;
@@ -61,10 +65,6 @@ public class Constants {
     public static final int SKY_LIGHT_NIGHT_MINIMUM = 2; // Absolute minimum, affects ambient feel at night
     public static final int LIGHT_PROPAGATION_COST = 1;
 
-    // In Chunk.java
-    private static final int MAX_VERTICES_PER_TILE_COLUMN = (2*6) + (2*6) + (ALTURA_MAXIMA * 2 * 6); // Pedestal + Top + Max Sides
-    private static final int MAX_EXPECTED_FLOATS_PER_CHUNK = CHUNK_SIZE_TILES * CHUNK_SIZE_TILES * MAX_VERTICES_PER_TILE_COLUMN * Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
-
     // Inventory / Hotbar
     public static final int DEFAULT_INVENTORY_SIZE = 20;
     public static final int HOTBAR_SIZE = 5;
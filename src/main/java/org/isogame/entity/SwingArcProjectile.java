@@ -6,6 +6,7 @@ import org.isogame.game.Game;
 import org.isogame.item.Item;
 import org.isogame.item.ItemRegistry;
 import org.isogame.item.ToolItem;
+import org.isogame.map.LightManager;
 import org.isogame.tile.Tile;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -75,7 +76,12 @@ public class SwingArcProjectile extends Projectile {
 
                     if (targetTile.getHealth() <= 0) {
                         targetTile.setTreeType(Tile.TreeVisualType.NONE);
-                        game.getMap().queueLightUpdateForArea(currentCheckR, currentCheckC, 2, game.getLightManager());
+                        LightManager lightManager = game.getLightManager();
+                        if (lightManager != null) {
+                            lightManager.beginEdit();
+                            game.getMap().queueLightUpdateForArea(currentCheckR, currentCheckC, 2, lightManager);
+                            lightManager.finishEdit();
+                        }
 
                         // --- THIS IS THE CHANGE ---
                         // OLD WAY:
@@ -14,6 +14,7 @@ import org.isogame.camera.CameraManager;
 import org.isogame.item.InventorySlot;
 import org.isogame.item.Item; // <--- FIX: Added missing import
 import org.isogame.item.ItemRegistry;
+import org.isogame.map.ChunkData;
 import org.isogame.map.LightManager;
 import org.isogame.map.Map;
 import org.isogame.render.Renderer;
@@ -25,17 +26,15 @@ import org.isogame.world.World;
 
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.isogame.world.structure.StructureManager;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.Writer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
@@ -72,6 +71,10 @@ public class Game {
     private String currentWorldName = null;
     private List<String> availableSaveFiles = new ArrayList<>();
     private static final String SAVES_DIRECTORY = "saves";
+    private static final double AUTOSAVE_INTERVAL_SECONDS = 60.0;
+    private final AutosaveManager autosaveManager = new AutosaveManager();
+    private double autosaveTimer = 0.0;
+    private long lastSaveSnapshotNanos;
 
     // UI Interaction State
     private boolean isDraggingItem = false;
@@ -176,10 +179,60 @@ public class Game {
     public void updateGameLogic(double deltaTime) {
         if (world != null) {
             world.update(deltaTime);
+            updateAutosave(deltaTime);
         }
         // All other logic (time, chunk updates, spawning, lighting) is now inside world.update()
     }
 
+    /** Finishes background saves and starts a new one every AUTOSAVE_INTERVAL_SECONDS if something changed. */
+    private void updateAutosave(double deltaTime) {
+        handleSaveCompletion(autosaveManager.pollCompletion());
+        if (currentWorldName == null) return;
+        autosaveTimer += deltaTime;
+        if (autosaveTimer < AUTOSAVE_INTERVAL_SECONDS || autosaveManager.isBusy()) return;
+        autosaveTimer = 0.0;
+        if (world.hasUnsavedChanges()) {
+            startSave(currentWorldName);
+        }
+    }
+
+    /** Snapshots the world on this thread and hands the writing to the autosave thread. */
+    private boolean startSave(String worldName) {
+        long start = System.nanoTime();
+        List<ChunkData> chunks = new ArrayList<>();
+        List<MapSaveData.EncodedChunk> encodedChunks = new ArrayList<>();
+        GameSaveState saveState = world.createSaveSnapshot(chunks, encodedChunks);
+        RegionFileStore regions = world.getMap().getRegionStore();
+        long stamp = regions.nextStamp();
+        lastSaveSnapshotNanos = System.nanoTime() - start;
+        Path filePath = Paths.get(SAVES_DIRECTORY, worldName + BinarySaveCodec.FILE_EXTENSION);
+        if (!autosaveManager.submit(filePath, saveState, regions, chunks, encodedChunks, stamp)) {
+            world.onSaveFinished(false);
+            return false;
+        }
+        return true;
+    }
+
+    private void handleSaveCompletion(AutosaveManager.Completion completion) {
+        if (completion == null) return;
+        if (world != null) world.onSaveFinished(completion.success);
+        if (completion.success) {
+            System.out.printf("Game saved to %s (%d chunks, snapshot %.0f us, write %.1f ms)%n",
+                    completion.saveFile, completion.chunkCount, lastSaveSnapshotNanos / 1e3, completion.writeMillis);
+        } else {
+            System.err.println("Error saving game; changes will be saved again next time.");
+        }
+    }
+
+    /** Waits for a running background save, then shuts the current world down. */
+    private void shutdownWorld() {
+        if (this.world == null) return;
+        autosaveManager.awaitIdle();
+        handleSaveCompletion(autosaveManager.pollCompletion());
+        this.world.shutdown();
+        autosaveTimer = 0.0;
+    }
+
     public void gameLoop() {
         initOpenGL();
         lastFrameTime = glfwGetTime();
@@ -263,7 +316,8 @@ public class Game {
     public void createNewWorld() {
         System.out.println("Game: createNewWorld() called.");
         int nextWorldNum = 1;
-        while (Files.exists(Paths.get(SAVES_DIRECTORY, "World" + nextWorldNum + ".json"))) {
+        while (Files.exists(Paths.get(SAVES_DIRECTORY, "World" + nextWorldNum + BinarySaveCodec.FILE_EXTENSION))
+                || Files.exists(Paths.get(SAVES_DIRECTORY, "World" + nextWorldNum + ".json"))) {
             nextWorldNum++;
         }
         String newWorldName = "World" + nextWorldNum;
@@ -274,8 +328,10 @@ public class Game {
             renderer.clearGameContext();
         }
 
-        // Create the new World instance
-        this.world = new World(this, new Random().nextLong());
+        // Create the new World instance, dropping region files left behind by an older world of the same name
+        shutdownWorld();
+        deleteRegionDirectory(newWorldName);
+        this.world = new World(this, new Random().nextLong(), getRegionDirectory(newWorldName));
         this.currentWorldName = newWorldName;
 
         // Link the engine components to the new world
@@ -290,16 +346,28 @@ public class Game {
 
     public boolean loadGame(String worldNameOrFileName) {
         System.out.println("Game: loadGame called for " + worldNameOrFileName);
-        String fileName = worldNameOrFileName.endsWith(".json") ? worldNameOrFileName : worldNameOrFileName + ".json";
-        String filePath = Paths.get(SAVES_DIRECTORY, fileName).toString();
-        System.out.println("Attempting to load game from: " + filePath);
+        String worldName = toWorldName(worldNameOrFileName);
+        Path binaryPath = Paths.get(SAVES_DIRECTORY, worldName + BinarySaveCodec.FILE_EXTENSION);
+        Path jsonPath = Paths.get(SAVES_DIRECTORY, worldName + ".json");
 
         GameSaveState saveState;
-        try (Reader reader = new FileReader(filePath)) {
-            saveState = new Gson().fromJson(reader, GameSaveState.class);
-        } catch (IOException e) {
-            System.err.println("Load game: Save file not found or unreadable - " + e.getMessage());
-            return false;
+        if (Files.exists(binaryPath)) {
+            System.out.println("Attempting to load game from: " + binaryPath);
+            try {
+                saveState = BinarySaveCodec.read(binaryPath);
+            } catch (IOException e) {
+                System.err.println("Load game: Save file unreadable - " + e.getMessage());
+                return false;
+            }
+        } else {
+            // Older worlds were saved as JSON; they are imported here and written back as binary on the next save.
+            System.out.println("Attempting to import JSON save from: " + jsonPath);
+            try (Reader reader = Files.newBufferedReader(jsonPath)) {
+                saveState = new Gson().fromJson(reader, GameSaveState.class);
+            } catch (IOException e) {
+                System.err.println("Load game: Save file not found or unreadable - " + e.getMessage());
+                return false;
+            }
         }
 
         if (saveState == null || saveState.mapData == null || saveState.playerData == null) {
@@ -313,8 +381,9 @@ public class Game {
         }
 
         // Create the world from the save state
-        this.world = new World(this, saveState);
-        this.currentWorldName = fileName.replace(".json", "");
+        shutdownWorld();
+        this.world = new World(this, saveState, getRegionDirectory(worldName));
+        this.currentWorldName = worldName;
 
         // Link the engine components to the new world
         initializeGameWorldReferences();
@@ -325,27 +394,55 @@ public class Game {
         return true;
     }
 
+    /**
+     * Saves the world and waits for the save to finish. Only what changed since
+     * the last save is written; see {@link AutosaveManager}.
+     */
     public void saveGame(String worldName) {
         if (worldName == null || worldName.trim().isEmpty() || this.world == null) {
             System.err.println("SaveGame Error: World name is null or world instance does not exist.");
             return;
         }
-        String filePath = Paths.get(SAVES_DIRECTORY, worldName.replace(".json", "") + ".json").toString();
-
-        GameSaveState saveState = new GameSaveState();
-        this.world.getEntityManager().removeDeadEntities();
+        worldName = toWorldName(worldName);
 
-        world.populateSaveData(saveState);
+        // Let a running autosave finish first; it may still be writing to the region files.
+        autosaveManager.awaitIdle();
+        handleSaveCompletion(autosaveManager.pollCompletion());
 
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (Writer writer = new FileWriter(filePath)) {
-            gson.toJson(saveState, writer);
-            System.out.println("Game saved successfully to " + filePath);
-            this.currentWorldName = worldName.replace(".json", "");
+        // Unloaded modified chunks stay in the region files next to the save.
+        if (!world.getMap().saveRegionsTo(getRegionDirectory(worldName))) {
+            System.err.println("Error saving game: region files could not be stored.");
+            return;
+        }
+        if (!startSave(worldName)) return;
+        autosaveManager.awaitIdle();
+        AutosaveManager.Completion completion = autosaveManager.pollCompletion();
+        handleSaveCompletion(completion);
+        if (completion != null && completion.success) {
+            this.currentWorldName = worldName;
+            autosaveTimer = 0.0;
+            retireImportedJsonSave(worldName);
             refreshAvailableSaveFiles();
+        }
+    }
+
+    /** Strips a save file extension, if any, from a world or file name. */
+    private static String toWorldName(String worldNameOrFileName) {
+        if (worldNameOrFileName.endsWith(BinarySaveCodec.FILE_EXTENSION)) {
+            return worldNameOrFileName.substring(0, worldNameOrFileName.length() - BinarySaveCodec.FILE_EXTENSION.length());
+        }
+        return worldNameOrFileName.replace(".json", "");
+    }
+
+    /** Once a world imported from JSON has a binary save, the JSON file is kept only as a backup. */
+    private void retireImportedJsonSave(String worldName) {
+        Path jsonPath = Paths.get(SAVES_DIRECTORY, worldName + ".json");
+        if (!Files.exists(jsonPath)) return;
+        try {
+            Files.move(jsonPath, Paths.get(SAVES_DIRECTORY, worldName + ".json.bak"), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Imported JSON save kept as backup: " + worldName + ".json.bak");
         } catch (IOException e) {
-            System.err.println("Error saving game: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Could not move imported JSON save aside: " + e.getMessage());
         }
     }
 
@@ -427,7 +524,7 @@ public class Game {
         float deleteButtonX = worldButtonX + worldButtonWidth + 5f;
 
         for (String saveFileName : availableSaveFiles) {
-            String worldNameDisplay = saveFileName.replace(".json", "");
+            String worldNameDisplay = toWorldName(saveFileName);
             MenuItemButton loadButton = new MenuItemButton(worldButtonX, currentY, worldButtonWidth, buttonHeight, "Load: " + worldNameDisplay, "LOAD_WORLD", saveFileName);
             menuButtons.add(loadButton);
 
@@ -446,7 +543,8 @@ public class Game {
         if (renderer.getMap() != null) {
             renderer.clearGameContext();
         }
-        this.world = new World(this, new Random().nextLong());
+        shutdownWorld();
+        this.world = new World(this, new Random().nextLong(), null); // Regions go to a temp directory until saved
         this.currentWorldName = null; // Unsaved world
         initializeGameWorldReferences();
         System.out.println("Game: Full map regeneration processing complete. World is now unsaved.");
@@ -455,21 +553,42 @@ public class Game {
     public void deleteWorld(String worldName) {
         System.out.println("Game: deleteWorld() called for " + worldName);
         if (worldName == null || worldName.isEmpty()) return;
-        String fileName = worldName.endsWith(".json") ? worldName : worldName + ".json";
-        File saveFile = new File(SAVES_DIRECTORY, fileName);
-        if (saveFile.exists()) {
+        worldName = toWorldName(worldName);
+        if (worldName.equals(this.currentWorldName)) {
+            autosaveManager.awaitIdle();
+            handleSaveCompletion(autosaveManager.pollCompletion());
+        }
+        boolean deleted = false;
+        for (String extension : new String[]{BinarySaveCodec.FILE_EXTENSION, ".json"}) {
+            File saveFile = new File(SAVES_DIRECTORY, worldName + extension);
+            if (!saveFile.exists()) continue;
             if (saveFile.delete()) {
-                System.out.println("Deleted world: " + fileName);
-                if (this.currentWorldName != null && this.currentWorldName.equals(worldName)) {
-                    this.currentWorldName = null;
-                }
+                System.out.println("Deleted world: " + saveFile.getName());
+                deleted = true;
             } else {
-                System.err.println("Failed to delete world: " + fileName);
+                System.err.println("Failed to delete world: " + saveFile.getName());
             }
         }
+        if (deleted && this.currentWorldName != null && this.currentWorldName.equals(worldName)) {
+            this.currentWorldName = null;
+        }
+        deleteRegionDirectory(worldName);
         refreshAvailableSaveFiles();
     }
 
+    /** Directory holding the region files (unloaded modified chunks) of a saved world. */
+    private Path getRegionDirectory(String worldName) {
+        return Paths.get(SAVES_DIRECTORY, worldName + ".regions");
+    }
+
+    private void deleteRegionDirectory(String worldName) {
+        try {
+            RegionFileStore.deleteDirectory(getRegionDirectory(worldName));
+        } catch (IOException e) {
+            System.err.println("Failed to delete region files of world " + worldName + ": " + e.getMessage());
+        }
+    }
+
     public void setSelectedHotbarSlotIndex(int index) {
         if (getPlayer() != null) {
             getPlayer().setSelectedHotbarSlotIndex(index);
@@ -484,9 +603,15 @@ public class Game {
         availableSaveFiles.clear();
         File savesDir = new File(SAVES_DIRECTORY);
         if (savesDir.exists() && savesDir.isDirectory()) {
-            File[] files = savesDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".json"));
+            File[] files = savesDir.listFiles((dir, name) -> name.toLowerCase().endsWith(BinarySaveCodec.FILE_EXTENSION)
+                    || name.toLowerCase().endsWith(".json"));
             if (files != null) {
                 for (File file : files) {
+                    // A JSON save that already has a binary counterpart is not listed twice.
+                    if (file.getName().endsWith(".json")
+                            && new File(savesDir, toWorldName(file.getName()) + BinarySaveCodec.FILE_EXTENSION).exists()) {
+                        continue;
+                    }
                     availableSaveFiles.add(file.getName());
                 }
                 availableSaveFiles.sort(String::compareToIgnoreCase);
@@ -582,6 +707,8 @@ public class Game {
 
     private void cleanup() {
         System.out.println("Game cleanup initiated...");
+        shutdownWorld();
+        autosaveManager.shutdown();
         if (renderer != null) renderer.cleanup();
         System.out.println("Game cleanup complete.");
     }
@@ -266,25 +266,9 @@
             if (map == null) {
                 return;
             }
-            if (this.selectedRow == row && this.selectedCol == col) {
-                return;
-            }
-
-            int oldSelectedRow = this.selectedRow;
-            int oldSelectedCol = this.selectedCol;
-
+            // The renderer's highlight overlay picks this up next frame; no chunk is rebuilt.
             this.selectedRow = row;
             this.selectedCol = col;
-
-            if (gameInstance != null) {
-                gameInstance.requestTileRenderUpdate(oldSelectedRow, oldSelectedCol);
-                gameInstance.requestTileRenderUpdate(this.selectedRow, this.selectedCol);
-
-                gameInstance.requestTileRenderUpdate(oldSelectedRow + 1, oldSelectedCol);
-                gameInstance.requestTileRenderUpdate(oldSelectedRow - 1, oldSelectedCol);
-                gameInstance.requestTileRenderUpdate(oldSelectedRow, oldSelectedCol + 1);
-                gameInstance.requestTileRenderUpdate(oldSelectedRow, oldSelectedCol - 1);
-            }
         }
 
         public Game getGameInstance() { return this.gameInstance; }
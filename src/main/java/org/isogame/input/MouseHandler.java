@@ -233,7 +233,7 @@ public class MouseHandler {
         } else if (buttonId == GLFW_MOUSE_BUTTON_RIGHT) {
             if (action == GLFW_PRESS) {
                 if (!gameInstance.isInventoryVisible()) {
-                    gameInstance.getPlacementManager().startPlacement(inputHandlerRef.getSelectedRow(), inputHandlerRef.getSelectedCol());
+                    gameInstance.getPlacementManager().startPlacement(inputHandlerRef.getSelectedCol(), inputHandlerRef.getSelectedRow());
                 }
             } else if (action == GLFW_RELEASE) {
                 if (gameInstance.getPlacementManager().isPlacing()) {
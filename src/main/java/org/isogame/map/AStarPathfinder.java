@@ -113,9 +113,8 @@ public class AStarPathfinder {
      * Checks if a single node (tile) is inherently walkable (not water, etc.).
      */
     private boolean isWalkableNode(Map map, PathNode node) {
-        Tile tile = map.getTile(node.row, node.col); // map.getTile handles chunk generation
-        if (tile == null) return false; // Should not happen if map.getTile works
-        if (tile.getType() == Tile.TileType.WATER || tile.getType() == Tile.TileType.AIR) return false;
+        Tile.TileType type = map.getTileType(node.row, node.col); // handles chunk generation
+        if (type == Tile.TileType.WATER || type == Tile.TileType.AIR) return false;
         // Add other non-walkable tile types if necessary (e.g., lava, very high cliffs if elevation isn't checked elsewhere)
         return true;
     }
@@ -126,14 +125,14 @@ public class AStarPathfinder {
      * This includes checking the destination tile type and elevation difference.
      */
     private boolean isWalkableBetween(Map map, PathNode fromNode, PathNode toNode) {
-        Tile toTile = map.getTile(toNode.row, toNode.col);       // map.getTile handles chunk generation
-        Tile fromTile = map.getTile(fromNode.row, fromNode.col); // for these coordinates.
+        ChunkData toChunk = map.getChunkForTile(toNode.row, toNode.col); // handles chunk generation
+        int toIndex = ChunkData.indexOfGlobal(toNode.row, toNode.col);
 
-        if (toTile == null || fromTile == null) return false; // Should not happen if map.getTile is robust
-        if (toTile.getType() == Tile.TileType.WATER || toTile.getType() == Tile.TileType.AIR) return false; // Cannot walk into water or air
+        Tile.TileType toType = toChunk.getType(toIndex);
+        if (toType == Tile.TileType.WATER || toType == Tile.TileType.AIR) return false; // Cannot walk into water or air
 
         // Check elevation difference (e.g., can only step up/down 1 unit)
-        int elevationDiff = Math.abs(toTile.getElevation() - fromTile.getElevation());
+        int elevationDiff = Math.abs(toChunk.getElevation(toIndex) - map.getElevation(fromNode.row, fromNode.col));
         if (elevationDiff > 1) { // Adjust this threshold as needed (e.g., player step height)
             return false;
         }
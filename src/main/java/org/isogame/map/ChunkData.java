@@ -0,0 +1,316 @@
+package org.isogame.map;
+
+import org.isogame.tile.Tile;
+import org.isogame.tile.TileEntity;
+
+import java.util.HashMap;
+
+import static org.isogame.constants.Constants.CHUNK_SIZE_TILES;
+import static org.isogame.constants.Constants.MAX_LIGHT_LEVEL;
+
+/**
+ * Packed tile storage for a single chunk.
+ *
+ * Every per-tile field lives in its own primitive array, indexed by
+ * {@code localY * CHUNK_SIZE_TILES + localX}. Sky and block light share one byte
+ * (sky in the high nibble, block in the low nibble) and torches are a bitset.
+ * State that only a handful of tiles ever carry (tree damage, shake timers,
+ * tile entities) is kept in sparse side tables that are only allocated on first use.
+ *
+ * Hot paths (lighting, meshing, pathfinding, picking) should read through these
+ * accessors directly; {@link Tile} is just a lightweight view onto one index.
+ */
+public class ChunkData {
+
+    public static final int TILE_COUNT = CHUNK_SIZE_TILES * CHUNK_SIZE_TILES;
+    // CHUNK_SIZE_TILES must stay a power of two for the mask/shift arithmetic below.
+    private static final int LOCAL_MASK = CHUNK_SIZE_TILES - 1;
+    private static final int ROW_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE_TILES);
+
+    public static final int MAX_TREE_HEALTH = 50;
+
+    private static final Tile.TileType[] TILE_TYPES = Tile.TileType.values();
+    private static final Tile.TreeVisualType[] TREE_TYPES = Tile.TreeVisualType.values();
+    private static final Tile.LooseRockType[] ROCK_TYPES = Tile.LooseRockType.values();
+
+    public final int chunkX, chunkY;
+
+    private byte[] types = new byte[TILE_COUNT];
+    private byte[] elevations = new byte[TILE_COUNT];
+    private byte[] light = new byte[TILE_COUNT];
+    private byte[] trees = new byte[TILE_COUNT];
+    private byte[] rocks = new byte[TILE_COUNT];
+    private long[] torchBits = new long[TILE_COUNT / 64];
+
+    // True while the arrays above are shared with a snapshot; the next write copies them first.
+    private boolean shared;
+    // True while the light came finished from a pregenerated region payload and the chunk is unmodified.
+    private boolean lightStored;
+
+    // Sparse side tables, keyed by local index.
+    private HashMap<Integer, Integer> treeHealth;
+    private HashMap<Integer, Double> shakeTimers;
+    private HashMap<Integer, TileEntity> tileEntities;
+
+    // Loaded neighbours in each direction (see DIR_*), or null; maintained by Map
+    // while this chunk is loaded so lighting can cross edges without lookups.
+    private final ChunkData[] neighbors = new ChunkData[4];
+
+    public ChunkData(int chunkX, int chunkY) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+    }
+
+    /**
+     * Returns a read-only copy of the tile arrays in O(1): both chunks share the
+     * arrays until this chunk is next written, at which point it copies them
+     * (copy-on-write). The snapshot can be handed to another thread, e.g. for
+     * saving, while the game keeps editing this chunk. Sparse side tables are not
+     * part of the snapshot. Snapshots must never be written to.
+     */
+    public ChunkData snapshot() {
+        ChunkData copy = new ChunkData(chunkX, chunkY);
+        copy.types = types;
+        copy.elevations = elevations;
+        copy.light = light;
+        copy.trees = trees;
+        copy.rocks = rocks;
+        copy.torchBits = torchBits;
+        copy.shared = true;
+        this.shared = true;
+        return copy;
+    }
+
+    /**
+     * Copies arrays still shared with a snapshot right away instead of on the
+     * next write, so later writes never swap the arrays out. Call on the main
+     * thread before handing the chunk to threads that write it while others read it.
+     */
+    void ensureWritable() {
+        if (shared) unshare();
+    }
+
+    private void unshare() {
+        types = types.clone();
+        elevations = elevations.clone();
+        light = light.clone();
+        trees = trees.clone();
+        rocks = rocks.clone();
+        torchBits = torchBits.clone();
+        shared = false;
+    }
+
+    // --- Neighbours ---
+
+    // Directions, matching LightManager's neighbour offsets: row - 1, row + 1, col - 1, col + 1.
+    static final int DIR_NORTH = 0, DIR_SOUTH = 1, DIR_WEST = 2, DIR_EAST = 3;
+    static final int[] DIR_CHUNK_DX = {0, 0, -1, 1};
+    static final int[] DIR_CHUNK_DY = {-1, 1, 0, 0};
+
+    static int opposite(int dir) { return dir ^ 1; }
+
+    ChunkData neighbor(int dir) { return neighbors[dir]; }
+    void setNeighbor(int dir, ChunkData chunk) { neighbors[dir] = chunk; }
+
+    /**
+     * The chunk holding the tile next to {@code i} in direction {@code dir}: this
+     * chunk, the linked neighbour across the edge, or null if that one is not loaded.
+     */
+    ChunkData chunkTowards(int i, int dir) {
+        switch (dir) {
+            case DIR_NORTH: return localY(i) > 0 ? this : neighbors[DIR_NORTH];
+            case DIR_SOUTH: return localY(i) < LOCAL_MASK ? this : neighbors[DIR_SOUTH];
+            case DIR_WEST: return localX(i) > 0 ? this : neighbors[DIR_WEST];
+            default: return localX(i) < LOCAL_MASK ? this : neighbors[DIR_EAST];
+        }
+    }
+
+    /** Local index of the tile next to {@code i} in direction {@code dir}, wrapping into the neighbour chunk. */
+    static int indexTowards(int i, int dir) {
+        switch (dir) {
+            case DIR_NORTH: return (i - CHUNK_SIZE_TILES) & (TILE_COUNT - 1);
+            case DIR_SOUTH: return (i + CHUNK_SIZE_TILES) & (TILE_COUNT - 1);
+            case DIR_WEST: return (i & ~LOCAL_MASK) | ((i - 1) & LOCAL_MASK);
+            default: return (i & ~LOCAL_MASK) | ((i + 1) & LOCAL_MASK);
+        }
+    }
+
+    // --- Raw arrays for the lighting kernel; read-only, writes go through the setters ---
+
+    byte[] typeArray() { return types; }
+    byte[] elevationArray() { return elevations; }
+    byte[] lightArray() { return light; }
+
+    // --- Index helpers ---
+
+    public static int index(int localX, int localY) {
+        return (localY << ROW_SHIFT) | localX;
+    }
+
+    /** Local index of a global tile coordinate, valid for negative coordinates too. */
+    public static int indexOfGlobal(int globalR, int globalC) {
+        return ((globalR & LOCAL_MASK) << ROW_SHIFT) | (globalC & LOCAL_MASK);
+    }
+
+    public static int localX(int index) { return index & LOCAL_MASK; }
+    public static int localY(int index) { return index >> ROW_SHIFT; }
+
+    /** Chunk coordinate containing a global tile coordinate; same as {@code Math.floorDiv(global, CHUNK_SIZE_TILES)}. */
+    public static int chunkCoordOf(int globalTile) { return globalTile >> ROW_SHIFT; }
+
+    public int globalRow(int index) { return chunkY * CHUNK_SIZE_TILES + localY(index); }
+    public int globalCol(int index) { return chunkX * CHUNK_SIZE_TILES + localX(index); }
+
+    // --- Terrain ---
+
+    public Tile.TileType getType(int i) { return TILE_TYPES[types[i]]; }
+    public int getTypeOrdinal(int i) { return types[i]; }
+    public void setType(int i, Tile.TileType type) {
+        if (shared) unshare();
+        types[i] = (byte) type.ordinal();
+    }
+
+    public int getElevation(int i) { return elevations[i]; }
+    public void setElevation(int i, int elevation) {
+        if (shared) unshare();
+        elevations[i] = (byte) elevation;
+    }
+
+    // --- Light ---
+
+    public byte getSkyLight(int i) { return (byte) ((light[i] >> 4) & 0x0F); }
+    public byte getBlockLight(int i) { return (byte) (light[i] & 0x0F); }
+
+    public byte getFinalLight(int i) {
+        int packed = light[i];
+        return (byte) Math.max((packed >> 4) & 0x0F, packed & 0x0F);
+    }
+
+    public void setSkyLight(int i, byte level) {
+        if (shared) unshare();
+        int clamped = Math.max(0, Math.min(MAX_LIGHT_LEVEL, level));
+        light[i] = (byte) ((clamped << 4) | (light[i] & 0x0F));
+    }
+
+    public void setBlockLight(int i, byte level) {
+        if (shared) unshare();
+        int clamped = Math.max(0, Math.min(MAX_LIGHT_LEVEL, level));
+        light[i] = (byte) ((light[i] & 0xF0) | clamped);
+    }
+
+    /**
+     * True if this chunk was loaded with light that is already final for it and
+     * its pregenerated neighbours (see {@link org.isogame.savegame.ChunkCodec#VERSION_LIT}),
+     * so activating it needs no relighting. Cleared once the chunk is modified.
+     */
+    public boolean isLightStored() { return lightStored; }
+    public void setLightStored(boolean lightStored) { this.lightStored = lightStored; }
+
+    /** Both light channels in one byte (sky high nibble, block low nibble), for codecs. */
+    public int getPackedLight(int i) { return light[i] & 0xFF; }
+    public void setPackedLight(int i, int packed) {
+        if (shared) unshare();
+        light[i] = (byte) packed;
+    }
+
+    public boolean hasTorch(int i) { return (torchBits[i >> 6] & (1L << i)) != 0; }
+
+    public void setTorch(int i, boolean torch) {
+        if (shared) unshare();
+        if (torch) torchBits[i >> 6] |= (1L << i);
+        else torchBits[i >> 6] &= ~(1L << i);
+    }
+
+    /** Raw torch bitset word {@code w} (tiles {@code w*64} to {@code w*64+63}), for codecs. */
+    public long getTorchWord(int w) { return torchBits[w]; }
+    public static int torchWordCount() { return TILE_COUNT / 64; }
+
+    public boolean hasAnyTorch() {
+        for (long bits : torchBits) {
+            if (bits != 0) return true;
+        }
+        return false;
+    }
+
+    // --- Decorations ---
+
+    public Tile.TreeVisualType getTreeType(int i) { return TREE_TYPES[trees[i]]; }
+
+    public void setTreeType(int i, Tile.TreeVisualType treeType) {
+        if (shared) unshare();
+        trees[i] = (byte) treeType.ordinal();
+        // A new (or removed) tree always starts from full health.
+        if (treeHealth != null) treeHealth.remove(i);
+    }
+
+    public int getTreeTypeOrdinal(int i) { return trees[i]; }
+
+    public Tile.LooseRockType getLooseRockType(int i) { return ROCK_TYPES[rocks[i]]; }
+    public int getLooseRockTypeOrdinal(int i) { return rocks[i]; }
+    public void setLooseRockType(int i, Tile.LooseRockType rockType) {
+        if (shared) unshare();
+        rocks[i] = (byte) rockType.ordinal();
+    }
+
+    // --- Sparse per-tile state ---
+
+    public int getHealth(int i) {
+        if (trees[i] == 0) return 0;
+        if (treeHealth == null) return MAX_TREE_HEALTH;
+        return treeHealth.getOrDefault(i, MAX_TREE_HEALTH);
+    }
+
+    public void damage(int i, int amount) {
+        int health = getHealth(i);
+        if (health > 0) {
+            if (treeHealth == null) treeHealth = new HashMap<>();
+            treeHealth.put(i, health - amount);
+        }
+    }
+
+    public double getShakeTimer(int i) {
+        if (shakeTimers == null) return 0.0;
+        return shakeTimers.getOrDefault(i, 0.0);
+    }
+
+    public void setShakeTimer(int i, double seconds) {
+        if (seconds <= 0) {
+            if (shakeTimers != null) shakeTimers.remove(i);
+            return;
+        }
+        if (shakeTimers == null) shakeTimers = new HashMap<>();
+        shakeTimers.put(i, seconds);
+    }
+
+    public TileEntity getTileEntity(int i) {
+        return tileEntities == null ? null : tileEntities.get(i);
+    }
+
+    public void setTileEntity(int i, TileEntity tileEntity) {
+        if (tileEntity == null) {
+            if (tileEntities != null) tileEntities.remove(i);
+            return;
+        }
+        if (tileEntities == null) tileEntities = new HashMap<>();
+        tileEntities.put(i, tileEntity);
+    }
+
+    /**
+     * True if both chunks hold the same per-tile primitive data (terrain, light,
+     * decorations and torches). Sparse state such as tree damage is not compared.
+     */
+    public boolean contentEquals(ChunkData other) {
+        return other != null
+                && java.util.Arrays.equals(types, other.types)
+                && java.util.Arrays.equals(elevations, other.elevations)
+                && java.util.Arrays.equals(light, other.light)
+                && java.util.Arrays.equals(trees, other.trees)
+                && java.util.Arrays.equals(rocks, other.rocks)
+                && java.util.Arrays.equals(torchBits, other.torchBits);
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkData(" + chunkX + "," + chunkY + ")";
+    }
+}
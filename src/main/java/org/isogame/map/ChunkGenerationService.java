@@ -0,0 +1,183 @@
+package org.isogame.map;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Generates chunks on a small pool of background threads.
+ *
+ * Workers only ever produce fresh {@link ChunkData}; they never touch the world.
+ * Finished chunks wait in a handoff queue until the main thread drains them with
+ * {@link #drainReady(int, Consumer)}, which takes a per-frame budget so a burst of
+ * completions can't stall a single frame. A caller that needs a chunk right now
+ * can {@link #await(int, int)} it: if no worker has picked the job up yet the
+ * caller generates it inline instead of waiting behind the rest of the queue.
+ */
+public class ChunkGenerationService {
+
+    private static final class Job {
+        final int chunkX, chunkY;
+        final long requestedAtNanos = System.nanoTime();
+        final AtomicBoolean started = new AtomicBoolean(false);
+        final CompletableFuture<ChunkData> future = new CompletableFuture<>();
+        Job(int chunkX, int chunkY) { this.chunkX = chunkX; this.chunkY = chunkY; }
+    }
+
+    private final ChunkGenerator generator;
+    private final ExecutorService workers;
+    private final ConcurrentHashMap<Long, Job> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ChunkData> ready = new ConcurrentLinkedQueue<>();
+
+    // --- Metrics ---
+    private final AtomicInteger readyCount = new AtomicInteger();
+    private final AtomicLong generatedCount = new AtomicLong();
+    private final AtomicLong totalGenerationNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public ChunkGenerationService(ChunkGenerator generator) {
+        this(generator, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ChunkGenerationService(ChunkGenerator generator, int workerCount) {
+        this.generator = generator;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "ChunkGen-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a chunk for background generation. Requesting a chunk that is already
+     * in flight returns the existing future.
+     */
+    public CompletableFuture<ChunkData> request(int chunkX, int chunkY) {
+        long key = ChunkIndex.key(chunkX, chunkY);
+        Job existing = inFlight.get(key);
+        if (existing != null) return existing.future;
+
+        Job job = new Job(chunkX, chunkY);
+        existing = inFlight.putIfAbsent(key, job);
+        if (existing != null) return existing.future;
+
+        workers.execute(() -> {
+            if (!job.started.compareAndSet(false, true)) return; // claimed by await() or cancelled
+            if (job.future.complete(runGenerator(job))) {
+                ready.add(job.future.getNow(null));
+                readyCount.incrementAndGet();
+            }
+        });
+        return job.future;
+    }
+
+    public boolean isPending(int chunkX, int chunkY) {
+        return inFlight.containsKey(ChunkIndex.key(chunkX, chunkY));
+    }
+
+    /**
+     * Takes ownership of an in-flight chunk, blocking until it is ready. Returns null
+     * if the chunk was never requested. The chunk will not be handed out again by
+     * {@link #drainReady(int, Consumer)}.
+     */
+    public ChunkData await(int chunkX, int chunkY) {
+        Job job = inFlight.remove(ChunkIndex.key(chunkX, chunkY));
+        if (job == null) return null;
+        if (job.started.compareAndSet(false, true)) {
+            // Nobody has started it yet; doing it here beats waiting behind the whole queue.
+            ChunkData chunk = runGenerator(job);
+            job.future.complete(chunk);
+            return chunk;
+        }
+        return job.future.join();
+    }
+
+    /** Drops a request that is no longer wanted. A chunk already being generated is discarded when it finishes. */
+    public void cancel(int chunkX, int chunkY) {
+        Job job = inFlight.remove(ChunkIndex.key(chunkX, chunkY));
+        if (job != null && job.started.compareAndSet(false, true)) {
+            job.future.cancel(false);
+        }
+    }
+
+    /**
+     * Hands up to {@code budget} finished chunks to the caller. Must be called from the main thread.
+     * @return the number of chunks published.
+     */
+    public int drainReady(int budget, Consumer<ChunkData> consumer) {
+        int published = 0;
+        while (published < budget) {
+            ChunkData chunk = ready.poll();
+            if (chunk == null) break;
+            readyCount.decrementAndGet();
+            long key = ChunkIndex.key(chunk.chunkX, chunk.chunkY);
+            Job job = inFlight.get(key);
+            if (job == null || job.future.getNow(null) != chunk) {
+                continue; // Cancelled or already claimed through await().
+            }
+            inFlight.remove(key);
+            consumer.accept(chunk);
+            published++;
+        }
+        return published;
+    }
+
+    private ChunkData runGenerator(Job job) {
+        long start = System.nanoTime();
+        ChunkData chunk = generator.generate(job.chunkX, job.chunkY);
+        long end = System.nanoTime();
+        long latency = end - job.requestedAtNanos;
+        generatedCount.incrementAndGet();
+        totalGenerationNanos.addAndGet(end - start);
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        return chunk;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+        inFlight.clear();
+        ready.clear();
+        readyCount.set(0);
+    }
+
+    // --- Metrics ---
+
+    /** Chunks requested but not yet handed to the main thread (queued, generating or ready). */
+    public int getQueueDepth() { return inFlight.size(); }
+
+    /** Finished chunks waiting in the handoff queue. */
+    public int getReadyCount() { return readyCount.get(); }
+
+    public long getGeneratedCount() { return generatedCount.get(); }
+
+    /** Average time spent inside the generator itself. */
+    public double getAverageGenerationMillis() {
+        long count = generatedCount.get();
+        return count == 0 ? 0.0 : totalGenerationNanos.get() / 1e6 / count;
+    }
+
+    /** Average time from request to finished chunk, including time spent queued. */
+    public double getAverageLatencyMillis() {
+        long count = generatedCount.get();
+        return count == 0 ? 0.0 : totalLatencyNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxLatencyMillis() { return maxLatencyNanos.get() / 1e6; }
+
+    @Override
+    public String toString() {
+        return String.format("ChunkGen[queued=%d, ready=%d, generated=%d, avgGen=%.2fms, avgLatency=%.2fms, maxLatency=%.2fms]",
+                getQueueDepth(), getReadyCount(), getGeneratedCount(),
+                getAverageGenerationMillis(), getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
@@ -0,0 +1,134 @@
+package org.isogame.map;
+
+import org.isogame.tile.Tile;
+
+import static org.isogame.constants.Constants.*;
+
+/**
+ * Builds the terrain for one chunk from the world seed: noise, terrain
+ * classification and decoration.
+ *
+ * The generator holds no per-chunk state (its noise working arrays are per
+ * thread) and touches no world state, so a single instance can be shared by every
+ * worker of {@link ChunkGenerationService}.
+ * Decoration draws from a {@link ChunkRandom} stream keyed on the tile itself, so a
+ * chunk comes out bit-identical regardless of generation order or thread.
+ */
+public class ChunkGenerator {
+
+    private final long worldSeed;
+    private final SimplexNoise noiseGenerator;
+    // Noise working arrays of each generation thread, so generating a chunk allocates nothing but the chunk.
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        final SimplexNoise.GridScratch grid = new SimplexNoise.GridScratch();
+        final double[] height = new double[ChunkData.TILE_COUNT];
+        double[] mountain = new double[ChunkData.TILE_COUNT];
+        double[] roughness = new double[ChunkData.TILE_COUNT];
+    }
+
+    public ChunkGenerator(long worldSeed) {
+        this.worldSeed = worldSeed;
+        this.noiseGenerator = new SimplexNoise((int) worldSeed);
+    }
+
+    public ChunkData generate(int chunkX, int chunkY) {
+        ChunkData chunk = new ChunkData(chunkX, chunkY);
+        int globalStartX = chunkX * CHUNK_SIZE_TILES;
+        int globalStartY = chunkY * CHUNK_SIZE_TILES;
+
+        // The whole heightmap in one pass; laid out row-major, same as ChunkData.index(x, y).
+        double[] heightNoise = scratch.get().height;
+        fillCombinedNoise(heightNoise, globalStartX, globalStartY, CHUNK_SIZE_TILES, CHUNK_SIZE_TILES);
+        ChunkRandom random = new ChunkRandom();
+
+        for (int y = 0; y < CHUNK_SIZE_TILES; y++) {
+            for (int x = 0; x < CHUNK_SIZE_TILES; x++) {
+                int i = ChunkData.index(x, y);
+                double noiseValue = heightNoise[i];
+                int elevation = (int) (((noiseValue + 1.0) / 2.0) * (ALTURA_MAXIMA + 1)) - 1;
+                elevation = Math.max(0, Math.min(ALTURA_MAXIMA, elevation));
+
+                Tile.TileType type = determineTileTypeFromElevation(elevation);
+                chunk.setType(i, type);
+                chunk.setElevation(i, elevation);
+
+                random.setSeed(worldSeed, chunkX, chunkY, i);
+                if (type == Tile.TileType.GRASS && elevation >= NIVEL_ARENA && elevation < NIVEL_ROCA) {
+                    if (random.nextFloat() < 0.08) {
+                        chunk.setTreeType(i, random.nextBoolean() ? Tile.TreeVisualType.APPLE_TREE_FRUITING : Tile.TreeVisualType.PINE_TREE_SMALL);
+                    }
+                }
+                if (chunk.getTreeType(i) == Tile.TreeVisualType.NONE &&
+                        (type == Tile.TileType.GRASS || type == Tile.TileType.DIRT || type == Tile.TileType.ROCK || type == Tile.TileType.SAND) &&
+                        elevation >= NIVEL_MAR && random.nextFloat() < 0.03) {
+                    int rockTypeCount = Tile.LooseRockType.values().length - 1;
+                    int randomRockIndex = random.nextInt(rockTypeCount) + 1;
+                    chunk.setLooseRockType(i, Tile.LooseRockType.values()[randomRockIndex]);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private static final double BASE_FREQUENCY = NOISE_SCALE * 0.05;
+    private static final double MOUNTAIN_FREQUENCY = NOISE_SCALE * 0.2;
+    private static final double ROUGHNESS_FREQUENCY = NOISE_SCALE * 0.8;
+    private static final double BASE_WEIGHT = 1.0;
+    private static final double MOUNTAIN_WEIGHT = 0.40;
+    private static final double ROUGHNESS_WEIGHT = 0.15;
+
+    /**
+     * Grid version of {@link #calculateCombinedNoise(double, double)}: fills
+     * {@code out[row * width + col]} for global tile (originX + col, originY + row).
+     * Output is bit-identical to calling the scalar method per tile.
+     */
+    public void fillCombinedNoise(double[] out, int originX, int originY, int width, int height) {
+        int cells = width * height;
+        Scratch s = scratch.get();
+        if (s.mountain.length < cells) {
+            s.mountain = new double[cells];
+            s.roughness = new double[cells];
+        }
+        double[] mountainNoise = s.mountain;
+        double[] roughnessNoise = s.roughness;
+        noiseGenerator.octaveNoiseGrid(out, originX, originY, width, height, BASE_FREQUENCY, 4, 0.6, s.grid);
+        noiseGenerator.noiseGrid(mountainNoise, originX, originY, width, height, MOUNTAIN_FREQUENCY, s.grid);
+        noiseGenerator.noiseGrid(roughnessNoise, originX, originY, width, height, ROUGHNESS_FREQUENCY, s.grid);
+        double normalizationFactor = BASE_WEIGHT + MOUNTAIN_WEIGHT + ROUGHNESS_WEIGHT;
+        for (int i = 0; i < cells; i++) {
+            double combined = (out[i] * BASE_WEIGHT) + (mountainNoise[i] * MOUNTAIN_WEIGHT) + (roughnessNoise[i] * ROUGHNESS_WEIGHT);
+            combined /= normalizationFactor;
+            out[i] = Math.max(-1.0, Math.min(1.0, combined));
+        }
+    }
+
+    /** Scalar reference for a single tile; chunk generation uses {@link #fillCombinedNoise}. */
+    public double calculateCombinedNoise(double globalX, double globalY) {
+        double baseFrequency = NOISE_SCALE * 0.05;
+        double mountainFrequency = NOISE_SCALE * 0.2;
+        double roughnessFrequency = NOISE_SCALE * 0.8;
+        double baseWeight = 1.0;
+        double mountainWeight = 0.40;
+        double roughnessWeight = 0.15;
+        double baseNoise = noiseGenerator.octaveNoise(globalX * baseFrequency, globalY * baseFrequency, 4, 0.6);
+        double mountainNoise = noiseGenerator.noise(globalX * mountainFrequency, globalY * mountainFrequency);
+        double roughnessNoise = noiseGenerator.noise(globalX * roughnessFrequency, globalY * roughnessFrequency);
+        double combined = (baseNoise * baseWeight) + (mountainNoise * mountainWeight) + (roughnessNoise * roughnessWeight);
+        double normalizationFactor = baseWeight + mountainWeight + roughnessWeight;
+        combined /= normalizationFactor;
+        return Math.max(-1.0, Math.min(1.0, combined));
+    }
+
+    public long getWorldSeed() { return worldSeed; }
+
+    public static Tile.TileType determineTileTypeFromElevation(int elevation) {
+        if (elevation < NIVEL_MAR) return Tile.TileType.WATER;
+        if (elevation < NIVEL_ARENA) return Tile.TileType.SAND;
+        if (elevation < NIVEL_ROCA) return Tile.TileType.GRASS;
+        if (elevation < NIVEL_ROCA + (NIVEL_NIEVE - NIVEL_ROCA) / 2) return Tile.TileType.ROCK;
+        if (elevation < NIVEL_NIEVE) return Tile.TileType.ROCK;
+        return Tile.TileType.SNOW;
+    }
+}
@@ -0,0 +1,280 @@
+package org.isogame.map;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Chunk-coordinate keyed map that never allocates on lookup.
+ *
+ * Keys are the two chunk coordinates packed into one {@code long} (see {@link #key(int, int)}),
+ * stored in an open-addressing table with linear probing. In front of the table sits a
+ * one-entry last-hit slot plus a small direct-mapped cache, so the typical hot-path pattern
+ * (lighting, A*, picking) of hammering the same one or two chunks costs a compare and a load.
+ *
+ * Values must be non-null. Not thread-safe: like the rest of the world state it is only
+ * touched from the main thread.
+ */
+public class ChunkIndex<V> implements Iterable<V> {
+
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final int DEFAULT_CAPACITY = 64; // power of two
+    private static final int CACHE_BITS = 3;
+    private static final int CACHE_SIZE = 1 << CACHE_BITS;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private int modCount;
+
+    // Last-hit slot and direct-mapped cache. A null value means "empty".
+    private long lastKey;
+    private Object lastValue;
+    private final long[] cacheKeys = new long[CACHE_SIZE];
+    private final Object[] cacheValues = new Object[CACHE_SIZE];
+
+    public interface Visitor<V> {
+        void accept(int chunkX, int chunkY, V value);
+    }
+
+    public ChunkIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChunkIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    // --- Key packing ---
+
+    public static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    public static int keyX(long key) { return (int) (key >> 32); }
+    public static int keyY(long key) { return (int) key; }
+
+    /** Well-mixed 32-bit hash of a packed key, also used by {@link LightManager.ChunkCoordinate#hashCode()}. */
+    public static int hash(long key) {
+        long h = key * GOLDEN;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // --- Lookup ---
+
+    public V get(int chunkX, int chunkY) {
+        return get(key(chunkX, chunkY));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (lastValue != null && lastKey == key) {
+            return (V) lastValue;
+        }
+        int slot = cacheSlot(key);
+        Object cached = cacheValues[slot];
+        if (cached != null && cacheKeys[slot] == key) {
+            lastKey = key;
+            lastValue = cached;
+            return (V) cached;
+        }
+        int i = find(key);
+        if (i < 0) return null;
+        Object value = values[i];
+        cacheKeys[slot] = key;
+        cacheValues[slot] = value;
+        lastKey = key;
+        lastValue = value;
+        return (V) value;
+    }
+
+    public boolean containsKey(int chunkX, int chunkY) {
+        return get(key(chunkX, chunkY)) != null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    // --- Mutation ---
+
+    public V put(int chunkX, int chunkY, V value) {
+        return put(key(chunkX, chunkY), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("ChunkIndex does not accept null values");
+        int i = tableIndex(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                Object previous = values[i];
+                values[i] = value;
+                updateCaches(key, value);
+                return (V) previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        modCount++;
+        updateCaches(key, value);
+        if (size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    public V remove(int chunkX, int chunkY) {
+        return remove(key(chunkX, chunkY));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = find(key);
+        if (i < 0) return null;
+        Object previous = values[i];
+        invalidateCaches(key);
+        size--;
+        modCount++;
+
+        // Backward-shift deletion keeps probe chains intact without tombstones.
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) break;
+            int home = tableIndex(keys[j]);
+            // Move j into the hole if its home slot does not lie cyclically in (hole, j].
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = null;
+        return (V) previous;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        java.util.Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+        lastValue = null;
+        java.util.Arrays.fill(cacheValues, null);
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    // --- Iteration ---
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        int expected = modCount;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                visitor.accept(keyX(keys[i]), keyY(keys[i]), (V) values[i]);
+                if (modCount != expected) throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /** Snapshot of all packed keys, safe to iterate while removing entries. */
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) result[n++] = keys[i];
+        }
+        return result;
+    }
+
+    /** Iterates over the values in table order. */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private final int expected = modCount;
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < values.length && values[from] == null) from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < values.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (modCount != expected) throw new ConcurrentModificationException();
+                if (next >= values.length) throw new NoSuchElementException();
+                V value = (V) values[next];
+                next = advance(next + 1);
+                return value;
+            }
+        };
+    }
+
+    // --- Internals ---
+
+    private int tableIndex(long key) {
+        return (int) ((key * GOLDEN) >>> shift);
+    }
+
+    private static int cacheSlot(long key) {
+        return (int) ((key * GOLDEN) >>> (64 - CACHE_BITS));
+    }
+
+    private int find(long key) {
+        int i = tableIndex(key);
+        while (values[i] != null) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void updateCaches(long key, Object value) {
+        int slot = cacheSlot(key);
+        cacheKeys[slot] = key;
+        cacheValues[slot] = value;
+        lastKey = key;
+        lastValue = value;
+    }
+
+    private void invalidateCaches(long key) {
+        if (lastKey == key) lastValue = null;
+        int slot = cacheSlot(key);
+        if (cacheKeys[slot] == key) cacheValues[slot] = null;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = tableIndex(oldKeys[i]);
+                while (values[j] != null) j = (j + 1) & mask;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.isogame.map;
+
+/**
+ * Small deterministic PRNG for world generation, based on SplitMix64.
+ *
+ * A stream is positioned with {@link #setSeed(long, int, int, int)} from the world
+ * seed, chunk coordinates and local tile index, so the numbers a tile sees never
+ * depend on which chunks were generated before it or on which thread. Reseeding is
+ * done in place: one instance per generator call is enough and drawing numbers
+ * never allocates.
+ */
+public final class ChunkRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** Salt for tree/rock decoration streams, so other features can derive independent streams. */
+    public static final long DECORATION_SALT = 0x6465636F72L; // "decor"
+
+    private long state;
+
+    public ChunkRandom() {
+        this.state = 0;
+    }
+
+    /** Positions this stream at the tile's sequence for the given purpose salt. */
+    public ChunkRandom setSeed(long worldSeed, long salt, int chunkX, int chunkY, int localIndex) {
+        this.state = tileSeed(worldSeed, salt, chunkX, chunkY, localIndex);
+        return this;
+    }
+
+    /** Positions this stream at the tile's decoration sequence. */
+    public ChunkRandom setSeed(long worldSeed, int chunkX, int chunkY, int localIndex) {
+        return setSeed(worldSeed, DECORATION_SALT, chunkX, chunkY, localIndex);
+    }
+
+    /**
+     * Hashes the inputs into a stream seed. Each input is folded in through a full
+     * SplitMix64 finalizer, so neighbouring chunks and tiles get unrelated streams.
+     */
+    public static long tileSeed(long worldSeed, long salt, int chunkX, int chunkY, int localIndex) {
+        long h = mix64(worldSeed ^ salt);
+        h = mix64(h + ChunkIndex.key(chunkX, chunkY));
+        return mix64(h + localIndex);
+    }
+
+    /** SplitMix64 finalizer (Stafford variant 13). */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    /** Uniform int in [0, bound). */
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive");
+        // Lemire's multiply-shift; the tiny bias is irrelevant for decoration.
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /** Uniform float in [0, 1). */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+}
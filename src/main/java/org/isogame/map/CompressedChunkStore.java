@@ -0,0 +1,186 @@
+package org.isogame.map;
+
+import org.isogame.savegame.ChunkCodec;
+import org.isogame.savegame.MapSaveData;
+import org.isogame.savegame.RegionFileStore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * In-memory tier for modified chunks that were unloaded, between the loaded
+ * chunks and the region files.
+ *
+ * Each chunk is kept as its {@link ChunkCodec} payload, diffed against the
+ * terrain the generator produces for it: only the tiles the player changed are
+ * stored, so a typical edited chunk shrinks from about 1.5 KB of arrays to a few
+ * dozen bytes, and one whose edits were undone to nothing. Heavily reworked
+ * chunks fall back to per-field palettes. Decoding regenerates the baseline and
+ * applies the diff in well under a millisecond, so a player walking back into
+ * the area gets it within the frame and unloading never waits on the disk.
+ *
+ * Entries are dropped least recently stored first once the tier exceeds its
+ * byte budget; entries the region files don't have yet are written there
+ * first. A save hands the unwritten entries to the background saver through
+ * {@link #collectUnsaved(List, ChunkIndex)}.
+ *
+ * Main thread only.
+ */
+public class CompressedChunkStore {
+
+    /** Rough heap footprint of a loaded ChunkData's tile arrays, for the compression ratio. */
+    public static final int EXPANDED_CHUNK_BYTES = 5 * (16 + ChunkData.TILE_COUNT) + (16 + ChunkData.TILE_COUNT / 8) + 48;
+    // Per-entry bookkeeping on top of the payload: array header, entry object and map node.
+    private static final int ENTRY_OVERHEAD_BYTES = 16 + 24 + 48;
+
+    private enum SaveState { UNSAVED, SAVING, SAVED }
+
+    private static final class Entry {
+        final byte[] payload;
+        // SAVED once the region files hold this exact payload; SAVING while a background save has it.
+        SaveState saveState = SaveState.UNSAVED;
+        Entry(byte[] payload) { this.payload = payload; }
+    }
+
+    private final RegionFileStore regionStore;
+    private final ChunkGenerator baseline;
+    private final long budgetBytes;
+    // Insertion order doubles as eviction order; a chunk is removed whenever it is taken back.
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+    private long storedBytes;
+
+    // --- Stats ---
+    private long chunksStored;
+    private long chunksDecoded;
+    private long chunksSpilled;
+    private long totalDecodeNanos;
+    private long maxDecodeNanos;
+
+    /** {@code baseline} must be the generator the region store diffs against, as payloads move there unchanged. */
+    public CompressedChunkStore(RegionFileStore regionStore, ChunkGenerator baseline, long budgetBytes) {
+        this.regionStore = regionStore;
+        this.baseline = baseline;
+        this.budgetBytes = budgetBytes;
+    }
+
+    public boolean contains(int chunkX, int chunkY) {
+        return entries.containsKey(ChunkIndex.key(chunkX, chunkY));
+    }
+
+    /** Compresses a chunk that is being unloaded; it is not in the region files yet. */
+    public void put(ChunkData chunk) {
+        long key = ChunkIndex.key(chunk.chunkX, chunk.chunkY);
+        Entry previous = entries.remove(key);
+        if (previous != null) storedBytes -= entryBytes(previous);
+        Entry entry = new Entry(ChunkCodec.encodeToArray(chunk, baseline));
+        entries.put(key, entry);
+        storedBytes += entryBytes(entry);
+        chunksStored++;
+        enforceBudget();
+    }
+
+    /**
+     * Removes and decodes a chunk. {@code unsavedOut[0]} is set to whether the
+     * region files lack this version, i.e. whether the chunk still has to be saved.
+     * Returns null if the chunk is not here (or its payload is corrupt).
+     */
+    public ChunkData take(int chunkX, int chunkY, boolean[] unsavedOut) {
+        Entry entry = entries.remove(ChunkIndex.key(chunkX, chunkY));
+        if (entry == null) return null;
+        storedBytes -= entryBytes(entry);
+        long start = System.nanoTime();
+        ChunkData chunk = ChunkCodec.decode(chunkX, chunkY, entry.payload, baseline);
+        long nanos = System.nanoTime() - start;
+        chunksDecoded++;
+        totalDecodeNanos += nanos;
+        maxDecodeNanos = Math.max(maxDecodeNanos, nanos);
+        unsavedOut[0] = entry.saveState != SaveState.SAVED;
+        return chunk;
+    }
+
+    /**
+     * Adds every entry the region files don't have yet to {@code out}; the keys are
+     * also recorded in {@code saving}. Report the outcome through
+     * {@link #onSaveFinished(long, boolean)}. Payloads are never modified, so they
+     * can be handed to another thread as they are.
+     */
+    public void collectUnsaved(List<MapSaveData.EncodedChunk> out, ChunkIndex<Boolean> saving) {
+        for (java.util.Map.Entry<Long, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.saveState != SaveState.UNSAVED) continue;
+            long key = e.getKey();
+            out.add(new MapSaveData.EncodedChunk(ChunkIndex.keyX(key), ChunkIndex.keyY(key), entry.payload));
+            entry.saveState = SaveState.SAVING;
+            saving.put(key, Boolean.TRUE);
+        }
+    }
+
+    /** Ends a save started by {@link #collectUnsaved(List, ChunkIndex)} for one chunk. */
+    public void onSaveFinished(long key, boolean success) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.saveState == SaveState.SAVING) {
+            entry.saveState = success ? SaveState.SAVED : SaveState.UNSAVED;
+        }
+    }
+
+    public boolean hasUnsaved() {
+        for (Entry entry : entries.values()) {
+            if (entry.saveState == SaveState.UNSAVED) return true;
+        }
+        return false;
+    }
+
+    public void clear() {
+        entries.clear();
+        storedBytes = 0;
+    }
+
+    private void enforceBudget() {
+        Iterator<java.util.Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while (storedBytes > budgetBytes && it.hasNext()) {
+            java.util.Map.Entry<Long, Entry> oldest = it.next();
+            Entry entry = oldest.getValue();
+            long key = oldest.getKey();
+            // Keep the chunk if it can't be written out: losing the player's edits is worse than the memory.
+            // A chunk in an unfinished save is written too, in case that save fails.
+            if (entry.saveState != SaveState.SAVED && !regionStore.writeEncoded(ChunkIndex.keyX(key), ChunkIndex.keyY(key), entry.payload)) {
+                break;
+            }
+            it.remove();
+            storedBytes -= entryBytes(entry);
+            chunksSpilled++;
+        }
+    }
+
+    private static int entryBytes(Entry entry) {
+        return entry.payload.length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    // --- Stats ---
+
+    public int getChunkCount() { return entries.size(); }
+    public long getStoredBytes() { return storedBytes; }
+    public long getChunksStored() { return chunksStored; }
+    public long getChunksDecoded() { return chunksDecoded; }
+    public long getChunksSpilled() { return chunksSpilled; }
+
+    /** Heap the stored chunks would take fully expanded, divided by what they take here. */
+    public double getCompressionRatio() {
+        if (storedBytes == 0) return 0;
+        return (double) entries.size() * EXPANDED_CHUNK_BYTES / storedBytes;
+    }
+
+    public double getAverageDecodeMicros() {
+        return chunksDecoded == 0 ? 0 : totalDecodeNanos / 1e3 / chunksDecoded;
+    }
+
+    public double getMaxDecodeMicros() { return maxDecodeNanos / 1e3; }
+
+    @Override
+    public String toString() {
+        return String.format("CompressedChunks[chunks=%d, bytes=%d, ratio=%.1fx, stored=%d, decoded=%d, spilled=%d, avgDecode=%.1fus, maxDecode=%.1fus]",
+                entries.size(), storedBytes, getCompressionRatio(), chunksStored, chunksDecoded, chunksSpilled,
+                getAverageDecodeMicros(), getMaxDecodeMicros());
+    }
+}
@@ -1,115 +1,207 @@
 package org.isogame.map;
 
 import org.isogame.tile.Tile;
-import java.util.Queue;
-import java.util.LinkedList;
 import java.util.Set;
 import java.util.HashSet;
 // List import is not strictly needed by LightManager itself with this approach,
 // but Game.java might pass List<ChunkCoordinate>
 import static org.isogame.constants.Constants.*;
-import java.awt.Color;
 import org.joml.Vector3f;
 
+/**
+ * Block and sky light for the loaded chunks.
+ *
+ * Sky light stored in a chunk is the tile's exposure to the sky at full daylight
+ * ({@link org.isogame.constants.Constants#SKY_LIGHT_DAY}), so it never changes with
+ * the time of day. The current sky level only dims it when the light is used: in
+ * the terrain shader through the sky intensity uniform, and on the CPU through
+ * {@link #effectiveSkyLight(int)}.
+ */
 public class LightManager {
 
     private final Map map;
-    private final Set<ChunkCoordinate> dirtyChunks; // Chunks needing geometry rebuild
+    private final ChunkIndex<ChunkCoordinate> dirtyChunks; // Chunks needing geometry rebuild
+
+    // Queues of the bucket being processed; the steps push into these, so a wave of
+    // light stays in the bucket it started in. See the scheduling section below.
+    private LightQueue skyLightPropagationQueue;
+    private LightQueue skyLightRemovalQueue;
+    private LightQueue blockLightPropagationQueue;
+    private LightQueue blockLightRemovalQueue;
+
+    // Ambient tint endpoints (RGB, 0..1) for the day-night cycle.
+    private static final float[] DAY_COLOR = {1.0f, 1.0f, 1.0f};              // Pure white for midday
+    private static final float[] SUNSET_COLOR = {1.0f, 120 / 255f, 0.0f};     // Warm orange for sunrise/sunset
+    private static final float[] NIGHT_COLOR = {25 / 255f, 25 / 255f, 60 / 255f}; // Blue Deep for night
+
+    // Time World.update gives lighting per frame, and the nodes processed between clock checks.
+    public static final long LIGHT_FRAME_BUDGET_MICROS = 2000;
+    private static final int LIGHT_SLICE_NODES = 256;
+    // Chunk distance from the focus beyond which all work has the same priority.
+    static final int MAX_SCHEDULED_RING = 7;
+
+    static final int MAX_ELEVATION_STEP_FOR_SKYLIGHT_PROPAGATION = 1;
+    static final int MAX_ELEVATION_STEP_FOR_BLOCKLIGHT_PROPAGATION = 2;
+    // Propagation batches at least this large go to the parallel propagator, if it has workers.
+    private static final int PARALLEL_PROPAGATION_MIN_NODES = 4096;
 
-    private final Queue<LightNode> skyLightPropagationQueue;
-    private final Queue<LightNode> skyLightRemovalQueue;
-    private final Queue<LightNode> blockLightPropagationQueue;
-    private final Queue<LightNode> blockLightRemovalQueue;
-
-    private static final Color DAY_COLOR = new Color(255, 255, 255);      // Pure white for midday
-    private static final Color SUNSET_COLOR = new Color(255, 120, 0);     // Warm orange for sunrise/sunset
-    private static final Color NIGHT_COLOR = new Color(25, 25, 60);   // Blue Deep for night
-
-
-    public static final int BATCH_LIGHT_UPDATE_BUDGET = 10000; // Max total light updates across all queues per frame
-    private static final int MAX_LIGHT_UPDATES_PER_QUEUE_PER_FRAME = 4000; // Max updates for a single queue type
+    private byte currentGlobalSkyLightTarget = SKY_LIGHT_DAY;
+    // Queue nodes handled since the manager was created, for throughput reporting.
+    private long nodesProcessed;
+
+    // Light waiting at the edges of chunks that are not loaded; see deferBorderLight.
+    private final ChunkIndex<long[]> pendingBorderLight = new ChunkIndex<>();
+    private long borderTilesDeferred;
+    private long borderTilesApplied;
+    // Chunk of the last node processed, to skip the index lookup for runs in the same chunk.
+    private ChunkData lastChunk;
+
+    // Sky and block propagation steps, on the queues above.
+    private final LightPropagationPass propagationPass;
+    private ParallelLightPropagator parallelPropagator;
+
+    // Pending work by priority, created on first use; see bucketFor.
+    private static final int EDIT_BUCKET = 0;
+    private static final int BUCKET_COUNT = 1 + 2 * (MAX_SCHEDULED_RING + 1);
+    private final LightBucket[] buckets = new LightBucket[BUCKET_COUNT];
+    private LightBucket regrouping; // scratch for reprioritize
+    private int editDepth;
+    private int focusChunkX, focusChunkY;
+    private ChunkVisibility chunkVisibility; // null: every chunk counts as visible
+    // Priority of the last chunk looked up; pushes come in runs from one chunk.
+    private int priorityChunkX, priorityChunkY, cachedPriority = -1;
+    private long lastFrameMicros;
+
+    // getHorizontalPassOpacity per tile type ordinal, for the kernel's raw type arrays.
+    static final int[] OPACITY_BY_ORDINAL = new int[Tile.TileType.values().length];
+    static {
+        for (Tile.TileType type : Tile.TileType.values()) OPACITY_BY_ORDINAL[type.ordinal()] = getHorizontalPassOpacity(type);
+    }
+    static final int WATER_ORDINAL = Tile.TileType.WATER.ordinal();
+    static final int AIR_ORDINAL = Tile.TileType.AIR.ordinal();
 
-    private static final int MAX_ELEVATION_STEP_FOR_SKYLIGHT_PROPAGATION = 1;
-    private static final int MAX_ELEVATION_STEP_FOR_BLOCKLIGHT_PROPAGATION = 2;
 
-    private byte currentGlobalSkyLightTarget = SKY_LIGHT_DAY;
+    /** Tells the scheduler whether a chunk is on screen. */
+    public interface ChunkVisibility {
+        boolean isChunkVisible(int chunkX, int chunkY);
+    }
 
+    /** The four queues of one priority. */
+    private static final class LightBucket {
+        final LightQueue skyRemoval = new LightQueue();
+        final LightQueue blockRemoval = new LightQueue();
+        final LightQueue skyPropagation = new LightQueue();
+        final LightQueue blockPropagation = new LightQueue();
+
+        boolean hasRemoval() { return !skyRemoval.isEmpty() || !blockRemoval.isEmpty(); }
+        boolean hasPropagation() { return !skyPropagation.isEmpty() || !blockPropagation.isEmpty(); }
+        boolean isEmpty() { return !hasRemoval() && !hasPropagation(); }
+        int size() { return skyRemoval.size() + blockRemoval.size() + skyPropagation.size() + blockPropagation.size(); }
+
+        /** 0..3: sky removal, block removal, sky propagation, block propagation. */
+        LightQueue queue(int kind) {
+            switch (kind) {
+                case 0: return skyRemoval;
+                case 1: return blockRemoval;
+                case 2: return skyPropagation;
+                default: return blockPropagation;
+            }
+        }
+    }
 
     public static class ChunkCoordinate {
         public final int chunkX, chunkY;
         public ChunkCoordinate(int chunkX, int chunkY) { this.chunkX = chunkX; this.chunkY = chunkY; }
         @Override public boolean equals(Object o) { if (this == o) return true; if (o == null || getClass() != o.getClass()) return false; ChunkCoordinate cc = (ChunkCoordinate) o; return chunkX == cc.chunkX && chunkY == cc.chunkY; }
-        @Override public int hashCode() { return 31 * chunkX + chunkY; }
+        @Override public int hashCode() { return ChunkIndex.hash(key()); }
+        public long key() { return ChunkIndex.key(chunkX, chunkY); }
         @Override public String toString() { return "ChunkCoord(" + chunkX + "," + chunkY + ")"; }
     }
 
-    public static class LightNode {
-        public final int r, c; // Global tile coordinates
-        public final byte lightLevel;
-        public LightNode(int r, int c, byte lightLevel) { this.r = r; this.c = c; this.lightLevel = lightLevel; }
-        @Override public boolean equals(Object o) { if (this == o) return true; if (o == null || getClass() != o.getClass()) return false; LightNode ln = (LightNode) o; return r == ln.r && c == ln.c && lightLevel == ln.lightLevel; }
-        @Override public int hashCode() { int result = r; result = 31 * result + c; result = 31 * result + (int) lightLevel; return result; }
-    }
-
     /**
      * Calculates the blended ambient light color based on the current global sky light level.
      * This provides the visual tint for the day-night cycle that gets sent to the shader.
+     * Writes into {@code dest} instead of allocating, so it can run every frame.
      *
-     * @return A Color object representing the current ambient light color.
+     * @return {@code dest}, holding the current ambient light color (RGB, 0..1).
      */
-    public Color getAmbientLightColor() {
-        // This assumes SKY_LIGHT_DAY and SKY_LIGHT_NIGHT_MINIMUM are your max/min light constants.
-        // Let's say SKY_LIGHT_DAY = 15 and SKY_LIGHT_NIGHT_MINIMUM = 4.
-
+    public Vector3f getAmbientLightColor(Vector3f dest) {
         // Calculate the current progress of daylight (0.0 = full night, 1.0 = full day)
         float daylightProgress = (float)(this.currentGlobalSkyLightTarget - SKY_LIGHT_NIGHT_MINIMUM) / (SKY_LIGHT_DAY - SKY_LIGHT_NIGHT_MINIMUM);
 
         // Ensure progress is clamped between 0 and 1
         daylightProgress = Math.max(0.0f, Math.min(1.0f, daylightProgress));
 
-        // For a simple two-color blend (Night -> Day):
-        // return lerp(NIGHT_COLOR, DAY_COLOR, daylightProgress);
-
-        // For a three-color blend (Night -> Sunset -> Day), which is fancier:
+        // Three-color blend (Night -> Sunset -> Day)
         if (daylightProgress < 0.5f) {
             // We are in the first half of the transition (Night to Sunset)
-            return lerp(NIGHT_COLOR, SUNSET_COLOR, daylightProgress * 2.0f);
+            return lerp(NIGHT_COLOR, SUNSET_COLOR, daylightProgress * 2.0f, dest);
         } else {
             // We are in the second half (Sunset to Day)
-            return lerp(SUNSET_COLOR, DAY_COLOR, (daylightProgress - 0.5f) * 2.0f);
+            return lerp(SUNSET_COLOR, DAY_COLOR, (daylightProgress - 0.5f) * 2.0f, dest);
         }
     }
 
-    /**
-     * Linearly interpolates between two colors.
-     * (This is a helper function. Ideally, it belongs in a static utility class like "MathUtils.java")
-     *
-     * @param color1 The starting color (when fraction is 0).
-     * @param color2 The ending color (when fraction is 1).
-     * @param fraction The blending factor, from 0.0 to 1.0.
-     * @return The interpolated Color.
-     */
-    private static Color lerp(Color color1, Color color2, float fraction) {
+    /** Linearly interpolates between two RGB colors into {@code dest}. */
+    private static Vector3f lerp(float[] color1, float[] color2, float fraction, Vector3f dest) {
         fraction = Math.max(0.0f, Math.min(1.0f, fraction));
+        return dest.set(color1[0] * (1 - fraction) + color2[0] * fraction,
+                color1[1] * (1 - fraction) + color2[1] * fraction,
+                color1[2] * (1 - fraction) + color2[2] * fraction);
+    }
+
+    /** Current sky level as a fraction of full daylight, for the terrain shader. */
+    public float getSkyIntensity() {
+        return this.currentGlobalSkyLightTarget / (float) SKY_LIGHT_DAY;
+    }
 
-        float r = (color1.getRed()   * (1 - fraction)) + (color2.getRed()   * fraction);
-        float g = (color1.getGreen() * (1 - fraction)) + (color2.getGreen() * fraction);
-        float b = (color1.getBlue()  * (1 - fraction)) + (color2.getBlue()  * fraction);
+    /**
+     * Sky light a tile with the given stored exposure receives at the current time
+     * of day: every level of darkening below full daylight takes one level off.
+     * The terrain shader does the same with {@link #getSkyIntensity()}.
+     */
+    public int effectiveSkyLight(int skyExposure) {
+        return Math.max(0, skyExposure - (SKY_LIGHT_DAY - this.currentGlobalSkyLightTarget));
+    }
 
-        return new Color((int) r, (int) g, (int) b);
+    /** The brighter of a tile's current sky light and its block light, 0..MAX_LIGHT_LEVEL. */
+    public int getEffectiveLight(ChunkData chunk, int i) {
+        return Math.max(effectiveSkyLight(chunk.getSkyLight(i)), chunk.getBlockLight(i));
     }
 
     public LightManager(Map map) {
         this.map = map;
-        this.dirtyChunks = new HashSet<>();
-        this.skyLightPropagationQueue = new LinkedList<>();
-        this.skyLightRemovalQueue = new LinkedList<>();
-        this.blockLightPropagationQueue = new LinkedList<>();
-        this.blockLightRemovalQueue = new LinkedList<>();
+        this.dirtyChunks = new ChunkIndex<>();
+        LightBucket first = bucket(EDIT_BUCKET);
+        this.propagationPass = new LightPropagationPass(this, first.skyPropagation, first.blockPropagation);
+        select(first);
+        int cores = Runtime.getRuntime().availableProcessors();
+        setLightWorkerThreads(cores > 1 ? cores : 0);
+    }
+
+    /**
+     * Threads used to propagate large batches of light (see
+     * {@link #processAllQueuesToCompletion()}); 0 keeps all lighting on the calling thread.
+     */
+    public void setLightWorkerThreads(int count) {
+        if (parallelPropagator != null) parallelPropagator.shutdown();
+        parallelPropagator = (count > 0) ? new ParallelLightPropagator(this, map, count) : null;
+    }
+
+    public int getLightWorkerThreads() {
+        return (parallelPropagator != null) ? parallelPropagator.getWorkerCount() : 0;
+    }
+
+    /** Stops the light worker threads. */
+    public void shutdown() {
+        if (parallelPropagator != null) parallelPropagator.shutdown();
     }
 
     public Set<ChunkCoordinate> getDirtyChunksAndClear() {
-        Set<ChunkCoordinate> currentDirty = new HashSet<>(dirtyChunks);
+        Set<ChunkCoordinate> currentDirty = new HashSet<>();
+        for (ChunkCoordinate coord : dirtyChunks) {
+            currentDirty.add(coord);
+        }
         dirtyChunks.clear();
         return currentDirty;
     }
@@ -117,7 +209,18 @@ public class LightManager {
     public void markChunkDirty(int r_map_coord, int c_map_coord) {
         // No need for map.isValid() as floorDiv will work with any integer.
         // The responsibility of whether these coordinates are "sensible" is higher up.
-        dirtyChunks.add(new ChunkCoordinate(Math.floorDiv(c_map_coord, CHUNK_SIZE_TILES), Math.floorDiv(r_map_coord, CHUNK_SIZE_TILES)));
+        int chunkX = ChunkData.chunkCoordOf(c_map_coord);
+        int chunkY = ChunkData.chunkCoordOf(r_map_coord);
+        // Only allocate a coordinate the first time a chunk goes dirty this frame.
+        if (!dirtyChunks.containsKey(chunkX, chunkY)) {
+            dirtyChunks.put(chunkX, chunkY, new ChunkCoordinate(chunkX, chunkY));
+        }
+    }
+
+    void markChunkDirty(ChunkData chunk) {
+        if (!dirtyChunks.containsKey(chunk.chunkX, chunk.chunkY)) {
+            dirtyChunks.put(chunk.chunkX, chunk.chunkY, new ChunkCoordinate(chunk.chunkX, chunk.chunkY));
+        }
     }
 
     public void setCurrentGlobalSkyLightTarget(byte value) {
@@ -129,85 +232,70 @@ public class LightManager {
     }
 
     public void refreshSkyLightForSingleChunk(ChunkCoordinate chunkCoord, byte targetGlobalSkyValue) {
-        int startR_global = chunkCoord.chunkY * CHUNK_SIZE_TILES;
-        int startC_global = chunkCoord.chunkX * CHUNK_SIZE_TILES;
-        // Iterate CHUNK_SIZE_TILES times, as this method operates on one chunk.
-        // endR and endC will be startR/C + CHUNK_SIZE_TILES.
-        // map.getTile() will handle generating the tiles if they are new.
-
-        for (int r_offset = 0; r_offset < CHUNK_SIZE_TILES; r_offset++) {
-            for (int c_offset = 0; c_offset < CHUNK_SIZE_TILES; c_offset++) {
-                int globalR = startR_global + r_offset;
-                int globalC = startC_global + c_offset;
-                Tile tile = map.getTile(globalR, globalC); // This ensures tile data is available
-                if (tile == null) continue; // Should not happen if map.getTile is robust
-
-                byte oldSkyLight = tile.getSkyLightLevel();
-                byte newSkyLightValue;
-                boolean changed = false;
-
-                if (tile.getType() == Tile.TileType.AIR) {
-                    newSkyLightValue = targetGlobalSkyValue;
-                } else if (tile.getType() == Tile.TileType.WATER) {
-                    newSkyLightValue = (byte)0; // Water surface doesn't emit sky light itself
-                } else {
-                    // Assuming all non-AIR, non-WATER surface tiles get direct sky light
-                    // unless a more complex occlusion system (like roofs) is in place.
-                    newSkyLightValue = targetGlobalSkyValue;
-                }
-
-                if (oldSkyLight != newSkyLightValue) {
-                    tile.setSkyLightLevel(newSkyLightValue);
-                    changed = true;
-                    if (newSkyLightValue < oldSkyLight) {
-                        skyLightRemovalQueue.add(new LightNode(globalR, globalC, oldSkyLight));
-                    }
-                }
-                if (changed) {
-                    markChunkDirty(globalR, globalC);
+        // getOrGenerateChunkTiles() will handle generating the tiles if they are new.
+        ChunkData chunk = map.getOrGenerateChunkTiles(chunkCoord.chunkX, chunkCoord.chunkY);
+        if (chunk == null) return;
+
+        boolean changed = false;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            byte oldSkyLight = chunk.getSkyLight(i);
+            // Water surface doesn't emit sky light itself. All other surface tiles get direct
+            // sky light unless a more complex occlusion system (like roofs) is in place.
+            byte newSkyLightValue = (chunk.getType(i) == Tile.TileType.WATER) ? 0 : targetGlobalSkyValue;
+
+            if (oldSkyLight != newSkyLightValue) {
+                chunk.setSkyLight(i, newSkyLightValue);
+                changed = true;
+                if (newSkyLightValue < oldSkyLight) {
+                    bucketFor(chunk.globalRow(i), chunk.globalCol(i)).skyRemoval.push(chunk.globalRow(i), chunk.globalCol(i), oldSkyLight);
                 }
             }
         }
+        if (changed) {
+            dirtyChunks.put(chunkCoord.chunkX, chunkCoord.chunkY, chunkCoord);
+        }
     }
 
+    /** Sets a chunk's sky exposure; it only needs redoing when its tiles change, not with the time of day. */
     public void initializeSkylightForChunk(ChunkCoordinate chunkCoord) {
-        refreshSkyLightForSingleChunk(chunkCoord, this.currentGlobalSkyLightTarget);
+        refreshSkyLightForSingleChunk(chunkCoord, (byte) SKY_LIGHT_DAY);
     }
 
     public boolean isSurfaceTileExposedToSky(int r, int c, int elevation) {
-        Tile tile = map.getTile(r,c); // Ensures tile data is available
-        if(tile == null || tile.getType() == Tile.TileType.AIR || tile.getType() == Tile.TileType.WATER) {
-            return true;
-        }
-        // For a simple heightmap, any solid surface tile is "exposed".
+        // For a simple heightmap, every surface tile is "exposed".
         return true;
     }
 
     public void addLightSource(int r, int c, byte lightLevel) {
-        Tile tile = map.getTile(r, c); // Ensures tile data is available
-        if (tile != null && tile.isSolidOpaqueBlock() && tile.getType() != Tile.TileType.WATER) {
-            tile.setHasTorch(true); // Set torch status on the tile
-            if (lightLevel > tile.getBlockLightLevel()) {
-                tile.setBlockLightLevel(lightLevel);
-                blockLightPropagationQueue.add(new LightNode(r, c, lightLevel));
+        ChunkData chunk = map.getChunkForTile(r, c); // Ensures tile data is available
+        int i = ChunkData.indexOfGlobal(r, c);
+        Tile.TileType type = chunk.getType(i);
+        if (Tile.isSolidOpaqueBlock(type) && type != Tile.TileType.WATER) {
+            chunk.setTorch(i, true); // Set torch status on the tile
+            byte existing = chunk.getBlockLight(i);
+            if (lightLevel > existing) {
+                chunk.setBlockLight(i, lightLevel);
+                bucketFor(r, c).blockPropagation.push(r, c, lightLevel);
                 markChunkDirty(r,c);
-            } else if (!blockLightPropagationQueue.contains(new LightNode(r,c,tile.getBlockLightLevel())) && tile.getBlockLightLevel() > 0){
+            } else if (existing > 0) {
                 // If the tile already has a block light (maybe from a previous source that was removed but light lingered)
                 // and we are adding a torch that's not brighter, ensure existing light still propagates.
-                blockLightPropagationQueue.add(new LightNode(r, c, tile.getBlockLightLevel()));
+                // The queue ignores the node if it is already waiting.
+                bucketFor(r, c).blockPropagation.push(r, c, existing);
             }
         }
     }
 
     public void removeLightSource(int r, int c) {
-        Tile tile = map.getTile(r, c); // Ensures tile data is available
-        if (tile != null && tile.hasTorch()) {
-            byte oldLight = tile.getBlockLightLevel();
-            tile.setHasTorch(false); // Update torch status on the tile
+        ChunkData chunk = map.getChunkForTile(r, c); // Ensures tile data is available
+        int i = ChunkData.indexOfGlobal(r, c);
+        if (chunk.hasTorch(i)) {
+            byte oldLight = chunk.getBlockLight(i);
+            chunk.setTorch(i, false); // Update torch status on the tile
             // The actual block light level on the tile will be reduced by the removal queue processing.
             // Queue removal of its current light level.
             if (oldLight > 0) { // If it was actually emitting light
-                blockLightRemovalQueue.add(new LightNode(r, c, oldLight));
+                bucketFor(r, c).blockRemoval.push(r, c, oldLight);
                 // Don't setBlockLightLevel(0) here directly, let removal queue handle it
                 // to correctly update neighbors.
                 markChunkDirty(r,c);
@@ -215,245 +303,448 @@ public class LightManager {
         }
     }
 
-    public void processLightQueuesIncrementally(int budget) {
-        processQueue(skyLightRemovalQueue, LightProcessingStep.SKY_REMOVAL, budget);
-        processQueue(blockLightRemovalQueue, LightProcessingStep.BLOCK_REMOVAL, budget);
-        processQueue(skyLightPropagationQueue, LightProcessingStep.SKY_PROPAGATION, budget);
-        processQueue(blockLightPropagationQueue, LightProcessingStep.BLOCK_PROPAGATION, budget);
-    }
     public void processLightQueuesIncrementally() {
-        processLightQueuesIncrementally(MAX_LIGHT_UPDATES_PER_QUEUE_PER_FRAME);
+        processLightQueuesForFrame(LIGHT_FRAME_BUDGET_MICROS);
     }
 
     private enum LightProcessingStep { SKY_PROPAGATION, BLOCK_PROPAGATION, SKY_REMOVAL, BLOCK_REMOVAL }
 
-    private void processQueue(Queue<LightNode> queue, LightProcessingStep stepType, int budget) {
+    private void processQueue(LightQueue queue, LightProcessingStep stepType, int budget) {
+        switch (stepType) {
+            case SKY_PROPAGATION: nodesProcessed += propagationPass.drainSky(budget); break;
+            case BLOCK_PROPAGATION: nodesProcessed += propagationPass.drainBlock(budget); break;
+            default: processRemovalQueue(queue, stepType, budget); break;
+        }
+    }
+
+    private void processRemovalQueue(LightQueue queue, LightProcessingStep stepType, int budget) {
         int processedCount = 0;
         while (!queue.isEmpty() && processedCount < budget) {
-            LightNode current = queue.poll();
-            if (current == null) continue;
-            Tile tile = map.getTile(current.r, current.c); // Ensures tile data is available
-            if (tile == null) continue;
+            long current = queue.poll();
+            processedCount++;
+            int r = LightQueue.row(current);
+            int c = LightQueue.col(current);
+            int lightLevel = LightQueue.level(current);
+            // A chunk unloaded since the node was queued gets its light rebuilt when it loads again.
+            ChunkData chunk = loadedChunkForTile(r, c);
+            if (chunk == null) continue;
+            int i = ChunkData.indexOfGlobal(r, c);
 
             switch (stepType) {
-                case SKY_PROPAGATION:
-                    if (tile.getSkyLightLevel() >= current.lightLevel && current.lightLevel > 0) {
-                        processSingleSkyPropagationStep_Heightmap(new LightNode(current.r, current.c, tile.getSkyLightLevel()));
-                    }
-                    break;
-                case BLOCK_PROPAGATION:
-                    if (tile.getBlockLightLevel() >= current.lightLevel && current.lightLevel > 0) {
-                        processSingleBlockPropagationStep_Heightmap(new LightNode(current.r, current.c, tile.getBlockLightLevel()));
-                    }
-                    break;
-                case SKY_REMOVAL: processSingleSkyRemovalStep_Heightmap(current); break;
-                case BLOCK_REMOVAL: processSingleBlockRemovalStep_Heightmap(current); break;
+                case SKY_REMOVAL: processSingleSkyRemovalStep_Heightmap(chunk, i, lightLevel); break;
+                case BLOCK_REMOVAL: processSingleBlockRemovalStep_Heightmap(chunk, i, lightLevel); break;
             }
-            processedCount++;
         }
+        nodesProcessed += processedCount;
+    }
+
+    /** Loaded chunk or null, without generating anything. */
+    ChunkData loadedChunk(int chunkX, int chunkY) {
+        return map.getLoadedChunk(chunkX, chunkY);
+    }
+
+    /** Loaded chunk holding a tile, without generating anything; consecutive nodes mostly share a chunk. */
+    private ChunkData loadedChunkForTile(int r, int c) {
+        int chunkX = ChunkData.chunkCoordOf(c);
+        int chunkY = ChunkData.chunkCoordOf(r);
+        ChunkData chunk = lastChunk;
+        if (chunk == null || chunk.chunkX != chunkX || chunk.chunkY != chunkY) {
+            chunk = map.getLoadedChunk(chunkX, chunkY);
+            if (chunk != null) lastChunk = chunk;
+        }
+        return chunk;
     }
 
     public int getHorizontalPassOpacity(Tile tileBeingEntered) {
         if (tileBeingEntered == null) return MAX_LIGHT_LEVEL + 1; // Effectively blocks all light
-        if (tileBeingEntered.isTransparentToSkyLight()) return 0;
-        if (tileBeingEntered.getType() == Tile.TileType.WATER) return 3; // Water offers some resistance
-        if (tileBeingEntered.isSolidOpaqueBlock()) return 1; // Standard cost for opaque blocks
-        return 1; // Default
+        return getHorizontalPassOpacity(tileBeingEntered.getType());
     }
 
-    // In LightManager.java, inside the processSingleSkyPropagationStep_Heightmap method
-
-    private void processSingleSkyPropagationStep_Heightmap(LightNode currentQueuedNode) {
-        Tile sourceSurfaceTile = map.getTile(currentQueuedNode.r, currentQueuedNode.c);
-        if (sourceSurfaceTile == null || sourceSurfaceTile.getSkyLightLevel() == 0) return;
-        byte propagatedLightStrength = sourceSurfaceTile.getSkyLightLevel();
+    public static int getHorizontalPassOpacity(Tile.TileType typeBeingEntered) {
+        if (Tile.isTransparentToSkyLight(typeBeingEntered)) return 0;
+        if (typeBeingEntered == Tile.TileType.WATER) return 3; // Water offers some resistance
+        if (Tile.isSolidOpaqueBlock(typeBeingEntered)) return 1; // Standard cost for opaque blocks
+        return 1; // Default
+    }
 
-        int[] dr = {-1, 1, 0, 0}; int[] dc = {0, 0, -1, 1};
-        for (int i = 0; i < 4; i++) {
-            int nr = currentQueuedNode.r + dr[i]; int nc = currentQueuedNode.c + dc[i];
-            Tile neighborSurfaceTile = map.getTile(nr, nc);
-            if (neighborSurfaceTile == null || neighborSurfaceTile.getType() == Tile.TileType.WATER) continue;
+    /**
+     * Processes all light queues until they are completely empty, ignoring the
+     * frame budget. For world load and tools; during play, wrap edits in
+     * {@link #beginEdit()} / {@link #finishEdit()} instead.
+     *
+     * Removal runs first and to completion on this thread: it reads the light
+     * propagation writes, so its order matters. Propagation then only raises
+     * light and ends the same whatever the order, so large batches of it are
+     * split by region and run on the light worker threads. Neither loops: a
+     * removal wave stays in its bucket and propagation never queues removal.
+     */
+    public void processAllQueuesToCompletion() {
+        int propagationNodes = 0;
+        for (LightBucket bucket : buckets) {
+            if (bucket == null) continue;
+            if (bucket.hasRemoval()) {
+                select(bucket);
+                processRemovalQueue(skyLightRemovalQueue, LightProcessingStep.SKY_REMOVAL, Integer.MAX_VALUE);
+                processRemovalQueue(blockLightRemovalQueue, LightProcessingStep.BLOCK_REMOVAL, Integer.MAX_VALUE);
+            }
+            propagationNodes += bucket.skyPropagation.size() + bucket.blockPropagation.size();
+        }
+        if (parallelPropagator != null && propagationNodes >= PARALLEL_PROPAGATION_MIN_NODES) {
+            for (LightBucket bucket : buckets) {
+                if (bucket != null) parallelPropagator.collect(bucket.skyPropagation, bucket.blockPropagation);
+            }
+            nodesProcessed += parallelPropagator.propagate();
+        }
+        for (LightBucket bucket : buckets) {
+            if (bucket != null && bucket.hasPropagation()) drainPropagation(bucket);
+        }
+    }
 
-            int elevationDifference = neighborSurfaceTile.getElevation() - sourceSurfaceTile.getElevation();
+    // --- Scheduling ---
+    // Pending work sits in buckets by priority, nearest first. Bucket 0 holds the
+    // player's own edits and is resolved when the edit finishes. The others hold
+    // work by the chunk it was queued in: 1 + 2 * ring + (visible ? 0 : 1), ring
+    // being the chunk distance to the focus (capped at MAX_SCHEDULED_RING), so a
+    // visible chunk goes before a hidden one at the same distance. Each frame works
+    // through the buckets in order until its time budget is spent.
 
-            // --- THIS IS THE CORRECTED LOGIC ---
-            // Allow light to spread to neighbors of same-height or slightly higher/lower.
-            if (elevationDifference <= MAX_ELEVATION_STEP_FOR_SKYLIGHT_PROPAGATION) {
+    /**
+     * Sets the chunk lighting is prioritised around (the camera's) and what is on
+     * screen. Work already queued is regrouped when the focus chunk changes;
+     * visibility only affects work queued from now on.
+     */
+    public void setFocus(int focusChunkX, int focusChunkY, ChunkVisibility visibility) {
+        this.chunkVisibility = visibility;
+        this.cachedPriority = -1;
+        if (focusChunkX == this.focusChunkX && focusChunkY == this.focusChunkY) return;
+        this.focusChunkX = focusChunkX;
+        this.focusChunkY = focusChunkY;
+        reprioritize();
+    }
 
-                // Light spreading horizontally or upwards costs 1 light level.
-                // Spreading downwards is free (cost = 0).
-                int stepCost = (elevationDifference < 0) ? 0 : 1;
+    /**
+     * Starts a change the player made: light queued until the matching
+     * {@link #finishEdit()} goes into the edit bucket. Calls nest.
+     */
+    public void beginEdit() {
+        editDepth++;
+    }
 
-                int opacityOfNeighborSurface = getHorizontalPassOpacity(neighborSurfaceTile);
-                byte lightReachingNeighbor = (byte) Math.max(0, propagatedLightStrength - stepCost - opacityOfNeighborSurface);
+    /** Ends a change the player made; the outermost call resolves its lighting right away, whatever the frame budget. */
+    public void finishEdit() {
+        if (editDepth == 0 || --editDepth > 0) return;
+        LightBucket bucket = buckets[EDIT_BUCKET];
+        if (bucket.hasRemoval()) {
+            select(bucket);
+            processRemovalQueue(skyLightRemovalQueue, LightProcessingStep.SKY_REMOVAL, Integer.MAX_VALUE);
+            processRemovalQueue(blockLightRemovalQueue, LightProcessingStep.BLOCK_REMOVAL, Integer.MAX_VALUE);
+        }
+        if (bucket.hasPropagation()) drainPropagation(bucket);
+    }
 
-                if (lightReachingNeighbor > neighborSurfaceTile.getSkyLightLevel()) {
-                    neighborSurfaceTile.setSkyLightLevel(lightReachingNeighbor);
-                    if (lightReachingNeighbor > 1) {
-                        skyLightPropagationQueue.add(new LightNode(nr, nc, lightReachingNeighbor));
+    /**
+     * Works through pending light, most urgent first, until about
+     * {@code budgetMicros} have passed. The clock is read every
+     * {@link #LIGHT_SLICE_NODES} nodes, and at least one slice always runs.
+     */
+    public void processLightQueuesForFrame(long budgetMicros) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMicros * 1000L;
+        try {
+            for (LightBucket bucket : buckets) {
+                if (bucket == null || bucket.isEmpty()) continue;
+                select(bucket);
+                while (!bucket.isEmpty()) {
+                    if (!skyLightRemovalQueue.isEmpty()) {
+                        processRemovalQueue(skyLightRemovalQueue, LightProcessingStep.SKY_REMOVAL, LIGHT_SLICE_NODES);
+                    } else if (!blockLightRemovalQueue.isEmpty()) {
+                        processRemovalQueue(blockLightRemovalQueue, LightProcessingStep.BLOCK_REMOVAL, LIGHT_SLICE_NODES);
+                    } else {
+                        processQueue(skyLightPropagationQueue, LightProcessingStep.SKY_PROPAGATION, LIGHT_SLICE_NODES);
+                        processQueue(blockLightPropagationQueue, LightProcessingStep.BLOCK_PROPAGATION, LIGHT_SLICE_NODES);
                     }
-                    markChunkDirty(nr, nc);
+                    if (System.nanoTime() - deadline >= 0) return;
                 }
             }
-            // --- END OF CORRECTION ---
+        } finally {
+            lastFrameMicros = (System.nanoTime() - start) / 1000L;
         }
     }
 
-
-    // In LightManager.java, add this new method anywhere inside the class.
-
-    /**
-     * Processes all light queues until they are completely empty.
-     * This is an intensive operation and should be used sparingly, right after
-     * a world modification, to ensure lighting is visually correct in the same frame.
-     */
-    public void processAllQueuesToCompletion() {
-        int safetyCounter = 0;
-        // The safety counter prevents an infinite loop in case of an undiscovered bug in the lighting logic
-        while (isAnyLightQueueNotEmpty() && safetyCounter < 30) {
-            // Use a large budget to clear queues faster in a single pass
-            processLightQueuesIncrementally(BATCH_LIGHT_UPDATE_BUDGET * 5);
-            safetyCounter++;
-        }
-        if (safetyCounter >= 30) {
-            System.err.println("LightManager.processAllQueuesToCompletion: Hit safety limit. Possible infinite light loop detected.");
+    private void drainPropagation(LightBucket bucket) {
+        select(bucket);
+        while (bucket.hasPropagation()) {
+            processQueue(skyLightPropagationQueue, LightProcessingStep.SKY_PROPAGATION, Integer.MAX_VALUE);
+            processQueue(blockLightPropagationQueue, LightProcessingStep.BLOCK_PROPAGATION, Integer.MAX_VALUE);
         }
     }
 
-    private void processSingleBlockPropagationStep_Heightmap(LightNode currentQueuedNode) {
-        Tile sourceSurfaceTile = map.getTile(currentQueuedNode.r, currentQueuedNode.c);
-        if (sourceSurfaceTile == null || sourceSurfaceTile.getBlockLightLevel() == 0) return;
-        byte propagatedLightStrength = sourceSurfaceTile.getBlockLightLevel();
+    /** Points the steps at a bucket's queues. */
+    private void select(LightBucket bucket) {
+        skyLightRemovalQueue = bucket.skyRemoval;
+        blockLightRemovalQueue = bucket.blockRemoval;
+        skyLightPropagationQueue = bucket.skyPropagation;
+        blockLightPropagationQueue = bucket.blockPropagation;
+        propagationPass.useQueues(bucket.skyPropagation, bucket.blockPropagation);
+    }
 
-        int[] dr = {-1, 1, 0, 0}; int[] dc = {0, 0, -1, 1};
-        for (int i = 0; i < 4; i++) {
-            int nr = currentQueuedNode.r + dr[i]; int nc = currentQueuedNode.c + dc[i];
-            // No map.isValid check needed
-            Tile neighborSurfaceTile = map.getTile(nr, nc);
-            if (neighborSurfaceTile == null || neighborSurfaceTile.getType() == Tile.TileType.AIR) continue;
+    private LightBucket bucket(int priority) {
+        LightBucket bucket = buckets[priority];
+        if (bucket == null) {
+            bucket = new LightBucket();
+            buckets[priority] = bucket;
+        }
+        return bucket;
+    }
 
-            int elevationDifference = Math.abs(neighborSurfaceTile.getElevation() - sourceSurfaceTile.getElevation());
-            if (elevationDifference > MAX_ELEVATION_STEP_FOR_BLOCKLIGHT_PROPAGATION) continue;
+    /** Bucket for light queued from outside the steps at a tile. */
+    private LightBucket bucketFor(int r, int c) {
+        if (editDepth > 0) return bucket(EDIT_BUCKET);
+        int chunkX = ChunkData.chunkCoordOf(c);
+        int chunkY = ChunkData.chunkCoordOf(r);
+        if (cachedPriority < 0 || chunkX != priorityChunkX || chunkY != priorityChunkY) {
+            priorityChunkX = chunkX;
+            priorityChunkY = chunkY;
+            cachedPriority = priorityOf(chunkX, chunkY);
+        }
+        return bucket(cachedPriority);
+    }
 
-            int opacityOfNeighborSurface = getHorizontalPassOpacity(neighborSurfaceTile);
-            byte lightReachingNeighbor = (byte) Math.max(0, propagatedLightStrength - LIGHT_PROPAGATION_COST - opacityOfNeighborSurface);
+    int priorityOf(int chunkX, int chunkY) {
+        int ring = Math.min(MAX_SCHEDULED_RING, Math.max(Math.abs(chunkX - focusChunkX), Math.abs(chunkY - focusChunkY)));
+        boolean visible = chunkVisibility == null || chunkVisibility.isChunkVisible(chunkX, chunkY);
+        return 1 + 2 * ring + (visible ? 0 : 1);
+    }
 
-            if (lightReachingNeighbor > neighborSurfaceTile.getBlockLightLevel()) {
-                neighborSurfaceTile.setBlockLightLevel(lightReachingNeighbor);
-                blockLightPropagationQueue.add(new LightNode(nr, nc, lightReachingNeighbor));
-                markChunkDirty(nr, nc);
+    /** Moves every queued node (except pending edits) to the bucket its chunk has now. */
+    private void reprioritize() {
+        if (regrouping == null) regrouping = new LightBucket();
+        int depth = editDepth;
+        editDepth = 0;
+        for (int kind = 0; kind < 4; kind++) {
+            LightQueue scratch = regrouping.queue(kind);
+            for (int b = EDIT_BUCKET + 1; b < BUCKET_COUNT; b++) {
+                LightQueue from = (buckets[b] != null) ? buckets[b].queue(kind) : null;
+                while (from != null && !from.isEmpty()) {
+                    long node = from.poll();
+                    scratch.push(LightQueue.row(node), LightQueue.col(node), LightQueue.level(node));
+                }
+            }
+            while (!scratch.isEmpty()) {
+                long node = scratch.poll();
+                int r = LightQueue.row(node);
+                int c = LightQueue.col(node);
+                bucketFor(r, c).queue(kind).push(r, c, LightQueue.level(node));
             }
         }
+        editDepth = depth;
     }
 
-    private void processSingleSkyRemovalStep_Heightmap(LightNode nodeBeingRemoved) {
-        int r = nodeBeingRemoved.r; int c = nodeBeingRemoved.c;
-        byte originalLightLevelOfSourceThatIsBeingRemoved = nodeBeingRemoved.lightLevel;
-        Tile sourceSurfaceTile = map.getTile(r,c);
-        if (sourceSurfaceTile == null) return;
+    // --- Chunk-local kernel ---
+    // Each step works on one tile of a loaded chunk and reads the chunk's packed
+    // arrays directly. Neighbours inside the chunk are plain index offsets; across
+    // an edge the chunk's linked neighbour is used. Light that would enter a chunk
+    // that is not loaded is remembered as pending border light instead. The
+    // propagation steps are in LightPropagationPass; the removal steps follow.
+
+    static int skyLightOf(ChunkData chunk, int i) { return (chunk.lightArray()[i] >> 4) & 0x0F; }
+    static int blockLightOf(ChunkData chunk, int i) { return chunk.lightArray()[i] & 0x0F; }
 
-        int[] dr = {-1, 1, 0, 0}; int[] dc = {0, 0, -1, 1};
-        for (int i = 0; i < 4; i++) {
-            int nr = r + dr[i]; int nc = c + dc[i];
-            // No map.isValid needed
-            Tile neighborSurfaceTile = map.getTile(nr, nc);
-            if (neighborSurfaceTile == null || neighborSurfaceTile.getType() == Tile.TileType.WATER) continue;
+    // Removal never needs to enter a chunk that is not loaded: its light is rebuilt when it loads.
 
-            byte currentNeighborSkyLight = neighborSurfaceTile.getSkyLightLevel();
+    private void processSingleSkyRemovalStep_Heightmap(ChunkData sourceChunk, int sourceIndex, int originalLightLevelOfSourceThatIsBeingRemoved) {
+        int sourceElevation = sourceChunk.elevationArray()[sourceIndex];
+
+        for (int dir = 0; dir < 4; dir++) {
+            ChunkData neighborChunk = sourceChunk.chunkTowards(sourceIndex, dir);
+            if (neighborChunk == null) continue;
+            int ni = ChunkData.indexTowards(sourceIndex, dir);
+            int neighborType = neighborChunk.typeArray()[ni];
+            if (neighborType == WATER_ORDINAL) continue;
+
+            int currentNeighborSkyLight = skyLightOf(neighborChunk, ni);
             if (currentNeighborSkyLight == 0) continue;
 
-            int elevationDifference = neighborSurfaceTile.getElevation() - sourceSurfaceTile.getElevation();
+            int neighborElevation = neighborChunk.elevationArray()[ni];
+            int elevationDifference = neighborElevation - sourceElevation;
             int stepCost = LIGHT_PROPAGATION_COST;
             if (elevationDifference < 0) stepCost = 0;
 
             if (elevationDifference > 0 && elevationDifference > MAX_ELEVATION_STEP_FOR_SKYLIGHT_PROPAGATION) continue;
 
-            int opacityOfNeighborSurface = getHorizontalPassOpacity(neighborSurfaceTile);
-            byte lightThatCouldHaveComeFromRemovedSourcePath = (byte) Math.max(0, originalLightLevelOfSourceThatIsBeingRemoved - stepCost - opacityOfNeighborSurface);
+            int lightThatCouldHaveComeFromRemovedSourcePath = Math.max(0, originalLightLevelOfSourceThatIsBeingRemoved - stepCost - OPACITY_BY_ORDINAL[neighborType]);
 
             if (currentNeighborSkyLight <= lightThatCouldHaveComeFromRemovedSourcePath) {
+                int nr = neighborChunk.globalRow(ni);
+                int nc = neighborChunk.globalCol(ni);
                 byte newBaseLight = SKY_LIGHT_NIGHT_MINIMUM;
-                if (isSurfaceTileExposedToSky(nr, nc, neighborSurfaceTile.getElevation())) {
-                    newBaseLight = this.currentGlobalSkyLightTarget;
+                if (isSurfaceTileExposedToSky(nr, nc, neighborElevation)) {
+                    newBaseLight = (byte) SKY_LIGHT_DAY;
                 }
 
                 if (currentNeighborSkyLight > newBaseLight) {
-                    neighborSurfaceTile.setSkyLightLevel(newBaseLight);
-                    skyLightRemovalQueue.add(new LightNode(nr, nc, currentNeighborSkyLight));
-                    markChunkDirty(nr, nc);
-                    if (newBaseLight > 0 && newBaseLight == this.currentGlobalSkyLightTarget) {
-                        skyLightPropagationQueue.add(new LightNode(nr, nc, newBaseLight));
+                    neighborChunk.setSkyLight(ni, newBaseLight);
+                    skyLightRemovalQueue.push(nr, nc, currentNeighborSkyLight);
+                    markChunkDirty(neighborChunk);
+                    if (newBaseLight > 0 && newBaseLight == SKY_LIGHT_DAY) {
+                        skyLightPropagationQueue.push(nr, nc, newBaseLight);
                     }
                 }
             }
         }
     }
 
-    // In LightManager.java
-
-    // In LightManager.java
-
-    private void processSingleBlockRemovalStep_Heightmap(LightNode nodeBeingRemoved) {
-        int r = nodeBeingRemoved.r;
-        int c = nodeBeingRemoved.c;
-        byte originalLightLevelOfSource = nodeBeingRemoved.lightLevel;
-
+    private void processSingleBlockRemovalStep_Heightmap(ChunkData sourceChunk, int sourceIndex, int originalLightLevelOfSource) {
         // The core idea is that we only need to update neighbors whose light level
         // was dependent on the light source we are now removing.
 
-        int[] dr = {-1, 1, 0, 0};
-        int[] dc = {0, 0, -1, 1};
-        for (int i = 0; i < 4; i++) {
-            int nr = r + dr[i];
-            int nc = c + dc[i];
-            Tile neighbor = map.getTile(nr, nc);
+        for (int dir = 0; dir < 4; dir++) {
+            ChunkData neighborChunk = sourceChunk.chunkTowards(sourceIndex, dir);
+            if (neighborChunk == null) continue;
+            int ni = ChunkData.indexTowards(sourceIndex, dir);
 
+            int currentNeighborBlockLight = blockLightOf(neighborChunk, ni);
             // Skip neighbors that have no light to remove.
-            if (neighbor == null || neighbor.getBlockLightLevel() == 0) continue;
-
-            byte currentNeighborBlockLight = neighbor.getBlockLightLevel();
+            if (currentNeighborBlockLight == 0) continue;
 
             // Check if the neighbor has its own independent light source (a torch).
             // If it does, we don't need to process removal for it, but we should
             // re-queue it for propagation to ensure its light "heals" the new darkness.
-            if (neighbor.hasTorch()) {
-                blockLightPropagationQueue.add(new LightNode(nr, nc, currentNeighborBlockLight));
+            if (neighborChunk.hasTorch(ni)) {
+                blockLightPropagationQueue.push(neighborChunk.globalRow(ni), neighborChunk.globalCol(ni), currentNeighborBlockLight);
                 continue;
             }
 
             // Calculate how much light the neighbor could have possibly received from our source.
-            byte lightThatCameFromRemovedSourcePath = (byte) Math.max(0, originalLightLevelOfSource - LIGHT_PROPAGATION_COST - getHorizontalPassOpacity(neighbor));
+            int lightThatCameFromRemovedSourcePath = Math.max(0, originalLightLevelOfSource - LIGHT_PROPAGATION_COST - OPACITY_BY_ORDINAL[neighborChunk.typeArray()[ni]]);
 
-            // CRITICAL FIX: Only queue a neighbor for removal if its current light level
-            // is less than or equal to the light it received from our source. This means
-            // it was dependent on our source and now needs to go dark.
-            // We REMOVE the "else" block that was aggressively re-propagating other light,
-            // as that was the source of the queue explosion.
+            // Only queue a neighbor for removal if its current light level is less than
+            // or equal to the light it received from our source. This means it was
+            // dependent on our source and now needs to go dark.
             if (currentNeighborBlockLight <= lightThatCameFromRemovedSourcePath) {
-                // This neighbor's light was dependent on the source we are removing.
                 // Set its light to 0 and queue it for further removal to its own neighbors.
-                neighbor.setBlockLightLevel((byte) 0);
-                blockLightRemovalQueue.add(new LightNode(nr, nc, currentNeighborBlockLight)); // Queue removal of its old light
-                markChunkDirty(nr, nc);
+                neighborChunk.setBlockLight(ni, (byte) 0);
+                blockLightRemovalQueue.push(neighborChunk.globalRow(ni), neighborChunk.globalCol(ni), currentNeighborBlockLight); // Queue removal of its old light
+                markChunkDirty(neighborChunk);
             }
         }
     }
 
+    // --- Pending border light ---
+    // Per chunk that is not loaded, one bit per edge tile of a loaded neighbour whose
+    // light tried to enter it, per channel and side: bits[channel * 4 + side], bit =
+    // offset along the edge. Sides are ChunkData directions as seen from the pending
+    // chunk. When the chunk loads, those tiles are queued to propagate again.
+
+    private static final int PENDING_SKY = LightPropagationPass.CHANNEL_SKY;
+    private static final int PENDING_BLOCK = LightPropagationPass.CHANNEL_BLOCK;
+
+    void deferBorderLight(ChunkData sourceChunk, int sourceIndex, int dir, int channel) {
+        int targetX = sourceChunk.chunkX + ChunkData.DIR_CHUNK_DX[dir];
+        int targetY = sourceChunk.chunkY + ChunkData.DIR_CHUNK_DY[dir];
+        long[] bits = pendingBorderLight.get(targetX, targetY);
+        if (bits == null) {
+            bits = new long[8];
+            pendingBorderLight.put(targetX, targetY, bits);
+        }
+        int offset = (dir == ChunkData.DIR_NORTH || dir == ChunkData.DIR_SOUTH)
+                ? ChunkData.localX(sourceIndex) : ChunkData.localY(sourceIndex);
+        bits[channel * 4 + ChunkData.opposite(dir)] |= 1L << offset;
+        borderTilesDeferred++;
+    }
+
+    /** Called by Map once a chunk is loaded and linked: re-queues the edge light that was waiting for it. */
+    void applyPendingBorderLight(ChunkData chunk) {
+        long[] bits = pendingBorderLight.remove(chunk.chunkX, chunk.chunkY);
+        if (bits == null) return;
+        for (int side = 0; side < 4; side++) {
+            ChunkData source = chunk.neighbor(side);
+            if (source == null) continue;
+            for (int offset = 0; offset < CHUNK_SIZE_TILES; offset++) {
+                long bit = 1L << offset;
+                boolean sky = (bits[PENDING_SKY * 4 + side] & bit) != 0;
+                boolean block = (bits[PENDING_BLOCK * 4 + side] & bit) != 0;
+                if (!sky && !block) continue;
+                // The source tile is on the source chunk's edge facing this chunk.
+                int edge = CHUNK_SIZE_TILES - 1;
+                int si;
+                switch (side) {
+                    case ChunkData.DIR_NORTH: si = ChunkData.index(offset, edge); break;
+                    case ChunkData.DIR_SOUTH: si = ChunkData.index(offset, 0); break;
+                    case ChunkData.DIR_WEST: si = ChunkData.index(edge, offset); break;
+                    default: si = ChunkData.index(0, offset); break;
+                }
+                int r = source.globalRow(si);
+                int c = source.globalCol(si);
+                if (sky && skyLightOf(source, si) > 0) bucketFor(r, c).skyPropagation.push(r, c, skyLightOf(source, si));
+                if (block && blockLightOf(source, si) > 0) bucketFor(r, c).blockPropagation.push(r, c, blockLightOf(source, si));
+                borderTilesApplied++;
+            }
+        }
+    }
+
+    /** Called by Map after a chunk is unloaded: drops pending light whose only source was that chunk. */
+    void onChunkUnloaded(int chunkX, int chunkY) {
+        if (lastChunk != null && lastChunk.chunkX == chunkX && lastChunk.chunkY == chunkY) lastChunk = null;
+        if (pendingBorderLight.isEmpty()) return;
+        for (int dir = 0; dir < 4; dir++) {
+            int targetX = chunkX + ChunkData.DIR_CHUNK_DX[dir];
+            int targetY = chunkY + ChunkData.DIR_CHUNK_DY[dir];
+            long[] bits = pendingBorderLight.get(targetX, targetY);
+            if (bits == null) continue;
+            int side = ChunkData.opposite(dir);
+            bits[PENDING_SKY * 4 + side] = 0;
+            bits[PENDING_BLOCK * 4 + side] = 0;
+            boolean empty = true;
+            for (long word : bits) empty &= (word == 0);
+            if (empty) pendingBorderLight.remove(targetX, targetY);
+        }
+    }
+
+    /** Forgets all pending border light, for when the whole map is replaced. */
+    void clearPendingBorderLight() {
+        pendingBorderLight.clear();
+        lastChunk = null;
+    }
+
+    public boolean hasPendingBorderLight(int chunkX, int chunkY) { return pendingBorderLight.containsKey(chunkX, chunkY); }
+    public int getPendingBorderChunkCount() { return pendingBorderLight.size(); }
+    public long getBorderTilesDeferred() { return borderTilesDeferred; }
+    public long getBorderTilesApplied() { return borderTilesApplied; }
 
     public boolean isAnyLightQueueNotEmpty() {
-        return !blockLightPropagationQueue.isEmpty() || !blockLightRemovalQueue.isEmpty() ||
-                !skyLightPropagationQueue.isEmpty() || !skyLightRemovalQueue.isEmpty();
+        for (LightBucket bucket : buckets) {
+            if (bucket != null && !bucket.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    /** Nodes waiting in all buckets. */
+    public int getPendingLightNodes() {
+        int pending = 0;
+        for (LightBucket bucket : buckets) {
+            if (bucket != null) pending += bucket.size();
+        }
+        return pending;
+    }
+
+    /** Nodes waiting in the bucket a chunk's work goes to right now. */
+    public int getPendingLightNodes(int chunkX, int chunkY) {
+        LightBucket bucket = buckets[priorityOf(chunkX, chunkY)];
+        return (bucket != null) ? bucket.size() : 0;
     }
 
-    public int getSkyLightPropagationQueueSize() { return skyLightPropagationQueue.size(); }
-    public int getSkyLightRemovalQueueSize() { return skyLightRemovalQueue.size(); }
-    public int getBlockLightPropagationQueueSize() { return blockLightPropagationQueue.size(); }
-    public int getBlockLightRemovalQueueSize() { return blockLightRemovalQueue.size(); }
-    public Queue<LightNode> getBlockLightRemovalQueue_Direct() { return blockLightRemovalQueue; }
+    /** Wall time the last {@link #processLightQueuesForFrame(long)} took. */
+    public long getLastFrameLightMicros() { return lastFrameMicros; }
 
+    public long getNodesProcessed() { return nodesProcessed; }
+    public long getParallelLightRuns() { return (parallelPropagator != null) ? parallelPropagator.getRuns() : 0; }
+    public long getParallelLightRounds() { return (parallelPropagator != null) ? parallelPropagator.getRounds() : 0; }
+    public long getParallelRegionTasks() { return (parallelPropagator != null) ? parallelPropagator.getRegionTasks() : 0; }
 
+    // --- Queueing from outside (chunk borders, area refreshes) ---
 
-    public Queue<LightNode> getSkyLightPropagationQueue_Direct() { return skyLightPropagationQueue; }
-    public Queue<LightNode> getSkyLightRemovalQueue_Direct() { return skyLightRemovalQueue; }
-    public Queue<LightNode> getBlockLightPropagationQueue_Direct() { return blockLightPropagationQueue; }
+    public void queueSkyLightPropagation(int r, int c, byte lightLevel) { bucketFor(r, c).skyPropagation.push(r, c, lightLevel); }
+    public void queueSkyLightRemoval(int r, int c, byte lightLevel) { bucketFor(r, c).skyRemoval.push(r, c, lightLevel); }
+    public void queueBlockLightPropagation(int r, int c, byte lightLevel) { bucketFor(r, c).blockPropagation.push(r, c, lightLevel); }
 }
\ No newline at end of file
@@ -0,0 +1,335 @@
+package org.isogame.map;
+
+import static org.isogame.constants.Constants.*;
+
+/**
+ * The spreading half of lighting: drains a sky and a block propagation queue,
+ * raising neighbouring tiles and queueing them in turn.
+ *
+ * Propagation only ever raises light, so the light it ends with doesn't depend
+ * on the order nodes are processed in. That is what lets the same steps run on
+ * several threads:
+ * <ul>
+ *   <li>The {@link LightManager}'s own pass covers every loaded chunk and
+ *   reports dirty chunks and border light to it directly (main thread).</li>
+ *   <li>A region pass, used by {@link ParallelLightPropagator}, owns the chunks
+ *   of one region and only writes light inside them. Light that would step into
+ *   another region goes to an outbox instead, as do dirty chunks and border
+ *   light, and the propagator merges all of it on the main thread.</li>
+ * </ul>
+ */
+final class LightPropagationPass {
+
+    static final int CHANNEL_SKY = 0;
+    static final int CHANNEL_BLOCK = 1;
+
+    private final LightManager owner;
+    LightQueue skyQueue;
+    LightQueue blockQueue;
+
+    // Region passes only: the region's chunks (null if not loaded), row by row.
+    private final boolean bounded;
+    final int regionX, regionY;
+    private final int regionSize;
+    private final int minChunkX, minChunkY; // first chunk of the region
+    private final ChunkData[] chunks;
+
+    // Region passes only: what the merge applies, in the order it happened.
+    private final boolean[] dirtySlots;
+    private long[] outbox = new long[64]; // LightQueue nodes, channel in bit 7 of the level byte
+    private int outboxSize;
+    // Edge tiles whose light hit an unloaded chunk: [slot * 8 + channel * 4 + dir], bit = offset along the edge.
+    private final long[] deferredEdges;
+
+    private ChunkData lastChunk;
+    private long nodesProcessed;
+
+    /** The main thread's pass over all loaded chunks, draining the manager's own queues. */
+    LightPropagationPass(LightManager owner, LightQueue skyQueue, LightQueue blockQueue) {
+        this.owner = owner;
+        this.skyQueue = skyQueue;
+        this.blockQueue = blockQueue;
+        this.bounded = false;
+        this.regionX = 0;
+        this.regionY = 0;
+        this.regionSize = 0;
+        this.minChunkX = 0;
+        this.minChunkY = 0;
+        this.chunks = null;
+        this.dirtySlots = null;
+        this.deferredEdges = null;
+    }
+
+    /** Main pass: drains another pair of queues from now on (the manager's current priority bucket). */
+    void useQueues(LightQueue skyQueue, LightQueue blockQueue) {
+        this.skyQueue = skyQueue;
+        this.blockQueue = blockQueue;
+    }
+
+    /** A pass over the {@code regionSize} x {@code regionSize} chunks of one region. */
+    LightPropagationPass(LightManager owner, int regionX, int regionY, int regionSize) {
+        this.owner = owner;
+        this.skyQueue = new LightQueue();
+        this.blockQueue = new LightQueue();
+        this.bounded = true;
+        this.regionX = regionX;
+        this.regionY = regionY;
+        this.regionSize = regionSize;
+        this.minChunkX = regionX * regionSize;
+        this.minChunkY = regionY * regionSize;
+        this.chunks = new ChunkData[regionSize * regionSize];
+        this.dirtySlots = new boolean[regionSize * regionSize];
+        this.deferredEdges = new long[regionSize * regionSize * 8];
+    }
+
+    // --- Draining ---
+
+    /** Propagates up to {@code budget} sky nodes; returns how many were taken off the queue. */
+    int drainSky(int budget) {
+        return drain(skyQueue, CHANNEL_SKY, budget);
+    }
+
+    /** Propagates up to {@code budget} block nodes; returns how many were taken off the queue. */
+    int drainBlock(int budget) {
+        return drain(blockQueue, CHANNEL_BLOCK, budget);
+    }
+
+    /** Drains both queues of a region pass completely (worker thread). */
+    void drainAll() {
+        while (!skyQueue.isEmpty() || !blockQueue.isEmpty()) {
+            drain(skyQueue, CHANNEL_SKY, Integer.MAX_VALUE);
+            drain(blockQueue, CHANNEL_BLOCK, Integer.MAX_VALUE);
+        }
+    }
+
+    private int drain(LightQueue queue, int channel, int budget) {
+        lastChunk = null; // chunks may have been unloaded since the last call
+        int processed = 0;
+        while (!queue.isEmpty() && processed < budget) {
+            long node = queue.poll();
+            processed++;
+            int r = LightQueue.row(node);
+            int c = LightQueue.col(node);
+            int level = LightQueue.level(node);
+            // A chunk unloaded since the node was queued gets its light rebuilt when it loads again.
+            ChunkData chunk = chunkForTile(r, c);
+            if (chunk == null || level <= 0) continue;
+            int i = ChunkData.indexOfGlobal(r, c);
+            if (channel == CHANNEL_SKY) {
+                if (LightManager.skyLightOf(chunk, i) >= level) skyStep(chunk, i);
+            } else {
+                if (LightManager.blockLightOf(chunk, i) >= level) blockStep(chunk, i);
+            }
+        }
+        nodesProcessed += processed;
+        return processed;
+    }
+
+    private ChunkData chunkForTile(int r, int c) {
+        int chunkX = ChunkData.chunkCoordOf(c);
+        int chunkY = ChunkData.chunkCoordOf(r);
+        ChunkData chunk = lastChunk;
+        if (chunk != null && chunk.chunkX == chunkX && chunk.chunkY == chunkY) return chunk;
+        chunk = bounded ? regionChunk(chunkX, chunkY) : owner.loadedChunk(chunkX, chunkY);
+        if (chunk != null) lastChunk = chunk;
+        return chunk;
+    }
+
+    // --- Steps ---
+
+    private void skyStep(ChunkData sourceChunk, int sourceIndex) {
+        int propagatedLightStrength = LightManager.skyLightOf(sourceChunk, sourceIndex);
+        int sourceElevation = sourceChunk.elevationArray()[sourceIndex];
+
+        for (int dir = 0; dir < 4; dir++) {
+            ChunkData neighborChunk = sourceChunk.chunkTowards(sourceIndex, dir);
+            if (neighborChunk == null) {
+                deferBorderLight(sourceChunk, sourceIndex, dir, CHANNEL_SKY);
+                continue;
+            }
+            int ni = ChunkData.indexTowards(sourceIndex, dir);
+            int neighborType = neighborChunk.typeArray()[ni];
+            if (neighborType == LightManager.WATER_ORDINAL) continue;
+
+            int elevationDifference = neighborChunk.elevationArray()[ni] - sourceElevation;
+
+            // Allow light to spread to neighbors of same-height or slightly higher/lower.
+            if (elevationDifference <= LightManager.MAX_ELEVATION_STEP_FOR_SKYLIGHT_PROPAGATION) {
+
+                // Light spreading horizontally or upwards costs 1 light level.
+                // Spreading downwards is free (cost = 0).
+                int stepCost = (elevationDifference < 0) ? 0 : 1;
+
+                int lightReachingNeighbor = Math.max(0, propagatedLightStrength - stepCost - LightManager.OPACITY_BY_ORDINAL[neighborType]);
+                if (lightReachingNeighbor == 0) continue;
+
+                if (bounded && neighborChunk != sourceChunk && !inRegion(neighborChunk)) {
+                    sendAcross(neighborChunk, ni, lightReachingNeighbor, CHANNEL_SKY);
+                } else if (lightReachingNeighbor > LightManager.skyLightOf(neighborChunk, ni)) {
+                    neighborChunk.setSkyLight(ni, (byte) lightReachingNeighbor);
+                    if (lightReachingNeighbor > 1) {
+                        skyQueue.push(neighborChunk.globalRow(ni), neighborChunk.globalCol(ni), lightReachingNeighbor);
+                    }
+                    markDirty(neighborChunk);
+                }
+            }
+        }
+    }
+
+    private void blockStep(ChunkData sourceChunk, int sourceIndex) {
+        int propagatedLightStrength = LightManager.blockLightOf(sourceChunk, sourceIndex);
+        int sourceElevation = sourceChunk.elevationArray()[sourceIndex];
+
+        for (int dir = 0; dir < 4; dir++) {
+            ChunkData neighborChunk = sourceChunk.chunkTowards(sourceIndex, dir);
+            if (neighborChunk == null) {
+                deferBorderLight(sourceChunk, sourceIndex, dir, CHANNEL_BLOCK);
+                continue;
+            }
+            int ni = ChunkData.indexTowards(sourceIndex, dir);
+            int neighborType = neighborChunk.typeArray()[ni];
+            if (neighborType == LightManager.AIR_ORDINAL) continue;
+
+            int elevationDifference = Math.abs(neighborChunk.elevationArray()[ni] - sourceElevation);
+            if (elevationDifference > LightManager.MAX_ELEVATION_STEP_FOR_BLOCKLIGHT_PROPAGATION) continue;
+
+            int lightReachingNeighbor = Math.max(0, propagatedLightStrength - LIGHT_PROPAGATION_COST - LightManager.OPACITY_BY_ORDINAL[neighborType]);
+            if (lightReachingNeighbor == 0) continue;
+
+            if (bounded && neighborChunk != sourceChunk && !inRegion(neighborChunk)) {
+                sendAcross(neighborChunk, ni, lightReachingNeighbor, CHANNEL_BLOCK);
+            } else if (lightReachingNeighbor > LightManager.blockLightOf(neighborChunk, ni)) {
+                neighborChunk.setBlockLight(ni, (byte) lightReachingNeighbor);
+                blockQueue.push(neighborChunk.globalRow(ni), neighborChunk.globalCol(ni), lightReachingNeighbor);
+                markDirty(neighborChunk);
+            }
+        }
+    }
+
+    private void markDirty(ChunkData chunk) {
+        if (bounded) {
+            dirtySlots[slotOf(chunk.chunkX, chunk.chunkY)] = true;
+        } else {
+            owner.markChunkDirty(chunk);
+        }
+    }
+
+    private void deferBorderLight(ChunkData sourceChunk, int sourceIndex, int dir, int channel) {
+        if (!bounded) {
+            owner.deferBorderLight(sourceChunk, sourceIndex, dir, channel);
+            return;
+        }
+        int offset = (dir == ChunkData.DIR_NORTH || dir == ChunkData.DIR_SOUTH)
+                ? ChunkData.localX(sourceIndex) : ChunkData.localY(sourceIndex);
+        deferredEdges[slotOf(sourceChunk.chunkX, sourceChunk.chunkY) * 8 + channel * 4 + dir] |= 1L << offset;
+    }
+
+    private void sendAcross(ChunkData neighborChunk, int ni, int level, int channel) {
+        if (outboxSize == outbox.length) outbox = java.util.Arrays.copyOf(outbox, outboxSize * 2);
+        outbox[outboxSize++] = LightQueue.pack(neighborChunk.globalRow(ni), neighborChunk.globalCol(ni), level | (channel << 7));
+    }
+
+    // --- Region bookkeeping (region passes; main thread except for drainAll) ---
+
+    private boolean inRegion(ChunkData chunk) {
+        int x = chunk.chunkX - minChunkX;
+        int y = chunk.chunkY - minChunkY;
+        return x >= 0 && x < regionSize && y >= 0 && y < regionSize;
+    }
+
+    private int slotOf(int chunkX, int chunkY) {
+        return (chunkY - minChunkY) * regionSize + (chunkX - minChunkX);
+    }
+
+    ChunkData regionChunk(int chunkX, int chunkY) {
+        return chunks[slotOf(chunkX, chunkY)];
+    }
+
+    /**
+     * Looks the region's chunks up again; chunks may have loaded or unloaded since
+     * the last run. Main thread. Each chunk is made writable here: a worker's first
+     * light write to a chunk still shared with a save snapshot would otherwise swap
+     * its arrays while workers of neighbouring regions read them.
+     */
+    void bindChunks(Map map) {
+        for (int y = 0; y < regionSize; y++) {
+            for (int x = 0; x < regionSize; x++) {
+                ChunkData chunk = map.getLoadedChunk(minChunkX + x, minChunkY + y);
+                if (chunk != null) chunk.ensureWritable();
+                chunks[y * regionSize + x] = chunk;
+            }
+        }
+    }
+
+    /** Drops chunk references so a cached pass doesn't keep unloaded chunks alive. */
+    void unbindChunks() {
+        java.util.Arrays.fill(chunks, null);
+        lastChunk = null;
+    }
+
+    boolean hasWork() {
+        return !skyQueue.isEmpty() || !blockQueue.isEmpty();
+    }
+
+    /**
+     * Hands everything the last {@link #drainAll()} recorded to the manager and
+     * clears it: dirty chunks, border light, and light for other regions. Light
+     * for other regions is applied like a step would apply it, queueing the tile
+     * in the pass of its own region. Main thread.
+     */
+    void mergeInto(ParallelLightPropagator propagator) {
+        for (int slot = 0; slot < dirtySlots.length; slot++) {
+            if (dirtySlots[slot]) {
+                owner.markChunkDirty(chunks[slot]);
+                dirtySlots[slot] = false;
+            }
+        }
+        for (int word = 0; word < deferredEdges.length; word++) {
+            long bits = deferredEdges[word];
+            if (bits == 0) continue;
+            deferredEdges[word] = 0;
+            int dir = word & 3;
+            int channel = (word >> 2) & 1;
+            int last = CHUNK_SIZE_TILES - 1;
+            for (int offset = 0; offset < CHUNK_SIZE_TILES; offset++) {
+                if ((bits & (1L << offset)) == 0) continue;
+                int i;
+                switch (dir) {
+                    case ChunkData.DIR_NORTH: i = ChunkData.index(offset, 0); break;
+                    case ChunkData.DIR_SOUTH: i = ChunkData.index(offset, last); break;
+                    case ChunkData.DIR_WEST: i = ChunkData.index(0, offset); break;
+                    default: i = ChunkData.index(last, offset); break;
+                }
+                owner.deferBorderLight(chunks[word >> 3], i, dir, channel);
+            }
+        }
+        for (int n = 0; n < outboxSize; n++) {
+            long node = outbox[n];
+            int r = LightQueue.row(node);
+            int c = LightQueue.col(node);
+            int level = LightQueue.level(node) & 0x7F;
+            int channel = LightQueue.level(node) >>> 7;
+            LightPropagationPass target = propagator.regionFor(r, c);
+            ChunkData chunk = target.regionChunk(ChunkData.chunkCoordOf(c), ChunkData.chunkCoordOf(r));
+            int i = ChunkData.indexOfGlobal(r, c);
+            if (channel == CHANNEL_SKY) {
+                if (level > LightManager.skyLightOf(chunk, i)) {
+                    chunk.setSkyLight(i, (byte) level);
+                    if (level > 1) target.skyQueue.push(r, c, level);
+                    owner.markChunkDirty(chunk);
+                }
+            } else if (level > LightManager.blockLightOf(chunk, i)) {
+                chunk.setBlockLight(i, (byte) level);
+                target.blockQueue.push(r, c, level);
+                owner.markChunkDirty(chunk);
+            }
+        }
+        outboxSize = 0;
+    }
+
+    long takeNodesProcessed() {
+        long n = nodesProcessed;
+        nodesProcessed = 0;
+        return n;
+    }
+}
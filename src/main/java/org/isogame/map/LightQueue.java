@@ -0,0 +1,116 @@
+package org.isogame.map;
+
+/**
+ * FIFO of light BFS nodes that allocates nothing per node.
+ *
+ * A node is a global tile position plus a light level packed into one
+ * {@code long} (see {@link #pack(int, int, int)}), kept in a growable
+ * power-of-two ring buffer. A node that is already waiting in the queue is not
+ * added again: each chunk the queue touches gets a 256-entry mask with one bit
+ * per light level, set while a node is queued and cleared when it is polled.
+ * The masks are reused, so once the queue has seen an area, pushing and polling
+ * there is allocation-free.
+ *
+ * Main thread only, like the rest of the lighting.
+ */
+public final class LightQueue {
+
+    private static final int INITIAL_CAPACITY = 1024; // power of two
+    // Drop the per-chunk masks once the queue drains if it has collected more than this many.
+    private static final int MAX_IDLE_MASK_CHUNKS = 256;
+
+    private long[] nodes = new long[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+    private final ChunkIndex<short[]> queuedMasks = new ChunkIndex<>();
+    // Last mask used; BFS runs mostly stay in one chunk, so this skips most index lookups.
+    private short[] lastMask;
+    private int lastMaskX, lastMaskY;
+
+    // --- Stats ---
+    private long duplicatesSkipped;
+
+    // --- Packing: row in the top 28 bits, column in the next 28, level in the low 8 ---
+
+    public static long pack(int row, int col, int level) {
+        return ((long) row << 36) | ((col & 0xFFFFFFFL) << 8) | (level & 0xFF);
+    }
+
+    public static int row(long node) { return (int) (node >> 36); }
+    public static int col(long node) { return (int) ((node << 28) >> 36); }
+    public static int level(long node) { return (int) (node & 0xFF); }
+
+    /** Adds a node unless the same tile is already queued with the same level. Returns false if it was skipped. */
+    public boolean push(int row, int col, int level) {
+        short[] mask = maskFor(row, col);
+        int i = ChunkData.indexOfGlobal(row, col);
+        int bit = 1 << (level & 15);
+        if ((mask[i] & bit) != 0) {
+            duplicatesSkipped++;
+            return false;
+        }
+        mask[i] |= bit;
+        if (size == nodes.length) grow();
+        nodes[(head + size) & (nodes.length - 1)] = pack(row, col, level);
+        size++;
+        return true;
+    }
+
+    /** Removes and returns the oldest node. The queue must not be empty. */
+    public long poll() {
+        long node = nodes[head];
+        head = (head + 1) & (nodes.length - 1);
+        size--;
+        int row = row(node);
+        int col = col(node);
+        short[] mask = maskFor(row, col);
+        mask[ChunkData.indexOfGlobal(row, col)] &= ~(1 << (level(node) & 15));
+        if (size == 0 && queuedMasks.size() > MAX_IDLE_MASK_CHUNKS) clearMasks();
+        return node;
+    }
+
+    public boolean contains(int row, int col, int level) {
+        short[] mask = queuedMasks.get(ChunkData.chunkCoordOf(col), ChunkData.chunkCoordOf(row));
+        return mask != null && (mask[ChunkData.indexOfGlobal(row, col)] & (1 << (level & 15))) != 0;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+    public int capacity() { return nodes.length; }
+    public long getDuplicatesSkipped() { return duplicatesSkipped; }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        clearMasks();
+    }
+
+    private void clearMasks() {
+        queuedMasks.clear();
+        lastMask = null;
+    }
+
+    private short[] maskFor(int row, int col) {
+        int chunkX = ChunkData.chunkCoordOf(col);
+        int chunkY = ChunkData.chunkCoordOf(row);
+        if (lastMask != null && lastMaskX == chunkX && lastMaskY == chunkY) return lastMask;
+        short[] mask = queuedMasks.get(chunkX, chunkY);
+        if (mask == null) {
+            mask = new short[ChunkData.TILE_COUNT];
+            queuedMasks.put(chunkX, chunkY, mask);
+        }
+        lastMask = mask;
+        lastMaskX = chunkX;
+        lastMaskY = chunkY;
+        return mask;
+    }
+
+    private void grow() {
+        long[] bigger = new long[nodes.length * 2];
+        for (int n = 0; n < size; n++) {
+            bigger[n] = nodes[(head + n) & (nodes.length - 1)];
+        }
+        nodes = bigger;
+        head = 0;
+    }
+}
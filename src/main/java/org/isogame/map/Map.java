@@ -7,156 +7,244 @@ import org.isogame.item.Item;
 import org.isogame.item.ItemRegistry;
 import org.isogame.savegame.EntitySaveData;
 import org.isogame.savegame.MapSaveData;
+import org.isogame.savegame.RegionFileStore;
 import org.isogame.savegame.TileSaveData;
 import org.isogame.tile.FurnaceEntity;
 import org.isogame.tile.Tile;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
 import static org.isogame.constants.Constants.*;
 
 public class Map {
-    private final HashMap<LightManager.ChunkCoordinate, Tile[][]> loadedChunkTiles;
-    private final HashMap<LightManager.ChunkCoordinate, Boolean> chunkModificationStatus;
-    private final SimplexNoise noiseGenerator;
-    private final Random random = new Random();
+    private final ChunkIndex<ChunkData> loadedChunkTiles;
+    private final ChunkIndex<Boolean> chunkModificationStatus;
+    private final ChunkGenerator generator;
+    private final ChunkGenerationService generationService;
     private int characterSpawnRow;
     private int characterSpawnCol;
     private final LightManager lightManager;
     private final long worldSeed;
 
-    // This map stores modified chunk data that is currently not loaded into active memory.
-    private final HashMap<LightManager.ChunkCoordinate, MapSaveData.ChunkDiskData> modifiedUnloadedChunks;
+    // Modified chunks that are not loaded live on disk, in region files.
+    private final RegionFileStore regionStore;
+    // Unloaded modified chunks, compressed, before they reach the region files.
+    private final CompressedChunkStore compressedChunks;
+    // Chunks handed to a background save that has not finished yet; see collectDirtyChunkSnapshots.
+    private final ChunkIndex<Boolean> savingChunks = new ChunkIndex<>();
+    private final boolean[] unsavedFlag = new boolean[1];
 
     public Map(long seed) {
+        this(seed, null);
+    }
+
+    /**
+     * @param regionDirectory where modified chunks go when they are unloaded;
+     *                        null uses a temporary directory until the world is saved.
+     */
+    public Map(long seed, Path regionDirectory) {
         this.worldSeed = seed;
-        this.noiseGenerator = new SimplexNoise((int) this.worldSeed);
-        this.loadedChunkTiles = new HashMap<>();
-        this.chunkModificationStatus = new HashMap<>();
+        this.generator = new ChunkGenerator(this.worldSeed);
+        this.generationService = new ChunkGenerationService(this.generator);
+        this.loadedChunkTiles = new ChunkIndex<>();
+        this.chunkModificationStatus = new ChunkIndex<>();
         this.lightManager = new LightManager(this);
-        this.modifiedUnloadedChunks = new HashMap<>();
+        this.regionStore = (regionDirectory != null) ? new RegionFileStore(regionDirectory, generator) : RegionFileStore.temporary(generator);
+        this.compressedChunks = new CompressedChunkStore(regionStore, generator, COMPRESSED_CHUNK_BUDGET_BYTES);
 
         findSuitableCharacterPositionInChunk(0, 0);
 
     }
 
-    public Tile[][] getOrGenerateChunkTiles(int chunkX, int chunkY) {
-        LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(chunkX, chunkY);
+    public ChunkData getOrGenerateChunkTiles(int chunkX, int chunkY) {
+        long key = ChunkIndex.key(chunkX, chunkY);
 
-        // 1. Check if the chunk is already loaded in active memory.
-        if (loadedChunkTiles.containsKey(coord)) {
-            return loadedChunkTiles.get(coord);
+        // 1. Check if the chunk is already loaded in active memory (allocation-free fast path).
+        ChunkData loaded = loadedChunkTiles.get(key);
+        if (loaded != null) {
+            return loaded;
         }
 
-        // 2. Check if there is a modified, unloaded version of this chunk in our storage.
-        if (modifiedUnloadedChunks.containsKey(coord)) {
-            System.out.println("Map: Reloading modified chunk " + coord + " from storage.");
-            MapSaveData.ChunkDiskData chunkData = modifiedUnloadedChunks.get(coord);
-            Tile[][] tiles = convertSaveFormatToChunkTiles(chunkData.tiles);
-
-            // Load the tiles back into active memory and remove from temporary storage.
-            loadedChunkTiles.put(coord, tiles);
-            chunkModificationStatus.put(coord, true); // It was modified, so keep the flag.
-            modifiedUnloadedChunks.remove(coord);
-            return tiles;
+        // 2. Recently unloaded modified chunks are kept compressed in memory.
+        ChunkData compressed = compressedChunks.take(chunkX, chunkY, unsavedFlag);
+        if (compressed != null) {
+            addLoadedChunk(key, compressed, unsavedFlag[0]);
+            return compressed;
         }
 
-        // 3. If no saved version exists, generate the chunk from scratch.
-        System.out.println("Map: Generating new chunk " + coord + " from seed.");
-        Tile[][] chunkTiles = new Tile[CHUNK_SIZE_TILES][CHUNK_SIZE_TILES];
-        int globalStartX = chunkX * CHUNK_SIZE_TILES;
-        int globalStartY = chunkY * CHUNK_SIZE_TILES;
+        // 3. Check if a modified version of this chunk was stored in the region files.
+        //    The region copy stays authoritative until the chunk is modified again.
+        ChunkData storedChunk = regionStore.read(chunkX, chunkY);
+        if (storedChunk != null) {
+            addLoadedChunk(key, storedChunk, false);
+            return storedChunk;
+        }
 
-        for (int y = 0; y < CHUNK_SIZE_TILES; y++) {
-            for (int x = 0; x < CHUNK_SIZE_TILES; x++) {
-                double noiseValue = calculateCombinedNoise(globalStartX + x, globalStartY + y);
-                int elevation = (int) (((noiseValue + 1.0) / 2.0) * (ALTURA_MAXIMA + 1)) - 1;
-                elevation = Math.max(0, Math.min(ALTURA_MAXIMA, elevation));
+        // 4. If no saved version exists, take it from the generation service if a worker
+        //    already has it in flight, otherwise generate it from scratch on this thread.
+        ChunkData chunk = generationService.await(chunkX, chunkY);
+        if (chunk == null) {
+            chunk = generator.generate(chunkX, chunkY);
+        }
+        addLoadedChunk(key, chunk, false);
+        return chunk;
+    }
 
-                Tile.TileType type = determineTileTypeFromElevation(elevation);
-                chunkTiles[y][x] = new Tile(type, elevation);
+    /**
+     * Puts a chunk into the loaded set, links it with its loaded neighbours and
+     * hands it any light that reached its edges while it was not loaded.
+     */
+    private void addLoadedChunk(long key, ChunkData chunk, boolean modified) {
+        loadedChunkTiles.put(key, chunk);
+        chunkModificationStatus.put(key, modified);
+        for (int dir = 0; dir < 4; dir++) {
+            ChunkData neighbor = loadedChunkTiles.get(chunk.chunkX + ChunkData.DIR_CHUNK_DX[dir], chunk.chunkY + ChunkData.DIR_CHUNK_DY[dir]);
+            chunk.setNeighbor(dir, neighbor);
+            if (neighbor != null) neighbor.setNeighbor(ChunkData.opposite(dir), chunk);
+        }
+        lightManager.applyPendingBorderLight(chunk);
+    }
 
-                if (type == Tile.TileType.GRASS && elevation >= NIVEL_ARENA && elevation < NIVEL_ROCA) {
-                    if (random.nextFloat() < 0.08) {
-                        chunkTiles[y][x].setTreeType(random.nextBoolean() ? Tile.TreeVisualType.APPLE_TREE_FRUITING : Tile.TreeVisualType.PINE_TREE_SMALL);
-                    }
-                }
-                if (chunkTiles[y][x].getTreeType() == Tile.TreeVisualType.NONE &&
-                        (type == Tile.TileType.GRASS || type == Tile.TileType.DIRT || type == Tile.TileType.ROCK || type == Tile.TileType.SAND) &&
-                        elevation >= NIVEL_MAR && random.nextFloat() < 0.03) {
-                    int rockTypeCount = Tile.LooseRockType.values().length - 1;
-                    int randomRockIndex = random.nextInt(rockTypeCount) + 1;
-                    chunkTiles[y][x].setLooseRockType(Tile.LooseRockType.values()[randomRockIndex]);
-                }
+    public boolean isChunkLoaded(int chunkX, int chunkY) {
+        return loadedChunkTiles.containsKey(chunkX, chunkY);
+    }
+
+    /** The chunk if it is loaded, otherwise null; never loads or generates anything. */
+    public ChunkData getLoadedChunk(int chunkX, int chunkY) {
+        return loadedChunkTiles.get(chunkX, chunkY);
+    }
+
+    /**
+     * Makes sure a chunk will become available without blocking the caller.
+     * Stored (modified) chunks, in memory or on disk, are decoded immediately; fresh chunks are queued on
+     * the background generator and show up through {@link #publishGeneratedChunks(int)}.
+     *
+     * @return true if the chunk is loaded by the time this returns.
+     */
+    public boolean requestChunk(int chunkX, int chunkY) {
+        if (loadedChunkTiles.containsKey(chunkX, chunkY)) return true;
+        if (compressedChunks.contains(chunkX, chunkY) || regionStore.contains(chunkX, chunkY)) {
+            getOrGenerateChunkTiles(chunkX, chunkY);
+            return true;
+        }
+        generationService.request(chunkX, chunkY);
+        return false;
+    }
+
+    public void cancelChunkRequest(int chunkX, int chunkY) {
+        generationService.cancel(chunkX, chunkY);
+    }
+
+    /**
+     * Moves up to {@code budget} chunks finished by the background generator into the loaded set.
+     * @return the number of chunks published this call.
+     */
+    public int publishGeneratedChunks(int budget) {
+        return generationService.drainReady(budget, chunk -> {
+            if (!loadedChunkTiles.containsKey(chunk.chunkX, chunk.chunkY)) {
+                addLoadedChunk(ChunkIndex.key(chunk.chunkX, chunk.chunkY), chunk, false);
             }
+        });
+    }
+
+    public ChunkGenerationService getGenerationService() { return generationService; }
+
+    public RegionFileStore getRegionStore() { return regionStore; }
+
+    /**
+     * Moves the region files to {@code regionDirectory} if the world was using
+     * another directory. Nothing is committed here: the save that follows commits
+     * the chunks that belong with it.
+     */
+    public boolean saveRegionsTo(Path regionDirectory) {
+        try {
+            regionStore.relocate(regionDirectory);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Map.saveRegionsTo: Failed to store region files in " + regionDirectory + ": " + e.getMessage());
+            return false;
         }
-        loadedChunkTiles.put(coord, chunkTiles);
-        chunkModificationStatus.put(coord, false);
-        return chunkTiles;
+    }
+
+    /** Stops the background generator and light threads and closes the region files. The map must not be used afterwards. */
+    public void shutdown() {
+        generationService.shutdown();
+        lightManager.shutdown();
+        regionStore.close();
+    }
+
+    /**
+     * Returns the chunk that holds the given global tile, generating it if needed.
+     * Pair with {@link ChunkData#indexOfGlobal(int, int)} to read tile fields without creating a {@link Tile}.
+     */
+    public ChunkData getChunkForTile(int globalR, int globalC) {
+        return getOrGenerateChunkTiles(ChunkData.chunkCoordOf(globalC), ChunkData.chunkCoordOf(globalR));
     }
 
     public Tile getTile(int globalR, int globalC) {
-        int chunkX = Math.floorDiv(globalC, CHUNK_SIZE_TILES);
-        int chunkY = Math.floorDiv(globalR, CHUNK_SIZE_TILES);
+        return new Tile(getChunkForTile(globalR, globalC), ChunkData.indexOfGlobal(globalR, globalC));
+    }
 
-        Tile[][] chunkSpecificTiles = getOrGenerateChunkTiles(chunkX, chunkY);
+    // --- Allocation-free accessors for hot paths ---
 
-        int localX = globalC % CHUNK_SIZE_TILES;
-        localX = (localX < 0) ? localX + CHUNK_SIZE_TILES : localX; // Ensure positive modulo result
-        int localY = globalR % CHUNK_SIZE_TILES;
-        localY = (localY < 0) ? localY + CHUNK_SIZE_TILES : localY; // Ensure positive modulo result
+    public Tile.TileType getTileType(int globalR, int globalC) {
+        return getChunkForTile(globalR, globalC).getType(ChunkData.indexOfGlobal(globalR, globalC));
+    }
 
+    public int getElevation(int globalR, int globalC) {
+        return getChunkForTile(globalR, globalC).getElevation(ChunkData.indexOfGlobal(globalR, globalC));
+    }
 
-        if (localX >= 0 && localX < CHUNK_SIZE_TILES && localY >= 0 && localY < CHUNK_SIZE_TILES) {
-            return chunkSpecificTiles[localY][localX];
-        } else {
-            System.err.println("Map.getTile: Calculated invalid local coordinates (" + localY + "," + localX + ") for global (" + globalR + "," + globalC + ") in chunk (" + chunkY + "," + chunkX + ")");
-            return null;
-        }
+    public byte getSkyLight(int globalR, int globalC) {
+        return getChunkForTile(globalR, globalC).getSkyLight(ChunkData.indexOfGlobal(globalR, globalC));
+    }
+
+    public byte getBlockLight(int globalR, int globalC) {
+        return getChunkForTile(globalR, globalC).getBlockLight(ChunkData.indexOfGlobal(globalR, globalC));
+    }
+
+    public boolean hasTorch(int globalR, int globalC) {
+        return getChunkForTile(globalR, globalC).hasTorch(ChunkData.indexOfGlobal(globalR, globalC));
     }
 
     public void markChunkAsModified(int chunkX, int chunkY) {
-        LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(chunkX, chunkY);
-        if (!loadedChunkTiles.containsKey(coord)) {
-            System.err.println("Map.markChunkAsModified: Attempting to mark a non-loaded chunk " + coord + ". This might indicate an issue.");
+        if (!loadedChunkTiles.containsKey(chunkX, chunkY)) {
+            System.err.println("Map.markChunkAsModified: Attempting to mark a non-loaded chunk (" + chunkX + "," + chunkY + "). This might indicate an issue.");
         }
-        chunkModificationStatus.put(coord, true);
+        chunkModificationStatus.put(chunkX, chunkY, true);
+        ChunkData chunk = loadedChunkTiles.get(chunkX, chunkY);
+        if (chunk != null) chunk.setLightStored(false); // its light may no longer match its neighbours' stored light
     }
 
+    /**
+     * Drops a chunk from the loaded set. A modified chunk moves to the compressed
+     * in-memory tier, which passes it on to the region files when it runs out of
+     * room or the game is saved; an unmodified one can be read or generated again.
+     * Either way the save on disk only takes the chunk when the game is saved.
+     */
     public void unloadChunkData(int chunkX, int chunkY) {
-        LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(chunkX, chunkY);
-        if (loadedChunkTiles.containsKey(coord)) {
-            if (chunkModificationStatus.getOrDefault(coord, false)) {
-                System.out.println("Map: Storing modified chunk " + coord + " before unloading.");
-                Tile[][] tilesToSave = loadedChunkTiles.get(coord);
-                MapSaveData.ChunkDiskData chunkData = new MapSaveData.ChunkDiskData(chunkX, chunkY);
-                chunkData.tiles = convertChunkTilesToSaveFormat(tilesToSave);
-                modifiedUnloadedChunks.put(coord, chunkData);
+        long key = ChunkIndex.key(chunkX, chunkY);
+        ChunkData tilesToSave = loadedChunkTiles.get(key);
+        if (tilesToSave != null) {
+            // A chunk still being saved in the background is kept too: if that save
+            // fails, this copy is the only one left.
+            if (Boolean.TRUE.equals(chunkModificationStatus.get(key)) || savingChunks.containsKey(key)) {
+                compressedChunks.put(tilesToSave);
             }
-            loadedChunkTiles.remove(coord);
-            chunkModificationStatus.remove(coord);
+            loadedChunkTiles.remove(key);
+            chunkModificationStatus.remove(key);
+            for (int dir = 0; dir < 4; dir++) {
+                ChunkData neighbor = tilesToSave.neighbor(dir);
+                if (neighbor != null) neighbor.setNeighbor(ChunkData.opposite(dir), null);
+                tilesToSave.setNeighbor(dir, null);
+            }
+            lightManager.onChunkUnloaded(chunkX, chunkY);
         }
     }
 
-    private double calculateCombinedNoise(double globalX, double globalY) {
-        double baseFrequency = NOISE_SCALE * 0.05;
-        double mountainFrequency = NOISE_SCALE * 0.2;
-        double roughnessFrequency = NOISE_SCALE * 0.8;
-        double baseWeight = 1.0;
-        double mountainWeight = 0.40;
-        double roughnessWeight = 0.15;
-        double baseNoise = noiseGenerator.octaveNoise(globalX * baseFrequency, globalY * baseFrequency, 4, 0.6);
-        double mountainNoise = noiseGenerator.noise(globalX * mountainFrequency, globalY * mountainFrequency);
-        double roughnessNoise = noiseGenerator.noise(globalX * roughnessFrequency, globalY * roughnessFrequency);
-        double combined = (baseNoise * baseWeight) + (mountainNoise * mountainWeight) + (roughnessNoise * roughnessWeight);
-        double normalizationFactor = baseWeight + mountainWeight + roughnessWeight;
-        combined /= normalizationFactor;
-        return Math.max(-1.0, Math.min(1.0, combined));
-    }
-
     private void findSuitableCharacterPositionInChunk(int chunkX, int chunkY) {
-        Tile[][] chunkTiles = getOrGenerateChunkTiles(chunkX, chunkY);
+        ChunkData chunk = getOrGenerateChunkTiles(chunkX, chunkY);
 
         int centerLocalRow = CHUNK_SIZE_TILES / 2;
         int centerLocalCol = CHUNK_SIZE_TILES / 2;
@@ -168,8 +256,8 @@ public class Map {
                         int lr = centerLocalRow + rOffset;
                         int lc = centerLocalCol + cOffset;
                         if (lr >= 0 && lr < CHUNK_SIZE_TILES && lc >= 0 && lc < CHUNK_SIZE_TILES) {
-                            Tile tile = chunkTiles[lr][lc];
-                            if (tile.getType() != Tile.TileType.WATER && tile.getElevation() >= NIVEL_MAR) {
+                            int i = ChunkData.index(lc, lr);
+                            if (chunk.getType(i) != Tile.TileType.WATER && chunk.getElevation(i) >= NIVEL_MAR) {
                                 this.characterSpawnRow = chunkY * CHUNK_SIZE_TILES + lr;
                                 this.characterSpawnCol = chunkX * CHUNK_SIZE_TILES + lc;
                                 return;
@@ -183,53 +271,74 @@ public class Map {
         this.characterSpawnCol = chunkX * CHUNK_SIZE_TILES + centerLocalCol;
     }
 
+    /**
+     * Fills in the map's metadata. Chunks are not part of it: modified chunks are
+     * saved into the region files through {@link #collectDirtyChunkSnapshots(List, List)}.
+     */
     public void populateSaveData(MapSaveData saveData) {
-        System.out.println("Map.populateSaveData: Saving seed and modified chunks...");
         saveData.worldSeed = this.worldSeed;
         saveData.playerSpawnR = this.characterSpawnRow;
         saveData.playerSpawnC = this.characterSpawnCol;
         saveData.explicitlySavedChunks = new ArrayList<>();
+        saveData.encodedChunks = new ArrayList<>();
 
-        // 1. Add all modified chunks that are currently loaded.
-        for (java.util.Map.Entry<LightManager.ChunkCoordinate, Boolean> entry : chunkModificationStatus.entrySet()) {
-            if (entry.getValue() && loadedChunkTiles.containsKey(entry.getKey())) {
-                MapSaveData.ChunkDiskData cdd = new MapSaveData.ChunkDiskData(entry.getKey().chunkX, entry.getKey().chunkY);
-                cdd.tiles = convertChunkTilesToSaveFormat(loadedChunkTiles.get(entry.getKey()));
-                saveData.explicitlySavedChunks.add(cdd);
-            }
-        }
-
-        // 2. Add all modified chunks that have been unloaded.
-        saveData.explicitlySavedChunks.addAll(modifiedUnloadedChunks.values());
+        // Entity saving logic has been moved to EntityManager
+    }
 
-        System.out.println("Map.populateSaveData: Saved " + saveData.explicitlySavedChunks.size() + " total modified chunks.");
+    /**
+     * Adds a copy-on-write snapshot of every loaded chunk modified since the last
+     * save to {@code out} and clears their modified flags; unsaved chunks from the
+     * compressed tier go to {@code encodedOut} as they are. Only the dirty chunks are
+     * touched, each in constant time, so this is cheap enough for the main thread
+     * no matter how large the world has grown.
+     *
+     * The chunks count as "saving" until {@link #onSaveFinished(boolean)}; if one is
+     * unloaded meanwhile it is kept as unsaved again, so a failed save can't lose it.
+     */
+    public void collectDirtyChunkSnapshots(List<ChunkData> out, List<MapSaveData.EncodedChunk> encodedOut) {
+        compressedChunks.collectUnsaved(encodedOut, savingChunks);
+        chunkModificationStatus.forEach((chunkX, chunkY, modified) -> {
+            if (!modified) return;
+            ChunkData chunk = loadedChunkTiles.get(chunkX, chunkY);
+            if (chunk == null) return;
+            out.add(chunk.snapshot());
+            savingChunks.put(chunkX, chunkY, Boolean.TRUE);
+            chunkModificationStatus.put(chunkX, chunkY, false);
+        });
+    }
 
-        // Entity saving logic has been moved to EntityManager
+    /** Ends the save started by {@link #collectDirtyChunkSnapshots(List, List)}; a failed save re-flags its chunks. */
+    public void onSaveFinished(boolean success) {
+        for (long key : savingChunks.keys()) {
+            if (!success && loadedChunkTiles.containsKey(key)) chunkModificationStatus.put(key, true);
+            compressedChunks.onSaveFinished(key, success);
+        }
+        savingChunks.clear();
     }
 
-    private List<List<TileSaveData>> convertChunkTilesToSaveFormat(Tile[][] chunkTiles) {
-        List<List<TileSaveData>> savedRows = new ArrayList<>();
-        for (int y = 0; y < CHUNK_SIZE_TILES; y++) {
-            List<TileSaveData> savedCols = new ArrayList<>();
-            for (int x = 0; x < CHUNK_SIZE_TILES; x++) {
-                Tile tile = chunkTiles[y][x];
-                TileSaveData tsd = new TileSaveData();
-                tsd.typeOrdinal = tile.getType().ordinal();
-                tsd.elevation = tile.getElevation();
-                tsd.hasTorch = tile.hasTorch();
-                tsd.skyLightLevel = tile.getSkyLightLevel();
-                tsd.blockLightLevel = tile.getBlockLightLevel();
-                tsd.treeTypeOrdinal = tile.getTreeType().ordinal();
-                tsd.looseRockTypeOrdinal = tile.getLooseRockType().ordinal();
-                savedCols.add(tsd);
-            }
-            savedRows.add(savedCols);
+    /** True if a chunk was modified since the last save, loaded or not. */
+    public boolean hasUnsavedChunks() {
+        for (Boolean modified : chunkModificationStatus) {
+            if (modified) return true;
         }
-        return savedRows;
+        return compressedChunks.hasUnsaved() || regionStore.hasUncommittedChanges();
     }
 
+    public CompressedChunkStore getCompressedChunks() { return compressedChunks; }
+
+    /**
+     * Restores the map from save data. Chunks carried inside the save itself (JSON
+     * imports and older binary saves) are not decoded here: they go into the region
+     * store still encoded, and {@link #getOrGenerateChunkTiles(int, int)} decodes each
+     * one the first time it is needed, exactly like chunks that were already in the
+     * region files. Nothing is committed until the next save, so quitting without
+     * saving leaves the region files as they were.
+     *
+     * The region files are first brought back to the generation the save records,
+     * in case the game stopped after committing them for a save file it never wrote.
+     */
     public boolean loadState(MapSaveData mapData) {
-        System.out.println("Map.loadState: Loading seed and pre-loading chunk data.");
+        System.out.println("Map.loadState: Loading seed and indexing saved chunk data.");
         if (mapData == null) return false;
 
         this.characterSpawnRow = mapData.playerSpawnR;
@@ -237,56 +346,59 @@ public class Map {
 
         loadedChunkTiles.clear();
         chunkModificationStatus.clear();
+        compressedChunks.clear();
+        savingChunks.clear();
+        lightManager.clearPendingBorderLight();
+        regionStore.recover(mapData.regionGeneration);
 
+        int indexed = 0;
         if (mapData.explicitlySavedChunks != null) {
             for (MapSaveData.ChunkDiskData cdd : mapData.explicitlySavedChunks) {
-                LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(cdd.chunkX, cdd.chunkY);
-                Tile[][] tiles = convertSaveFormatToChunkTiles(cdd.tiles);
-                if (tiles != null) {
-                    loadedChunkTiles.put(coord, tiles);
-                    chunkModificationStatus.put(coord, true);
-                }
+                ChunkData chunk = convertSaveFormatToChunkTiles(cdd.chunkX, cdd.chunkY, cdd.tiles);
+                if (chunk != null && regionStore.write(chunk)) indexed++;
+            }
+        }
+        if (mapData.encodedChunks != null) {
+            for (MapSaveData.EncodedChunk encoded : mapData.encodedChunks) {
+                if (regionStore.writeEncoded(encoded.chunkX, encoded.chunkY, encoded.data)) indexed++;
             }
-            System.out.println("Map.loadState: Pre-loaded " + mapData.explicitlySavedChunks.size() + " chunks from save data.");
+        }
+        if (indexed > 0) {
+            System.out.println("Map.loadState: Indexed " + indexed + " chunks from the save file; they are decoded on first use.");
         }
 
         // Entity loading logic has been moved to EntityManager
         return true;
     }
 
-    private Tile[][] convertSaveFormatToChunkTiles(List<List<TileSaveData>> savedRows) {
+    private ChunkData convertSaveFormatToChunkTiles(int chunkX, int chunkY, List<List<TileSaveData>> savedRows) {
         if (savedRows == null || savedRows.size() != CHUNK_SIZE_TILES) return null;
-        Tile[][] chunkTiles = new Tile[CHUNK_SIZE_TILES][CHUNK_SIZE_TILES];
+        ChunkData chunk = new ChunkData(chunkX, chunkY);
         try {
             for (int y = 0; y < CHUNK_SIZE_TILES; y++) {
                 List<TileSaveData> savedCols = savedRows.get(y);
                 if (savedCols == null || savedCols.size() != CHUNK_SIZE_TILES) return null;
                 for (int x = 0; x < CHUNK_SIZE_TILES; x++) {
                     TileSaveData tsd = savedCols.get(x);
-                    Tile tile = new Tile(Tile.TileType.values()[tsd.typeOrdinal], tsd.elevation);
-                    tile.setHasTorch(tsd.hasTorch);
-                    tile.setSkyLightLevel(tsd.skyLightLevel);
-                    tile.setBlockLightLevel(tsd.blockLightLevel);
-                    tile.setTreeType(Tile.TreeVisualType.values()[tsd.treeTypeOrdinal]);
-                    tile.setLooseRockType(Tile.LooseRockType.values()[tsd.looseRockTypeOrdinal]);
-
-                    chunkTiles[y][x] = tile;
+                    int i = ChunkData.index(x, y);
+                    chunk.setType(i, Tile.TileType.values()[tsd.typeOrdinal]);
+                    chunk.setElevation(i, tsd.elevation);
+                    chunk.setTorch(i, tsd.hasTorch);
+                    chunk.setSkyLight(i, tsd.skyLightLevel);
+                    chunk.setBlockLight(i, tsd.blockLightLevel);
+                    chunk.setTreeType(i, Tile.TreeVisualType.values()[tsd.treeTypeOrdinal]);
+                    chunk.setLooseRockType(i, Tile.LooseRockType.values()[tsd.looseRockTypeOrdinal]);
                 }
             }
         } catch (ArrayIndexOutOfBoundsException | NullPointerException e) {
-            System.err.println("Error converting saved chunk data to Tile[][]: " + e.getMessage());
+            System.err.println("Error converting saved chunk data to ChunkData: " + e.getMessage());
             return null;
         }
-        return chunkTiles;
+        return chunk;
     }
 
     public Tile.TileType determineTileTypeFromElevation(int elevation) {
-        if (elevation < NIVEL_MAR) return Tile.TileType.WATER;
-        if (elevation < NIVEL_ARENA) return Tile.TileType.SAND;
-        if (elevation < NIVEL_ROCA) return Tile.TileType.GRASS;
-        if (elevation < NIVEL_ROCA + (NIVEL_NIEVE - NIVEL_ROCA) / 2) return Tile.TileType.ROCK;
-        if (elevation < NIVEL_NIEVE) return Tile.TileType.ROCK;
-        return Tile.TileType.SNOW;
+        return ChunkGenerator.determineTileTypeFromElevation(elevation);
     }
 
     // In Map.java, replace the placeBlock method
@@ -348,8 +460,13 @@ public class Map {
         }
 
         markChunkAsModified(Math.floorDiv(globalC, CHUNK_SIZE_TILES), Math.floorDiv(globalR, CHUNK_SIZE_TILES));
-        queueLightUpdateForArea(globalR, globalC, 2, this.lightManager);
-        lightManager.processAllQueuesToCompletion();
+        // The player's own change: lit in this frame, not left to the frame budget.
+        lightManager.beginEdit();
+        try {
+            queueLightUpdateForArea(globalR, globalC, 2, this.lightManager);
+        } finally {
+            lightManager.finishEdit();
+        }
         return true;
     }
 
@@ -379,10 +496,15 @@ public class Map {
             int chunkY = Math.floorDiv(globalR, CHUNK_SIZE_TILES);
             markChunkAsModified(chunkX, chunkY);
 
-            queueLightUpdateForArea(globalR, globalC, 2, this.lightManager);
+            lightManager.beginEdit();
+            try {
+                queueLightUpdateForArea(globalR, globalC, 2, this.lightManager);
 
-            if (oldTorchState && (!tile.hasTorch() || oldElevation != clampedElevation)) {
-                lightManager.removeLightSource(globalR, globalC);
+                if (oldTorchState && (!tile.hasTorch() || oldElevation != clampedElevation)) {
+                    lightManager.removeLightSource(globalR, globalC);
+                }
+            } finally {
+                lightManager.finishEdit();
             }
         }
     }
@@ -394,21 +516,20 @@ public class Map {
                 int nr = globalRow + dr;
                 int nc = globalCol + dc;
 
-                Tile t = getTile(nr, nc);
-                if (t != null) {
-                    if (lm.isSurfaceTileExposedToSky(nr, nc, t.getElevation())) {
-                        lm.getSkyLightPropagationQueue_Direct().add(new LightManager.LightNode(nr, nc, lm.getCurrentGlobalSkyLightTarget()));
-                    } else if (t.getSkyLightLevel() > 0) {
-                        lm.getSkyLightRemovalQueue_Direct().add(new LightManager.LightNode(nr, nc, t.getSkyLightLevel()));
-                    }
+                ChunkData chunk = getChunkForTile(nr, nc);
+                int i = ChunkData.indexOfGlobal(nr, nc);
+                if (lm.isSurfaceTileExposedToSky(nr, nc, chunk.getElevation(i))) {
+                    lm.queueSkyLightPropagation(nr, nc, (byte) SKY_LIGHT_DAY);
+                } else if (chunk.getSkyLight(i) > 0) {
+                    lm.queueSkyLightRemoval(nr, nc, chunk.getSkyLight(i));
+                }
 
-                    if (t.getBlockLightLevel() > 0) {
-                        lm.getBlockLightPropagationQueue_Direct().add(new LightManager.LightNode(nr, nc, t.getBlockLightLevel()));
-                    }
+                if (chunk.getBlockLight(i) > 0) {
+                    lm.queueBlockLightPropagation(nr, nc, chunk.getBlockLight(i));
+                }
 
-                    if (t.hasTorch()) {
-                        lm.addLightSource(nr, nc, (byte)TORCH_LIGHT_LEVEL);
-                    }
+                if (chunk.hasTorch(i)) {
+                    lm.addLightSource(nr, nc, (byte)TORCH_LIGHT_LEVEL);
                 }
                 lm.markChunkDirty(nr, nc);
             }
@@ -418,16 +539,21 @@ public class Map {
     public void toggleTorch(int globalR, int globalC) {
         Tile tile = getTile(globalR, globalC);
         if (tile != null && tile.getType() != Tile.TileType.WATER && tile.isSolidOpaqueBlock()) {
-            if (tile.hasTorch()) {
-                lightManager.removeLightSource(globalR, globalC);
-            } else {
-                lightManager.addLightSource(globalR, globalC, (byte) TORCH_LIGHT_LEVEL);
-            }
-            int chunkX = Math.floorDiv(globalC, CHUNK_SIZE_TILES);
-            int chunkY = Math.floorDiv(globalR, CHUNK_SIZE_TILES);
-            markChunkAsModified(chunkX, chunkY);
+            lightManager.beginEdit();
+            try {
+                if (tile.hasTorch()) {
+                    lightManager.removeLightSource(globalR, globalC);
+                } else {
+                    lightManager.addLightSource(globalR, globalC, (byte) TORCH_LIGHT_LEVEL);
+                }
+                int chunkX = Math.floorDiv(globalC, CHUNK_SIZE_TILES);
+                int chunkY = Math.floorDiv(globalR, CHUNK_SIZE_TILES);
+                markChunkAsModified(chunkX, chunkY);
 
-            queueLightUpdateForArea(globalR, globalC, 2, lightManager);
+                queueLightUpdateForArea(globalR, globalC, 2, lightManager);
+            } finally {
+                lightManager.finishEdit();
+            }
         }
     }
 
@@ -463,17 +589,16 @@ public class Map {
     }
 
     private void queueBorderTileForLightPropagation(int globalR, int globalC, LightManager lm) {
-        Tile tile = getTile(globalR, globalC);
-        if (tile != null) {
-            if (tile.getSkyLightLevel() > 0) {
-                lm.getSkyLightPropagationQueue_Direct().add(new LightManager.LightNode(globalR, globalC, tile.getSkyLightLevel()));
-            }
-            if (tile.getBlockLightLevel() > 0) {
-                lm.getBlockLightPropagationQueue_Direct().add(new LightManager.LightNode(globalR, globalC, tile.getBlockLightLevel()));
-            }
-            if (tile.hasTorch()) {
-                lm.addLightSource(globalR, globalC, (byte)TORCH_LIGHT_LEVEL);
-            }
+        ChunkData chunk = getChunkForTile(globalR, globalC);
+        int i = ChunkData.indexOfGlobal(globalR, globalC);
+        if (chunk.getSkyLight(i) > 0) {
+            lm.queueSkyLightPropagation(globalR, globalC, chunk.getSkyLight(i));
+        }
+        if (chunk.getBlockLight(i) > 0) {
+            lm.queueBlockLightPropagation(globalR, globalC, chunk.getBlockLight(i));
+        }
+        if (chunk.hasTorch(i)) {
+            lm.addLightSource(globalR, globalC, (byte)TORCH_LIGHT_LEVEL);
         }
     }
 
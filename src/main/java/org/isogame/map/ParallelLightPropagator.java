@@ -0,0 +1,154 @@
+package org.isogame.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs light propagation for large batches (world load, pregeneration) on a pool
+ * of worker threads.
+ *
+ * Pending nodes are split by region, a square of {@link #REGION_SIZE_CHUNKS}
+ * chunks per side, and each region is drained by its own
+ * {@link LightPropagationPass}, which only writes light inside its region. That
+ * is a round. Light that wanted to cross into another region is then merged on
+ * the calling thread, region by region in a fixed order, and queued in the
+ * receiving region for the next round. Rounds repeat until nothing is queued.
+ *
+ * Because propagation only raises light, the result is the same as draining
+ * the queues on one thread: same light, same dirty chunks, same pending border
+ * light. Removal is not like that and stays serial (see
+ * {@link LightManager#processAllQueuesToCompletion()}).
+ *
+ * The caller blocks until the work is done, so chunks can't load, unload or
+ * change while workers touch them.
+ */
+final class ParallelLightPropagator {
+
+    static final int REGION_SIZE_CHUNKS = 4;
+    // Region passes kept for reuse between runs (their queues keep their masks and capacity).
+    private static final int MAX_CACHED_REGIONS = 128;
+
+    private final LightManager owner;
+    private final Map map;
+    private final int workerCount;
+    private ExecutorService workers; // created on first use
+    private final ChunkIndex<LightPropagationPass> regions = new ChunkIndex<>();
+    private final List<LightPropagationPass> active = new ArrayList<>();
+    private final List<Callable<Void>> tasks = new ArrayList<>();
+
+    // --- Stats ---
+    private long runs;
+    private long rounds;
+    private long regionTasks;
+
+    ParallelLightPropagator(LightManager owner, Map map, int workerCount) {
+        this.owner = owner;
+        this.map = map;
+        this.workerCount = workerCount;
+    }
+
+    /** Moves the nodes of a pair of propagation queues into the regions; call for each, then {@link #propagate()}. */
+    void collect(LightQueue skyQueue, LightQueue blockQueue) {
+        while (!skyQueue.isEmpty()) {
+            long node = skyQueue.poll();
+            regionFor(LightQueue.row(node), LightQueue.col(node)).skyQueue.push(LightQueue.row(node), LightQueue.col(node), LightQueue.level(node));
+        }
+        while (!blockQueue.isEmpty()) {
+            long node = blockQueue.poll();
+            regionFor(LightQueue.row(node), LightQueue.col(node)).blockQueue.push(LightQueue.row(node), LightQueue.col(node), LightQueue.level(node));
+        }
+    }
+
+    /** Runs rounds until all collected light has spread. Returns the nodes processed. */
+    long propagate() {
+        runs++;
+        long nodes = 0;
+        while (collectActiveRegions()) {
+            rounds++;
+            runRound();
+            // Fixed order: the merge doesn't depend on which worker finished first.
+            for (LightPropagationPass pass : active) {
+                pass.mergeInto(this);
+                nodes += pass.takeNodesProcessed();
+            }
+        }
+
+        for (LightPropagationPass pass : regions) pass.unbindChunks();
+        if (regions.size() > MAX_CACHED_REGIONS) regions.clear();
+        return nodes;
+    }
+
+    /** Pass of the region holding a tile, bound to the currently loaded chunks. Main thread. */
+    LightPropagationPass regionFor(int row, int col) {
+        int regionX = Math.floorDiv(ChunkData.chunkCoordOf(col), REGION_SIZE_CHUNKS);
+        int regionY = Math.floorDiv(ChunkData.chunkCoordOf(row), REGION_SIZE_CHUNKS);
+        LightPropagationPass pass = regions.get(regionX, regionY);
+        if (pass == null) {
+            pass = new LightPropagationPass(owner, regionX, regionY, REGION_SIZE_CHUNKS);
+            regions.put(regionX, regionY, pass);
+        }
+        if (!pass.hasWork()) pass.bindChunks(map); // first node of this run
+        return pass;
+    }
+
+    private boolean collectActiveRegions() {
+        active.clear();
+        for (LightPropagationPass pass : regions) {
+            if (pass.hasWork()) active.add(pass);
+        }
+        active.sort((a, b) -> a.regionY != b.regionY ? Integer.compare(a.regionY, b.regionY) : Integer.compare(a.regionX, b.regionX));
+        return !active.isEmpty();
+    }
+
+    private void runRound() {
+        regionTasks += active.size();
+        if (active.size() == 1 || workerCount <= 1) {
+            for (LightPropagationPass pass : active) pass.drainAll();
+            return;
+        }
+        tasks.clear();
+        for (LightPropagationPass pass : active) {
+            tasks.add(() -> {
+                pass.drainAll();
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> done : workers().invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while propagating light", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Light propagation failed", e.getCause());
+        }
+    }
+
+    private ExecutorService workers() {
+        if (workers == null) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "Light-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+
+    int getWorkerCount() { return workerCount; }
+    long getRuns() { return runs; }
+    long getRounds() { return rounds; }
+    long getRegionTasks() { return regionTasks; }
+
+    void shutdown() {
+        if (workers != null) workers.shutdownNow();
+    }
+}
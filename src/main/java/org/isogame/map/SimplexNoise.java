@@ -10,6 +10,8 @@ public class SimplexNoise {
 
     // Permutation table
     private int[] perm = new int[512];
+    // perm[i] % 12, precomputed for the grid path.
+    private final int[] permMod12 = new int[512];
     private int seed;
 
     public SimplexNoise(int seed) {
@@ -35,6 +37,9 @@ public class SimplexNoise {
         for (int i = 0; i < 256; i++) {
             perm[i + 256] = perm[i];
         }
+        for (int i = 0; i < 512; i++) {
+            permMod12[i] = perm[i] % 12;
+        }
     }
 
     // 2D simplex noise
@@ -147,6 +152,225 @@ public class SimplexNoise {
         return total / maxValue;
     }
 
+    // --- Bulk grid evaluation ---
+    //
+    // The grid methods below evaluate noise((originX + col) * scale * m, (originY + row) * scale * m)
+    // for a whole width x height block and write it row-major into the caller's array.
+    // They perform exactly the same floating point operations, in the same order, as
+    // noise()/octaveNoise(), so their output is bit-identical to the scalar path.
+    // The lattice cell of each column is computed once per call (and octave) and the
+    // lattice cell of each row once per row, leaving only the per-sample simplex work in
+    // the inner loop. Working arrays come from a caller-owned GridScratch, so repeated
+    // calls allocate nothing.
+
+    private static final double F2 = 0.5 * (SQRT3 - 1.0);
+    private static final double G2 = (3.0 - SQRT3) / 6.0;
+
+    /**
+     * Working arrays for the grid methods, grown on demand and reused across calls.
+     * Not thread-safe: use one per thread.
+     */
+    public static final class GridScratch {
+        private double[] colFrac = new double[0];
+        private int[] colCell = new int[0];
+        private double[] row = new double[0];
+
+        private void ensure(int columns, int width) {
+            if (colFrac.length < columns) {
+                colFrac = new double[columns];
+                colCell = new int[columns];
+            }
+            if (row.length < width) row = new double[width];
+        }
+    }
+
+    /**
+     * Fills {@code out[row * width + col]} with {@code noise((originX + col) * scale, (originY + row) * scale)}.
+     */
+    public void noiseGrid(double[] out, int originX, int originY, int width, int height, double scale, GridScratch scratch) {
+        checkGrid(out.length, width, height);
+        scratch.ensure(width, 0);
+        prepareColumns(scratch, 0, originX, width, scale, 1.0);
+        for (int row = 0; row < height; row++) {
+            double y = ((originY + row) * scale) * 1.0;
+            int rowCell = fastfloorStatic(y);
+            double yFrac = y - rowCell;
+            int permY = perm[rowCell & 255];
+            int permY1 = perm[(rowCell & 255) + 1];
+            int offset = row * width;
+            for (int col = 0; col < width; col++) {
+                out[offset + col] = sample(scratch.colFrac[col], scratch.colCell[col], yFrac, permY, permY1);
+            }
+        }
+    }
+
+    /** Float variant of {@link #noiseGrid(double[], int, int, int, int, double, GridScratch)}; each value is narrowed as it is stored. */
+    public void noiseGrid(float[] out, int originX, int originY, int width, int height, double scale, GridScratch scratch) {
+        checkGrid(out.length, width, height);
+        scratch.ensure(width, 0);
+        prepareColumns(scratch, 0, originX, width, scale, 1.0);
+        for (int row = 0; row < height; row++) {
+            double y = ((originY + row) * scale) * 1.0;
+            int rowCell = fastfloorStatic(y);
+            double yFrac = y - rowCell;
+            int permY = perm[rowCell & 255];
+            int permY1 = perm[(rowCell & 255) + 1];
+            int offset = row * width;
+            for (int col = 0; col < width; col++) {
+                out[offset + col] = (float) sample(scratch.colFrac[col], scratch.colCell[col], yFrac, permY, permY1);
+            }
+        }
+    }
+
+    /**
+     * Grid version of {@link #octaveNoise(double, double, int, double)} sampled at
+     * {@code ((originX + col) * scale, (originY + row) * scale)}.
+     */
+    public void octaveNoiseGrid(double[] out, int originX, int originY, int width, int height,
+                                double scale, int octaves, double persistence, GridScratch scratch) {
+        checkGrid(out.length, width, height);
+        double maxValue = prepareOctaves(scratch, originX, width, scale, octaves, persistence);
+        for (int row = 0; row < height; row++) {
+            double[] total = octaveRow(scratch, originY + row, width, scale, octaves, persistence);
+            int offset = row * width;
+            for (int col = 0; col < width; col++) out[offset + col] = total[col] / maxValue;
+        }
+    }
+
+    /** Float variant of {@link #octaveNoiseGrid(double[], int, int, int, int, double, int, double, GridScratch)}. */
+    public void octaveNoiseGrid(float[] out, int originX, int originY, int width, int height,
+                                double scale, int octaves, double persistence, GridScratch scratch) {
+        checkGrid(out.length, width, height);
+        double maxValue = prepareOctaves(scratch, originX, width, scale, octaves, persistence);
+        for (int row = 0; row < height; row++) {
+            double[] total = octaveRow(scratch, originY + row, width, scale, octaves, persistence);
+            int offset = row * width;
+            for (int col = 0; col < width; col++) out[offset + col] = (float) (total[col] / maxValue);
+        }
+    }
+
+    private static void checkGrid(int length, int width, int height) {
+        if (width < 0 || height < 0 || length < width * height) {
+            throw new IllegalArgumentException("Output array too small for a " + width + "x" + height + " grid");
+        }
+    }
+
+    /** Column tables of every octave, one after another; returns the octaves' summed amplitude. */
+    private static double prepareOctaves(GridScratch scratch, int originX, int width, double scale, int octaves, double persistence) {
+        scratch.ensure(octaves * width, width);
+        double frequency = 1;
+        double amplitude = 1;
+        double maxValue = 0;
+        for (int o = 0; o < octaves; o++) {
+            prepareColumns(scratch, o * width, originX, width, scale, frequency);
+            maxValue += amplitude;
+            amplitude *= persistence;
+            frequency *= 2;
+        }
+        return maxValue;
+    }
+
+    /** Sums one row's octaves, lowest first like octaveNoise(), into the scratch row and returns it. */
+    private double[] octaveRow(GridScratch scratch, int globalY, int width, double scale, int octaves, double persistence) {
+        double[] total = scratch.row;
+        for (int col = 0; col < width; col++) total[col] = 0;
+        double frequency = 1;
+        double amplitude = 1;
+        for (int o = 0; o < octaves; o++) {
+            double y = (globalY * scale) * frequency;
+            int rowCell = fastfloorStatic(y);
+            double yFrac = y - rowCell;
+            int permY = perm[rowCell & 255];
+            int permY1 = perm[(rowCell & 255) + 1];
+            int first = o * width;
+            for (int col = 0; col < width; col++) {
+                total[col] += sample(scratch.colFrac[first + col], scratch.colCell[first + col], yFrac, permY, permY1) * amplitude;
+            }
+            amplitude *= persistence;
+            frequency *= 2;
+        }
+        return total;
+    }
+
+    /** Per-column lattice cell and fractional offset, shared by every row of the grid, stored from {@code first}. */
+    private static void prepareColumns(GridScratch scratch, int first, int originX, int width, double scale, double frequency) {
+        for (int col = 0; col < width; col++) {
+            double x = ((originX + col) * scale) * frequency;
+            int cell = fastfloorStatic(x);
+            scratch.colFrac[first + col] = x - cell;
+            scratch.colCell[first + col] = cell & 255;
+        }
+    }
+
+    /**
+     * noise() for a point already split into its lattice column {@code X} (wrapped
+     * to 0..255), the permutation entries of its lattice row and the next, and its
+     * offsets within the cell.
+     */
+    private double sample(double x, int X, double y, int permY, int permY1) {
+        double s = (x + y) * F2;
+        int i = fastfloorStatic(x + s);
+        int j = fastfloorStatic(y + s);
+        double t = (i + j) * G2;
+        double X0 = i - t;
+        double Y0 = j - t;
+        double x0 = x - X0;
+        double y0 = y - Y0;
+
+        int i1, j1;
+        if (x0 > y0) {
+            i1 = 1; j1 = 0;
+        } else {
+            i1 = 0; j1 = 1;
+        }
+
+        double x1 = x0 - i1 + G2;
+        double y1 = y0 - j1 + G2;
+        double x2 = x0 - 1.0 + 2.0 * G2;
+        double y2 = y0 - 1.0 + 2.0 * G2;
+
+        int gi0 = permMod12[X + permY];
+        int gi1 = permMod12[X + i1 + (j1 == 0 ? permY : permY1)];
+        int gi2 = permMod12[X + 1 + permY1];
+
+        double n0, n1, n2;
+        double t0 = 0.5 - x0*x0 - y0*y0;
+        if (t0 < 0) {
+            n0 = 0.0;
+        } else {
+            t0 *= t0;
+            n0 = t0 * t0 * gradStatic(gi0, x0, y0);
+        }
+        double t1 = 0.5 - x1*x1 - y1*y1;
+        if (t1 < 0) {
+            n1 = 0.0;
+        } else {
+            t1 *= t1;
+            n1 = t1 * t1 * gradStatic(gi1, x1, y1);
+        }
+        double t2 = 0.5 - x2*x2 - y2*y2;
+        if (t2 < 0) {
+            n2 = 0.0;
+        } else {
+            t2 *= t2;
+            n2 = t2 * t2 * gradStatic(gi2, x2, y2);
+        }
+
+        return 70.0 * (n0 + n1 + n2);
+    }
+
+    private static int fastfloorStatic(double x) {
+        int xi = (int)x;
+        return x < xi ? xi - 1 : xi;
+    }
+
+    private static double gradStatic(int hash, double x, double y) {
+        int h = hash & 15;
+        double u = h < 8 ? x : y;
+        double v = h < 4 ? y : (h == 12 || h == 14 ? x : 0);
+        return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+    }
+
     // Generate terrain with different features
     public double generateTerrain(double x, double y) {
         // Base terrain
@@ -1,19 +1,10 @@
 package org.isogame.render;
 
-import org.isogame.camera.CameraManager;
 import org.isogame.constants.Constants;
-import org.isogame.input.InputHandler;
-import org.isogame.map.Map; // Correct import
-import org.isogame.map.LightManager; // For ChunkCoordinate
-import org.isogame.tile.Tile;
-import org.lwjgl.system.MemoryUtil;
 
-import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.lwjgl.opengl.GL30.*;
-import static org.lwjgl.opengl.GL15.*;
 // import static org.isogame.constants.Constants.CHUNK_SIZE_TILES; // Access via Constants.
 // import static org.isogame.constants.Constants.ALTURA_MAXIMA;
 
@@ -22,8 +13,9 @@ public class Chunk {
     public final int chunkGridX, chunkGridY;
     public final int TILE_SIZE_IN_CHUNK; // This should be Constants.CHUNK_SIZE_TILES
 
-    private int vaoId = 0;
-    private int vboId = 0;
+    private final TerrainBufferArena arena;
+    // The chunk's vertices in the arena; kept while rebuilt meshes fit it.
+    private TerrainArenaAllocator.Range meshRange;
     private int vertexCount = 0;
 
     private BoundingBox boundingBox;
@@ -32,67 +24,39 @@ public class Chunk {
 
 
 
-    // Maximum vertices for a single tile column:
-    private static final int MAX_VERTICES_PER_TILE_COLUMN =
-            (2 * 6) + // Pedestal quads
-                    (2 * 6) + // Top face quads
-                    (Constants.ALTURA_MAXIMA * 2 * 6); // Max possible side quads if a tile column is a tall pillar
+    // Generation of the last mesh requested for this chunk; older finished meshes are dropped.
+    private long awaitedMeshGeneration;
 
-    // Maximum expected floats for all vertices in a chunk
-    private static final int MAX_EXPECTED_FLOATS_PER_CHUNK =
-            Constants.CHUNK_SIZE_TILES * Constants.CHUNK_SIZE_TILES * // Number of tile columns
-                    MAX_VERTICES_PER_TILE_COLUMN * // Max vertices one column can generate
-                    Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED; // Floats per vertex
-
-
-    public Chunk(int chunkGridX, int chunkGridY, int chunkSizeInTilesConstant) {
+    public Chunk(int chunkGridX, int chunkGridY, int chunkSizeInTilesConstant, TerrainBufferArena arena) {
         this.chunkGridX = chunkGridX;
+        this.arena = arena;
         this.chunkGridY = chunkGridY;
         this.TILE_SIZE_IN_CHUNK = chunkSizeInTilesConstant; // Should be Constants.CHUNK_SIZE_TILES
 
-        // Approximate world coordinates for initial bounding box (can be refined)
+        // Approximate world coordinates for initial bounding box (refined by applyMesh)
+        this.boundingBox = approximateBoundingBox(chunkGridX, chunkGridY, TILE_SIZE_IN_CHUNK);
+    }
+
+    /** Screen-space bounds a chunk can occupy at any elevation, for chunks that have no geometry yet. */
+    public static BoundingBox approximateBoundingBox(int chunkGridX, int chunkGridY, int tilesPerChunk) {
         // These are for the visual representation, not logical tile coordinates.
-        float approxWorldMinX = (chunkGridX * TILE_SIZE_IN_CHUNK - chunkGridY * TILE_SIZE_IN_CHUNK) * (Constants.TILE_WIDTH / 2.0f);
-        float approxWorldMinY = (chunkGridX * TILE_SIZE_IN_CHUNK + chunkGridY * TILE_SIZE_IN_CHUNK) * (Constants.TILE_HEIGHT / 2.0f)
+        float approxWorldMinX = (chunkGridX * tilesPerChunk - chunkGridY * tilesPerChunk) * (Constants.TILE_WIDTH / 2.0f);
+        float approxWorldMinY = (chunkGridX * tilesPerChunk + chunkGridY * tilesPerChunk) * (Constants.TILE_HEIGHT / 2.0f)
                 - Constants.ALTURA_MAXIMA * Constants.TILE_THICKNESS; // Lowest possible Y
 
-        float approxWorldMaxX = ((chunkGridX + 1) * TILE_SIZE_IN_CHUNK - (chunkGridY) * TILE_SIZE_IN_CHUNK) * (Constants.TILE_WIDTH / 2.0f);
-        float approxWorldMaxY = ((chunkGridX) * TILE_SIZE_IN_CHUNK + (chunkGridY + 1) * TILE_SIZE_IN_CHUNK) * (Constants.TILE_HEIGHT / 2.0f)
+        float approxWorldMaxX = ((chunkGridX + 1) * tilesPerChunk - (chunkGridY) * tilesPerChunk) * (Constants.TILE_WIDTH / 2.0f);
+        float approxWorldMaxY = ((chunkGridX) * tilesPerChunk + (chunkGridY + 1) * tilesPerChunk) * (Constants.TILE_HEIGHT / 2.0f)
                 + Constants.BASE_THICKNESS; // Highest possible Y (base of tile above max elevation)
 
 
-        this.boundingBox = new BoundingBox(
-                Math.min(approxWorldMinX, approxWorldMaxX - TILE_SIZE_IN_CHUNK * Constants.TILE_WIDTH), // A bit of a simplification
+        return new BoundingBox(
+                Math.min(approxWorldMinX, approxWorldMaxX - tilesPerChunk * Constants.TILE_WIDTH), // A bit of a simplification
                 approxWorldMinY,
-                Math.max(approxWorldMaxX, approxWorldMinX + TILE_SIZE_IN_CHUNK * Constants.TILE_WIDTH),
+                Math.max(approxWorldMaxX, approxWorldMinX + tilesPerChunk * Constants.TILE_WIDTH),
                 approxWorldMaxY
         );
     }
 
-    public void setupGLResources() {
-        vaoId = glGenVertexArrays();
-        vboId = glGenBuffers();
-        glBindVertexArray(vaoId);
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        // Define vertex attributes (position, color, texCoord, light)
-        int stride = Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED * Float.BYTES;
-        // Position (vec3)
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0L);
-        glEnableVertexAttribArray(0);
-        // Color (vec4)
-        glVertexAttribPointer(1, 4, GL_FLOAT, false, stride, 3 * Float.BYTES);
-        glEnableVertexAttribArray(1);
-        // TexCoord (vec2)
-        glVertexAttribPointer(2, 2, GL_FLOAT, false, stride, (3 + 4) * Float.BYTES);
-        glEnableVertexAttribArray(2);
-        // Light (float)
-        glVertexAttribPointer(3, 1, GL_FLOAT, false, stride, (3 + 4 + 2) * Float.BYTES);
-        glEnableVertexAttribArray(3);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
-    }
-
     public List<Renderer.TreeData> getTreesInChunk() {
         return treesInChunk;
     }
@@ -101,145 +65,60 @@ public class Chunk {
         return looseRocksInChunk;
     }
 
+    void awaitMesh(long generation) { this.awaitedMeshGeneration = generation; }
+    boolean isAwaitingMesh(long generation) { return generation == this.awaitedMeshGeneration; }
+
     /**
-     * Uploads geometry for this chunk to the GPU.
-     * Retrieves tile data from the Map object, which may generate it on demand.
+     * Uploads a mesh built by {@link ChunkMeshBuilder} to the GPU and takes over its
+     * trees, rocks and bounds. The only part of meshing that needs GL; main thread.
+     * The vertices go into the chunk's range of the {@link TerrainBufferArena},
+     * which is kept while the mesh fits it (and isn't far smaller), through a
+     * pooled buffer from {@code staging}.
      */
-    public void uploadGeometry(Map gameMap, InputHandler inputHandler, Renderer rendererInstance, CameraManager cameraManager) {
-        // Get the Tile[][] data for this specific chunk from the Map object.
-        // The Map object's getOrGenerateChunkTiles will handle creating it if it doesn't exist.
-        Tile[][] chunkLocalTiles = gameMap.getOrGenerateChunkTiles(this.chunkGridX, this.chunkGridY);
-        if (chunkLocalTiles == null) {
-            System.err.println("Chunk.uploadGeometry: Failed to get or generate tile data for chunk (" + chunkGridX + "," + chunkGridY + ")");
-            this.vertexCount = 0;
-            return;
+    public void applyMesh(MeshData mesh, ChunkUploadStaging staging) {
+        treesInChunk = mesh.trees;
+        looseRocksInChunk = mesh.looseRocks;
+        if (mesh.bounds != null) {
+            this.boundingBox = mesh.bounds;
         }
+        // Else, keep the approximate bounding box from constructor if some vertices were generated without bounds.
 
-        treesInChunk.clear();
-        looseRocksInChunk.clear(); // <-- ADD THIS LINE
-
-        FloatBuffer chunkDataBuffer = null;
-        int currentFloatsInThisUpload = 0;
-
+        int byteCount = mesh.getByteCount();
+        if (byteCount == 0) {
+            releaseMeshRange();
+            return;
+        }
         try {
-            chunkDataBuffer = MemoryUtil.memAllocFloat(MAX_EXPECTED_FLOATS_PER_CHUNK);
-
-            // For accurate bounding box calculation based on actual tiles in this chunk
-            float[] currentChunkVisualBounds = new float[]{Float.MAX_VALUE, Float.MAX_VALUE, Float.MIN_VALUE, Float.MIN_VALUE};
-            boolean boundsInitializedByTile = false;
-
-            // Global starting tile coordinates for this chunk
-            int globalStartTileR = chunkGridY * TILE_SIZE_IN_CHUNK;
-            int globalStartTileC = chunkGridX * TILE_SIZE_IN_CHUNK;
-
-            for (int r_local = 0; r_local < TILE_SIZE_IN_CHUNK; r_local++) {
-                for (int c_local = 0; c_local < TILE_SIZE_IN_CHUNK; c_local++) {
-                    Tile tile = chunkLocalTiles[r_local][c_local]; // Access tile from the local chunkTileData
-
-                    if (tile != null && tile.getType() != Tile.TileType.AIR) {
-                        int maxFloatsPerTile = MAX_VERTICES_PER_TILE_COLUMN * Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
-                        if (chunkDataBuffer.remaining() < maxFloatsPerTile) {
-                            System.err.println("Chunk VBO buffer nearly full in chunk ("+chunkGridX+","+chunkGridY+"). Max: " + MAX_EXPECTED_FLOATS_PER_CHUNK + ", Rem: " + chunkDataBuffer.remaining());
-                            break; // Break inner loop
-                        }
-
-                        // Calculate global map coordinates for this tile
-                        int actualR_mapArray = globalStartTileR + r_local;
-                        int actualC_mapArray = globalStartTileC + c_local;
-
-                        int vertsAddedThisTile = rendererInstance.addSingleTileVerticesToList_WorldSpace_ForChunk(
-                                actualR_mapArray, actualC_mapArray, tile,
-                                (inputHandler != null && actualR_mapArray == inputHandler.getSelectedRow() && actualC_mapArray == inputHandler.getSelectedCol()),
-                                chunkDataBuffer,
-                                currentChunkVisualBounds); // Pass bounds array to be updated
-                        currentFloatsInThisUpload += vertsAddedThisTile * Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
-                        if (vertsAddedThisTile > 0) {
-                            boundsInitializedByTile = true;
-                        }
-                    }
-                    if (tile != null && tile.getTreeType() != Tile.TreeVisualType.NONE &&
-                            tile.getType() != Tile.TileType.WATER && tile.getType() != Tile.TileType.AIR) {
-                        // Store trees with their global map coordinates
-                        treesInChunk.add(new Renderer.TreeData(tile.getTreeType(),
-                                (float) (globalStartTileC + c_local),
-                                (float) (globalStartTileR + r_local),
-                                tile.getElevation()));
-                    }
-
-
-                    // Check for and store loose rocks  <-- ADD THIS BLOCK STARTING HERE
-                    if (tile != null && tile.getLooseRockType() != Tile.LooseRockType.NONE &&
-                            tile.getType() != Tile.TileType.WATER && tile.getType() != Tile.TileType.AIR) { // Don't place rocks in water/air or on non-existent tiles
-                        // Assuming Renderer.LooseRockData will have a constructor like: (Type, col, row, elevation)
-                        // We'll define LooseRockData in Renderer.java later.
-                        looseRocksInChunk.add(new Renderer.LooseRockData(
-                                tile.getLooseRockType(),
-                                (float) (globalStartTileC + c_local),
-                                (float) (globalStartTileR + r_local),
-                                tile.getElevation()
-                        ));
-
-
-
-                    }
-
-                }
-
-                if (chunkDataBuffer.remaining() < (MAX_VERTICES_PER_TILE_COLUMN * Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED)) {
-                    if(chunkDataBuffer.position() > 0) {
-                        System.err.println("Chunk VBO buffer potentially full after row in chunk ("+chunkGridX+","+chunkGridY+"). Breaking outer loop.");
-                    }
-                    break; // Break outer loop
-                }
-            }
-
-            this.vertexCount = currentFloatsInThisUpload / Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
-
-            if (boundsInitializedByTile) {
-                this.boundingBox = new BoundingBox(currentChunkVisualBounds[0], currentChunkVisualBounds[1], currentChunkVisualBounds[2], currentChunkVisualBounds[3]);
-            } else if (this.vertexCount == 0) { // If chunk is empty (e.g., all AIR)
-                float worldChunkCenterX = (globalStartTileC + TILE_SIZE_IN_CHUNK / 2.0f - globalStartTileR - TILE_SIZE_IN_CHUNK / 2.0f) * (Constants.TILE_WIDTH / 2.0f);
-                float worldChunkCenterY = (globalStartTileC + TILE_SIZE_IN_CHUNK / 2.0f + globalStartTileR + TILE_SIZE_IN_CHUNK / 2.0f) * (Constants.TILE_HEIGHT / 2.0f);
-                this.boundingBox = new BoundingBox(worldChunkCenterX, worldChunkCenterY, worldChunkCenterX, worldChunkCenterY); // Minimal bounding box
-            }
-            // Else, keep the approximate bounding box from constructor if some error occurred but some vertices were generated.
-
-            chunkDataBuffer.flip();
-
-            glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, chunkDataBuffer, GL_DYNAMIC_DRAW);
-            glBindBuffer(GL_ARRAY_BUFFER, 0);
-
+            TerrainArenaAllocator.Range range = arena.reserve(meshRange, mesh.vertexCount);
+            long allocated = range != meshRange ? (long) range.getLength() * TerrainVertexFormat.BYTES_PER_VERTEX : 0;
+            meshRange = range;
+            arena.write(meshRange, mesh, staging);
+            this.vertexCount = mesh.vertexCount;
+            staging.recordUpload(byteCount, allocated);
         } catch(Exception e) {
-            System.err.println("Exception during Chunk.uploadGeometry for chunk ("+chunkGridX+","+chunkGridY+"): " + e.getMessage());
+            System.err.println("Exception during Chunk.applyMesh for chunk ("+chunkGridX+","+chunkGridY+"): " + e.getMessage());
             e.printStackTrace();
             this.vertexCount = 0; // Ensure no rendering if upload failed
         }
-        finally {
-            if (chunkDataBuffer != null) {
-                MemoryUtil.memFree(chunkDataBuffer);
-            }
-        }
     }
 
+    /** Draws the chunk from its arena range; call between {@link TerrainBufferArena#beginDraw} and endDraw. */
     public void render() {
-        if (vaoId != 0 && vertexCount > 0) {
-            glBindVertexArray(vaoId);
-            glDrawArrays(GL_TRIANGLES, 0, vertexCount);
-            // glBindVertexArray(0); // Usually unbind after all rendering of this type
+        if (meshRange != null && vertexCount > 0) {
+            arena.draw(meshRange, vertexCount);
         }
     }
 
-    // In Chunk.java
-
-    public void cleanup() {
-        if (vaoId != 0) { glDeleteVertexArrays(vaoId); vaoId = 0; }
-        if (vboId != 0) { glDeleteBuffers(vboId); vboId = 0; }
+    private void releaseMeshRange() {
+        if (meshRange != null) {
+            arena.free(meshRange);
+            meshRange = null;
+        }
         vertexCount = 0;
+    }
 
-        // --- DELETE THE TWO LINES BELOW ---
-        // vboInitialized = false;
-        // vboCapacityFloats = 0;
+    public void cleanup() {
+        releaseMeshRange();
 
         treesInChunk.clear();
         looseRocksInChunk.clear();
@@ -259,4 +138,6 @@ public class Chunk {
     // Add a getter for it
     public List<Renderer.TorchData> getTorchesInChunk() { return torchesInChunk; }
     public BoundingBox getBoundingBox() { return this.boundingBox; }
+    /** GPU memory the chunk's arena range takes, for memory accounting. */
+    public long getMeshBytes() { return meshRange == null ? 0 : (long) meshRange.getLength() * TerrainVertexFormat.BYTES_PER_VERTEX; }
 }
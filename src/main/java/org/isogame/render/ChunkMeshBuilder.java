@@ -0,0 +1,476 @@
+package org.isogame.render;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.tile.Tile;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.isogame.constants.Constants.*;
+
+/**
+ * The CPU half of chunk meshing: turns a {@link ChunkMeshSnapshot} into
+ * {@link MeshData}. It reads only the snapshot, the tile registry and the atlas
+ * size it was made with, and touches no GL, so it runs on the mesh worker threads
+ * (see {@link ChunkMeshWorkers}) and in headless tests. Immutable; one instance
+ * can be shared by all threads.
+ */
+public final class ChunkMeshBuilder {
+
+    private static final float[] SELECTED_TINT = {1.0f, 0.8f, 0.0f, 0.8f};
+
+    // Vertex Z is counted in TerrainVertexFormat.Z_UNITs (one elevation unit) from the chunk's origin.
+    private static final int Z_PER_TILE = Math.round(DEPTH_SORT_FACTOR / TerrainVertexFormat.Z_UNIT);
+    private static final int Z_OFFSET_TILE_TOP_SURFACE = 0;
+    private static final int Z_OFFSET_TILE_SIDES = Math.round(0.01f / TerrainVertexFormat.Z_UNIT);
+    private static final int Z_OFFSET_TILE_PEDESTAL = Math.round(0.02f / TerrainVertexFormat.Z_UNIT);
+
+    // Texture modes of a vertex; the shaders (vertex.glsl, fragment.glsl) read them the same way.
+    static final int TEX_PLAIN = 0;     // texCoord is the position within the material's region
+    static final int TEX_REPEAT_V = 1;  // V counts repeats of region.y .. region.y + region.w
+    static final int TEX_TILED_TOP = 2; // texCoord counts tiles (column, row) of a merged top; region is one tile's top
+    // A flat chunk: pedestal and top of every tile. Taller chunks grow the array.
+    private static final int INITIAL_VERTICES = ChunkData.TILE_COUNT * 12;
+    /** Most vertices one tile's faces take: two pedestal faces, the top and two side runs. */
+    public static final int MAX_VERTICES_PER_TILE = 5 * TerrainVertexFormat.VERTICES_PER_QUAD;
+
+    private final TerrainMaterials materials;
+    private final boolean mergeTopSurfaces;
+
+    private static final int tileHalfWidth = TILE_WIDTH / 2;
+    private static final int tileHalfHeight = TILE_HEIGHT / 2;
+    private static final int diamondTopOffsetY = -tileHalfHeight;
+    private static final int diamondLeftOffsetX = -tileHalfWidth;
+    private static final int diamondSideOffsetY = 0;
+    private static final int diamondRightOffsetX = tileHalfWidth;
+    private static final int diamondBottomOffsetY = tileHalfHeight;
+
+    /** @param atlasWidth size of the tile atlas in pixels, for texture coordinates; 0 if it failed to load. */
+    public ChunkMeshBuilder(int atlasWidth, int atlasHeight) {
+        this(atlasWidth, atlasHeight, true);
+    }
+
+    /** @param mergeTopSurfaces false to give every tile its own top quad, as a reference for the merged mesh. */
+    public ChunkMeshBuilder(int atlasWidth, int atlasHeight, boolean mergeTopSurfaces) {
+        this.materials = new TerrainMaterials(atlasWidth, atlasHeight);
+        this.mergeTopSurfaces = mergeTopSurfaces;
+    }
+
+    /** The material table the built vertices index; the renderer uploads it to the shader. */
+    public TerrainMaterials getMaterials() { return materials; }
+
+    /** Selection tint pulsing with {@code timeSeconds}; set as u_selectionTint every frame. */
+    public static float[] selectionTint(double timeSeconds) {
+        float pulseFactor = (float) (Math.sin(timeSeconds * 6.0) + 1.0) / 2.0f;
+        float baseAlpha = SELECTED_TINT[3];
+        float minPulseAlpha = baseAlpha * 0.5f;
+        float animatedAlpha = minPulseAlpha + (baseAlpha - minPulseAlpha) * pulseFactor;
+        return new float[]{SELECTED_TINT[0], SELECTED_TINT[1], SELECTED_TINT[2], animatedAlpha};
+    }
+
+    /** Builds the mesh of one chunk. Any thread. */
+    public MeshData build(ChunkMeshSnapshot snapshot) {
+        ChunkData chunkData = snapshot.tiles;
+        int chunkGridX = chunkData.chunkX;
+        int chunkGridY = chunkData.chunkY;
+        Vertices vertexBuffer = new Vertices(INITIAL_VERTICES);
+        List<Renderer.TreeData> treesInChunk = new ArrayList<>();
+        List<Renderer.LooseRockData> looseRocksInChunk = new ArrayList<>();
+
+        // For accurate bounding box calculation based on actual tiles in this chunk
+        float[] currentChunkVisualBounds = new float[]{Float.MAX_VALUE, Float.MAX_VALUE, Float.MIN_VALUE, Float.MIN_VALUE};
+        boolean boundsInitializedByTile = false;
+
+        // Global starting tile coordinates for this chunk
+        int globalStartTileR = chunkGridY * CHUNK_SIZE_TILES;
+        int globalStartTileC = chunkGridX * CHUNK_SIZE_TILES;
+
+        // Tops that look the same are drawn as one quad per rectangle, added with the rectangle's last tile.
+        int[] topRects = mergeTopSurfaces ? mergeTopSurfaces(snapshot) : new int[ChunkData.TILE_COUNT];
+
+        for (int r_local = 0; r_local < CHUNK_SIZE_TILES; r_local++) {
+            for (int c_local = 0; c_local < CHUNK_SIZE_TILES; c_local++) {
+                int tileIndex = ChunkData.index(c_local, r_local);
+                Tile.TileType type = chunkData.getType(tileIndex);
+                int elevation = chunkData.getElevation(tileIndex);
+
+                if (type != Tile.TileType.AIR) {
+                    // The columns in front (one row down, one column right) hide the sides behind them.
+                    int coverLeft = (r_local + 1 < CHUNK_SIZE_TILES)
+                            ? ChunkMeshSnapshot.coverHeight(chunkData, ChunkData.index(c_local, r_local + 1))
+                            : snapshot.southCover[c_local];
+                    int coverRight = (c_local + 1 < CHUNK_SIZE_TILES)
+                            ? ChunkMeshSnapshot.coverHeight(chunkData, ChunkData.index(c_local + 1, r_local))
+                            : snapshot.eastCover[r_local];
+                    int vertsAddedThisTile = addTileVertices(chunkData, snapshot.isExposedToSky(tileIndex),
+                            r_local, c_local, tileIndex, coverLeft, coverRight,
+                            topRects[tileIndex], 0, vertexBuffer, currentChunkVisualBounds); // Pass bounds array to be updated
+                    if (vertsAddedThisTile > 0) {
+                        boundsInitializedByTile = true;
+                    }
+                }
+                if (type == Tile.TileType.WATER || type == Tile.TileType.AIR) {
+                    continue; // No trees or rocks in water/air
+                }
+
+                Tile.TreeVisualType treeType = chunkData.getTreeType(tileIndex);
+                if (treeType != Tile.TreeVisualType.NONE) {
+                    // Store trees with their global map coordinates
+                    treesInChunk.add(new Renderer.TreeData(treeType,
+                            (float) (globalStartTileC + c_local),
+                            (float) (globalStartTileR + r_local),
+                            elevation));
+                }
+
+                Tile.LooseRockType rockType = chunkData.getLooseRockType(tileIndex);
+                if (rockType != Tile.LooseRockType.NONE) {
+                    looseRocksInChunk.add(new Renderer.LooseRockData(
+                            rockType,
+                            (float) (globalStartTileC + c_local),
+                            (float) (globalStartTileR + r_local),
+                            elevation
+                    ));
+                }
+            }
+        }
+
+        int vertexCount = vertexBuffer.count;
+        Chunk.BoundingBox bounds = null; // keep the approximate bounding box
+        if (boundsInitializedByTile) {
+            bounds = new Chunk.BoundingBox(currentChunkVisualBounds[0], currentChunkVisualBounds[1], currentChunkVisualBounds[2], currentChunkVisualBounds[3]);
+        } else if (vertexCount == 0) { // If chunk is empty (e.g., all AIR)
+            float worldChunkCenterX = (globalStartTileC + CHUNK_SIZE_TILES / 2.0f - globalStartTileR - CHUNK_SIZE_TILES / 2.0f) * (TILE_WIDTH / 2.0f);
+            float worldChunkCenterY = (globalStartTileC + CHUNK_SIZE_TILES / 2.0f + globalStartTileR + CHUNK_SIZE_TILES / 2.0f) * (TILE_HEIGHT / 2.0f);
+            bounds = new Chunk.BoundingBox(worldChunkCenterX, worldChunkCenterY, worldChunkCenterX, worldChunkCenterY); // Minimal bounding box
+        }
+        return new MeshData(chunkGridX, chunkGridY, snapshot.generation, vertexBuffer.data.array(), vertexCount, bounds,
+                treesInChunk, looseRocksInChunk);
+    }
+
+    /**
+     * Writes the faces tile ({@code globalRow}, {@code globalCol}) of
+     * {@code chunk} has in its chunk mesh again, relative to the same chunk
+     * origin and flagged {@link TerrainVertexFormat#MODE_SELECTED}, for the
+     * highlight overlay to draw over them. {@code south}, {@code east} and
+     * {@code lightManager} are as for {@link ChunkMeshSnapshot#capture}.
+     * {@code out} needs room for {@link #MAX_VERTICES_PER_TILE}. Returns the
+     * vertices written. Reads the live chunk, so main thread only.
+     */
+    public int buildTileHighlight(ChunkData chunk, ChunkData south, ChunkData east, LightManager lightManager,
+                                  int globalRow, int globalCol, ByteBuffer out) {
+        int tileIndex = ChunkData.indexOfGlobal(globalRow, globalCol);
+        if (chunk.getType(tileIndex) == Tile.TileType.AIR) {
+            return 0;
+        }
+        int row = globalRow - chunk.chunkY * CHUNK_SIZE_TILES;
+        int col = globalCol - chunk.chunkX * CHUNK_SIZE_TILES;
+        int coverLeft = (row + 1 < CHUNK_SIZE_TILES) ? ChunkMeshSnapshot.coverHeight(chunk, ChunkData.index(col, row + 1))
+                : (south != null) ? ChunkMeshSnapshot.coverHeight(south, ChunkData.index(col, 0)) : -1;
+        int coverRight = (col + 1 < CHUNK_SIZE_TILES) ? ChunkMeshSnapshot.coverHeight(chunk, ChunkData.index(col + 1, row))
+                : (east != null) ? ChunkMeshSnapshot.coverHeight(east, ChunkData.index(0, row)) : -1;
+        boolean exposedToSky = lightManager != null
+                && lightManager.isSurfaceTileExposedToSky(globalRow, globalCol, chunk.getElevation(tileIndex));
+        return addTileVertices(chunk, exposedToSky, row, col, tileIndex, coverLeft, coverRight,
+                0, TerrainVertexFormat.MODE_SELECTED, new Vertices(out), new float[4]);
+    }
+
+    /** Growable vertex array in {@link TerrainVertexFormat}; the worker's stand-in for the old off-heap upload buffer. */
+    private static final class Vertices {
+        ByteBuffer data;
+        int count;
+
+        Vertices(int capacity) { data = TerrainVertexFormat.newBuffer(capacity); }
+
+        /** Writes into {@code data} from its position; it must have room for everything put. */
+        Vertices(ByteBuffer data) { this.data = data; }
+
+        /**
+         * A vertex at ({@code x}, {@code y}, {@code z}) from the chunk's origin
+         * whose texture coordinates {@code s, t} are read according to
+         * {@code mode} (TEX_*, plus TerrainVertexFormat.MODE_SELECTED for highlights) within
+         * the region of {@code material}.
+         */
+        void put(int x, int y, int z, int s, int t, int light, int material, int mode) {
+            if (data.remaining() < TerrainVertexFormat.BYTES_PER_VERTEX) {
+                ByteBuffer grown = TerrainVertexFormat.newBuffer(count * 2);
+                grown.put(data.array(), 0, data.position());
+                data = grown;
+            }
+            TerrainVertexFormat.put(data, x, y, z, s, t, light, material, mode);
+            count++;
+        }
+    }
+
+    /**
+     * Groups tile tops into rectangles drawn as one quad each: greedily, in
+     * row order, widest run first, then as many rows as match. Tops match when
+     * type, elevation and light are equal.
+     * Returns, per tile: 0 if it draws its own top, -1 if a rectangle's quad
+     * covers it, and at the rectangle's last tile (in drawing order)
+     * {@code width | (height << 8)}. Drawing the quad
+     * that late keeps the order translucent water blends in: everything behind
+     * the rectangle is drawn before it.
+     */
+    private static int[] mergeTopSurfaces(ChunkMeshSnapshot snapshot) {
+        ChunkData chunk = snapshot.tiles;
+        int[] keys = new int[ChunkData.TILE_COUNT];
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            Tile.TileType type = chunk.getType(i);
+            keys[i] = (type == Tile.TileType.AIR) ? -1
+                    : (type.ordinal() << 16) | (chunk.getElevation(i) << 8) | chunk.getPackedLight(i);
+        }
+        int[] rects = new int[ChunkData.TILE_COUNT];
+        boolean[] placed = new boolean[ChunkData.TILE_COUNT];
+        for (int r = 0; r < CHUNK_SIZE_TILES; r++) {
+            for (int c = 0; c < CHUNK_SIZE_TILES; c++) {
+                int start = ChunkData.index(c, r);
+                int key = keys[start];
+                if (placed[start] || key < 0) continue;
+                int width = 1;
+                while (c + width < CHUNK_SIZE_TILES && !placed[start + width] && keys[start + width] == key) width++;
+                int height = 1;
+                grow:
+                while (r + height < CHUNK_SIZE_TILES) {
+                    for (int k = 0; k < width; k++) {
+                        int i = ChunkData.index(c + k, r + height);
+                        if (placed[i] || keys[i] != key) break grow;
+                    }
+                    height++;
+                }
+                if (width == 1 && height == 1) continue;
+                for (int dr = 0; dr < height; dr++) {
+                    for (int dc = 0; dc < width; dc++) {
+                        int i = ChunkData.index(c + dc, r + dr);
+                        placed[i] = true;
+                        rects[i] = -1;
+                    }
+                }
+                rects[ChunkData.index(c + width - 1, r + height - 1)] = width | (height << 8);
+            }
+        }
+        return rects;
+    }
+
+    /**
+     * Adds one tile's faces; {@code row}/{@code col} are within the chunk, as are the vertex positions.
+     * {@code selectedFlag} is added to every vertex's mode.
+     */
+    private int addTileVertices(ChunkData chunk, boolean exposedToSky, int row, int col, int tileIndex,
+                                int coverLeft, int coverRight, int topRect, int selectedFlag,
+                                Vertices vertexBuffer, float[] chunkVisualBounds) {
+        Tile.TileType currentTileTopSurfaceType = chunk.getType(tileIndex);
+        if (currentTileTopSurfaceType == Tile.TileType.AIR) {
+            return 0;
+        }
+
+        int currentTileElevation = chunk.getElevation(tileIndex);
+
+        final int tileGridPlaneCenterX = (col - row) * tileHalfWidth;
+        final int tileGridPlaneCenterY = (col + row) * tileHalfHeight;
+
+        final int tileBaseZ = (row + col) * Z_PER_TILE + currentTileElevation;
+
+        int verticesAddedCount = 0;
+        // Sky exposure and block light, combined with the time of day in the vertex shader.
+        int lightValue = packTerrainLight(chunk.getSkyLight(tileIndex), chunk.getBlockLight(tileIndex));
+
+        if (currentTileTopSurfaceType != Tile.TileType.WATER) {
+            verticesAddedCount += addPedestalSidesToList(
+                    vertexBuffer,
+                    tileGridPlaneCenterX, tileGridPlaneCenterY, tileBaseZ + Z_OFFSET_TILE_PEDESTAL,
+                    coverLeft < 0, coverRight < 0,
+                    selectedFlag, lightValue);
+        }
+
+        int topHeight = currentTileElevation;
+        if (currentTileTopSurfaceType == Tile.TileType.WATER) {
+            topHeight = Math.max(NIVEL_MAR - 1, currentTileElevation);
+        }
+
+        // A top of its own is a one-tile rectangle.
+        if (topRect >= 0) {
+            int width = (topRect == 0) ? 1 : topRect & 0xFF;
+            int height = (topRect == 0) ? 1 : topRect >> 8;
+            // This is the rectangle's last tile; step back to its first.
+            verticesAddedCount += addMergedTopSurfaceToList(
+                    vertexBuffer, currentTileTopSurfaceType, currentTileElevation,
+                    row - (height - 1), col - (width - 1), width, height,
+                    -topHeight * TILE_THICKNESS, selectedFlag, lightValue);
+        }
+
+
+        if (currentTileElevation > 0 && currentTileTopSurfaceType != Tile.TileType.WATER) {
+            // Exposed sides follow the sky level alone; the shader scales it with the time of day.
+            int sideLightVal = exposedToSky ? packTerrainLight(SKY_LIGHT_DAY, 0) : lightValue;
+            verticesAddedCount += addStratifiedElevatedSidesToList(
+                    vertexBuffer, currentTileTopSurfaceType, currentTileElevation, coverLeft, coverRight,
+                    tileGridPlaneCenterX, tileGridPlaneCenterY, tileBaseZ + Z_OFFSET_TILE_SIDES,
+                    TILE_THICKNESS,
+                    selectedFlag, sideLightVal);
+        }
+
+        updateChunkVisualBounds(chunkVisualBounds,
+                (chunk.globalCol(tileIndex) - chunk.globalRow(tileIndex)) * (float) tileHalfWidth,
+                (chunk.globalCol(tileIndex) + chunk.globalRow(tileIndex)) * (float) tileHalfHeight,
+                currentTileElevation, TILE_THICKNESS);
+
+        return verticesAddedCount;
+    }
+
+    /**
+     * Light value stored in chunk vertices: sky exposure and block light packed as
+     * {@code sky * 16 + block}, one byte. The vertex shader unpacks it (uPackedLight) and dims
+     * the sky part with u_skyIntensity, so meshes don't depend on the time of day.
+     */
+    static int packTerrainLight(int skyExposure, int blockLight) {
+        return skyExposure * 16 + blockLight;
+    }
+
+    private int addPedestalSidesToList(Vertices vertexBuffer,
+                                       int tileCenterX, int gridPlaneY, int worldZ,
+                                       boolean leftExposed, boolean rightExposed,
+                                       int selectedFlag, int lightVal) {
+        // The "dirt" side texture is the pedestal of every column; none, no pedestal.
+        int material = materials.pedestalMaterial();
+        if ((!leftExposed && !rightExposed) || material < 0) {
+            return 0;
+        }
+        int vCount = 0;
+        int pedestalTopY = gridPlaneY;
+        int pedestalBottomY = gridPlaneY + BASE_THICKNESS;
+
+        int pTopLx = tileCenterX + diamondLeftOffsetX, pTopLy = pedestalTopY + diamondSideOffsetY;
+        int pTopRx = tileCenterX + diamondRightOffsetX, pTopRy = pedestalTopY + diamondSideOffsetY;
+        int pTopBx = tileCenterX,                       pTopBy = pedestalTopY + diamondBottomOffsetY;
+        int pBotLx = tileCenterX + diamondLeftOffsetX, pBotLy = pedestalBottomY + diamondSideOffsetY;
+        int pBotRx = tileCenterX + diamondRightOffsetX, pBotRy = pedestalBottomY + diamondSideOffsetY;
+        int pBotBx = tileCenterX,                       pBotBy = pedestalBottomY + diamondBottomOffsetY;
+
+        // The material's region is the texture's width by BASE_THICKNESS worth of its height.
+        int mode = TEX_PLAIN | selectedFlag;
+        if (leftExposed) {
+            vertexBuffer.put(pBotLx, pBotLy, worldZ, 0, 1, lightVal, material, mode);
+            vertexBuffer.put(pBotBx, pBotBy, worldZ, 1, 1, lightVal, material, mode);
+            vertexBuffer.put(pTopBx, pTopBy, worldZ, 1, 0, lightVal, material, mode);
+            vertexBuffer.put(pTopLx, pTopLy, worldZ, 0, 0, lightVal, material, mode);
+            vCount += 4;
+        }
+
+        if (rightExposed) {
+            vertexBuffer.put(pBotBx, pBotBy, worldZ, 0, 1, lightVal, material, mode);
+            vertexBuffer.put(pBotRx, pBotRy, worldZ, 1, 1, lightVal, material, mode);
+            vertexBuffer.put(pTopRx, pTopRy, worldZ, 1, 0, lightVal, material, mode);
+            vertexBuffer.put(pTopBx, pTopBy, worldZ, 0, 0, lightVal, material, mode);
+            vCount += 4;
+        }
+        return vCount;
+    }
+
+    /**
+     * One quad for a rectangle of equal tops, {@code width} columns by
+     * {@code height} rows from tile ({@code firstRow}, {@code firstCol}):
+     * an iso parallelogram with the corners of the four corner tiles. Texture
+     * coordinates count tiles, and the fragment shader lays the top texture
+     * diamond-wise once per tile and steps the depth back to each tile's own Z
+     * (which grows one DEPTH_SORT_FACTOR per row and column), so sprites sort
+     * against it as against a top per tile.
+     */
+    private int addMergedTopSurfaceToList(Vertices vertexBuffer, Tile.TileType tileType, int elevation,
+                                          int firstRow, int firstCol, int width, int height, int topOffsetY,
+                                          int selectedFlag, int lightVal) {
+        int lastRow = firstRow + height - 1;
+        int lastCol = firstCol + width - 1;
+        int topX = (firstCol - firstRow) * tileHalfWidth;
+        int topY = (firstCol + firstRow) * tileHalfHeight + topOffsetY + diamondTopOffsetY;
+        int rightX = (lastCol - firstRow) * tileHalfWidth + diamondRightOffsetX;
+        int rightY = (lastCol + firstRow) * tileHalfHeight + topOffsetY + diamondSideOffsetY;
+        int bottomX = (lastCol - lastRow) * tileHalfWidth;
+        int bottomY = (lastCol + lastRow) * tileHalfHeight + topOffsetY + diamondBottomOffsetY;
+        int leftX = (firstCol - lastRow) * tileHalfWidth + diamondLeftOffsetX;
+        int leftY = (firstCol + lastRow) * tileHalfHeight + topOffsetY + diamondSideOffsetY;
+
+        // Z runs linearly from the first tile's, so it matches each tile's Z at that tile's centre.
+        int firstZ = (firstRow + firstCol) * Z_PER_TILE + elevation + Z_OFFSET_TILE_TOP_SURFACE;
+        int topZ = firstZ - Z_PER_TILE;
+        int rightZ = firstZ + (width - 1) * Z_PER_TILE;
+        int bottomZ = firstZ + (width + height - 1) * Z_PER_TILE;
+        int leftZ = firstZ + (height - 1) * Z_PER_TILE;
+
+        int material = materials.topMaterial(tileType);
+        int mode = TEX_TILED_TOP | selectedFlag;
+        vertexBuffer.put(topX, topY, topZ, 0, 0, lightVal, material, mode);
+        vertexBuffer.put(leftX, leftY, leftZ, 0, height, lightVal, material, mode);
+        vertexBuffer.put(bottomX, bottomY, bottomZ, width, height, lightVal, material, mode);
+        vertexBuffer.put(rightX, rightY, rightZ, width, 0, lightVal, material, mode);
+        return 4;
+    }
+
+    /**
+     * The sides of a tile's raised column, drawn only where the columns in
+     * front ({@code coverLeft}/{@code coverRight}, see
+     * {@link ChunkMeshSnapshot#coverHeight}) don't hide them. Each face's
+     * exposed run of elevation units is one quad whose V repeats once per unit.
+     */
+    private int addStratifiedElevatedSidesToList(Vertices vertexBuffer,
+                                                 Tile.TileType tileType, int tileElevation,
+                                                 int coverLeft, int coverRight,
+                                                 int tileCenterX, int gridPlaneCenterY, int worldZ,
+                                                 int elevSliceHeight, int selectedFlag, int sideLightVal) {
+        int material = materials.sideMaterial(tileType);
+        if (material < 0) {
+            return 0;
+        }
+        int vCount = 0;
+        int mode = TEX_REPEAT_V | selectedFlag;
+
+        int topY = gridPlaneCenterY - (tileElevation * elevSliceHeight);
+        int sTopLx = tileCenterX + diamondLeftOffsetX,  sTopLy = topY + diamondSideOffsetY;
+        int sTopRx = tileCenterX + diamondRightOffsetX, sTopRy = topY + diamondSideOffsetY;
+        int sTopBx = tileCenterX,                       sTopBy = topY + diamondBottomOffsetY;
+
+        // Draw the Left Face, from the top down to the column in front of it
+        int leftBase = Math.max(0, coverLeft);
+        if (leftBase < tileElevation) {
+            int units = tileElevation - leftBase;
+            int bottomY = gridPlaneCenterY - (leftBase * elevSliceHeight);
+            int sBotLx = tileCenterX + diamondLeftOffsetX, sBotLy = bottomY + diamondSideOffsetY;
+            int sBotBx = tileCenterX,                      sBotBy = bottomY + diamondBottomOffsetY;
+            vertexBuffer.put(sTopLx, sTopLy, worldZ, 0, 0, sideLightVal, material, mode);
+            vertexBuffer.put(sBotLx, sBotLy, worldZ, 0, units, sideLightVal, material, mode);
+            vertexBuffer.put(sBotBx, sBotBy, worldZ, 1, units, sideLightVal, material, mode);
+            vertexBuffer.put(sTopBx, sTopBy, worldZ, 1, 0, sideLightVal, material, mode);
+            vCount += 4;
+        }
+
+        // Draw the Right Face the same way
+        int rightBase = Math.max(0, coverRight);
+        if (rightBase < tileElevation) {
+            int units = tileElevation - rightBase;
+            int bottomY = gridPlaneCenterY - (rightBase * elevSliceHeight);
+            int sBotRx = tileCenterX + diamondRightOffsetX, sBotRy = bottomY + diamondSideOffsetY;
+            int sBotBx = tileCenterX,                       sBotBy = bottomY + diamondBottomOffsetY;
+            vertexBuffer.put(sTopBx, sTopBy, worldZ, 0, 0, sideLightVal, material, mode);
+            vertexBuffer.put(sBotBx, sBotBy, worldZ, 0, units, sideLightVal, material, mode);
+            vertexBuffer.put(sBotRx, sBotRy, worldZ, 1, units, sideLightVal, material, mode);
+            vertexBuffer.put(sTopRx, sTopRy, worldZ, 1, 0, sideLightVal, material, mode);
+            vCount += 4;
+        }
+        return vCount;
+    }
+
+
+    private void updateChunkVisualBounds(float[] chunkVisualBounds, float tileCenterX, float tileCenterY,
+                                         int elevUnits, float elevSliceH) {
+        float tileMinX = tileCenterX + diamondLeftOffsetX;
+        float tileMaxX = tileCenterX + diamondRightOffsetX;
+        float tileMinY = tileCenterY - (elevUnits * elevSliceH) + diamondTopOffsetY;
+        float tileMaxY = tileCenterY + BASE_THICKNESS + diamondBottomOffsetY;
+
+        chunkVisualBounds[0] = Math.min(chunkVisualBounds[0], tileMinX);
+        chunkVisualBounds[1] = Math.min(chunkVisualBounds[1], tileMinY);
+        chunkVisualBounds[2] = Math.max(chunkVisualBounds[2], tileMaxX);
+        chunkVisualBounds[3] = Math.max(chunkVisualBounds[3], tileMaxY);
+    }
+}
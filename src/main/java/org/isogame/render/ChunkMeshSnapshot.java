@@ -0,0 +1,72 @@
+package org.isogame.render;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.tile.Tile;
+
+import static org.isogame.constants.Constants.CHUNK_SIZE_TILES;
+
+/**
+ * Everything building a chunk's mesh reads, captured on the main thread: a
+ * copy-on-write snapshot of the chunk's tiles ({@link ChunkData#snapshot()}) and
+ * the bits of game state the mesh depends on. The game can keep editing the
+ * chunk while a mesh worker reads this.
+ */
+public final class ChunkMeshSnapshot {
+
+    final ChunkData tiles;
+    // One bit per tile whose sides are lit by the open sky (LightManager.isSurfaceTileExposedToSky).
+    final long[] exposedToSky;
+    // Height up to which the column in front of each edge tile hides its sides, or -1 (see coverHeight):
+    // the next chunk's first row below the last row, and its first column right of the last column.
+    final byte[] southCover;
+    final byte[] eastCover;
+    // Set by the renderer; a finished mesh is only applied if it is still the latest requested.
+    long generation;
+
+    private ChunkMeshSnapshot(ChunkData tiles, long[] exposedToSky, byte[] southCover, byte[] eastCover) {
+        this.tiles = tiles;
+        this.exposedToSky = exposedToSky;
+        this.southCover = southCover;
+        this.eastCover = eastCover;
+    }
+
+    /**
+     * Captures a chunk. {@code south} and {@code east} are the drawn chunks one
+     * row and one column further, whose edge columns can hide this chunk's edge
+     * sides; null if not drawn. {@code lightManager} may be null. The selected
+     * tile isn't part of the mesh; {@link TileHighlightOverlay} draws it.
+     */
+    public static ChunkMeshSnapshot capture(ChunkData chunk, ChunkData south, ChunkData east, LightManager lightManager) {
+        long[] exposed = new long[ChunkData.TILE_COUNT / 64];
+        if (lightManager != null) {
+            for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+                if (lightManager.isSurfaceTileExposedToSky(chunk.globalRow(i), chunk.globalCol(i), chunk.getElevation(i))) {
+                    exposed[i >> 6] |= 1L << i;
+                }
+            }
+        }
+        byte[] southCover = new byte[CHUNK_SIZE_TILES];
+        byte[] eastCover = new byte[CHUNK_SIZE_TILES];
+        for (int k = 0; k < CHUNK_SIZE_TILES; k++) {
+            southCover[k] = (byte) ((south != null) ? coverHeight(south, ChunkData.index(k, 0)) : -1);
+            eastCover[k] = (byte) ((east != null) ? coverHeight(east, ChunkData.index(0, k)) : -1);
+        }
+        return new ChunkMeshSnapshot(chunk.snapshot(), exposed, southCover, eastCover);
+    }
+
+    /**
+     * Elevation up to which a tile's column hides the sides of the tile behind
+     * it, or -1 if it hides nothing (also not the pedestal). Water is see-through.
+     */
+    static int coverHeight(ChunkData chunk, int i) {
+        Tile.TileType type = chunk.getType(i);
+        if (type == Tile.TileType.WATER || type == Tile.TileType.AIR) return -1;
+        return chunk.getElevation(i);
+    }
+
+    public int getChunkX() { return tiles.chunkX; }
+    public int getChunkY() { return tiles.chunkY; }
+
+    boolean isExposedToSky(int i) { return (exposedToSky[i >> 6] & (1L << i)) != 0; }
+}
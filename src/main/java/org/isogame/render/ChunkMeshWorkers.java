@@ -0,0 +1,78 @@
+package org.isogame.render;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds chunk meshes on background threads. The main thread submits
+ * {@link ChunkMeshSnapshot}s and polls the finished {@link MeshData}; nothing
+ * here touches GL, so uploading stays on the main thread (see
+ * {@link Renderer#uploadFinishedChunkMeshes(long)}).
+ *
+ * At most {@link #getMaxInFlight()} builds are queued or running at once, so a
+ * burst of dirty chunks waits in the world's update queue, where repeated
+ * requests for one chunk still collapse into one, instead of piling up here.
+ */
+public final class ChunkMeshWorkers {
+
+    private final ChunkMeshBuilder builder;
+    private final ExecutorService workers;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentLinkedQueue<MeshData> finished = new ConcurrentLinkedQueue<>();
+
+    // --- Stats ---
+    private final AtomicLong buildNanos = new AtomicLong();
+    private final AtomicLong meshesBuilt = new AtomicLong();
+
+    public ChunkMeshWorkers(ChunkMeshBuilder builder, int threadCount) {
+        this.builder = builder;
+        this.maxInFlight = threadCount * 4;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "ChunkMesh-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean hasCapacity() {
+        return inFlight.get() < maxInFlight;
+    }
+
+    /** Queues a build; the result shows up in {@link #poll()}. Main thread. */
+    public void submit(ChunkMeshSnapshot snapshot) {
+        inFlight.incrementAndGet();
+        workers.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                MeshData mesh = builder.build(snapshot);
+                buildNanos.addAndGet(System.nanoTime() - start);
+                meshesBuilt.incrementAndGet();
+                finished.add(mesh);
+            } catch (RuntimeException e) {
+                System.err.println("ChunkMeshWorkers: Failed to build mesh for chunk (" + snapshot.getChunkX() + "," + snapshot.getChunkY() + "): " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    /** Next finished mesh, oldest first, or null. */
+    public MeshData poll() {
+        return finished.poll();
+    }
+
+    public int getInFlight() { return inFlight.get(); }
+    public int getMaxInFlight() { return maxInFlight; }
+    public long getMeshesBuilt() { return meshesBuilt.get(); }
+    public long getBuildNanos() { return buildNanos.get(); }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
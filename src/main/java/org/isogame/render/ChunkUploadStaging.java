@@ -0,0 +1,126 @@
+package org.isogame.render;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Off-heap staging buffers for chunk mesh uploads, kept and reused instead of
+ * allocated and freed per upload, plus upload instrumentation. New buffers are
+ * sized from the meshes actually seen: at least the largest mesh of the last
+ * completed stats window, rounded up to {@link #GRANULE_BYTES}, so one buffer
+ * serves every ordinary rebuild. Buffers grown for an outlier are freed again
+ * once meshes are back to their usual size.
+ *
+ * Main thread only, like the uploads themselves ({@link Chunk#applyMesh}).
+ */
+public final class ChunkUploadStaging {
+
+    static final int GRANULE_BYTES = 4096;
+    private static final int MAX_POOLED_BUFFERS = 2;
+    private static final long STATS_WINDOW_NANOS = 1_000_000_000L;
+
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+    // Largest mesh of the last completed window and of the current one.
+    private int recentLargestBytes;
+    private int windowLargestBytes;
+
+    // --- Stats ---
+    private long buffersAllocated;
+    private long bytesAllocated;
+    private long bytesUploaded;
+    private long vboBytesAllocated;
+    private long uploads;
+    private long windowStartNanos = -1;
+    private long windowStartAllocated;
+    private long windowStartUploaded;
+    private double allocatedBytesPerSecond;
+    private double uploadedBytesPerSecond;
+
+    /** A buffer of at least {@code bytes}, cleared; give it back with {@link #release}. */
+    public ByteBuffer acquire(int bytes) {
+        windowLargestBytes = Math.max(windowLargestBytes, bytes);
+        ByteBuffer buffer;
+        while ((buffer = pool.poll()) != null) {
+            if (buffer.capacity() >= bytes) {
+                buffer.clear();
+                return buffer;
+            }
+            MemoryUtil.memFree(buffer); // outgrown
+        }
+        int capacity = roundUp(Math.max(bytes, recentLargestBytes));
+        buffersAllocated++;
+        bytesAllocated += capacity;
+        return MemoryUtil.memAlloc(capacity);
+    }
+
+    public void release(ByteBuffer buffer) {
+        // Keep it unless the pool is full or it is far larger than the meshes being uploaded now.
+        int usual = roundUp(Math.max(recentLargestBytes, windowLargestBytes));
+        if (pool.size() < MAX_POOLED_BUFFERS && buffer.capacity() <= 2 * usual) {
+            pool.push(buffer);
+        } else {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    /** Counts an upload of {@code bytes}, for which {@code vboBytes} of buffer storage was (re)allocated, 0 if reused. */
+    public void recordUpload(int bytes, long vboBytes) {
+        uploads++;
+        bytesUploaded += bytes;
+        vboBytesAllocated += vboBytes;
+    }
+
+    /** Closes the stats window once a second has passed; call once a frame. */
+    public void tick(long nowNanos) {
+        if (windowStartNanos < 0) {
+            windowStartNanos = nowNanos;
+            return;
+        }
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed < STATS_WINDOW_NANOS) return;
+        double seconds = elapsed / 1e9;
+        allocatedBytesPerSecond = (bytesAllocated + vboBytesAllocated - windowStartAllocated) / seconds;
+        uploadedBytesPerSecond = (bytesUploaded - windowStartUploaded) / seconds;
+        windowStartAllocated = bytesAllocated + vboBytesAllocated;
+        windowStartUploaded = bytesUploaded;
+        windowStartNanos = nowNanos;
+        // Quiet windows keep the previous size, so a pause doesn't shrink the next buffer.
+        if (windowLargestBytes > 0) recentLargestBytes = windowLargestBytes;
+        windowLargestBytes = 0;
+    }
+
+    /** {@code bytes} rounded up to whole {@link #GRANULE_BYTES}, at least one. */
+    static int roundUp(int bytes) {
+        return Math.max(GRANULE_BYTES, (bytes + GRANULE_BYTES - 1) / GRANULE_BYTES * GRANULE_BYTES);
+    }
+
+    public void cleanup() {
+        ByteBuffer buffer;
+        while ((buffer = pool.poll()) != null) {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    // --- Stats ---
+
+    public int getPooledBuffers() { return pool.size(); }
+    public long getBuffersAllocated() { return buffersAllocated; }
+    /** Off-heap staging memory allocated so far. */
+    public long getBytesAllocated() { return bytesAllocated; }
+    /** Arena space handed to chunk meshes so far; meshes rewritten into their old range aren't counted. */
+    public long getVboBytesAllocated() { return vboBytesAllocated; }
+    public long getBytesUploaded() { return bytesUploaded; }
+    public long getUploads() { return uploads; }
+    /** Staging and GPU buffer bytes allocated per second, over the last completed window. */
+    public double getAllocatedBytesPerSecond() { return allocatedBytesPerSecond; }
+    public double getUploadedBytesPerSecond() { return uploadedBytesPerSecond; }
+
+    @Override
+    public String toString() {
+        return String.format("ChunkUploads[uploads=%d, uploaded=%d B (%.0f B/s), allocated=%d B staging + %d B vbo (%.0f B/s), buffers=%d, pooled=%d]",
+                uploads, bytesUploaded, uploadedBytesPerSecond, bytesAllocated, vboBytesAllocated,
+                allocatedBytesPerSecond, buffersAllocated, pool.size());
+    }
+}
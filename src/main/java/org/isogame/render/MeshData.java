@@ -0,0 +1,36 @@
+package org.isogame.render;
+
+import java.util.List;
+
+/**
+ * A chunk's mesh as built on the CPU by {@link ChunkMeshBuilder}: terrain
+ * vertices plus the trees and loose rocks drawn on top. Holds no GL objects;
+ * {@link Chunk#applyMesh} uploads it on the main thread.
+ */
+public final class MeshData {
+
+    public final int chunkX, chunkY;
+    final long generation;
+    /** Terrain vertices in {@link TerrainVertexFormat}, four per quad; only the first {@link #vertexCount} are used. */
+    public final byte[] vertices;
+    public final int vertexCount;
+    /** Screen-space bounds of the vertices, or null to keep the chunk's approximate bounds. */
+    public final Chunk.BoundingBox bounds;
+    public final List<Renderer.TreeData> trees;
+    public final List<Renderer.LooseRockData> looseRocks;
+
+    MeshData(int chunkX, int chunkY, long generation, byte[] vertices, int vertexCount, Chunk.BoundingBox bounds,
+             List<Renderer.TreeData> trees, List<Renderer.LooseRockData> looseRocks) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.generation = generation;
+        this.vertices = vertices;
+        this.vertexCount = vertexCount;
+        this.bounds = bounds;
+        this.trees = trees;
+        this.looseRocks = looseRocks;
+    }
+
+    public int getByteCount() { return vertexCount * TerrainVertexFormat.BYTES_PER_VERTEX; }
+    public int getQuadCount() { return vertexCount / TerrainVertexFormat.VERTICES_PER_QUAD; }
+}
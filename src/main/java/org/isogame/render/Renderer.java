@@ -10,9 +10,12 @@ import org.isogame.constants.Constants;
 import org.isogame.entity.*;
 import org.isogame.game.EntityManager;
 import org.isogame.game.Game;
+import org.isogame.game.PlacementManager;
 import org.isogame.gamedata.AnchorDefinition;
 import org.isogame.input.InputHandler;
 import org.isogame.item.Item;
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkIndex;
 import org.isogame.map.LightManager;
 import org.isogame.map.Map;
 import org.isogame.tile.FurnaceEntity;
@@ -24,9 +27,11 @@ import org.isogame.world.World;
 import org.isogame.world.structure.Wall;
 import org.joml.Matrix4f;
 import org.joml.Vector4f;
+import org.joml.Vector3f;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.system.MemoryUtil;
 
+import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.util.*;
 import static org.isogame.constants.Constants.HOTBAR_SIZE;
@@ -55,9 +60,27 @@ public class Renderer {
     private Font uiFont;
     private Font titleFont;
     private Random tileDetailRandom;
-    private java.util.Map<LightManager.ChunkCoordinate, Chunk> activeMapChunks;
+    private ChunkIndex<Chunk> activeMapChunks;
+    // Meshes of chunks the world has parked (see ChunkRetentionCache): kept on the GPU but not drawn.
+    private ChunkIndex<Chunk> parkedMapChunks;
+    // CPU half of chunk meshing, on worker threads; only the GL upload runs on this thread.
+    private ChunkMeshBuilder chunkMeshBuilder;
+    private ChunkMeshWorkers chunkMeshWorkers;
+    // Reused off-heap buffers chunk meshes are uploaded through, and upload stats.
+    private final ChunkUploadStaging chunkUploadStaging = new ChunkUploadStaging();
+    private long meshGeneration;
+    // Shared vertex buffers all chunk meshes are allocated from; created with the other GL objects.
+    private TerrainBufferArena terrainArena;
+    // Selection and placement preview, drawn over the chunks rather than baked into their meshes.
+    private TileHighlightOverlay tileHighlightOverlay;
     private Shader defaultShader;
+    // defaultShader's variant for chunk meshes and tile highlights; the only one that writes gl_FragDepth.
+    private Shader terrainShader;
     private Matrix4f projectionMatrix;
+    // Reused every frame for the ambient light uniform.
+    private final Vector3f ambientLightColor = new Vector3f();
+    private final Vector3f chunkOrigin = new Vector3f();
+    private final Vector4f selectionTint = new Vector4f();
     private int spriteVaoId, spriteVboId;
     private FloatBuffer spriteVertexBuffer;
     private int uiColoredVaoId, uiColoredVboId;
@@ -67,7 +90,9 @@ public class Renderer {
     private Texture mainMenuBackgroundTexture;
     private UIManager uiManager;
 
-    public static final int FLOATS_PER_VERTEX_TERRAIN_TEXTURED = 10;
+    // Terrain vertices as the vertex shader decodes them from TerrainVertexFormat (see TerrainVertexFormat.unpack):
+    // position, color, texCoord, light, texture region (x, y, w, h) and texture mode, see ChunkMeshBuilder.TEX_*
+    public static final int FLOATS_PER_VERTEX_TERRAIN_TEXTURED = 15;
     public static final int FLOATS_PER_VERTEX_SPRITE_TEXTURED = 10;
     public static final int FLOATS_PER_VERTEX_UI_COLORED = 7;
     public static final int FLOATS_PER_VERTEX_SHADOW = 7;
@@ -99,6 +124,8 @@ public class Renderer {
     private int particleVaoId, particleVboId;
     private FloatBuffer particleVertexBuffer;
     private static final int MAX_PARTICLE_QUADS = 1024;
+    // Terrain arena compaction per frame: a few chunks' worth of GPU-side copying.
+    private static final int TERRAIN_DEFRAG_BYTES_PER_FRAME = 256 * 1024;
     public static final int FLOATS_PER_VERTEX_PARTICLE = 7; // x,y,z, r,g,b,a
 
     private static final int MAX_SHADOW_QUADS = 1024; // Max shadows per frame
@@ -108,16 +135,7 @@ public class Renderer {
     private AssetManager assetManager;
 
 
-    private static final float SIDE_TEXTURE_DENSITY_FACTOR = 1.0f;
     private static final float DUMMY_U = 0.0f, DUMMY_V = 0.0f;
-    private static final float[] SELECTED_TINT = {1.0f, 0.8f, 0.0f, 0.8f};
-    private static final float[] DIRT_TOP_COLOR = {0.6f, 0.4f, 0.2f, 1.0f};
-    private static final float[] WATER_TOP_COLOR = {0.05f, 0.25f, 0.5f, 0.85f};
-    private static final float[] SAND_TOP_COLOR = {0.82f,0.7f,0.55f,1f};
-    private static final float[] GRASS_TOP_COLOR = {0.20f,0.45f,0.10f,1f};
-    private static final float[] ROCK_TOP_COLOR = {0.45f,0.45f,0.45f,1f};
-    private static final float[] SNOW_TOP_COLOR = {0.95f,0.95f,1.0f,1f};
-    private static final float[] DEFAULT_TOP_COLOR = {1f,0f,1f,1f};
     private static final float[] WHITE_TINT = {1.0f, 1.0f, 1.0f, 1.0f};
 
 
@@ -126,9 +144,6 @@ public class Renderer {
     private static final float Z_OFFSET_SPRITE_PLAYER = 0.1f;
     private static final float Z_OFFSET_SPRITE_ANIMAL = 0.09f;
     private static final float Z_OFFSET_SPRITE_TREE = 0.05f;
-    private static final float Z_OFFSET_TILE_TOP_SURFACE = 0.0f;
-    private static final float Z_OFFSET_TILE_SIDES = 0.01f;
-    private static final float Z_OFFSET_TILE_PEDESTAL = 0.02f;
     private static final float Z_OFFSET_UI_BACKGROUND = 0.05f;
     private static final float Z_OFFSET_UI_PANEL = 0.04f;
     private static final float Z_OFFSET_UI_BORDER = 0.03f;
@@ -136,11 +151,6 @@ public class Renderer {
 
     private final float tileHalfWidth = TILE_WIDTH / 2.0f;
     private final float tileHalfHeight = TILE_HEIGHT / 2.0f;
-    private final float diamondTopOffsetY = -this.tileHalfHeight;
-    private final float diamondLeftOffsetX = -this.tileHalfWidth;
-    private final float diamondSideOffsetY = 0;
-    private final float diamondRightOffsetX = this.tileHalfWidth;
-    private final float diamondBottomOffsetY = this.tileHalfHeight;
 
 
 
@@ -191,8 +201,14 @@ public class Renderer {
         this.entityManager = null;
         this.tileDetailRandom = new Random();
         this.projectionMatrix = new Matrix4f();
-        this.activeMapChunks = new HashMap<>();
+        this.activeMapChunks = new ChunkIndex<>();
+        this.parkedMapChunks = new ChunkIndex<>();
         loadAssets();
+        this.chunkMeshBuilder = new ChunkMeshBuilder(
+                (tileAtlasTexture != null) ? tileAtlasTexture.getWidth() : 0,
+                (tileAtlasTexture != null) ? tileAtlasTexture.getHeight() : 0);
+        this.chunkMeshWorkers = new ChunkMeshWorkers(chunkMeshBuilder,
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
         initShaders();
         initRenderObjects();
         initUiColoredResources();
@@ -211,25 +227,34 @@ public class Renderer {
         this.inputHandler = inputHandler;
         this.entityManager = entityManager;
         if (this.activeMapChunks != null) {
-            for (Chunk chunk : this.activeMapChunks.values()) {
+            for (Chunk chunk : this.activeMapChunks) {
                 chunk.cleanup();
             }
             this.activeMapChunks.clear();
         }
+        cleanupParkedChunkGraphics();
+    }
+
+    private void cleanupParkedChunkGraphics() {
+        if (this.parkedMapChunks == null) return;
+        for (Chunk chunk : this.parkedMapChunks) {
+            chunk.cleanup();
+        }
+        this.parkedMapChunks.clear();
     }
 
     public void clearGameContext() {
         System.out.println("Renderer: Clearing game context.");
         if (this.activeMapChunks != null && !this.activeMapChunks.isEmpty()) {
             System.out.println("Renderer.clearGameContext: Unloading " + this.activeMapChunks.size() + " active chunk graphics.");
-            List<LightManager.ChunkCoordinate> coordsToUnload = new ArrayList<>(this.activeMapChunks.keySet());
-            for (LightManager.ChunkCoordinate coord : coordsToUnload) {
-                Chunk chunk = this.activeMapChunks.remove(coord);
+            for (long key : this.activeMapChunks.keys()) {
+                Chunk chunk = this.activeMapChunks.remove(key);
                 if (chunk != null) {
                     chunk.cleanup();
                 }
             }
         }
+        cleanupParkedChunkGraphics();
         if (this.worldEntities != null) {
             this.worldEntities.clear();
         }
@@ -308,26 +333,50 @@ public class Renderer {
 
     private void initShaders() {
         try {
-            defaultShader = new Shader();
-            defaultShader.createVertexShader(Shader.loadResource("/org/isogame/render/shaders/vertex.glsl"));
-            defaultShader.createFragmentShader(Shader.loadResource("/org/isogame/render/shaders/fragment.glsl"));
-            defaultShader.link();
-            defaultShader.createUniform("uProjectionMatrix");
-            defaultShader.createUniform("uModelViewMatrix");
-            defaultShader.createUniform("uTextureSampler");
-            defaultShader.createUniform("uHasTexture");
-            defaultShader.createUniform("uIsFont");
-            defaultShader.createUniform("uIsSimpleUiElement");
-            defaultShader.createUniform("u_time");
-            defaultShader.createUniform("u_isSelectedIcon");
-            defaultShader.createUniform("uIsShadow");
-            defaultShader.createUniform("u_ambientLightColor"); // NEW
+            String vertexSource = Shader.loadResource("/org/isogame/render/shaders/vertex.glsl");
+            String fragmentSource = Shader.loadResource("/org/isogame/render/shaders/fragment.glsl");
+            defaultShader = createWorldShader(vertexSource, fragmentSource);
+            terrainShader = createWorldShader(vertexSource, Shader.withDefine(fragmentSource, "TERRAIN_DEPTH"));
         } catch (Exception e) {
             System.err.println("Renderer CRITICAL: Error initializing shaders: " + e.getMessage());
             throw new RuntimeException("Failed to init shaders", e);
         }
     }
 
+    private Shader createWorldShader(String vertexSource, String fragmentSource) throws IOException {
+        Shader shader = new Shader();
+        shader.createVertexShader(vertexSource);
+        shader.createFragmentShader(fragmentSource);
+        shader.link();
+        shader.createUniform("uProjectionMatrix");
+        shader.createUniform("uModelViewMatrix");
+        shader.createUniform("uTextureSampler");
+        shader.createUniform("uHasTexture");
+        shader.createUniform("uIsFont");
+        shader.createUniform("uIsSimpleUiElement");
+        shader.createUniform("u_time");
+        shader.createUniform("u_isSelectedIcon");
+        shader.createUniform("uIsShadow");
+        shader.createUniform("u_ambientLightColor"); // NEW
+        shader.createUniform("uPackedLight");
+        shader.createUniform("u_skyIntensity");
+        shader.createUniform("u_depthSortFactor");
+        shader.createUniform("u_chunkOrigin");
+        shader.createUniform("u_zUnit");
+        shader.createUniform("u_materialRegion");
+        shader.createUniform("u_materialColor");
+        shader.createUniform("u_selectionTint");
+
+        // The terrain material table doesn't change while the game runs; upload it once.
+        TerrainMaterials materials = chunkMeshBuilder.getMaterials();
+        shader.bind();
+        shader.setUniformVec4Array("u_materialRegion", materials.getRegions());
+        shader.setUniformVec4Array("u_materialColor", materials.getColors());
+        shader.setUniform("u_zUnit", TerrainVertexFormat.Z_UNIT);
+        shader.unbind();
+        return shader;
+    }
+
     private void initRenderObjects() {
         spriteVaoId = glGenVertexArrays();
         glBindVertexArray(spriteVaoId);
@@ -349,6 +398,9 @@ public class Renderer {
 
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         glBindVertexArray(0);
+
+        terrainArena = new TerrainBufferArena();
+        tileHighlightOverlay = new TileHighlightOverlay(chunkMeshBuilder, terrainArena.getQuadIndexBufferId());
     }
 
 
@@ -359,40 +411,150 @@ public class Renderer {
             System.err.println("Renderer.ensureChunkGraphicsLoaded: Map or Camera is null. Cannot load chunk graphics for (" + chunkGridX + "," + chunkGridY + ")");
             return;
         }
-        LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(chunkGridX, chunkGridY);
-        Chunk chunk = activeMapChunks.get(coord);
+        if (!activeMapChunks.containsKey(chunkGridX, chunkGridY)) {
+            buildChunkMeshNow(chunkGridX, chunkGridY);
+        }
+    }
+
+    private Chunk getOrCreateChunk(int chunkGridX, int chunkGridY) {
+        Chunk chunk = activeMapChunks.get(chunkGridX, chunkGridY);
         if (chunk == null) {
-            chunk = new Chunk(chunkGridX, chunkGridY, CHUNK_SIZE_TILES);
-            chunk.setupGLResources();
-            activeMapChunks.put(coord, chunk);
+            chunk = new Chunk(chunkGridX, chunkGridY, CHUNK_SIZE_TILES, terrainArena);
+            activeMapChunks.put(chunkGridX, chunkGridY, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Captures what the mesh of a chunk depends on; main thread. The map's
+     * getOrGenerateChunkTiles will handle creating the tiles if they don't exist.
+     */
+    private ChunkMeshSnapshot snapshotChunk(int chunkGridX, int chunkGridY) {
+        ChunkData chunkData = map.getOrGenerateChunkTiles(chunkGridX, chunkGridY);
+        if (chunkData == null) {
+            System.err.println("Renderer: Failed to get or generate tile data for chunk (" + chunkGridX + "," + chunkGridY + ")");
+            return null;
+        }
+        ChunkMeshSnapshot snapshot = ChunkMeshSnapshot.capture(chunkData,
+                drawnNeighbour(chunkGridX, chunkGridY + 1), drawnNeighbour(chunkGridX + 1, chunkGridY),
+                map.getLightManager());
+        snapshot.generation = ++meshGeneration;
+        return snapshot;
+    }
+
+    /**
+     * Tiles of a neighbouring chunk that may hide sides of the chunk being
+     * meshed, or null if it isn't loaded or is parked (not drawn). When a chunk
+     * is parked the world rebuilds the chunks behind it to show those sides again.
+     */
+    private ChunkData drawnNeighbour(int chunkGridX, int chunkGridY) {
+        if (parkedMapChunks.containsKey(chunkGridX, chunkGridY)) return null;
+        return map.getLoadedChunk(chunkGridX, chunkGridY);
+    }
+
+    /** Whether {@link #requestChunkMesh(int, int)} can take another chunk this frame. */
+    public boolean canRequestChunkMesh() {
+        return chunkMeshWorkers.hasCapacity();
+    }
+
+    /**
+     * Rebuilds a chunk's mesh on the mesh workers. The chunk keeps drawing its
+     * current mesh until the new one is uploaded by
+     * {@link #uploadFinishedChunkMeshes(long)}.
+     */
+    public void requestChunkMesh(int chunkGridX, int chunkGridY) {
+        if (map == null || camera == null) {
+            System.err.println("Renderer.requestChunkMesh: Map or Camera is null. Cannot update chunk (" + chunkGridX + "," + chunkGridY + ")");
+            return;
         }
-        chunk.uploadGeometry(this.map, this.inputHandler, this, camera);
+        ChunkMeshSnapshot snapshot = snapshotChunk(chunkGridX, chunkGridY);
+        if (snapshot == null) return;
+        getOrCreateChunk(chunkGridX, chunkGridY).awaitMesh(snapshot.generation);
+        chunkMeshWorkers.submit(snapshot);
     }
 
+    /**
+     * Uploads meshes the workers have finished, oldest first, until about
+     * {@code budgetMicros} have passed; at least one is uploaded if any is ready.
+     * Meshes for chunks unloaded or requested again since are dropped. Returns
+     * the number uploaded. Also compacts the terrain arena a little.
+     */
+    public int uploadFinishedChunkMeshes(long budgetMicros) {
+        long now = System.nanoTime();
+        chunkUploadStaging.tick(now);
+        terrainArena.defragment(TERRAIN_DEFRAG_BYTES_PER_FRAME);
+        long deadline = now + budgetMicros * 1000L;
+        int uploaded = 0;
+        MeshData mesh;
+        while ((mesh = chunkMeshWorkers.poll()) != null) {
+            Chunk chunk = activeMapChunks.get(mesh.chunkX, mesh.chunkY);
+            if (chunk == null) chunk = parkedMapChunks.get(mesh.chunkX, mesh.chunkY);
+            if (chunk == null || !chunk.isAwaitingMesh(mesh.generation)) continue;
+            chunk.applyMesh(mesh, chunkUploadStaging);
+            uploaded++;
+            if (System.nanoTime() - deadline >= 0) break;
+        }
+        return uploaded;
+    }
+
+    /** Builds and uploads a chunk's mesh on this thread, for when it is needed right away. */
+    private void buildChunkMeshNow(int chunkGridX, int chunkGridY) {
+        ChunkMeshSnapshot snapshot = snapshotChunk(chunkGridX, chunkGridY);
+        if (snapshot == null) return;
+        Chunk chunk = getOrCreateChunk(chunkGridX, chunkGridY);
+        chunk.awaitMesh(snapshot.generation); // drops anything still in flight for it
+        chunk.applyMesh(chunkMeshBuilder.build(snapshot), chunkUploadStaging);
+    }
+
+    public ChunkMeshWorkers getChunkMeshWorkers() { return chunkMeshWorkers; }
+    public ChunkUploadStaging getChunkUploadStaging() { return chunkUploadStaging; }
+    public TerrainBufferArena getTerrainArena() { return terrainArena; }
+
     public boolean isChunkGraphicsLoaded(int chunkGridX, int chunkGridY) {
-        return activeMapChunks.containsKey(new LightManager.ChunkCoordinate(chunkGridX, chunkGridY));
+        return activeMapChunks.containsKey(chunkGridX, chunkGridY);
+    }
+
+    /**
+     * Whether a chunk is inside the camera's view, by its mesh bounds or, before it
+     * has a mesh, the bounds it could take up. Lighting uses it to go on-screen first.
+     */
+    public boolean isChunkOnScreen(int chunkGridX, int chunkGridY) {
+        Chunk chunk = activeMapChunks.get(chunkGridX, chunkGridY);
+        Chunk.BoundingBox bounds = (chunk != null) ? chunk.getBoundingBox()
+                : Chunk.approximateBoundingBox(chunkGridX, chunkGridY, CHUNK_SIZE_TILES);
+        return camera.isChunkVisible(bounds);
     }
 
     public void unloadChunkGraphics(int chunkGridX, int chunkGridY) {
-        LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(chunkGridX, chunkGridY);
-        Chunk chunk = activeMapChunks.remove(coord);
+        Chunk chunk = activeMapChunks.remove(chunkGridX, chunkGridY);
+        if (chunk == null) chunk = parkedMapChunks.remove(chunkGridX, chunkGridY);
         if (chunk != null) {
             chunk.cleanup();
         }
     }
 
+    /** Stops drawing a chunk but keeps its mesh for {@link #restoreChunkGraphics(int, int)}. Returns the mesh size in bytes. */
+    public long parkChunkGraphics(int chunkGridX, int chunkGridY) {
+        Chunk chunk = activeMapChunks.remove(chunkGridX, chunkGridY);
+        if (chunk == null) return 0;
+        parkedMapChunks.put(chunkGridX, chunkGridY, chunk);
+        return chunk.getMeshBytes();
+    }
+
+    /** Draws a parked chunk again. Returns false if it has no parked mesh. */
+    public boolean restoreChunkGraphics(int chunkGridX, int chunkGridY) {
+        Chunk chunk = parkedMapChunks.remove(chunkGridX, chunkGridY);
+        if (chunk == null) return false;
+        activeMapChunks.put(chunkGridX, chunkGridY, chunk);
+        return true;
+    }
+
     public void updateChunkByGridCoords(int chunkGridX, int chunkGridY) {
         if (map == null || camera == null) {
             System.err.println("Renderer.updateChunkByGridCoords: Map or Camera is null. Cannot update chunk (" + chunkGridX + "," + chunkGridY + ")");
             return;
         }
-        LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(chunkGridX, chunkGridY);
-        Chunk chunk = activeMapChunks.get(coord);
-        if (chunk != null) {
-            chunk.uploadGeometry(this.map, this.inputHandler, this, camera);
-        } else {
-            ensureChunkGraphicsLoaded(chunkGridX, chunkGridY);
-        }
+        buildChunkMeshNow(chunkGridX, chunkGridY);
     }
 
     @Deprecated
@@ -402,8 +564,8 @@ public class Renderer {
             System.err.println("Renderer.uploadTileMapGeometry: Map is null. Cannot upload.");
             return;
         }
-        for (Chunk chunk : activeMapChunks.values()) {
-            chunk.uploadGeometry(map, inputHandler, this, camera);
+        for (long key : activeMapChunks.keys()) {
+            buildChunkMeshNow(ChunkIndex.keyX(key), ChunkIndex.keyY(key));
         }
     }
 
@@ -421,334 +583,13 @@ public class Renderer {
         }
     }
 
-    private float[] determineTopSurfaceColor(Tile.TileType surfaceType, boolean isSelected) {
-        if (isSelected) {
-            float pulseFactor = (float) (Math.sin(GLFW.glfwGetTime() * 6.0) + 1.0) / 2.0f;
-            float baseAlpha = SELECTED_TINT[3];
-            float minPulseAlpha = baseAlpha * 0.5f;
-            float animatedAlpha = minPulseAlpha + (baseAlpha - minPulseAlpha) * pulseFactor;
-            return new float[]{SELECTED_TINT[0], SELECTED_TINT[1], SELECTED_TINT[2], animatedAlpha};
-        }
-        switch (surfaceType) {
-            case WATER: return WATER_TOP_COLOR;
-            case SAND:  return SAND_TOP_COLOR;
-            case GRASS: return GRASS_TOP_COLOR;
-            case ROCK:  return ROCK_TOP_COLOR;
-            case DIRT:  return DIRT_TOP_COLOR;
-            case SNOW:  return SNOW_TOP_COLOR;
-            case AIR:   return DEFAULT_TOP_COLOR;
-            default:    return DEFAULT_TOP_COLOR;
-        }
-    }
-
-    private void addVertexToBuffer(FloatBuffer vertexBuffer, float x, float y, float z, float[] color, float u, float v, float light) {
-        vertexBuffer.put(x).put(y).put(z);
-        vertexBuffer.put(color[0]).put(color[1]).put(color[2]).put(color[3]);
-        vertexBuffer.put(u).put(v);
-        vertexBuffer.put(light);
-    }
-
-    public int addSingleTileVerticesToList_WorldSpace_ForChunk(
-            int tileR_map, int tileC_map, Tile tile, boolean isSelected,
-            FloatBuffer vertexBuffer,
-            float[] chunkVisualBounds) {
-
-        if (tile.getType() == Tile.TileType.AIR) {
-            return 0;
-        }
-
-        int currentTileElevation = tile.getElevation();
-        Tile.TileType currentTileTopSurfaceType = tile.getType();
-
-        final float tileGridPlaneCenterX = (tileC_map - tileR_map) * this.tileHalfWidth;
-        final float tileGridPlaneCenterY = (tileC_map + tileR_map) * this.tileHalfHeight;
-
-        final float tileBaseZ = (tileR_map + tileC_map) * DEPTH_SORT_FACTOR + (currentTileElevation * 0.005f);
-        final float tileTopSurfaceZ = tileBaseZ + Z_OFFSET_TILE_TOP_SURFACE;
-
-        float[] topSurfaceColor = determineTopSurfaceColor(currentTileTopSurfaceType, isSelected);
-        float[] sideTintToUse = isSelected ? topSurfaceColor : WHITE_TINT;
-
-        int verticesAddedCount = 0;
-        float normalizedLightValue = tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL;
-        normalizedLightValue = Math.max(0.05f, normalizedLightValue);
-
-        if (currentTileTopSurfaceType != Tile.TileType.WATER) {
-            verticesAddedCount += addPedestalSidesToList(
-                    vertexBuffer, tile, // Pass the whole tile object
-                    tileGridPlaneCenterX, tileGridPlaneCenterY, tileBaseZ + Z_OFFSET_TILE_PEDESTAL,
-                    sideTintToUse, normalizedLightValue);
-        }
-
-        float currentTileTopSurfaceActualY = tileGridPlaneCenterY - (currentTileElevation * TILE_THICKNESS);
-        if (currentTileTopSurfaceType == Tile.TileType.WATER) {
-            currentTileTopSurfaceActualY = tileGridPlaneCenterY - (Math.max(NIVEL_MAR -1, currentTileElevation) * TILE_THICKNESS);
-        }
-
-        verticesAddedCount += addTopSurfaceToList(
-                vertexBuffer, tile, isSelected, // Pass the whole tile object
-                tileGridPlaneCenterX, currentTileTopSurfaceActualY, tileTopSurfaceZ,
-                topSurfaceColor, WHITE_TINT, normalizedLightValue);
-
-
-        if (currentTileElevation > 0 && currentTileTopSurfaceType != Tile.TileType.WATER) {
-            verticesAddedCount += addStratifiedElevatedSidesToList(
-                    vertexBuffer, tile, // Pass the whole tile object
-                    tileGridPlaneCenterX, tileGridPlaneCenterY, tileBaseZ + Z_OFFSET_TILE_SIDES,
-                    (float)TILE_THICKNESS,
-                    sideTintToUse, normalizedLightValue,
-                    tileR_map, tileC_map);
-        }
-
-        updateChunkVisualBounds(chunkVisualBounds, tileGridPlaneCenterX, tileGridPlaneCenterY,
-                currentTileElevation, TILE_THICKNESS,
-                this.diamondLeftOffsetX, this.diamondRightOffsetX,
-                this.diamondTopOffsetY, this.diamondBottomOffsetY);
-
-        return verticesAddedCount;
-    }
-
-
-
-
-
-
-    private int addPedestalSidesToList(FloatBuffer vertexBuffer,
-                                       Tile tile, // Pass in the tile
-                                       float tileCenterX, float gridPlaneY, float worldZ,
-                                       float[] tint, float lightVal) {
-        int vCount = 0;
-        float pedestalTopY = gridPlaneY;
-        float pedestalBottomY = gridPlaneY + BASE_THICKNESS;
-
-        float pTopLx = tileCenterX + this.diamondLeftOffsetX, pTopLy = pedestalTopY + this.diamondSideOffsetY;
-        float pTopRx = tileCenterX + this.diamondRightOffsetX, pTopRy = pedestalTopY + this.diamondSideOffsetY;
-        float pTopBx = tileCenterX,                               pTopBy = pedestalTopY + this.diamondBottomOffsetY;
-        float pBotLx = tileCenterX + this.diamondLeftOffsetX, pBotLy = pedestalBottomY + this.diamondSideOffsetY;
-        float pBotRx = tileCenterX + this.diamondRightOffsetX, pBotRy = pedestalBottomY + this.diamondSideOffsetY;
-        float pBotBx = tileCenterX,                               pBotBy = pedestalBottomY + this.diamondBottomOffsetY;
-
-        // --- Data-Driven Logic Start ---
-        // We'll use the "dirt" texture as the default pedestal side.
-        org.isogame.gamedata.TileDefinition def = org.isogame.gamedata.TileRegistry.getTileDefinition("dirt");
-        if (def == null || def.texture == null || def.texture.side == null) {
-            return 0; // Cannot draw pedestal without a default side texture definition.
-        }
-
-        float u0, v0, u1, v1Atlas;
-        float atlasW = tileAtlasTexture.getWidth();
-        float atlasH = tileAtlasTexture.getHeight();
-
-        if (atlasW > 0 && atlasH > 0) {
-            org.isogame.gamedata.TileDefinition.TextureCoords tex = def.texture.side;
-            u0 = tex.x / atlasW;
-            v0 = tex.y / atlasH;
-            u1 = (tex.x + tex.w) / atlasW;
-            v1Atlas = (tex.y + tex.h) / atlasH;
-        } else {
-            return 0; // Cannot calculate UVs
-        }
-        // --- Data-Driven Logic End ---
-
-        float vSpan = v1Atlas - v0;
-        float vRepeats = (BASE_THICKNESS / (float) TILE_HEIGHT) * SIDE_TEXTURE_DENSITY_FACTOR;
-        float vBotTex = v0 + vSpan * vRepeats;
-
-        addVertexToBuffer(vertexBuffer, pTopLx, pTopLy, worldZ, tint, u0, v0, lightVal);
-        addVertexToBuffer(vertexBuffer, pBotLx, pBotLy, worldZ, tint, u0, vBotTex, lightVal);
-        addVertexToBuffer(vertexBuffer, pTopBx, pTopBy, worldZ, tint, u1, v0, lightVal);
-        vCount += 3;
-        addVertexToBuffer(vertexBuffer, pTopBx, pTopBy, worldZ, tint, u1, v0, lightVal);
-        addVertexToBuffer(vertexBuffer, pBotLx, pBotLy, worldZ, tint, u0, vBotTex, lightVal);
-        addVertexToBuffer(vertexBuffer, pBotBx, pBotBy, worldZ, tint, u1, vBotTex, lightVal);
-        vCount += 3;
-
-        addVertexToBuffer(vertexBuffer, pTopBx, pTopBy, worldZ, tint, u0, v0, lightVal);
-        addVertexToBuffer(vertexBuffer, pBotBx, pBotBy, worldZ, tint, u0, vBotTex, lightVal);
-        addVertexToBuffer(vertexBuffer, pTopRx, pTopRy, worldZ, tint, u1, v0, lightVal);
-        vCount += 3;
-        addVertexToBuffer(vertexBuffer, pTopRx, pTopRy, worldZ, tint, u1, v0, lightVal);
-        addVertexToBuffer(vertexBuffer, pBotBx, pBotBy, worldZ, tint, u0, vBotTex, lightVal);
-        addVertexToBuffer(vertexBuffer, pBotRx, pBotRy, worldZ, tint, u1, vBotTex, lightVal);
-        vCount += 3;
-        return vCount;
-    }
-
-
-    private int addTopSurfaceToList(FloatBuffer vertexBuffer,
-                                    Tile tile, boolean isSelected,
-                                    float topCenterX, float topCenterY, float worldZ,
-                                    float[] actualTopColor, float[] whiteTint, float lightVal) {
-
-        int vCount = 0;
-        float topLx = topCenterX + this.diamondLeftOffsetX;
-        float topLy = topCenterY + this.diamondSideOffsetY;
-        float topRx = topCenterX + this.diamondRightOffsetX;
-        float topRy = topCenterY + this.diamondSideOffsetY;
-        float topTx = topCenterX;
-        float topTy = topCenterY + this.diamondTopOffsetY;
-        float topBx = topCenterX;
-        float topBy = topCenterY + this.diamondBottomOffsetY;
-
-        float[] colorToUse = actualTopColor;
-        boolean textureTop = false;
-        float u0 = 0, v0 = 0, u1 = 0, v1Atlas = 0;
-
-        // Data-driven part starts here!
-        if (tile.getType() != Tile.TileType.WATER && tile.getType() != Tile.TileType.AIR) {
-            org.isogame.gamedata.TileDefinition def = org.isogame.gamedata.TileRegistry.getTileDefinition(tile.getType().id);
-
-            if (def != null && def.texture != null && def.texture.top != null) {
-                textureTop = true;
-                // We assume the atlas is the main tileAtlasTexture.
-                // This could be made more robust by checking def.texture.atlas if you use multiple atlases.
-                float atlasW = tileAtlasTexture.getWidth();
-                float atlasH = tileAtlasTexture.getHeight();
-
-                if (atlasW > 0 && atlasH > 0) {
-                    org.isogame.gamedata.TileDefinition.TextureCoords tex = def.texture.top;
-                    u0 = tex.x / atlasW;
-                    v0 = tex.y / atlasH;
-                    u1 = (tex.x + tex.w) / atlasW;
-                    v1Atlas = (tex.y + tex.h) / atlasH;
-                } else {
-                    textureTop = false; // Could not get atlas dimensions
-                }
-
-                if (textureTop && !isSelected) {
-                    colorToUse = whiteTint;
-                }
-            }
-        }
-
-        if (textureTop) {
-            float midU = (u0 + u1) / 2f;
-            float midV = (v0 + v1Atlas) / 2f;
-            addVertexToBuffer(vertexBuffer, topTx, topTy, worldZ, colorToUse, midU, v0, lightVal);
-            addVertexToBuffer(vertexBuffer, topLx, topLy, worldZ, colorToUse, u0, midV, lightVal);
-            addVertexToBuffer(vertexBuffer, topBx, topBy, worldZ, colorToUse, midU, v1Atlas, lightVal);
-            vCount += 3;
-            addVertexToBuffer(vertexBuffer, topTx, topTy, worldZ, colorToUse, midU, v0, lightVal);
-            addVertexToBuffer(vertexBuffer, topBx, topBy, worldZ, colorToUse, midU, v1Atlas, lightVal);
-            addVertexToBuffer(vertexBuffer, topRx, topRy, worldZ, colorToUse, u1, midV, lightVal);
-            vCount += 3;
-        } else {
-            // Fallback for WATER, AIR, or tiles with no texture definition
-            addVertexToBuffer(vertexBuffer, topTx, topTy, worldZ, colorToUse, 0, 0, lightVal);
-            addVertexToBuffer(vertexBuffer, topLx, topLy, worldZ, colorToUse, 0, 0, lightVal);
-            addVertexToBuffer(vertexBuffer, topBx, topBy, worldZ, colorToUse, 0, 0, lightVal);
-            vCount += 3;
-            addVertexToBuffer(vertexBuffer, topTx, topTy, worldZ, colorToUse, 0, 0, lightVal);
-            addVertexToBuffer(vertexBuffer, topBx, topBy, worldZ, colorToUse, 0, 0, lightVal);
-            addVertexToBuffer(vertexBuffer, topRx, topRy, worldZ, colorToUse, 0, 0, lightVal);
-            vCount += 3;
-        }
-        return vCount;
-    }
-
-    private int addStratifiedElevatedSidesToList(FloatBuffer vertexBuffer,
-                                                 Tile tile, // Pass the whole tile object
-                                                 float tileCenterX, float gridPlaneCenterY, float worldZ,
-                                                 float elevSliceHeight, float[] tint, float initialLightVal,
-                                                 int tileR_map, int tileC_map) {
-        int vCount = 0;
-        float sideLightVal = initialLightVal;
-        LightManager lm = (this.map != null) ? this.map.getLightManager() : null;
-
-        if (map != null && lm != null) {
-            if (tile != null && tile.getType() != Tile.TileType.WATER) {
-                if (lm.isSurfaceTileExposedToSky(tileR_map, tileC_map, tile.getElevation())) {
-                    float directSkyContribution = lm.getCurrentGlobalSkyLightTarget() / (float)MAX_LIGHT_LEVEL;
-                    float minLightFromSky = directSkyContribution * 0.65f;
-                    sideLightVal = Math.max(sideLightVal, minLightFromSky);
-                    sideLightVal = Math.min(sideLightVal, directSkyContribution);
-                } else {
-                    float ambientForSides = lm.getCurrentGlobalSkyLightTarget() * 0.20f / (float)MAX_LIGHT_LEVEL;
-                    sideLightVal = Math.max(sideLightVal, ambientForSides);
-                }
-            }
-        }
-        sideLightVal = Math.max(0.05f, sideLightVal);
-
-        org.isogame.gamedata.TileDefinition def = org.isogame.gamedata.TileRegistry.getTileDefinition(tile.getType().id);
-        if (def == null || def.texture == null || def.texture.side == null) {
-            return 0;
-        }
-
-        float u0, v0, u1, v1Atlas;
-        float atlasW = tileAtlasTexture.getWidth();
-        float atlasH = tileAtlasTexture.getHeight();
-
-        if (atlasW > 0 && atlasH > 0) {
-            org.isogame.gamedata.TileDefinition.TextureCoords tex = def.texture.side;
-            u0 = tex.x / atlasW;
-            v0 = tex.y / atlasH;
-            u1 = (tex.x + tex.w) / atlasW;
-            v1Atlas = (tex.y + tex.h) / atlasH;
-        } else {
-            return 0;
-        }
-
-        // New logic starts here
-        float vSpan = v1Atlas - v0; // The total vertical span of the texture
-        float vRepeats = (elevSliceHeight / (float) TILE_HEIGHT) * SIDE_TEXTURE_DENSITY_FACTOR;
-
-        for (int elevUnit = 1; elevUnit <= tile.getElevation(); elevUnit++) {
-            // Calculate proportional V coordinates for this slice
-            float vTopTex = v0;
-            float vBotTex = v0 + (vSpan * vRepeats); // Use the calculated repeat factor
-
-            float sliceTopActualY    = gridPlaneCenterY - (elevUnit * elevSliceHeight);
-            float sliceBottomActualY = gridPlaneCenterY - ((elevUnit - 1) * elevSliceHeight);
-
-            float sTopLx = tileCenterX + this.diamondLeftOffsetX,  sTopLy = sliceTopActualY + this.diamondSideOffsetY;
-            float sTopRx = tileCenterX + this.diamondRightOffsetX, sTopRy = sliceTopActualY + this.diamondSideOffsetY;
-            float sTopBx = tileCenterX,                             sTopBy = sliceTopActualY + this.diamondBottomOffsetY;
-            float sBotLx = tileCenterX + this.diamondLeftOffsetX,  sBotLy = sliceBottomActualY + this.diamondSideOffsetY;
-            float sBotRx = tileCenterX + this.diamondRightOffsetX, sBotRy = sliceBottomActualY + this.diamondSideOffsetY;
-            float sBotBx = tileCenterX,                             sBotBy = sliceBottomActualY + this.diamondBottomOffsetY;
-
-            // Draw the Left Face of the slice
-            addVertexToBuffer(vertexBuffer, sTopLx, sTopLy, worldZ, tint, u0, vTopTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sBotLx, sBotLy, worldZ, tint, u0, vBotTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sBotBx, sBotBy, worldZ, tint, u1, vBotTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sTopLx, sTopLy, worldZ, tint, u0, vTopTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sBotBx, sBotBy, worldZ, tint, u1, vBotTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sTopBx, sTopBy, worldZ, tint, u1, vTopTex, sideLightVal);
-            vCount += 6;
-
-            // Draw the Right Face of the slice
-            addVertexToBuffer(vertexBuffer, sTopBx, sTopBy, worldZ, tint, u0, vTopTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sBotBx, sBotBy, worldZ, tint, u0, vBotTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sBotRx, sBotRy, worldZ, tint, u1, vBotTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sTopBx, sTopBy, worldZ, tint, u0, vTopTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sBotRx, sBotRy, worldZ, tint, u1, vBotTex, sideLightVal);
-            addVertexToBuffer(vertexBuffer, sTopRx, sTopRy, worldZ, tint, u1, vTopTex, sideLightVal);
-            vCount += 6;
-        }
-        return vCount;
-    }
-
-
-    private void updateChunkVisualBounds(float[] chunkVisualBounds, float tileCenterX, float tileCenterY,
-                                         int elevUnits, float elevSliceH,
-                                         float diamondLeftOffsetX, float diamondRightOffsetX,
-                                         float diamondTopOffsetY, float diamondBottomOffsetY) {
-        float tileMinX = tileCenterX + diamondLeftOffsetX;
-        float tileMaxX = tileCenterX + diamondRightOffsetX;
-        float tileMinY = tileCenterY - (elevUnits * elevSliceH) + diamondTopOffsetY;
-        float tileMaxY = tileCenterY + BASE_THICKNESS + diamondBottomOffsetY;
-
-        chunkVisualBounds[0] = Math.min(chunkVisualBounds[0], tileMinX);
-        chunkVisualBounds[1] = Math.min(chunkVisualBounds[1], tileMinY);
-        chunkVisualBounds[2] = Math.max(chunkVisualBounds[2], tileMaxX);
-        chunkVisualBounds[3] = Math.max(chunkVisualBounds[3], tileMaxY);
+    /** Normalized light of a tile at the current time of day, for sprites drawn outside the chunk meshes. */
+    private float currentLightValue(Tile tile) {
+        LightManager lm = map.getLightManager();
+        int light = Math.max(lm.effectiveSkyLight(tile.getSkyLightLevel()), tile.getBlockLightLevel());
+        return light / (float) MAX_LIGHT_LEVEL;
     }
 
-
-
-
-
     private void addVertexToSpriteBuffer(FloatBuffer buffer, float x, float y, float z, float[] color, float u, float v, float light) {
         buffer.put(x).put(y).put(z);
         buffer.put(color[0]).put(color[1]).put(color[2]).put(color[3]); // <-- This was the bug
@@ -764,7 +605,7 @@ public class Renderer {
         float pC = p.getVisualCol();
         Tile tile = map.getTile(p.getTileRow(), p.getTileCol());
         int elev = (tile != null) ? tile.getElevation() : 0;
-        float lightVal = (tile != null) ? tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL : 1.0f;
+        float lightVal = (tile != null) ? currentLightValue(tile) : 1.0f;
         lightVal = Math.max(0.1f, lightVal);
 
         float pIsoX = (pC - pR) * this.tileHalfWidth;
@@ -811,7 +652,7 @@ public class Renderer {
         float aC = animal.getVisualCol();
         Tile tile = map.getTile(animal.getTileRow(), animal.getTileCol());
         int elev = (tile != null) ? tile.getElevation() : 0;
-        float lightVal = (tile != null) ? tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL : 1.0f;
+        float lightVal = (tile != null) ? currentLightValue(tile) : 1.0f;
         lightVal = Math.max(0.1f, lightVal);
 
         float aIsoX = (aC - aR) * this.tileHalfWidth;
@@ -922,7 +763,7 @@ public class Renderer {
         int elev = rock.elevation;
 
         Tile tile = map.getTile(Math.round(rR), Math.round(rC));
-        float lightVal = (tile != null) ? tile.getFinalLightLevel() / (float)MAX_LIGHT_LEVEL : 1.0f;
+        float lightVal = (tile != null) ? currentLightValue(tile) : 1.0f;
         lightVal = Math.max(0.1f, lightVal); // Ensure minimum brightness
 
         float rockBaseIsoX = (rC - rR) * this.tileHalfWidth;
@@ -1011,14 +852,15 @@ public class Renderer {
         TreeRenderData data = calculateTreeRenderData(tree);
         if (!data.isValid) return 0;
 
-        float lightVal = tile.getFinalLightLevel() / (float)MAX_LIGHT_LEVEL;
+        float lightVal = currentLightValue(tile);
         lightVal = Math.max(0.1f, lightVal);
 
         float finalIsoX = data.baseIsoX;
-        if (tile.treeShakeTimer > 0) {
+        double shakeTimer = tile.getTreeShakeTimer();
+        if (shakeTimer > 0) {
             float shakeAmount = 2.5f;
             finalIsoX += (tileDetailRandom.nextFloat() - 0.5f) * shakeAmount;
-            tile.treeShakeTimer -= deltaTime;
+            tile.setTreeShakeTimer(shakeTimer - deltaTime);
         }
 
         float tileLogicalZ = (tree.mapRow + tree.mapCol) * DEPTH_SORT_FACTOR + (tree.elevation * 0.005f);
@@ -1048,38 +890,39 @@ public class Renderer {
 
 
     public void render(World world, double deltaTime) {
-        if (defaultShader == null || camera == null || world == null) {
+        if (defaultShader == null || terrainShader == null || camera == null || world == null) {
             return;
         }
 
         double pseudoTimeOfDay = world.getPseudoTimeOfDay();
 
-        // Bind the main shader and set universal uniforms
-        defaultShader.bind();
-        defaultShader.setUniform("uProjectionMatrix", projectionMatrix);
-        defaultShader.setUniform("uModelViewMatrix", camera.getViewMatrix());
-        defaultShader.setUniform("uIsFont", 0);
-        defaultShader.setUniform("uIsSimpleUiElement", 0);
-        defaultShader.setUniform("uIsShadow", 0);
-
-        if (this.map != null && this.map.getLightManager() != null) {
-            // This assumes you have the `setUniform(String, Color)` helper in your Shader.java
-            defaultShader.setUniform("u_ambientLightColor", this.map.getLightManager().getAmbientLightColor());
-        }
-
-        // Render the tile map chunks
+        // Render the tile map chunks with the terrain variant, then switch to the main shader
         if (map != null && assetManager.getTexture("tileAtlasTexture") != null) {
+            terrainShader.bind();
+            setWorldUniforms(terrainShader);
             glActiveTexture(GL_TEXTURE0);
             assetManager.getTexture("tileAtlasTexture").bind();
-            defaultShader.setUniform("uTextureSampler", 0);
-            defaultShader.setUniform("uHasTexture", 1);
-            for (Chunk chunk : activeMapChunks.values()) {
+            terrainShader.setUniform("uTextureSampler", 0);
+            terrainShader.setUniform("uHasTexture", 1);
+            terrainShader.setUniform("uPackedLight", 1);
+            terrainShader.setUniform("u_depthSortFactor", DEPTH_SORT_FACTOR);
+            float[] tint = ChunkMeshBuilder.selectionTint(GLFW.glfwGetTime());
+            terrainShader.setUniform("u_selectionTint", selectionTint.set(tint[0], tint[1], tint[2], tint[3]));
+            terrainArena.beginDraw();
+            for (Chunk chunk : activeMapChunks) {
                 if (camera.isChunkVisible(chunk.getBoundingBox())) {
+                    terrainShader.setUniform("u_chunkOrigin", TerrainVertexFormat.chunkOrigin(chunk.chunkGridX, chunk.chunkGridY, chunkOrigin));
                     chunk.render();
                 }
             }
+            terrainArena.endDraw();
+            renderTileHighlights(world);
         }
 
+        // Bind the main shader and set universal uniforms
+        defaultShader.bind();
+        setWorldUniforms(defaultShader);
+
         // Prepare entities and render them
         if (map != null) {
             // *** FIX: Pass the 'world' object down to the helper method ***
@@ -1095,6 +938,46 @@ public class Renderer {
         }
     }
 
+    /** Uniforms every world draw shares this frame, on {@code shader}, which must be bound. */
+    private void setWorldUniforms(Shader shader) {
+        shader.setUniform("uProjectionMatrix", projectionMatrix);
+        shader.setUniform("uModelViewMatrix", camera.getViewMatrix());
+        shader.setUniform("uIsFont", 0);
+        shader.setUniform("uIsSimpleUiElement", 0);
+        shader.setUniform("uIsShadow", 0);
+
+        if (this.map != null && this.map.getLightManager() != null) {
+            // Once per frame: the only place the time of day reaches the terrain.
+            shader.setUniform("u_ambientLightColor", this.map.getLightManager().getAmbientLightColor(ambientLightColor));
+            shader.setUniform("u_skyIntensity", this.map.getLightManager().getSkyIntensity());
+        }
+    }
+
+    /** The selected tile and the placement preview, over the chunks just drawn (see TileHighlightOverlay). */
+    private void renderTileHighlights(World world) {
+        tileHighlightOverlay.clear();
+        if (inputHandler != null) {
+            addTileHighlight(inputHandler.getSelectedRow(), inputHandler.getSelectedCol());
+        }
+        PlacementManager placementManager = world.getPlacementManager();
+        if (placementManager != null && placementManager.isPlacing()) {
+            for (int[] coords : placementManager.getPlacementPreview()) {
+                addTileHighlight(coords[1], coords[0]); // preview coordinates are {col, row}
+            }
+        }
+        tileHighlightOverlay.draw(terrainShader, chunkOrigin);
+    }
+
+    private void addTileHighlight(int row, int col) {
+        int chunkX = ChunkData.chunkCoordOf(col);
+        int chunkY = ChunkData.chunkCoordOf(row);
+        if (!activeMapChunks.containsKey(chunkX, chunkY)) return; // not drawn
+        ChunkData chunk = map.getLoadedChunk(chunkX, chunkY);
+        if (chunk == null) return;
+        tileHighlightOverlay.add(chunk, drawnNeighbour(chunkX, chunkY + 1), drawnNeighbour(chunkX + 1, chunkY),
+                map.getLightManager(), row, col);
+    }
+
     // In C:/Users/capez/IdeaProjects/JavaGameLWJGL/src/main/java/org/isogame/render/Renderer.java
 
     public static class TreeRenderData {
@@ -1126,7 +1009,7 @@ public class Renderer {
         }
 
         if (activeMapChunks != null && !activeMapChunks.isEmpty() && camera != null) {
-            for (Chunk chunk : activeMapChunks.values()) {
+            for (Chunk chunk : activeMapChunks) {
                 if (camera.isChunkVisible(chunk.getBoundingBox())) {
                     worldEntities.addAll(chunk.getTreesInChunk());
                     worldEntities.addAll(chunk.getLooseRocksInChunk());
@@ -1244,7 +1127,7 @@ public class Renderer {
                     }
 
                     float playerZ = (p.getVisualRow() + p.getVisualCol()) * DEPTH_SORT_FACTOR + (map.getTile(p.getTileRow(), p.getTileCol()).getElevation() * 0.005f) + Z_OFFSET_SPRITE_PLAYER;
-                    float lightVal = map.getTile(p.getTileRow(), p.getTileCol()).getFinalLightLevel() / (float) MAX_LIGHT_LEVEL;
+                    float lightVal = currentLightValue(map.getTile(p.getTileRow(), p.getTileCol()));
                     float itemZ = anchor.drawBehind ? playerZ + 0.001f : playerZ - 0.001f;
 
                     verticesInCurrentBatch += addHeldItemVerticesToBuffer(p, heldItem, anchor, spriteVertexBuffer, itemZ, lightVal);
@@ -1431,7 +1314,7 @@ public class Renderer {
         if (tile == null) return 0; // Don't draw on a non-existent tile
 
         int elev = tile.getElevation();
-        float lightVal = Math.max(0.1f, tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL);
+        float lightVal = Math.max(0.1f, currentLightValue(tile));
 
         float isoX = (c - r) * this.tileHalfWidth;
         // Apply the bobbing effect to the Y position
@@ -1475,7 +1358,7 @@ public class Renderer {
         // --- THIS IS THE FIX ---
         // 1. Get the elevation of the tile the furnace is on.
         int elev = tile.getElevation();
-        float lightVal = tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL;
+        float lightVal = currentLightValue(tile);
 
         // 2. Calculate the base Z-depth INCLUDING the elevation.
         float baseWorldZ = (fR + fC) * DEPTH_SORT_FACTOR + (elev * 0.005f);
@@ -1582,7 +1465,7 @@ public class Renderer {
         if (tile == null) return 0;
 
         int elev = tile.getElevation();
-        float lightVal = tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL;
+        float lightVal = currentLightValue(tile);
 
         // --- THIS IS THE FIX ---
 
@@ -1813,7 +1696,7 @@ public class Renderer {
         float eC = entity.getVisualCol();
         Tile tile = map.getTile(entity.getTileRow(), entity.getTileCol());
         int elev = (tile != null) ? tile.getElevation() : 0;
-        float lightVal = (tile != null) ? tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL : 1.0f;
+        float lightVal = (tile != null) ? currentLightValue(tile) : 1.0f;
         lightVal = Math.max(0.1f, lightVal);
 
         float eIsoX = (eC - eR) * this.tileHalfWidth;
@@ -2345,7 +2228,7 @@ public class Renderer {
         float sC = slime.getVisualCol();
         Tile tile = map.getTile(slime.getTileRow(), slime.getTileCol());
         int elev = (tile != null) ? tile.getElevation() : 0;
-        float lightVal = (tile != null) ? tile.getFinalLightLevel() / (float) MAX_LIGHT_LEVEL : 1.0f;
+        float lightVal = (tile != null) ? currentLightValue(tile) : 1.0f;
         lightVal = Math.max(0.1f, lightVal);
 
         float sIsoX = (sC - sR) * this.tileHalfWidth;
@@ -2489,6 +2372,7 @@ public class Renderer {
 
     public void cleanup() {
         System.out.println("Renderer: Cleaning up resources...");
+        if (chunkMeshWorkers != null) chunkMeshWorkers.shutdown();
         if(playerTexture!=null) playerTexture.delete(); playerTexture = null;
         if(treeTexture!=null) treeTexture.delete(); treeTexture = null;
         if(tileAtlasTexture!=null) tileAtlasTexture.delete(); tileAtlasTexture = null;
@@ -2498,11 +2382,16 @@ public class Renderer {
         if (titleFont != null) titleFont.cleanup(); titleFont = null;
 
         if(defaultShader!=null) defaultShader.cleanup(); defaultShader = null;
+        if(terrainShader!=null) terrainShader.cleanup(); terrainShader = null;
 
         if(activeMapChunks!=null) {
-            for(Chunk ch : activeMapChunks.values()) ch.cleanup();
+            for(Chunk ch : activeMapChunks) ch.cleanup();
             activeMapChunks.clear();
         }
+        cleanupParkedChunkGraphics();
+        chunkUploadStaging.cleanup();
+        if(tileHighlightOverlay!=null) { tileHighlightOverlay.cleanup(); tileHighlightOverlay=null; }
+        if(terrainArena!=null) { terrainArena.cleanup(); terrainArena=null; }
         if(spriteVaoId!=0) { glDeleteVertexArrays(spriteVaoId); spriteVaoId=0; }
         if(spriteVboId!=0) { glDeleteBuffers(spriteVboId); spriteVboId=0; }
         if(spriteVertexBuffer!=null) { MemoryUtil.memFree(spriteVertexBuffer); spriteVertexBuffer=null; }
@@ -3,7 +3,6 @@ package org.isogame.render;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.system.MemoryStack;
-import java.awt.Color; // Make sure this import exists at the top of your Shader.java file
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -15,6 +14,7 @@ import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
 
 public class Shader {
 
@@ -121,6 +121,14 @@ public class Shader {
         }
     }
 
+    /** Sets a vec4 array uniform from {@code values}, four floats per element, starting at element 0. */
+    public void setUniformVec4Array(String uniformName, float[] values) {
+        Integer location = uniforms.get(uniformName);
+        if (location != null && location >= 0) {
+            GL20.glUniform4fv(location, values);
+        }
+    }
+
     public void bind() {
         GL20.glUseProgram(programId);
     }
@@ -137,25 +145,17 @@ public class Shader {
     }
 
     /**
-     * Sets a vec3 uniform in the shader program using a Java Color object.
-     * It automatically converts the 0-255 RGB values to the 0.0-1.0 float values OpenGL needs.
+     * Sets a vec3 uniform, e.g. an RGB color with components in 0.0-1.0.
      *
      * @param name The name of the uniform variable in the shader.
-     * @param color The Color object to pass to the shader.
+     * @param value The vector to pass to the shader.
      */
-    public void setUniform(String name, Color color) {
-        // Check if the uniform location was stored during creation
-        if (uniforms.containsKey(name)) {
-            // Convert color from the 0-255 integer range to the 0.0-1.0 float range
-            float r = color.getRed() / 255.0f;
-            float g = color.getGreen() / 255.0f;
-            float b = color.getBlue() / 255.0f;
-
-            // Get the location from the map and pass the three float values
-            glUniform3f(uniforms.get(name), r, g, b);
-        } else {
+    public void setUniform(String name, Vector3f value) {
+        Integer location = uniforms.get(name);
+        if (location != null && location >= 0) {
+            glUniform3f(location, value.x, value.y, value.z);
+        } else if (location == null) {
             // This is a safety check to prevent crashes and help with debugging.
-            // It's good practice but not strictly required to fix the error.
             System.err.println("Shader Warning: Could not find uniform named '" + name + "'");
         }
     }
@@ -175,4 +175,10 @@ public class Shader {
         }
         return result.toString();
     }
+
+    /** {@code shaderCode} with {@code #define name} inserted after its #version line, for compiling a variant. */
+    public static String withDefine(String shaderCode, String name) {
+        int lineEnd = shaderCode.startsWith("#version") ? shaderCode.indexOf('\n') + 1 : 0;
+        return shaderCode.substring(0, lineEnd) + "#define " + name + "\n" + shaderCode.substring(lineEnd);
+    }
 }
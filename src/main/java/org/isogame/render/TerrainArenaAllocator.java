@@ -0,0 +1,218 @@
+package org.isogame.render;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hands out ranges of a few large, fixed-size pages to chunk meshes; the CPU
+ * half of {@link TerrainBufferArena}, which backs each page with one vertex
+ * buffer. Units are vertices, so a range's start is the base vertex it is drawn
+ * with. Touches no GL.
+ *
+ * Each page keeps its free blocks in address order and merges neighbours on
+ * free; allocation is first fit, lowest page and address first, and opens a new
+ * page when nothing fits. {@link #defragment} compacts incrementally: it moves
+ * the highest ranges down into free blocks that hold them whole, a bounded
+ * number of vertices per call, so pages stay dense as chunks are rebuilt at
+ * new sizes. A move never overlaps its own old range, so the GPU side can copy
+ * it within the same buffer.
+ *
+ * Not thread-safe; the renderer uses it on the main thread.
+ */
+public final class TerrainArenaAllocator {
+
+    /** A page's vertices from {@code start}, {@code length} long. Moved in place by {@link #defragment}. */
+    public static final class Range {
+        int page;
+        int start;
+        final int length;
+        boolean freed;
+
+        Range(int page, int start, int length) {
+            this.page = page;
+            this.start = start;
+            this.length = length;
+        }
+
+        public int getPage() { return page; }
+        public int getStart() { return start; }
+        public int getLength() { return length; }
+    }
+
+    /** A defragmentation move: copy {@code length} vertices of {@code page} from {@code from} to {@code to}. */
+    public static final class Move {
+        public final int page, from, to, length;
+
+        Move(int page, int from, int to, int length) {
+            this.page = page;
+            this.from = from;
+            this.to = to;
+            this.length = length;
+        }
+    }
+
+    private static final class Page {
+        // start -> length, in address order
+        final TreeMap<Integer, Integer> free = new TreeMap<>();
+        final TreeMap<Integer, Range> used = new TreeMap<>();
+        int usedVertices;
+    }
+
+    private final int pageVertices;
+    private final List<Page> pages = new ArrayList<>();
+
+    // --- Stats ---
+    private long rangesMoved;
+    private long verticesMoved;
+
+    public TerrainArenaAllocator(int pageVertices) {
+        if (pageVertices <= 0) throw new IllegalArgumentException("pageVertices must be positive: " + pageVertices);
+        this.pageVertices = pageVertices;
+    }
+
+    /** A range of {@code vertices}; opens a page if none has room. */
+    public Range allocate(int vertices) {
+        if (vertices <= 0 || vertices > pageVertices) {
+            throw new IllegalArgumentException("Cannot allocate " + vertices + " vertices in pages of " + pageVertices);
+        }
+        for (int p = 0; p < pages.size(); p++) {
+            Range range = allocateIn(p, vertices, Integer.MAX_VALUE);
+            if (range != null) return range;
+        }
+        Page page = new Page();
+        page.free.put(0, pageVertices);
+        pages.add(page);
+        return allocateIn(pages.size() - 1, vertices, Integer.MAX_VALUE);
+    }
+
+    /** First fit in page {@code p} among free blocks starting below {@code below}, or null. */
+    private Range allocateIn(int p, int vertices, int below) {
+        Page page = pages.get(p);
+        for (Map.Entry<Integer, Integer> block : page.free.entrySet()) {
+            int start = block.getKey();
+            if (start >= below) return null;
+            int length = block.getValue();
+            if (length < vertices) continue;
+            page.free.remove(start);
+            if (length > vertices) page.free.put(start + vertices, length - vertices);
+            Range range = new Range(p, start, vertices);
+            page.used.put(start, range);
+            page.usedVertices += vertices;
+            return range;
+        }
+        return null;
+    }
+
+    public void free(Range range) {
+        if (range.freed) throw new IllegalStateException("Range freed twice");
+        range.freed = true;
+        Page page = pages.get(range.page);
+        page.used.remove(range.start);
+        page.usedVertices -= range.length;
+        release(page, range.start, range.length);
+    }
+
+    /** Returns vertices to a page's free blocks, merged with the blocks either side. */
+    private static void release(Page page, int start, int length) {
+        Map.Entry<Integer, Integer> before = page.free.floorEntry(start);
+        if (before != null && before.getKey() + before.getValue() == start) {
+            start = before.getKey();
+            length += before.getValue();
+            page.free.remove(start);
+        }
+        Integer after = page.free.get(start + length);
+        if (after != null) {
+            page.free.remove(start + length);
+            length += after;
+        }
+        page.free.put(start, length);
+    }
+
+    /**
+     * Moves ranges down into lower free blocks, highest ranges first, until
+     * about {@code maxVertices} have moved or nothing can move. Moved ranges'
+     * starts are updated; the caller copies the data as listed in {@code moves}, in order.
+     * Returns the number of vertices moved.
+     */
+    public int defragment(int maxVertices, List<Move> moves) {
+        int moved = 0;
+        for (int p = 0; p < pages.size() && moved < maxVertices; p++) {
+            Page page = pages.get(p);
+            if (page.used.isEmpty() || page.free.isEmpty() || page.free.firstKey() > page.used.lastKey()) continue; // packed
+            Iterator<Range> highestFirst = new ArrayList<>(page.used.descendingMap().values()).iterator();
+            while (moved < maxVertices && highestFirst.hasNext() && !page.free.isEmpty()) {
+                Range range = highestFirst.next();
+                if (range.length > maxVertices - moved && moved > 0) break;
+                if (page.free.firstKey() > range.start) break; // everything below is packed
+                int from = range.start;
+                Range target = allocateIn(p, range.length, from);
+                if (target == null) continue;
+                // The target only stands for the new place; the caller keeps holding range.
+                page.used.remove(target.start);
+                page.used.remove(from);
+                page.usedVertices -= range.length;
+                release(page, from, range.length);
+                range.start = target.start;
+                page.used.put(range.start, range);
+                moves.add(new Move(p, from, range.start, range.length));
+                moved += range.length;
+                rangesMoved++;
+                verticesMoved += range.length;
+            }
+        }
+        return moved;
+    }
+
+    // --- Stats ---
+
+    public int getPageVertices() { return pageVertices; }
+    public int getPageCount() { return pages.size(); }
+
+    public long getUsedVertices() {
+        long used = 0;
+        for (Page page : pages) used += page.usedVertices;
+        return used;
+    }
+
+    public int getFreeBlockCount() {
+        int blocks = 0;
+        for (Page page : pages) blocks += page.free.size();
+        return blocks;
+    }
+
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (Page page : pages) {
+            for (int length : page.free.values()) largest = Math.max(largest, length);
+        }
+        return largest;
+    }
+
+    /**
+     * Share of free space outside each page's free tail, i.e. in holes between
+     * ranges: 0 when every page is packed from the bottom.
+     */
+    public double getFragmentation() {
+        long free = 0, holes = 0;
+        for (Page page : pages) {
+            for (Map.Entry<Integer, Integer> block : page.free.entrySet()) {
+                free += block.getValue();
+                if (block.getKey() + block.getValue() != pageVertices) holes += block.getValue();
+            }
+        }
+        return free == 0 ? 0 : (double) holes / free;
+    }
+
+    public long getRangesMoved() { return rangesMoved; }
+    public long getVerticesMoved() { return verticesMoved; }
+
+    @Override
+    public String toString() {
+        return String.format("TerrainArena[pages=%d, used=%d/%d vertices, freeBlocks=%d, fragmentation=%.2f, moved=%d ranges/%d vertices]",
+                pages.size(), getUsedVertices(), (long) pages.size() * pageVertices, getFreeBlockCount(),
+                getFragmentation(), rangesMoved, verticesMoved);
+    }
+}
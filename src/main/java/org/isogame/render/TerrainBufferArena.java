@@ -0,0 +1,173 @@
+package org.isogame.render;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * The GPU storage of all chunk meshes: a few large vertex buffers ("pages"),
+ * carved up by a {@link TerrainArenaAllocator}. Each page has one VAO over its
+ * buffer and the shared quad index buffer, so drawing the visible chunks binds
+ * a VAO per page (usually one) and draws each chunk with glDrawElementsBaseVertex
+ * from its range's start. A chunk keeps its range while its rebuilt mesh fits
+ * (and isn't far smaller), and {@link #defragment(int)} moves ranges down a
+ * little every frame with buffer-to-buffer copies.
+ *
+ * Main thread only.
+ */
+public final class TerrainBufferArena {
+
+    /** Vertices per page: 3 MiB of {@link TerrainVertexFormat}, room for hundreds of typical chunks. */
+    static final int PAGE_VERTICES = 1 << 18;
+    private static final int GRANULE_VERTICES = 64;
+    private static final int BYTES = TerrainVertexFormat.BYTES_PER_VERTEX;
+
+    private final TerrainArenaAllocator allocator = new TerrainArenaAllocator(PAGE_VERTICES);
+    private final List<TerrainArenaAllocator.Move> moves = new ArrayList<>();
+    private int[] pageVboIds = new int[0];
+    private int[] pageVaoIds = new int[0];
+    private int quadIndexBufferId;
+    private int boundPage = -1;
+
+    public TerrainBufferArena() {
+        // One index buffer for all pages: every chunk's quads are numbered from its base vertex.
+        quadIndexBufferId = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, quadIndexBufferId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, TerrainVertexFormat.quadIndices(TerrainVertexFormat.MAX_QUADS_PER_CHUNK), GL_STATIC_DRAW);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * A range for a mesh of {@code vertices}: {@code current} if it fits and
+     * isn't more than four times too big, else a new one with a quarter to
+     * spare, so placing a few blocks doesn't move the chunk. {@code current} is
+     * freed when replaced.
+     */
+    TerrainArenaAllocator.Range reserve(TerrainArenaAllocator.Range current, int vertices) {
+        if (current != null && vertices <= current.getLength() && vertices >= current.getLength() / 4) {
+            return current;
+        }
+        if (current != null) allocator.free(current);
+        int length = Math.min(PAGE_VERTICES, (vertices + vertices / 4 + GRANULE_VERTICES - 1) / GRANULE_VERTICES * GRANULE_VERTICES);
+        TerrainArenaAllocator.Range range = allocator.allocate(length);
+        while (pageVboIds.length < allocator.getPageCount()) {
+            createPage();
+        }
+        return range;
+    }
+
+    /** Uploads a mesh's vertices to the start of its range, through a buffer from {@code staging}. */
+    void write(TerrainArenaAllocator.Range range, MeshData mesh, ChunkUploadStaging staging) {
+        int byteCount = mesh.getByteCount();
+        ByteBuffer buffer = staging.acquire(byteCount);
+        try {
+            buffer.put(mesh.vertices, 0, byteCount).flip();
+            glBindBuffer(GL_ARRAY_BUFFER, pageVboIds[range.getPage()]);
+            glBufferSubData(GL_ARRAY_BUFFER, (long) range.getStart() * BYTES, buffer);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        } finally {
+            staging.release(buffer);
+        }
+    }
+
+    void free(TerrainArenaAllocator.Range range) {
+        allocator.free(range);
+    }
+
+    private void createPage() {
+        int vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, (long) PAGE_VERTICES * BYTES, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        int vaoId = createVertexArray(vboId, quadIndexBufferId);
+
+        pageVboIds = Arrays.copyOf(pageVboIds, pageVboIds.length + 1);
+        pageVaoIds = Arrays.copyOf(pageVaoIds, pageVaoIds.length + 1);
+        pageVboIds[pageVboIds.length - 1] = vboId;
+        pageVaoIds[pageVaoIds.length - 1] = vaoId;
+    }
+
+    /** A VAO reading {@link TerrainVertexFormat} vertices from {@code vboId}, indexed by the quad index buffer. */
+    static int createVertexArray(int vboId, int quadIndexBufferId) {
+        int vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, quadIndexBufferId);
+        int stride = BYTES;
+        // Position relative to the chunk origin (3 shorts)
+        glVertexAttribPointer(0, 3, GL_SHORT, false, stride, 0L);
+        glEnableVertexAttribArray(0);
+        // No per-vertex color (location 1): the tint comes from the material
+        // TexCoord (2 ubytes)
+        glVertexAttribPointer(2, 2, GL_UNSIGNED_BYTE, false, stride, 6L);
+        glEnableVertexAttribArray(2);
+        // Light (ubyte)
+        glVertexAttribPointer(3, 1, GL_UNSIGNED_BYTE, false, stride, 8L);
+        glEnableVertexAttribArray(3);
+        // Material and texture mode (ubytes)
+        glVertexAttribPointer(4, 1, GL_UNSIGNED_BYTE, false, stride, 9L);
+        glEnableVertexAttribArray(4);
+        glVertexAttribPointer(5, 1, GL_UNSIGNED_BYTE, false, stride, 10L);
+        glEnableVertexAttribArray(5);
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+        return vaoId;
+    }
+
+    /** Call before drawing chunks; they bind their page's VAO only when it changes. */
+    public void beginDraw() {
+        boundPage = -1;
+    }
+
+    /** Draws {@code vertexCount} vertices (whole quads) from the start of {@code range}. */
+    void draw(TerrainArenaAllocator.Range range, int vertexCount) {
+        if (range.getPage() != boundPage) {
+            boundPage = range.getPage();
+            glBindVertexArray(pageVaoIds[boundPage]);
+        }
+        glDrawElementsBaseVertex(GL_TRIANGLES, vertexCount / TerrainVertexFormat.VERTICES_PER_QUAD * TerrainVertexFormat.INDICES_PER_QUAD,
+                GL_UNSIGNED_SHORT, 0L, range.getStart());
+    }
+
+    public void endDraw() {
+        glBindVertexArray(0);
+        boundPage = -1;
+    }
+
+    /**
+     * Compacts the pages by up to about {@code maxBytes} of copying; call once
+     * a frame. Returns the bytes moved.
+     */
+    public int defragment(int maxBytes) {
+        moves.clear();
+        int moved = allocator.defragment(maxBytes / BYTES, moves);
+        for (TerrainArenaAllocator.Move move : moves) {
+            int vboId = pageVboIds[move.page];
+            glBindBuffer(GL_COPY_READ_BUFFER, vboId);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, vboId);
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER,
+                    (long) move.from * BYTES, (long) move.to * BYTES, (long) move.length * BYTES);
+        }
+        if (!moves.isEmpty()) {
+            glBindBuffer(GL_COPY_READ_BUFFER, 0);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        }
+        return moved * BYTES;
+    }
+
+    public TerrainArenaAllocator getAllocator() { return allocator; }
+    int getQuadIndexBufferId() { return quadIndexBufferId; }
+    public long getPageBytes() { return (long) pageVboIds.length * PAGE_VERTICES * BYTES; }
+
+    public void cleanup() {
+        for (int vaoId : pageVaoIds) glDeleteVertexArrays(vaoId);
+        for (int vboId : pageVboIds) glDeleteBuffers(vboId);
+        pageVaoIds = new int[0];
+        pageVboIds = new int[0];
+        if (quadIndexBufferId != 0) { glDeleteBuffers(quadIndexBufferId); quadIndexBufferId = 0; }
+    }
+}
@@ -0,0 +1,112 @@
+package org.isogame.render;
+
+import org.isogame.gamedata.TileDefinition;
+import org.isogame.gamedata.TileRegistry;
+import org.isogame.tile.Tile;
+
+import static org.isogame.constants.Constants.*;
+
+/**
+ * The tints and atlas regions of terrain faces, indexed by the material byte of
+ * a {@link TerrainVertexFormat} vertex. Every tile type has a top material and,
+ * if it has a side texture, a side material; there is one pedestal material.
+ * The table only depends on the tile registry and the atlas size, so it is
+ * uploaded to the shader once (u_materialRegion, u_materialColor) instead of
+ * being repeated in every vertex.
+ *
+ * What a region means depends on the vertex's texture mode (ChunkMeshBuilder.TEX_*):
+ * plain and repeating faces map their texture coordinates into it, merged tops
+ * lay it once per tile.
+ */
+public final class TerrainMaterials {
+
+    /** Size of the shader's material arrays. */
+    public static final int MAX_MATERIALS = 64;
+
+    private static final float SIDE_TEXTURE_DENSITY_FACTOR = 1.0f;
+    private static final float[] DIRT_TOP_COLOR = {0.6f, 0.4f, 0.2f, 1.0f};
+    private static final float[] WATER_TOP_COLOR = {0.05f, 0.25f, 0.5f, 0.85f};
+    private static final float[] SAND_TOP_COLOR = {0.82f,0.7f,0.55f,1f};
+    private static final float[] GRASS_TOP_COLOR = {0.20f,0.45f,0.10f,1f};
+    private static final float[] ROCK_TOP_COLOR = {0.45f,0.45f,0.45f,1f};
+    private static final float[] SNOW_TOP_COLOR = {0.95f,0.95f,1.0f,1f};
+    private static final float[] DEFAULT_TOP_COLOR = {1f,0f,1f,1f};
+    private static final float[] WHITE_TINT = {1.0f, 1.0f, 1.0f, 1.0f};
+
+    private final float[] regions = new float[MAX_MATERIALS * 4];
+    private final float[] colors = new float[MAX_MATERIALS * 4];
+    private int count;
+    private final int[] topMaterials = new int[Tile.TileType.values().length];
+    private final int[] sideMaterials = new int[Tile.TileType.values().length];
+    private final int pedestalMaterial;
+
+    /** @param atlasWidth size of the tile atlas in pixels; 0 if it failed to load, leaving only untextured tops. */
+    public TerrainMaterials(int atlasWidth, int atlasHeight) {
+        boolean hasAtlas = atlasWidth > 0 && atlasHeight > 0;
+        for (Tile.TileType type : Tile.TileType.values()) {
+            TileDefinition def = TileRegistry.getTileDefinition(type.id);
+            TileDefinition.TextureCoords top = (def != null && def.texture != null) ? def.texture.top : null;
+            TileDefinition.TextureCoords side = (def != null && def.texture != null) ? def.texture.side : null;
+
+            if (type != Tile.TileType.WATER && top != null && hasAtlas) {
+                topMaterials[type.ordinal()] = add(top.x / (float) atlasWidth, top.y / (float) atlasHeight,
+                        top.w / (float) atlasWidth, top.h / (float) atlasHeight, WHITE_TINT);
+            } else {
+                // Untextured tops sample the atlas at (0,0), tinted with the type's colour.
+                topMaterials[type.ordinal()] = add(0, 0, 0, 0, untexturedTopColor(type));
+            }
+            // One elevation unit of a side shows TILE_THICKNESS / TILE_HEIGHT of the texture's height.
+            sideMaterials[type.ordinal()] = (side != null && hasAtlas)
+                    ? addSide(side, atlasWidth, atlasHeight, (TILE_THICKNESS / (float) TILE_HEIGHT) * SIDE_TEXTURE_DENSITY_FACTOR)
+                    : -1;
+        }
+        // The pedestal under every land column uses the dirt side, over BASE_THICKNESS.
+        TileDefinition dirt = TileRegistry.getTileDefinition("dirt");
+        pedestalMaterial = (dirt != null && dirt.texture != null && dirt.texture.side != null && hasAtlas)
+                ? addSide(dirt.texture.side, atlasWidth, atlasHeight, (BASE_THICKNESS / (float) TILE_HEIGHT) * SIDE_TEXTURE_DENSITY_FACTOR)
+                : -1;
+    }
+
+    private int addSide(TileDefinition.TextureCoords tex, int atlasWidth, int atlasHeight, float vRepeats) {
+        float u0 = tex.x / (float) atlasWidth;
+        float v0 = tex.y / (float) atlasHeight;
+        float u1 = (tex.x + tex.w) / (float) atlasWidth;
+        float v1 = (tex.y + tex.h) / (float) atlasHeight;
+        return add(u0, v0, u1 - u0, (v1 - v0) * vRepeats, WHITE_TINT);
+    }
+
+    private int add(float x, float y, float w, float h, float[] color) {
+        if (count == MAX_MATERIALS) {
+            throw new IllegalStateException("More than " + MAX_MATERIALS + " terrain materials");
+        }
+        int o = count * 4;
+        regions[o] = x; regions[o + 1] = y; regions[o + 2] = w; regions[o + 3] = h;
+        System.arraycopy(color, 0, colors, o, 4);
+        return count++;
+    }
+
+    private static float[] untexturedTopColor(Tile.TileType surfaceType) {
+        switch (surfaceType) {
+            case WATER: return WATER_TOP_COLOR;
+            case SAND:  return SAND_TOP_COLOR;
+            case GRASS: return GRASS_TOP_COLOR;
+            case ROCK:  return ROCK_TOP_COLOR;
+            case DIRT:  return DIRT_TOP_COLOR;
+            case SNOW:  return SNOW_TOP_COLOR;
+            case AIR:   return DEFAULT_TOP_COLOR;
+            default:    return DEFAULT_TOP_COLOR;
+        }
+    }
+
+    public int topMaterial(Tile.TileType type) { return topMaterials[type.ordinal()]; }
+    /** Side material of a tile type, or -1 if it has no side texture. */
+    public int sideMaterial(Tile.TileType type) { return sideMaterials[type.ordinal()]; }
+    /** -1 if there is no dirt side texture to draw pedestals with. */
+    public int pedestalMaterial() { return pedestalMaterial; }
+
+    public int getCount() { return count; }
+    /** Atlas regions (x, y, w, h) of all {@link #MAX_MATERIALS} slots; unused ones are zero. Don't modify. */
+    public float[] getRegions() { return regions; }
+    /** RGBA tints of all {@link #MAX_MATERIALS} slots. Don't modify. */
+    public float[] getColors() { return colors; }
+}
@@ -0,0 +1,125 @@
+package org.isogame.render;
+
+import org.isogame.map.ChunkData;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.isogame.constants.Constants.*;
+
+/**
+ * The packed vertex of chunk meshes, 12 bytes in native byte order:
+ * <pre>
+ *  0  short x, y   screen position relative to the chunk's origin (its first tile's centre)
+ *  4  short z      world Z relative to the origin, in {@link #Z_UNIT}s
+ *  6  ubyte s, t   texture coordinates in whole faces/tiles/units, read by the texture mode
+ *  8  ubyte light  sky exposure * 16 + block light
+ *  9  ubyte material  index into {@link TerrainMaterials}
+ * 10  ubyte mode   ChunkMeshBuilder.TEX_* in the low bits, plus {@link #MODE_SELECTED} on highlights
+ * 11  (padding)
+ * </pre>
+ * Every face is a quad of four vertices, drawn as triangles (0,1,2) and (0,2,3)
+ * through one index buffer shared by all chunks ({@link #quadIndices(int)}).
+ * Tints and atlas regions live in the material table. The vertex shader turns
+ * a packed vertex back into the position, tint, texture coordinates, light,
+ * region and mode the fragment shader reads; {@link #unpack} does the same on
+ * the CPU, so meshes can be checked without a GL context.
+ */
+public final class TerrainVertexFormat {
+
+    public static final int BYTES_PER_VERTEX = 12;
+    public static final int VERTICES_PER_QUAD = 4;
+    public static final int INDICES_PER_QUAD = 6;
+    /** World Z of one z step: one elevation unit (see ChunkMeshBuilder's tile Z). */
+    public static final float Z_UNIT = 0.005f;
+    /** Mode flag: tinted with u_selectionTint instead of the material's tint. */
+    public static final int MODE_SELECTED = 4;
+    private static final int MODE_TEXTURE_MASK = 3;
+    /** Most quads one chunk can have: two pedestal faces, the top and two side runs per tile. */
+    public static final int MAX_QUADS_PER_CHUNK = ChunkData.TILE_COUNT * 5;
+
+    private TerrainVertexFormat() {}
+
+    static void put(ByteBuffer buffer, int x, int y, int z, int s, int t, int light, int material, int mode) {
+        buffer.putShort((short) x).putShort((short) y).putShort((short) z)
+                .put((byte) s).put((byte) t)
+                .put((byte) light).put((byte) material).put((byte) mode).put((byte) 0);
+    }
+
+    static ByteBuffer newBuffer(int vertices) {
+        return ByteBuffer.allocate(vertices * BYTES_PER_VERTEX).order(ByteOrder.nativeOrder());
+    }
+
+    /** Screen position and world Z of chunk ({@code chunkX}, {@code chunkY})'s origin; its vertices are relative to it. */
+    public static Vector3f chunkOrigin(int chunkX, int chunkY, Vector3f dest) {
+        int row = chunkY * CHUNK_SIZE_TILES;
+        int col = chunkX * CHUNK_SIZE_TILES;
+        return dest.set((col - row) * (TILE_WIDTH / 2.0f), (col + row) * (TILE_HEIGHT / 2.0f), (row + col) * DEPTH_SORT_FACTOR);
+    }
+
+    /** Triangle indices for {@code quads} quads of four vertices each. */
+    public static short[] quadIndices(int quads) {
+        if (quads * VERTICES_PER_QUAD > 0x10000) {
+            throw new IllegalArgumentException("Too many quads for 16-bit indices: " + quads);
+        }
+        short[] indices = new short[quads * INDICES_PER_QUAD];
+        for (int q = 0; q < quads; q++) {
+            int v = q * VERTICES_PER_QUAD;
+            int i = q * INDICES_PER_QUAD;
+            indices[i] = (short) v;
+            indices[i + 1] = (short) (v + 1);
+            indices[i + 2] = (short) (v + 2);
+            indices[i + 3] = (short) v;
+            indices[i + 4] = (short) (v + 2);
+            indices[i + 5] = (short) (v + 3);
+        }
+        return indices;
+    }
+
+    /**
+     * Decodes a mesh the way vertex.glsl does, into the unindexed float layout
+     * the fragment shader works with: {@link Renderer#FLOATS_PER_VERTEX_TERRAIN_TEXTURED}
+     * floats per vertex (position 3, tint 4, texture coordinates 2, light,
+     * region 4, mode), six vertices per quad. {@code selectionTint} stands in for
+     * u_selectionTint.
+     */
+    public static float[] unpack(MeshData mesh, TerrainMaterials materials, float[] selectionTint) {
+        int floats = Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
+        int quads = mesh.getQuadCount();
+        float[] out = new float[quads * INDICES_PER_QUAD * floats];
+        short[] indices = quadIndices(quads);
+        ByteBuffer in = ByteBuffer.wrap(mesh.vertices).order(ByteOrder.nativeOrder());
+        Vector3f origin = chunkOrigin(mesh.chunkX, mesh.chunkY, new Vector3f());
+        float[] regions = materials.getRegions();
+        float[] colors = materials.getColors();
+        for (int k = 0; k < indices.length; k++) {
+            int b = indices[k] * BYTES_PER_VERTEX;
+            int o = k * floats;
+            int material = in.get(b + 9) & 0xFF;
+            int mode = in.get(b + 10) & 0xFF;
+            int textureMode = mode & MODE_TEXTURE_MASK;
+            float s = in.get(b + 6) & 0xFF;
+            float t = in.get(b + 7) & 0xFF;
+            int m = material * 4;
+            float rx = regions[m], ry = regions[m + 1], rw = regions[m + 2], rh = regions[m + 3];
+
+            out[o] = origin.x + in.getShort(b);
+            out[o + 1] = origin.y + in.getShort(b + 2);
+            out[o + 2] = origin.z + in.getShort(b + 4) * Z_UNIT;
+            System.arraycopy((mode & MODE_SELECTED) != 0 ? selectionTint : colors, (mode & MODE_SELECTED) != 0 ? 0 : m, out, o + 3, 4);
+            out[o + 9] = in.get(b + 8) & 0xFF;
+            out[o + 14] = textureMode;
+            if (textureMode == ChunkMeshBuilder.TEX_TILED_TOP) {
+                out[o + 7] = s; out[o + 8] = t;
+                out[o + 10] = rx; out[o + 11] = ry; out[o + 12] = rw; out[o + 13] = rh;
+            } else if (textureMode == ChunkMeshBuilder.TEX_REPEAT_V) {
+                out[o + 7] = rx + s * rw; out[o + 8] = t;
+                out[o + 11] = ry; out[o + 13] = rh;
+            } else {
+                out[o + 7] = rx + s * rw; out[o + 8] = ry + t * rh;
+            }
+        }
+        return out;
+    }
+}
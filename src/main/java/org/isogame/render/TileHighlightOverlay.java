@@ -0,0 +1,111 @@
+package org.isogame.render;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * The selected tile and the placement preview, drawn over the terrain every
+ * frame instead of being baked into chunk meshes, so moving the cursor never
+ * rebuilds a chunk. Each highlighted tile's faces are built again by
+ * {@link ChunkMeshBuilder#buildTileHighlight} (a handful of quads, flagged for
+ * u_selectionTint) into one small stream buffer and drawn like chunks are,
+ * from their chunk's origin, with the depth test against the terrain but
+ * without writing depth.
+ *
+ * Main thread only.
+ */
+public final class TileHighlightOverlay {
+
+    /** Tiles highlighted at most in one frame; further ones are dropped. */
+    static final int MAX_TILES = 256;
+
+    private final ChunkMeshBuilder builder;
+    private final ByteBuffer vertices;
+    // Per highlighted tile: its position, first vertex and vertex count.
+    private final int[] tileRows = new int[MAX_TILES];
+    private final int[] tileCols = new int[MAX_TILES];
+    private final int[] firstVertex = new int[MAX_TILES];
+    private final int[] vertexCount = new int[MAX_TILES];
+    private int tileCount;
+    private int vaoId;
+    private int vboId;
+
+    TileHighlightOverlay(ChunkMeshBuilder builder, int quadIndexBufferId) {
+        this.builder = builder;
+        this.vertices = MemoryUtil.memAlloc(MAX_TILES * ChunkMeshBuilder.MAX_VERTICES_PER_TILE * TerrainVertexFormat.BYTES_PER_VERTEX);
+        vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, vertices.capacity(), GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        vaoId = TerrainBufferArena.createVertexArray(vboId, quadIndexBufferId);
+    }
+
+    /** Starts a new frame's highlights. */
+    public void clear() {
+        vertices.clear();
+        tileCount = 0;
+    }
+
+    /**
+     * Highlights tile ({@code row}, {@code col}) of {@code chunk} once per
+     * frame; {@code south}, {@code east} and {@code lightManager} are as for
+     * {@link ChunkMeshSnapshot#capture}.
+     */
+    public void add(ChunkData chunk, ChunkData south, ChunkData east, LightManager lightManager, int row, int col) {
+        if (tileCount == MAX_TILES) return;
+        for (int i = 0; i < tileCount; i++) {
+            if (tileRows[i] == row && tileCols[i] == col) return; // tinting twice would darken it
+        }
+        int first = vertices.position() / TerrainVertexFormat.BYTES_PER_VERTEX;
+        int count = builder.buildTileHighlight(chunk, south, east, lightManager, row, col, vertices);
+        if (count == 0) return;
+        tileRows[tileCount] = row;
+        tileCols[tileCount] = col;
+        firstVertex[tileCount] = first;
+        vertexCount[tileCount] = count;
+        tileCount++;
+    }
+
+    public boolean isEmpty() { return tileCount == 0; }
+
+    /**
+     * Uploads and draws this frame's highlights with {@code shader}, whose
+     * terrain uniforms are set as for chunks; sets u_chunkOrigin per tile.
+     * They are pulled slightly towards the viewer so they win the depth test
+     * against the identical terrain faces beneath them.
+     */
+    public void draw(Shader shader, Vector3f origin) {
+        if (tileCount == 0) return;
+        vertices.flip();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, vertices.capacity(), GL_STREAM_DRAW); // orphan last frame's
+        glBufferSubData(GL_ARRAY_BUFFER, 0L, vertices);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        glDepthMask(false);
+        glEnable(GL_POLYGON_OFFSET_FILL);
+        glPolygonOffset(-1.0f, -1.0f);
+        glBindVertexArray(vaoId);
+        for (int i = 0; i < tileCount; i++) {
+            shader.setUniform("u_chunkOrigin", TerrainVertexFormat.chunkOrigin(
+                    ChunkData.chunkCoordOf(tileCols[i]), ChunkData.chunkCoordOf(tileRows[i]), origin));
+            glDrawElementsBaseVertex(GL_TRIANGLES, vertexCount[i] / TerrainVertexFormat.VERTICES_PER_QUAD * TerrainVertexFormat.INDICES_PER_QUAD,
+                    GL_UNSIGNED_SHORT, 0L, firstVertex[i]);
+        }
+        glBindVertexArray(0);
+        glDisable(GL_POLYGON_OFFSET_FILL);
+        glDepthMask(true);
+    }
+
+    public void cleanup() {
+        if (vaoId != 0) { glDeleteVertexArrays(vaoId); vaoId = 0; }
+        if (vboId != 0) { glDeleteBuffers(vboId); vboId = 0; }
+        MemoryUtil.memFree(vertices);
+    }
+}
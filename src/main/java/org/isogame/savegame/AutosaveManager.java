@@ -0,0 +1,163 @@
+package org.isogame.savegame;
+
+import org.isogame.map.ChunkData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes saves on a background thread so saving never stalls a frame.
+ *
+ * The main thread only gathers what changed since the last save: copy-on-write
+ * snapshots of the dirty chunks, the already compressed payloads of unloaded
+ * ones, and the small metadata state (player, entities, tile entities). This
+ * thread then writes the chunks into the region files, commits them as a new
+ * save generation, and finally replaces the .sav file, which records that
+ * generation, through a temp file and an atomic rename. The regions keep the
+ * tables of the previous generation until the new .sav is in place, so at every
+ * point in time the files on disk form a complete save: the previous one or the
+ * new one. A save that dies halfway leaves uncommitted region writes that are
+ * dropped on the next open, possibly a region table of a generation no .sav
+ * refers to, which is dropped when the world is loaded
+ * ({@link RegionFileStore#recover(long)}), and a stray .tmp file that is never read.
+ *
+ * One save runs at a time. The methods are meant to be called from the main
+ * thread; {@link #pollCompletion()} hands back the result of a finished save.
+ */
+public class AutosaveManager {
+
+    /** Outcome of one background save. */
+    public static final class Completion {
+        public final boolean success;
+        public final Path saveFile;
+        public final int chunkCount;
+        public final double writeMillis;
+
+        Completion(boolean success, Path saveFile, int chunkCount, double writeMillis) {
+            this.success = success;
+            this.saveFile = saveFile;
+            this.chunkCount = chunkCount;
+            this.writeMillis = writeMillis;
+        }
+    }
+
+    private final ExecutorService saver;
+    private Future<Completion> current;
+
+    // --- Stats ---
+    private long savesCompleted;
+    private long savesFailed;
+    private long chunksSaved;
+
+    public AutosaveManager() {
+        this.saver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Autosave");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts saving in the background. The caller must not touch {@code meta}, the
+     * snapshots or the encoded payloads afterwards; {@code stamp} comes from
+     * {@link RegionFileStore#nextStamp()} at snapshot time, so chunks the game
+     * writes later win over this save's copies.
+     *
+     * @return false if another save is still running (nothing is submitted).
+     */
+    public boolean submit(Path saveFile, GameSaveState meta, RegionFileStore regions,
+                          List<ChunkData> chunks, List<MapSaveData.EncodedChunk> encodedChunks, long stamp) {
+        if (isBusy()) return false;
+        current = saver.submit(() -> runSave(saveFile, meta, regions, chunks, encodedChunks, stamp));
+        return true;
+    }
+
+    private static Completion runSave(Path saveFile, GameSaveState meta, RegionFileStore regions,
+                                      List<ChunkData> chunks, List<MapSaveData.EncodedChunk> encodedChunks, long stamp) {
+        long start = System.nanoTime();
+        boolean success = true;
+        for (ChunkData chunk : chunks) {
+            if (!regions.write(chunk, stamp)) success = false;
+        }
+        for (MapSaveData.EncodedChunk encoded : encodedChunks) {
+            if (!regions.writeEncoded(encoded.chunkX, encoded.chunkY, encoded.data, stamp)) success = false;
+        }
+        // The .sav is only replaced once the chunks it belongs with are durable. Chunks
+        // written after the snapshot (evicted since) stay pending for the next save.
+        if (success && !regions.commit(stamp)) success = false;
+        if (success) {
+            long generation = regions.getGeneration();
+            meta.mapData.regionGeneration = generation;
+            try {
+                BinarySaveCodec.writeAtomically(meta, saveFile);
+                regions.onSaveWritten(generation);
+            } catch (IOException e) {
+                System.err.println("AutosaveManager: Failed to write " + saveFile + ": " + e.getMessage());
+                success = false;
+            }
+        }
+        return new Completion(success, saveFile, chunks.size() + encodedChunks.size(), (System.nanoTime() - start) / 1e6);
+    }
+
+    public boolean isBusy() {
+        return current != null && !current.isDone();
+    }
+
+    /** Blocks until the running save (if any) is finished. Its result stays available to {@link #pollCompletion()}. */
+    public void awaitIdle() {
+        if (current == null) return;
+        try {
+            current.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Reported by pollCompletion().
+        }
+    }
+
+    /** Returns the result of a save that finished since the last call, or null. */
+    public Completion pollCompletion() {
+        if (current == null || !current.isDone()) return null;
+        Future<Completion> finished = current;
+        current = null;
+        Completion completion;
+        try {
+            completion = finished.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completion = new Completion(false, null, 0, 0);
+        } catch (ExecutionException e) {
+            System.err.println("AutosaveManager: Save crashed: " + e.getCause());
+            completion = new Completion(false, null, 0, 0);
+        }
+        if (completion.success) {
+            savesCompleted++;
+            chunksSaved += completion.chunkCount;
+        } else {
+            savesFailed++;
+        }
+        return completion;
+    }
+
+    /** Lets a running save finish, then stops the saver thread. */
+    public void shutdown() {
+        awaitIdle();
+        saver.shutdown();
+    }
+
+    public long getSavesCompleted() { return savesCompleted; }
+    public long getSavesFailed() { return savesFailed; }
+    public long getChunksSaved() { return chunksSaved; }
+
+    @Override
+    public String toString() {
+        return String.format("Autosave[busy=%b, saves=%d, failed=%d, chunks=%d]",
+                isBusy(), savesCompleted, savesFailed, chunksSaved);
+    }
+}
@@ -0,0 +1,411 @@
+package org.isogame.savegame;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary format for {@link GameSaveState}, replacing the pretty-printed JSON saves.
+ *
+ * <pre>
+ * header   : magic "PLSV" (int), format version (short), flags (short)
+ * sections : tag (byte), body length (varint), body ... until SECTION_END
+ * </pre>
+ * Sections: world (seed, time of day, spawn), player, entities, tile entities,
+ * the region file generation the save belongs with, and chunks. The chunk section is a varint count followed by one entry per chunk:
+ * zigzag-varint chunk coordinates, a varint payload length and a {@link ChunkCodec}
+ * payload. A reader skips section tags it does not know, so new sections can be
+ * added without bumping the format version.
+ *
+ * Files are streamed through a fixed-size buffer over a {@link FileChannel}; the
+ * whole save is never materialized in memory at once. Tile entity custom data is
+ * free-form, so it is stored as a compact JSON string inside its entry.
+ */
+public final class BinarySaveCodec {
+
+    public static final String FILE_EXTENSION = ".sav";
+
+    private static final int MAGIC = 0x504C5356; // "PLSV"
+    public static final short FORMAT_VERSION = 1;
+
+    private static final byte SECTION_END = 0;
+    private static final byte SECTION_WORLD = 1;
+    private static final byte SECTION_PLAYER = 2;
+    private static final byte SECTION_ENTITIES = 3;
+    private static final byte SECTION_TILE_ENTITIES = 4;
+    private static final byte SECTION_CHUNKS = 5;
+    private static final byte SECTION_REGIONS = 6;
+
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+
+    private static final Gson GSON = new Gson();
+    private static final Type CUSTOM_DATA_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    private BinarySaveCodec() {}
+
+    // --- Writing ---
+
+    public static void write(GameSaveState state, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(state, channel);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Writes the save next to {@code file} and renames it into place once it is
+     * complete and on disk, so a crash mid-write leaves the previous save intact.
+     */
+    public static void writeAtomically(GameSaveState state, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(state, temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static void write(GameSaveState state, WritableByteChannel channel) throws IOException {
+        Output out = new Output(channel);
+        out.putInt(MAGIC);
+        out.putShort(FORMAT_VERSION);
+        out.putShort((short) 0);
+
+        MapSaveData mapData = state.mapData;
+        Output section = new Output(null);
+
+        // World
+        section.putLong(mapData.worldSeed);
+        section.putDouble(state.pseudoTimeOfDay);
+        section.putZigZag(mapData.playerSpawnR);
+        section.putZigZag(mapData.playerSpawnC);
+        out.putSection(SECTION_WORLD, section);
+
+        // Player
+        PlayerSaveData player = state.playerData;
+        section.putFloat(player.mapRow);
+        section.putFloat(player.mapCol);
+        List<InventorySlotSaveData> inventory = player.inventory != null ? player.inventory : List.of();
+        section.putVarInt(inventory.size());
+        for (InventorySlotSaveData slot : inventory) {
+            section.putString(slot != null ? slot.itemId : null);
+            section.putVarInt(slot != null ? Math.max(0, slot.quantity) : 0);
+        }
+        out.putSection(SECTION_PLAYER, section);
+
+        // Entities
+        List<EntitySaveData> entities = mapData.entities != null ? mapData.entities : List.of();
+        section.putVarInt(entities.size());
+        for (EntitySaveData entity : entities) {
+            section.putString(entity.entityType);
+            section.putFloat(entity.mapRow);
+            section.putFloat(entity.mapCol);
+            section.putZigZag(entity.health);
+        }
+        out.putSection(SECTION_ENTITIES, section);
+
+        // Tile entities
+        List<TileEntitySaveData> tileEntities = state.tileEntityData != null ? state.tileEntityData : List.of();
+        section.putVarInt(tileEntities.size());
+        for (TileEntitySaveData te : tileEntities) {
+            section.putString(te.type);
+            section.putZigZag(te.row);
+            section.putZigZag(te.col);
+            section.putString(te.customData != null ? GSON.toJson(te.customData) : null);
+        }
+        out.putSection(SECTION_TILE_ENTITIES, section);
+
+        // Region generation
+        section.putLong(mapData.regionGeneration);
+        out.putSection(SECTION_REGIONS, section);
+
+        // Chunks: sized up front so the payloads can be streamed straight to the channel.
+        List<MapSaveData.EncodedChunk> chunks = mapData.encodedChunks != null ? mapData.encodedChunks : List.of();
+        long chunkBytes = ChunkCodec.varIntSize(chunks.size());
+        for (MapSaveData.EncodedChunk chunk : chunks) {
+            chunkBytes += ChunkCodec.varIntSize(ChunkCodec.zigZag(chunk.chunkX)) + ChunkCodec.varIntSize(ChunkCodec.zigZag(chunk.chunkY))
+                    + ChunkCodec.varIntSize(chunk.data.length) + chunk.data.length;
+        }
+        if (chunkBytes > Integer.MAX_VALUE) throw new IOException("Chunk section too large: " + chunkBytes + " bytes");
+        out.putByte(SECTION_CHUNKS);
+        out.putVarInt((int) chunkBytes);
+        out.putVarInt(chunks.size());
+        for (MapSaveData.EncodedChunk chunk : chunks) {
+            out.putZigZag(chunk.chunkX);
+            out.putZigZag(chunk.chunkY);
+            out.putVarInt(chunk.data.length);
+            out.putBytes(chunk.data);
+        }
+
+        out.putByte(SECTION_END);
+        out.flush();
+    }
+
+    // --- Reading ---
+
+    public static GameSaveState read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    public static GameSaveState read(ReadableByteChannel channel) throws IOException {
+        Input in = new Input(channel);
+        if (in.getInt() != MAGIC) throw new IOException("Not a binary save file (bad magic).");
+        short version = in.getShort();
+        if (version > FORMAT_VERSION) throw new IOException("Save file format version " + version + " is newer than supported (" + FORMAT_VERSION + ").");
+        in.getShort(); // flags, reserved
+
+        GameSaveState state = new GameSaveState();
+        state.mapData = new MapSaveData();
+        state.playerData = null;
+
+        while (true) {
+            byte tag = in.getByte();
+            if (tag == SECTION_END) break;
+            int length = in.getVarInt();
+            long sectionEnd = in.position() + length;
+            switch (tag) {
+                case SECTION_WORLD:
+                    state.mapData.worldSeed = in.getLong();
+                    state.worldSeed = state.mapData.worldSeed;
+                    state.pseudoTimeOfDay = in.getDouble();
+                    state.mapData.playerSpawnR = in.getZigZag();
+                    state.mapData.playerSpawnC = in.getZigZag();
+                    break;
+                case SECTION_PLAYER: {
+                    PlayerSaveData player = new PlayerSaveData();
+                    player.mapRow = in.getFloat();
+                    player.mapCol = in.getFloat();
+                    int slots = in.getVarInt();
+                    player.inventory = new ArrayList<>(slots);
+                    for (int s = 0; s < slots; s++) {
+                        String itemId = in.getString();
+                        int quantity = in.getVarInt();
+                        if (itemId == null) {
+                            player.inventory.add(null); // Empty slots are saved as null, as PlayerModel writes them.
+                            continue;
+                        }
+                        InventorySlotSaveData slot = new InventorySlotSaveData();
+                        slot.itemId = itemId;
+                        slot.quantity = quantity;
+                        player.inventory.add(slot);
+                    }
+                    state.playerData = player;
+                    break;
+                }
+                case SECTION_ENTITIES: {
+                    int count = in.getVarInt();
+                    for (int e = 0; e < count; e++) {
+                        EntitySaveData entity = new EntitySaveData();
+                        entity.entityType = in.getString();
+                        entity.mapRow = in.getFloat();
+                        entity.mapCol = in.getFloat();
+                        entity.health = in.getZigZag();
+                        state.mapData.entities.add(entity);
+                    }
+                    break;
+                }
+                case SECTION_TILE_ENTITIES: {
+                    int count = in.getVarInt();
+                    for (int t = 0; t < count; t++) {
+                        TileEntitySaveData te = new TileEntitySaveData();
+                        te.type = in.getString();
+                        te.row = in.getZigZag();
+                        te.col = in.getZigZag();
+                        String customJson = in.getString();
+                        if (customJson != null) te.customData = GSON.fromJson(customJson, CUSTOM_DATA_TYPE);
+                        state.tileEntityData.add(te);
+                    }
+                    break;
+                }
+                case SECTION_REGIONS:
+                    state.mapData.regionGeneration = in.getLong();
+                    break;
+                case SECTION_CHUNKS: {
+                    int count = in.getVarInt();
+                    for (int c = 0; c < count; c++) {
+                        int chunkX = in.getZigZag();
+                        int chunkY = in.getZigZag();
+                        byte[] data = new byte[in.getVarInt()];
+                        in.getBytes(data);
+                        state.mapData.encodedChunks.add(new MapSaveData.EncodedChunk(chunkX, chunkY, data));
+                    }
+                    break;
+                }
+                default:
+                    System.err.println("BinarySaveCodec: Skipping unknown section " + tag + " (" + length + " bytes).");
+                    break;
+            }
+            if (in.position() > sectionEnd) throw new IOException("Section " + tag + " overran its declared length.");
+            in.skip(sectionEnd - in.position());
+        }
+        return state;
+    }
+
+    // --- Buffered channel streams ---
+
+    /**
+     * Write buffer over a channel. With a null channel it just grows in memory,
+     * which is how small sections are measured before being copied out.
+     */
+    private static final class Output {
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(channel != null ? IO_BUFFER_BYTES : 1024);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            if (channel == null) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            } else {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        void putByte(byte value) throws IOException { ensure(1); buffer.put(value); }
+        void putShort(short value) throws IOException { ensure(2); buffer.putShort(value); }
+        void putInt(int value) throws IOException { ensure(4); buffer.putInt(value); }
+        void putLong(long value) throws IOException { ensure(8); buffer.putLong(value); }
+        void putFloat(float value) throws IOException { ensure(4); buffer.putFloat(value); }
+        void putDouble(double value) throws IOException { ensure(8); buffer.putDouble(value); }
+        void putVarInt(int value) throws IOException { ensure(5); ChunkCodec.putVarInt(buffer, value); }
+        void putZigZag(int value) throws IOException { putVarInt(ChunkCodec.zigZag(value)); }
+
+        void putBytes(byte[] bytes) throws IOException {
+            if (channel != null && bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) channel.write(wrapped);
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        /** Null-safe string: varint (UTF-8 length + 1), 0 meaning null. */
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putVarInt(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putVarInt(utf8.length + 1);
+            putBytes(utf8);
+        }
+
+        /** Writes a length-prefixed section from an in-memory Output, then resets it for reuse. */
+        void putSection(byte tag, Output body) throws IOException {
+            putByte(tag);
+            putVarInt(body.buffer.position());
+            byte[] bytes = new byte[body.buffer.position()];
+            body.buffer.flip();
+            body.buffer.get(bytes);
+            body.buffer.clear();
+            putBytes(bytes);
+        }
+    }
+
+    private static final class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_BYTES);
+        private long consumedBeforeBuffer;
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        long position() { return consumedBeforeBuffer + buffer.position(); }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            consumedBeforeBuffer += buffer.position();
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) throw new EOFException("Save file is truncated.");
+            }
+            buffer.flip();
+        }
+
+        byte getByte() throws IOException { ensure(1); return buffer.get(); }
+        short getShort() throws IOException { ensure(2); return buffer.getShort(); }
+        int getInt() throws IOException { ensure(4); return buffer.getInt(); }
+        long getLong() throws IOException { ensure(8); return buffer.getLong(); }
+        float getFloat() throws IOException { ensure(4); return buffer.getFloat(); }
+        double getDouble() throws IOException { ensure(8); return buffer.getDouble(); }
+
+        int getVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = getByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed varint in save file.");
+        }
+
+        int getZigZag() throws IOException { return ChunkCodec.unZigZag(getVarInt()); }
+
+        void getBytes(byte[] out) throws IOException {
+            int offset = 0;
+            while (offset < out.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), out.length - offset);
+                buffer.get(out, offset, n);
+                offset += n;
+            }
+        }
+
+        String getString() throws IOException {
+            int lengthPlusOne = getVarInt();
+            if (lengthPlusOne == 0) return null;
+            byte[] utf8 = new byte[lengthPlusOne - 1];
+            getBytes(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        void skip(long bytes) throws IOException {
+            while (bytes > 0) {
+                ensure(1);
+                int n = (int) Math.min(buffer.remaining(), bytes);
+                buffer.position(buffer.position() + n);
+                bytes -= n;
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package org.isogame.savegame;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.tile.Tile;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of a single chunk's tile data, used by region files and the
+ * binary save format.
+ *
+ * A payload starts with a version byte. Version 2 (the one written) stores the
+ * five per-tile byte fields (type, elevation, packed light, tree, rock) one after
+ * the other, each in whichever of these forms is smallest:
+ * <ul>
+ *   <li>constant: a single value for all 256 tiles,</li>
+ *   <li>palette: a varint palette size, the distinct values, then each tile's
+ *       palette index packed into the fewest bits that fit,</li>
+ *   <li>runs: a varint run count, then (value, varint length) per run in tile
+ *       order; wins for mostly uniform fields such as loose rocks,</li>
+ *   <li>raw: 256 bytes.</li>
+ * </ul>
+ * Torches follow as a varint count and the local indices of torch tiles.
+ * Typical terrain chunks come out at a few hundred bytes.
+ *
+ * Version 3 stores a chunk as a diff against the terrain the world's
+ * {@link ChunkGenerator} produces for it: a varint count of changed tiles, then
+ * per tile its local index, a bit mask of the fields that differ (type,
+ * elevation, tree, rock, torch) and the new values of the first four; a torch
+ * bit means the torch state is flipped. Light is left out, as it is recomputed
+ * when the chunk activates. A chunk identical to its baseline encodes to zero
+ * bytes. {@link #encode(ChunkData, ChunkGenerator, ByteBuffer)} writes
+ * whichever of versions 2 and 3 is smaller, so a heavily reworked chunk never
+ * costs more than before.
+ *
+ * Version 4 is version 2 for a chunk whose stored light is final: written by
+ * the world pregenerator after lighting its whole area, and decoded with
+ * {@link ChunkData#isLightStored()} set so activation can keep that light
+ * instead of recomputing it.
+ *
+ * Sparse state (tree damage, tile entities) is not part of the chunk payload;
+ * tile entities are saved separately.
+ */
+public final class ChunkCodec {
+
+    public static final byte VERSION_PALETTE = 2;
+    public static final byte VERSION_DELTA = 3;
+    public static final byte VERSION_LIT = 4;
+
+    private static final int FIELD_CONSTANT = 0;
+    private static final int FIELD_PALETTE = 1;
+    private static final int FIELD_RAW = 2;
+    private static final int FIELD_RUNS = 3;
+
+    private static final int FIELD_TYPE = 0;
+    private static final int FIELD_ELEVATION = 1;
+    private static final int FIELD_LIGHT = 2;
+    private static final int FIELD_TREE = 3;
+    private static final int FIELD_ROCK = 4;
+    private static final int FIELD_COUNT = 5;
+
+    // Bits of a delta entry's field mask.
+    private static final int DELTA_TYPE = 1;
+    private static final int DELTA_ELEVATION = 1 << 1;
+    private static final int DELTA_TREE = 1 << 2;
+    private static final int DELTA_ROCK = 1 << 3;
+    private static final int DELTA_TORCH = 1 << 4;
+    private static final int DELTA_VALUE_FIELDS = DELTA_TYPE | DELTA_ELEVATION | DELTA_TREE | DELTA_ROCK;
+
+    private static final Tile.TileType[] TILE_TYPES = Tile.TileType.values();
+    private static final Tile.TreeVisualType[] TREE_TYPES = Tile.TreeVisualType.values();
+    private static final Tile.LooseRockType[] ROCK_TYPES = Tile.LooseRockType.values();
+
+    private ChunkCodec() {}
+
+    /** Upper bound on the size of an encoded chunk. */
+    public static int maxEncodedSize() {
+        int field = 1 + ChunkData.TILE_COUNT;
+        int torches = 2 + ChunkData.TILE_COUNT;
+        return 1 + FIELD_COUNT * field + torches;
+    }
+
+    /** Writes the chunk at the buffer's position. The buffer must have {@link #maxEncodedSize()} bytes remaining. */
+    public static void encode(ChunkData chunk, ByteBuffer out) {
+        encode(chunk, VERSION_PALETTE, out);
+    }
+
+    private static void encode(ChunkData chunk, byte version, ByteBuffer out) {
+        out.put(version);
+        int[] values = new int[ChunkData.TILE_COUNT];
+        int[] paletteIndex = new int[256];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            for (int i = 0; i < ChunkData.TILE_COUNT; i++) values[i] = read(chunk, field, i);
+            encodeField(values, paletteIndex, out);
+        }
+        int torchCount = 0;
+        for (int w = 0; w < ChunkData.torchWordCount(); w++) torchCount += Long.bitCount(chunk.getTorchWord(w));
+        putVarInt(out, torchCount);
+        if (torchCount > 0) {
+            for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+                if (chunk.hasTorch(i)) out.put((byte) i);
+            }
+        }
+    }
+
+    public static ByteBuffer encode(ChunkData chunk) {
+        ByteBuffer out = ByteBuffer.allocate(maxEncodedSize());
+        encode(chunk, out);
+        out.flip();
+        return out;
+    }
+
+    /** Encodes into an exactly-sized array. */
+    public static byte[] encodeToArray(ChunkData chunk) {
+        ByteBuffer out = encode(chunk);
+        byte[] bytes = new byte[out.remaining()];
+        out.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Encodes a chunk whose light is final (version 4) into an exactly-sized
+     * array; it decodes with {@link ChunkData#isLightStored()} set.
+     */
+    public static byte[] encodeLitToArray(ChunkData chunk) {
+        ByteBuffer out = ByteBuffer.allocate(maxEncodedSize());
+        encode(chunk, VERSION_LIT, out);
+        out.flip();
+        byte[] bytes = new byte[out.remaining()];
+        out.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes the chunk as a diff against what {@code baseline} generates for it, or
+     * in the full format if that is smaller. Writes nothing at all if the chunk
+     * matches its baseline (light aside). The buffer must have
+     * {@link #maxEncodedSize()} bytes remaining. Safe to call from any thread.
+     */
+    public static void encode(ChunkData chunk, ChunkGenerator baseline, ByteBuffer out) {
+        ChunkData generated = baseline.generate(chunk.chunkX, chunk.chunkY);
+        int[] masks = new int[ChunkData.TILE_COUNT];
+        int changed = 0;
+        int deltaBytes = 1;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            int mask = deltaMask(chunk, generated, i);
+            masks[i] = mask;
+            if (mask != 0) {
+                changed++;
+                deltaBytes += 2 + Integer.bitCount(mask & DELTA_VALUE_FIELDS);
+            }
+        }
+        if (changed == 0) return;
+        deltaBytes += varIntSize(changed);
+
+        int start = out.position();
+        encode(chunk, out);
+        if (out.position() - start <= deltaBytes) return;
+        out.position(start);
+        out.put(VERSION_DELTA);
+        putVarInt(out, changed);
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            int mask = masks[i];
+            if (mask == 0) continue;
+            out.put((byte) i);
+            out.put((byte) mask);
+            if ((mask & DELTA_TYPE) != 0) out.put((byte) chunk.getTypeOrdinal(i));
+            if ((mask & DELTA_ELEVATION) != 0) out.put((byte) chunk.getElevation(i));
+            if ((mask & DELTA_TREE) != 0) out.put((byte) chunk.getTreeTypeOrdinal(i));
+            if ((mask & DELTA_ROCK) != 0) out.put((byte) chunk.getLooseRockTypeOrdinal(i));
+        }
+    }
+
+    /** {@link #encode(ChunkData, ChunkGenerator, ByteBuffer)} into an exactly-sized (possibly empty) array. */
+    public static byte[] encodeToArray(ChunkData chunk, ChunkGenerator baseline) {
+        ByteBuffer out = ByteBuffer.allocate(maxEncodedSize());
+        encode(chunk, baseline, out);
+        out.flip();
+        byte[] bytes = new byte[out.remaining()];
+        out.get(bytes);
+        return bytes;
+    }
+
+    private static int deltaMask(ChunkData chunk, ChunkData generated, int i) {
+        int mask = 0;
+        if (chunk.getTypeOrdinal(i) != generated.getTypeOrdinal(i)) mask |= DELTA_TYPE;
+        if (chunk.getElevation(i) != generated.getElevation(i)) mask |= DELTA_ELEVATION;
+        if (chunk.getTreeTypeOrdinal(i) != generated.getTreeTypeOrdinal(i)) mask |= DELTA_TREE;
+        if (chunk.getLooseRockTypeOrdinal(i) != generated.getLooseRockTypeOrdinal(i)) mask |= DELTA_ROCK;
+        if (chunk.hasTorch(i) != generated.hasTorch(i)) mask |= DELTA_TORCH;
+        return mask;
+    }
+
+    /**
+     * Reads a chunk written by {@link #encode}. Returns null (and logs) if the
+     * payload is truncated, has an unknown version or holds out-of-range values.
+     */
+    public static ChunkData decode(int chunkX, int chunkY, ByteBuffer in) {
+        return decode(chunkX, chunkY, in, null);
+    }
+
+    /**
+     * Like {@link #decode(int, int, ByteBuffer)}, but also reads diffs written by
+     * {@link #encode(ChunkData, ChunkGenerator, ByteBuffer)}; an empty payload is the
+     * baseline chunk itself. Safe to call from any thread.
+     */
+    public static ChunkData decode(int chunkX, int chunkY, ByteBuffer in, ChunkGenerator baseline) {
+        try {
+            if (baseline != null && !in.hasRemaining()) return baseline.generate(chunkX, chunkY);
+            byte version = in.get();
+            if (version == VERSION_DELTA) {
+                if (baseline == null) {
+                    System.err.println("ChunkCodec: Chunk (" + chunkX + "," + chunkY + ") is stored as a diff but no baseline generator was given.");
+                    return null;
+                }
+                return applyDelta(baseline.generate(chunkX, chunkY), in);
+            }
+            ChunkData chunk = new ChunkData(chunkX, chunkY);
+            if (version == VERSION_PALETTE || version == VERSION_LIT) {
+                int[] values = new int[ChunkData.TILE_COUNT];
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    decodeField(in, values);
+                    for (int i = 0; i < ChunkData.TILE_COUNT; i++) write(chunk, field, i, values[i]);
+                }
+                int torchCount = getVarInt(in);
+                if (torchCount > ChunkData.TILE_COUNT) throw new IllegalArgumentException("torch count " + torchCount);
+                for (int t = 0; t < torchCount; t++) chunk.setTorch(in.get() & 0xFF, true);
+                chunk.setLightStored(version == VERSION_LIT);
+            } else {
+                System.err.println("ChunkCodec: Unknown chunk format version " + version + " for chunk (" + chunkX + "," + chunkY + ").");
+                return null;
+            }
+            return chunk;
+        } catch (RuntimeException e) {
+            System.err.println("ChunkCodec: Corrupt chunk payload for chunk (" + chunkX + "," + chunkY + "): " + e);
+            return null;
+        }
+    }
+
+    public static ChunkData decode(int chunkX, int chunkY, byte[] payload) {
+        return decode(chunkX, chunkY, ByteBuffer.wrap(payload));
+    }
+
+    public static ChunkData decode(int chunkX, int chunkY, byte[] payload, ChunkGenerator baseline) {
+        return decode(chunkX, chunkY, ByteBuffer.wrap(payload), baseline);
+    }
+
+    private static ChunkData applyDelta(ChunkData chunk, ByteBuffer in) {
+        int changed = getVarInt(in);
+        if (changed < 1 || changed > ChunkData.TILE_COUNT) throw new IllegalArgumentException("changed tile count " + changed);
+        for (int t = 0; t < changed; t++) {
+            int i = in.get() & 0xFF;
+            int mask = in.get() & 0xFF;
+            if (mask == 0 || (mask & ~(DELTA_VALUE_FIELDS | DELTA_TORCH)) != 0) throw new IllegalArgumentException("field mask " + mask);
+            if ((mask & DELTA_TYPE) != 0) write(chunk, FIELD_TYPE, i, in.get() & 0xFF);
+            if ((mask & DELTA_ELEVATION) != 0) write(chunk, FIELD_ELEVATION, i, in.get() & 0xFF);
+            if ((mask & DELTA_TREE) != 0) write(chunk, FIELD_TREE, i, in.get() & 0xFF);
+            if ((mask & DELTA_ROCK) != 0) write(chunk, FIELD_ROCK, i, in.get() & 0xFF);
+            if ((mask & DELTA_TORCH) != 0) chunk.setTorch(i, !chunk.hasTorch(i));
+        }
+        return chunk;
+    }
+
+    // --- Fields ---
+
+    private static int read(ChunkData chunk, int field, int i) {
+        switch (field) {
+            case FIELD_TYPE: return chunk.getTypeOrdinal(i);
+            case FIELD_ELEVATION: return chunk.getElevation(i) & 0xFF;
+            case FIELD_LIGHT: return chunk.getPackedLight(i);
+            case FIELD_TREE: return chunk.getTreeTypeOrdinal(i);
+            default: return chunk.getLooseRockTypeOrdinal(i);
+        }
+    }
+
+    private static void write(ChunkData chunk, int field, int i, int value) {
+        switch (field) {
+            case FIELD_TYPE: chunk.setType(i, TILE_TYPES[checked(value, TILE_TYPES.length)]); break;
+            case FIELD_ELEVATION: chunk.setElevation(i, (byte) value); break;
+            case FIELD_LIGHT: chunk.setPackedLight(i, value); break;
+            case FIELD_TREE: chunk.setTreeType(i, TREE_TYPES[checked(value, TREE_TYPES.length)]); break;
+            default: chunk.setLooseRockType(i, ROCK_TYPES[checked(value, ROCK_TYPES.length)]); break;
+        }
+    }
+
+    private static int checked(int ordinal, int count) {
+        if (ordinal < 0 || ordinal >= count) throw new IllegalArgumentException("ordinal " + ordinal + " out of range");
+        return ordinal;
+    }
+
+    /** values are 0..255; paletteIndex is 256-entry scratch space. */
+    private static void encodeField(int[] values, int[] paletteIndex, ByteBuffer out) {
+        java.util.Arrays.fill(paletteIndex, -1);
+        int[] palette = new int[256];
+        int paletteSize = 0;
+        for (int value : values) {
+            if (paletteIndex[value] < 0) {
+                paletteIndex[value] = paletteSize;
+                palette[paletteSize++] = value;
+            }
+        }
+        if (paletteSize == 1) {
+            out.put((byte) FIELD_CONSTANT);
+            out.put((byte) palette[0]);
+            return;
+        }
+        int bits = bitsFor(paletteSize);
+        int paletteBytes = varIntSize(paletteSize) + paletteSize + packedBytes(bits);
+        int runs = 0;
+        int runBytes = 0;
+        for (int i = 0; i < values.length; ) {
+            int start = i;
+            while (i < values.length && values[i] == values[start]) i++;
+            runs++;
+            runBytes += 1 + varIntSize(i - start);
+        }
+        runBytes += varIntSize(runs);
+        if (runBytes < paletteBytes && runBytes < ChunkData.TILE_COUNT) {
+            out.put((byte) FIELD_RUNS);
+            putVarInt(out, runs);
+            for (int i = 0; i < values.length; ) {
+                int start = i;
+                while (i < values.length && values[i] == values[start]) i++;
+                out.put((byte) values[start]);
+                putVarInt(out, i - start);
+            }
+            return;
+        }
+        if (paletteBytes >= ChunkData.TILE_COUNT) {
+            out.put((byte) FIELD_RAW);
+            for (int value : values) out.put((byte) value);
+            return;
+        }
+        out.put((byte) FIELD_PALETTE);
+        putVarInt(out, paletteSize);
+        for (int p = 0; p < paletteSize; p++) out.put((byte) palette[p]);
+        int accumulator = 0;
+        int filled = 0;
+        for (int value : values) {
+            accumulator |= paletteIndex[value] << filled;
+            filled += bits;
+            while (filled >= 8) {
+                out.put((byte) accumulator);
+                accumulator >>>= 8;
+                filled -= 8;
+            }
+        }
+        if (filled > 0) out.put((byte) accumulator);
+    }
+
+    private static void decodeField(ByteBuffer in, int[] values) {
+        int mode = in.get();
+        if (mode == FIELD_CONSTANT) {
+            java.util.Arrays.fill(values, in.get() & 0xFF);
+        } else if (mode == FIELD_RAW) {
+            for (int i = 0; i < values.length; i++) values[i] = in.get() & 0xFF;
+        } else if (mode == FIELD_RUNS) {
+            int runs = getVarInt(in);
+            int i = 0;
+            for (int r = 0; r < runs; r++) {
+                int value = in.get() & 0xFF;
+                int length = getVarInt(in);
+                if (length <= 0 || i + length > values.length) throw new IllegalArgumentException("run length " + length);
+                java.util.Arrays.fill(values, i, i + length, value);
+                i += length;
+            }
+            if (i != values.length) throw new IllegalArgumentException("runs cover " + i + " tiles");
+        } else if (mode == FIELD_PALETTE) {
+            int paletteSize = getVarInt(in);
+            if (paletteSize < 2 || paletteSize > 256) throw new IllegalArgumentException("palette size " + paletteSize);
+            int[] palette = new int[paletteSize];
+            for (int p = 0; p < paletteSize; p++) palette[p] = in.get() & 0xFF;
+            int bits = bitsFor(paletteSize);
+            int mask = (1 << bits) - 1;
+            int accumulator = 0;
+            int available = 0;
+            for (int i = 0; i < values.length; i++) {
+                while (available < bits) {
+                    accumulator |= (in.get() & 0xFF) << available;
+                    available += 8;
+                }
+                int index = accumulator & mask;
+                accumulator >>>= bits;
+                available -= bits;
+                if (index >= paletteSize) throw new IllegalArgumentException("palette index " + index);
+                values[i] = palette[index];
+            }
+        } else {
+            throw new IllegalArgumentException("field mode " + mode);
+        }
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    private static int packedBytes(int bits) {
+        return (ChunkData.TILE_COUNT * bits + 7) / 8;
+    }
+
+    // --- Varints (LEB128, unsigned) shared with the save file codec ---
+
+    public static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    public static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    /** ZigZag mapping so small negative numbers (chunk coordinates) stay short as varints. */
+    public static int zigZag(int value) { return (value << 1) ^ (value >> 31); }
+    public static int unZigZag(int value) { return (value >>> 1) ^ -(value & 1); }
+}
@@ -9,6 +9,12 @@ public class MapSaveData {
     public int playerSpawnC;
     public List<ChunkDiskData> explicitlySavedChunks;
 
+    // Chunks in ChunkCodec form, used by the binary save format. Transient so Gson never writes it.
+    public transient List<EncodedChunk> encodedChunks;
+
+    // Region file generation this save belongs with (see RegionFileStore#recover); 0 if unknown.
+    public transient long regionGeneration;
+
     // This list will store all non-player entities on the map.
     public List<EntitySaveData> entities;
 
@@ -27,12 +33,25 @@ public class MapSaveData {
         }
     }
 
+    /** One chunk's tile data as a {@link ChunkCodec} payload. */
+    public static class EncodedChunk {
+        public final int chunkX, chunkY;
+        public final byte[] data;
+
+        public EncodedChunk(int chunkX, int chunkY, byte[] data) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+            this.data = data;
+        }
+    }
+
     /**
      * The constructor for MapSaveData.
      * This now correctly initializes the entities list.
      */
     public MapSaveData() {
         this.explicitlySavedChunks = new ArrayList<>();
+        this.encodedChunks = new ArrayList<>();
         this.entities = new ArrayList<>(); // <-- THIS IS THE FIX
     }
 }
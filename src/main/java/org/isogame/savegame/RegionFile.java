@@ -0,0 +1,562 @@
+package org.isogame.savegame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One region file: up to {@link #REGION_SIZE}x{@link #REGION_SIZE} chunk payloads
+ * behind a fixed header.
+ *
+ * The header is a magic/version pair followed by two copies of the offset table,
+ * each a save generation followed by one (offset, length) int pair per chunk
+ * slot; a zero length means the slot is empty. The header is kept in memory
+ * while the file is open, so finding a chunk is a couple of buffer reads, and
+ * written back in ranges. Payloads (a few hundred bytes) are read into heap
+ * buffers. Nothing is memory-mapped, as a mapped file can't be replaced or
+ * deleted on Windows until the mapping is collected.
+ *
+ * Writes always append, so a chunk on disk is never overwritten in place. The
+ * tables are only updated by {@link #commit(long, long)}, which writes the copy
+ * the last written save file does not refer to: payloads are forced to disk
+ * first, then that table, then its generation. The save file records the
+ * generation it belongs with, so if the game dies before the save file is
+ * replaced, {@link #discardNewerThan(long)} drops the newer copy on the next
+ * load and the regions match the previous save again. Space left behind by
+ * replaced payloads is reclaimed once a save file refers to the latest copy
+ * ({@link #prepareCompaction()}), by rewriting the file to a temporary copy and
+ * renaming it over the original.
+ *
+ * Not thread-safe: {@link RegionFileStore} serializes access, but runs the slow
+ * halves of commits and compaction ({@link #writeCommit(Commit)},
+ * {@link #writeRewrite(Rewrite)}) without blocking reads and writes.
+ *
+ * Every write carries a stamp, and a slot keeps its uncommitted writes ordered
+ * by stamp: reads see the newest, while a commit takes the newest write at or
+ * before the save's stamp and leaves later ones (chunks evicted after the save's
+ * snapshot) pending for the next save.
+ */
+final class RegionFile implements AutoCloseable {
+
+    static final int REGION_SHIFT = 5;
+    static final int REGION_SIZE = 1 << REGION_SHIFT;
+    static final int SLOT_COUNT = REGION_SIZE * REGION_SIZE;
+
+    private static final int MAGIC = 0x50524731; // "PRG1"
+    private static final int FORMAT_VERSION = 2;
+    private static final int TABLE_BYTES = 8 + SLOT_COUNT * 8;
+    private static final int HEADER_BYTES = 8 + 2 * TABLE_BYTES;
+
+    /** Generation of a table copy that must never be read. */
+    private static final long INVALID_GENERATION = -1;
+
+    // Compaction kicks in once this much space is dead and it outweighs the live payloads.
+    private static final long MIN_WASTE_FOR_COMPACTION = 256 * 1024;
+
+    /** An uncommitted write of one slot; a zero length empties the slot. */
+    private static final class Pending {
+        int offset;
+        final int length;
+        final long stamp;
+        // The slot's next older uncommitted write, if any.
+        Pending older;
+
+        Pending(int offset, int length, long stamp) {
+            this.offset = offset;
+            this.length = length;
+            this.stamp = stamp;
+        }
+    }
+
+    private Path path;
+    private FileChannel channel;
+    private ByteBuffer header;
+    private long end;
+    private long liveBytes;
+    private int liveSlots;
+    // Table copy holding the latest commit, and the one the last written save file refers to.
+    // They differ between a commit and the save file that goes with it; commits never touch the latter.
+    private int activeTable;
+    private int durableTable;
+
+    // Per slot, the writes since the last commit that took it, newest first; null for untouched
+    // slots. Allocated on the first uncommitted write.
+    private Pending[] pending;
+    private int pendingCount;
+    // Stamp of each slot's committed write; older writes are ignored.
+    private long[] committedStamps;
+
+    RegionFile(Path path) throws IOException {
+        this.path = path;
+        open();
+        durableTable = activeTable;
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() == 0;
+        header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        if (fresh || (header.getInt(0) == 0 && header.getInt(4) == 0)) {
+            // New file, or one created right before a crash: nothing was ever committed to it.
+            header.putInt(0, MAGIC);
+            header.putInt(4, FORMAT_VERSION);
+            header.putLong(generationPos(0), 0);
+            header.putLong(generationPos(1), INVALID_GENERATION);
+            forceHeader(0, HEADER_BYTES);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+            channel.close();
+            throw new IOException("Not a region file (bad magic/version): " + path);
+        }
+        activeTable = generationOf(1) > generationOf(0) ? 1 : 0;
+        end = Math.max(HEADER_BYTES, channel.size());
+        countLiveSlots();
+    }
+
+    private void countLiveSlots() {
+        liveBytes = 0;
+        liveSlots = 0;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            int length = lengthOf(slot);
+            if (length > 0) {
+                liveBytes += length;
+                liveSlots++;
+            }
+        }
+    }
+
+    /** Slot of a chunk inside its region; works for negative chunk coordinates. */
+    static int slotOf(int chunkX, int chunkY) {
+        return ((chunkY & (REGION_SIZE - 1)) << REGION_SHIFT) | (chunkX & (REGION_SIZE - 1));
+    }
+
+    static int regionCoordOf(int chunkCoord) {
+        return chunkCoord >> REGION_SHIFT;
+    }
+
+    private static int generationPos(int table) { return 8 + table * TABLE_BYTES; }
+    private static int offsetPos(int table, int slot) { return generationPos(table) + 8 + slot * 8; }
+    private static int lengthPos(int table, int slot) { return offsetPos(table, slot) + 4; }
+
+    private long generationOf(int table) { return header.getLong(generationPos(table)); }
+
+    /** Save generation of the latest commit. */
+    long getGeneration() { return generationOf(activeTable); }
+
+    private Pending newestPending(int slot) {
+        return pending != null ? pending[slot] : null;
+    }
+
+    /** Current length of a slot, including uncommitted writes. */
+    private int lengthOf(int slot) {
+        Pending newest = newestPending(slot);
+        return newest != null ? newest.length : header.getInt(lengthPos(activeTable, slot));
+    }
+
+    private long offsetOf(int slot) {
+        Pending newest = newestPending(slot);
+        return (newest != null ? newest.offset : header.getInt(offsetPos(activeTable, slot))) & 0xFFFFFFFFL;
+    }
+
+    boolean contains(int slot) {
+        return lengthOf(slot) > 0;
+    }
+
+    /** Reads the slot's payload into a new buffer, or returns null if the slot is empty. */
+    ByteBuffer read(int slot) throws IOException {
+        int length = lengthOf(slot);
+        if (length <= 0) return null;
+        long offset = offsetOf(slot);
+        if (offset < HEADER_BYTES || offset + length > end) {
+            throw new IOException("Region slot " + slot + " points outside " + path);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset);
+        payload.flip();
+        return payload;
+    }
+
+    /** Fills a fresh {@code buffer} from {@code position} of the file; bytes past its end stay zero. */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+    }
+
+    /** Writes header bytes {@code from} to {@code to} to the file and forces them to disk. */
+    private void forceHeader(int from, int to) throws IOException {
+        ByteBuffer range = header.duplicate();
+        range.limit(to).position(from);
+        while (range.hasRemaining()) {
+            channel.write(range, range.position());
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Appends the payload (position to limit) and points the slot at it once committed.
+     * A write older than the slot's newest uncommitted one is kept behind it for
+     * the commit of its own save. Returns false without writing if the slot's
+     * committed write is newer.
+     */
+    boolean write(int slot, ByteBuffer payload, long stamp) throws IOException {
+        if (committedStamps != null && committedStamps[slot] > stamp) return false;
+        int length = payload.remaining();
+        if (end + length > 0xFFFFFFFFL) throw new IOException("Region file full: " + path);
+        long offset = end;
+        while (payload.hasRemaining()) {
+            channel.write(payload, offset + (length - payload.remaining()));
+        }
+        end += length;
+        addPending(slot, new Pending((int) offset, length, stamp));
+        return true;
+    }
+
+    void remove(int slot, long stamp) {
+        if (committedStamps != null && committedStamps[slot] > stamp) return;
+        addPending(slot, new Pending(0, 0, stamp));
+    }
+
+    private void addPending(int slot, Pending write) {
+        if (pending == null) pending = new Pending[SLOT_COUNT];
+        int oldLength = lengthOf(slot);
+        Pending newest = pending[slot];
+        if (newest == null) pendingCount++;
+        if (newest == null || newest.stamp <= write.stamp) {
+            write.older = newest;
+            pending[slot] = write;
+        } else {
+            Pending newer = newest;
+            while (newer.older != null && newer.older.stamp > write.stamp) newer = newer.older;
+            write.older = newer.older;
+            newer.older = write;
+        }
+        int newLength = lengthOf(slot);
+        if (oldLength > 0) {
+            liveBytes -= oldLength;
+            liveSlots--;
+        }
+        if (newLength > 0) {
+            liveBytes += newLength;
+            liveSlots++;
+        }
+    }
+
+    boolean hasUncommittedChanges() { return pendingCount > 0; }
+
+    /**
+     * A commit prepared by {@link #prepareCommit(long, long)}: the writes it makes
+     * durable and the table copy it puts them in.
+     */
+    static final class Commit {
+        final RegionFile region;
+        final long generation;
+        final int target;
+        final int[] slots;
+        final Pending[] writes;
+
+        private Commit(RegionFile region, long generation, int target, int[] slots, Pending[] writes) {
+            this.region = region;
+            this.generation = generation;
+            this.target = target;
+            this.slots = slots;
+            this.writes = writes;
+        }
+    }
+
+    /**
+     * Picks, per slot, the newest uncommitted write stamped at or before
+     * {@code stamp}, to be made durable as save generation {@code generation}.
+     * Returns null if there is none. Later writes stay pending. The table copy
+     * the last written save file refers to is left alone; the other one gets the
+     * latest commit plus these writes.
+     */
+    Commit prepareCommit(long stamp, long generation) {
+        if (pendingCount == 0) return null;
+        int[] slots = new int[pendingCount];
+        Pending[] writes = new Pending[pendingCount];
+        int count = 0;
+        for (int slot = 0; slot < SLOT_COUNT && count < slots.length; slot++) {
+            Pending write = pending[slot];
+            while (write != null && write.stamp > stamp) write = write.older;
+            if (write == null) continue;
+            slots[count] = slot;
+            writes[count++] = write;
+        }
+        if (count == 0) return null;
+        return new Commit(this, generation, 1 - durableTable, java.util.Arrays.copyOf(slots, count), java.util.Arrays.copyOf(writes, count));
+    }
+
+    /**
+     * Writes a prepared commit's table copy: payloads are forced to disk first,
+     * then the table, then its generation. This is the slow part; it touches
+     * neither the table reads use nor the pending writes, so reads and new
+     * writes may go on meanwhile. Commits and rewrites must not overlap.
+     */
+    void writeCommit(Commit commit) throws IOException {
+        int target = commit.target;
+        // Invalidate the copy first, so a torn update can never be taken for a whole one.
+        header.putLong(generationPos(target), INVALID_GENERATION);
+        forceHeader(generationPos(target), generationPos(target) + 8);
+        if (target != activeTable) {
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                header.putLong(offsetPos(target, slot), header.getLong(offsetPos(activeTable, slot)));
+            }
+        }
+        for (int i = 0; i < commit.slots.length; i++) {
+            header.putInt(offsetPos(target, commit.slots[i]), commit.writes[i].offset);
+            header.putInt(lengthPos(target, commit.slots[i]), commit.writes[i].length);
+        }
+        channel.force(false);
+        forceHeader(generationPos(target), generationPos(target) + TABLE_BYTES);
+        header.putLong(generationPos(target), commit.generation);
+        forceHeader(generationPos(target), generationPos(target) + 8);
+    }
+
+    /** Switches reads to a written commit's table; its writes (and older ones) stop being pending. */
+    void finishCommit(Commit commit) {
+        activeTable = commit.target;
+        if (committedStamps == null) committedStamps = new long[SLOT_COUNT];
+        for (int i = 0; i < commit.slots.length; i++) {
+            int slot = commit.slots[i];
+            Pending write = commit.writes[i];
+            committedStamps[slot] = write.stamp;
+            if (pending[slot] == write) {
+                pending[slot] = null;
+                pendingCount--;
+            } else {
+                Pending newer = pending[slot];
+                while (newer.older != write) newer = newer.older;
+                newer.older = null;
+            }
+        }
+    }
+
+    /**
+     * Records that a save file referring to the latest commit is on disk, so the
+     * next commit may overwrite the older table copy.
+     */
+    void onSaveWritten() {
+        durableTable = activeTable;
+    }
+
+    /**
+     * Drops a table copy committed for a save newer than {@code generation} (the
+     * save file's), which means the game stopped before that save file was written.
+     */
+    void discardNewerThan(long generation) throws IOException {
+        boolean changed = false;
+        for (int table = 0; table < 2; table++) {
+            if (generationOf(table) > generation) {
+                header.putLong(generationPos(table), INVALID_GENERATION);
+                changed = true;
+            }
+        }
+        if (!changed) return;
+        forceHeader(0, HEADER_BYTES);
+        activeTable = generationOf(1) > generationOf(0) ? 1 : 0;
+        durableTable = activeTable;
+        countLiveSlots();
+    }
+
+    /**
+     * Moves the file to {@code target} (replacing anything there), keeping
+     * uncommitted writes. The original is left in place.
+     */
+    void moveTo(Path target) throws IOException {
+        int durable = durableTable;
+        close();
+        Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+        path = target;
+        open();
+        durableTable = durable;
+    }
+
+    int getChunkCount() { return liveSlots; }
+    long getFileBytes() { return end; }
+    Path getPath() { return path; }
+
+    /**
+     * A copy of the file being written by {@link #writeRewrite(Rewrite)}: a
+     * committed table that becomes the only table copy, followed by its payloads
+     * and every uncommitted write.
+     */
+    static final class Rewrite {
+        final RegionFile region;
+        final int[] offsets;
+        final int[] lengths;
+        final long generation;
+        final long end;
+        final java.util.List<Pending> carried;
+        final java.util.Set<Pending> moved = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+        final java.util.List<Integer> movedOffsets = new java.util.ArrayList<>();
+        final java.util.List<Pending> movedWrites = new java.util.ArrayList<>();
+        final Path temp;
+        FileChannel out;
+        long position = HEADER_BYTES;
+
+        private Rewrite(RegionFile region, int[] offsets, int[] lengths, long generation, long end) {
+            this.region = region;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.generation = generation;
+            this.end = end;
+            this.carried = region.pendingWrites();
+            this.temp = region.path.resolveSibling(region.path.getFileName() + ".tmp");
+        }
+    }
+
+    /**
+     * Starts compacting the file if replaced payloads make up most of it and the
+     * save file refers to the latest commit; returns null otherwise. Write it with
+     * {@link #writeRewrite(Rewrite)}, then finish with {@link #finishCompaction(Rewrite)}.
+     */
+    Rewrite prepareCompaction() {
+        long waste = end - HEADER_BYTES - liveBytes;
+        if (waste < MIN_WASTE_FOR_COMPACTION || waste < liveBytes || durableTable != activeTable) return null;
+        int[] offsets = new int[SLOT_COUNT];
+        int[] lengths = new int[SLOT_COUNT];
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            offsets[slot] = header.getInt(offsetPos(activeTable, slot));
+            lengths[slot] = header.getInt(lengthPos(activeTable, slot));
+        }
+        return new Rewrite(this, offsets, lengths, getGeneration(), end);
+    }
+
+    /**
+     * Swaps the compacted copy in, first appending the writes made while it was
+     * being written. Failure leaves the original file in use.
+     */
+    void finishCompaction(Rewrite rewrite) {
+        finishRewrite(rewrite);
+        try {
+            open();
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException("Region file unusable after compaction: " + path, e);
+        }
+        durableTable = activeTable;
+    }
+
+    private java.util.List<Pending> pendingWrites() {
+        java.util.List<Pending> writes = new java.util.ArrayList<>();
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            for (Pending write = newestPending(slot); write != null; write = write.older) {
+                if (write.length > 0) writes.add(write);
+            }
+        }
+        return writes;
+    }
+
+    /**
+     * Writes the temporary copy and forces it to disk. Only reads payloads that
+     * are already written, so appends may go on meanwhile. Returns false (and
+     * logs) on failure, keeping the original.
+     */
+    boolean writeRewrite(Rewrite rewrite) {
+        try {
+            rewrite.out = FileChannel.open(rewrite.temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            ByteBuffer newHeader = ByteBuffer.allocate(HEADER_BYTES);
+            newHeader.putInt(0, MAGIC);
+            newHeader.putInt(4, FORMAT_VERSION);
+            newHeader.putLong(generationPos(0), rewrite.generation);
+            newHeader.putLong(generationPos(1), INVALID_GENERATION);
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                if (rewrite.lengths[slot] <= 0) continue;
+                newHeader.putInt(offsetPos(0, slot), (int) rewrite.position);
+                newHeader.putInt(lengthPos(0, slot), rewrite.lengths[slot]);
+                rewrite.position = copyPayload(rewrite, rewrite.offsets[slot] & 0xFFFFFFFFL, rewrite.lengths[slot], rewrite.end);
+            }
+            for (Pending write : rewrite.carried) carry(rewrite, write, rewrite.end);
+            while (newHeader.hasRemaining()) {
+                rewrite.out.write(newHeader, newHeader.position());
+            }
+            rewrite.out.force(true);
+            return true;
+        } catch (IOException e) {
+            System.err.println("RegionFile: Rewriting " + path + " failed, keeping original: " + e.getMessage());
+            abandon(rewrite);
+            return false;
+        }
+    }
+
+    /**
+     * Appends the writes made since the copy was written, closes this file and
+     * renames the copy over it. Returns false (and logs) if the original was kept.
+     * The channel is closed afterwards either way.
+     */
+    private boolean finishRewrite(Rewrite rewrite) {
+        try {
+            for (Pending write : pendingWrites()) {
+                if (!rewrite.moved.contains(write)) carry(rewrite, write, end);
+            }
+            rewrite.out.close();
+            closeQuietly();
+            Files.move(rewrite.temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (int i = 0; i < rewrite.movedWrites.size(); i++) {
+                rewrite.movedWrites.get(i).offset = rewrite.movedOffsets.get(i);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("RegionFile: Could not replace " + path + " with rewritten copy: " + e.getMessage());
+            abandon(rewrite);
+            closeQuietly();
+            return false;
+        }
+    }
+
+    private void carry(Rewrite rewrite, Pending write, long fileEnd) throws IOException {
+        rewrite.moved.add(write);
+        rewrite.movedWrites.add(write);
+        rewrite.movedOffsets.add((int) rewrite.position);
+        rewrite.position = copyPayload(rewrite, write.offset & 0xFFFFFFFFL, write.length, fileEnd);
+    }
+
+    private static void abandon(Rewrite rewrite) {
+        try {
+            if (rewrite.out != null) rewrite.out.close();
+        } catch (IOException ignored) {
+        }
+        deleteQuietly(rewrite.temp);
+    }
+
+    /** Copies {@code length} bytes at {@code offset} of this file to the end of the rewrite's copy; returns the new end. */
+    private long copyPayload(Rewrite rewrite, long offset, int length, long fileEnd) throws IOException {
+        if (offset < 8 || offset + length > fileEnd) {
+            throw new IOException("Region payload points outside " + path);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset);
+        payload.flip();
+        long position = rewrite.position;
+        while (payload.hasRemaining()) {
+            rewrite.out.write(payload, position + (length - payload.remaining()));
+        }
+        return position + length;
+    }
+
+    /** Closes the file. Writes that were never committed are dropped. */
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+}
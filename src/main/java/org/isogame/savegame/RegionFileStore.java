@@ -0,0 +1,412 @@
+package org.isogame.savegame;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.map.ChunkIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk home for modified chunks that are not loaded.
+ *
+ * Chunks are grouped into {@link RegionFile}s of 32x32 chunks each, named
+ * {@code r.<regionX>.<regionY>.rgn} inside one directory per world. The only
+ * heap cost is one open region (its header) per 1024 chunk slots, so
+ * evicting a chunk frees all of its tile data, and saving the game never has to
+ * touch chunks that already live here.
+ *
+ * A store given the world's {@link ChunkGenerator} keeps chunks as diffs against
+ * their generated terrain (see {@link ChunkCodec}), so a chunk with one torch
+ * costs a few bytes, and writing a chunk that matches its generated terrain
+ * empties its slot.
+ *
+ * Writes become durable in {@link #commit(long)}, which the save path calls;
+ * until then the files on disk still describe the last save. Each write carries
+ * a stamp from {@link #nextStamp()}, and a save commits only the writes stamped
+ * at or before its snapshot: a chunk evicted (and written) after the snapshot
+ * was taken stays uncommitted, so it neither clobbers the save's older copy nor
+ * ends up in a save that doesn't belong with it. Reads always see the newest write.
+ *
+ * Each commit is a new save generation, which the save file records
+ * ({@link #getGeneration()}); the regions keep the tables of the last two, so
+ * {@link #recover(long)} can return them to the generation of the save file that
+ * was actually written if the game stopped between a commit and its save file.
+ *
+ * A store created with {@link #temporary()} (for worlds that have no save name
+ * yet) lives in a temp directory that is deleted on {@link #close()}, unless
+ * {@link #relocate(Path)} has moved it into the saves folder first.
+ *
+ * The store may be shared with a background saver. Its monitor is only held
+ * for quick bookkeeping and appends: chunks are encoded and decoded outside it,
+ * and commits and compaction force and rewrite files without holding it, so the
+ * main thread's reads and writes never wait on the disk. Commits, compaction,
+ * {@link #relocate(Path)}, {@link #recover(long)} and {@link #close()} run one at a time.
+ */
+public class RegionFileStore {
+
+    private static final String REGION_FILE_SUFFIX = ".rgn";
+
+    private Path directory;
+    private boolean temporary;
+    // Regenerates the terrain chunks are diffed against; null stores full chunks.
+    private final ChunkGenerator baseline;
+    private final ChunkIndex<RegionFile> openRegions = new ChunkIndex<>();
+    // Regions already checked and known to have no file, so lookups don't hit the filesystem again.
+    private final ChunkIndex<Boolean> missingRegions = new ChunkIndex<>();
+    // Held (before the monitor) by whatever replaces or forces region files.
+    private final Object commitLock = new Object();
+
+    private long stampCounter;
+    // Save generation of the latest commit.
+    private long generation;
+
+    // --- Stats ---
+    private long chunksWritten;
+    private long chunksRead;
+
+    /** A store backed by the given directory, which is created on the first write. */
+    public RegionFileStore(Path directory) {
+        this(directory, null);
+    }
+
+    /** A store that diffs chunks against what {@code baseline} generates for them. */
+    public RegionFileStore(Path directory, ChunkGenerator baseline) {
+        this.directory = directory;
+        this.temporary = false;
+        this.baseline = baseline;
+    }
+
+    /** A store in a fresh temp directory that is removed again on {@link #close()}. */
+    public static RegionFileStore temporary() {
+        return temporary(null);
+    }
+
+    public static RegionFileStore temporary(ChunkGenerator baseline) {
+        try {
+            RegionFileStore store = new RegionFileStore(Files.createTempDirectory("plunari-regions"), baseline);
+            store.temporary = true;
+            return store;
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException("Could not create temporary region directory", e);
+        }
+    }
+
+    public synchronized Path getDirectory() { return directory; }
+
+    public synchronized boolean contains(int chunkX, int chunkY) {
+        RegionFile region = region(chunkX, chunkY, false);
+        return region != null && region.contains(RegionFile.slotOf(chunkX, chunkY));
+    }
+
+    /** Decodes a stored chunk, or returns null if it is not stored or could not be read. */
+    public ChunkData read(int chunkX, int chunkY) {
+        ByteBuffer payload = readEncoded(chunkX, chunkY);
+        if (payload == null) return null;
+        return ChunkCodec.decode(chunkX, chunkY, payload, baseline);
+    }
+
+    /**
+     * A stored chunk's {@link ChunkCodec} payload as is, or null if it is not
+     * stored or could not be read. The buffer is a heap copy, so holding on to it
+     * never keeps the region file from being replaced or deleted.
+     */
+    public synchronized ByteBuffer readEncoded(int chunkX, int chunkY) {
+        RegionFile region = region(chunkX, chunkY, false);
+        if (region == null) return null;
+        try {
+            ByteBuffer payload = region.read(RegionFile.slotOf(chunkX, chunkY));
+            if (payload != null) chunksRead++;
+            return payload;
+        } catch (IOException e) {
+            System.err.println("RegionFileStore: Failed to read chunk (" + chunkX + "," + chunkY + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** A stamp newer than every stamp handed out before. */
+    public synchronized long nextStamp() {
+        return ++stampCounter;
+    }
+
+    /** Stores the chunk, replacing any earlier copy. Returns false (and logs) on I/O failure. */
+    public boolean write(ChunkData chunk) {
+        return write(chunk, nextStamp());
+    }
+
+    /**
+     * Stores the chunk as of {@code stamp}; reads keep returning any newer write.
+     * Returns false (and logs) only on I/O failure; a write older than the
+     * committed copy is ignored and counts as done.
+     */
+    public boolean write(ChunkData chunk, long stamp) {
+        byte[] payload = (baseline != null) ? ChunkCodec.encodeToArray(chunk, baseline) : ChunkCodec.encodeToArray(chunk);
+        return writeEncoded(chunk.chunkX, chunk.chunkY, payload, stamp);
+    }
+
+    /** Stores an already encoded {@link ChunkCodec} payload as is. Returns false (and logs) on I/O failure. */
+    public boolean writeEncoded(int chunkX, int chunkY, byte[] payload) {
+        return writeEncoded(chunkX, chunkY, payload, nextStamp());
+    }
+
+    /** {@link #writeEncoded(int, int, byte[])} with the stamp rules of {@link #write(ChunkData, long)}. */
+    public synchronized boolean writeEncoded(int chunkX, int chunkY, byte[] payload, long stamp) {
+        RegionFile region = region(chunkX, chunkY, true);
+        if (region == null) return false;
+        try {
+            if (region.write(RegionFile.slotOf(chunkX, chunkY), ByteBuffer.wrap(payload), stamp)) {
+                chunksWritten++;
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("RegionFileStore: Failed to write chunk (" + chunkX + "," + chunkY + "): " + e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized void remove(int chunkX, int chunkY) {
+        RegionFile region = region(chunkX, chunkY, false);
+        if (region != null) region.remove(RegionFile.slotOf(chunkX, chunkY), nextStamp());
+    }
+
+    /** Makes every write so far durable; for tools that save without a snapshot. */
+    public boolean commit() {
+        return commit(Long.MAX_VALUE);
+    }
+
+    /**
+     * Makes durable, region by region, the writes stamped at or before {@code stamp}
+     * (the stamp of the save's snapshot); later writes stay pending for the next save.
+     * Returns false (and logs) if any region failed; those keep their previous state.
+     */
+    public boolean commit(long stamp) {
+        synchronized (commitLock) {
+            List<RegionFile.Commit> commits = new ArrayList<>();
+            synchronized (this) {
+                generation++;
+                for (RegionFile region : openRegions) {
+                    RegionFile.Commit commit = region.prepareCommit(stamp, generation);
+                    if (commit != null) commits.add(commit);
+                }
+            }
+            boolean ok = true;
+            for (RegionFile.Commit commit : commits) {
+                try {
+                    commit.region.writeCommit(commit);
+                } catch (IOException e) {
+                    System.err.println("RegionFileStore: Failed to commit " + commit.region.getPath() + ": " + e.getMessage());
+                    ok = false;
+                    continue;
+                }
+                synchronized (this) {
+                    commit.region.finishCommit(commit);
+                }
+            }
+            return ok;
+        }
+    }
+
+    /** The save generation of the latest commit; the save file written for that commit records it. */
+    public synchronized long getGeneration() { return generation; }
+
+    /**
+     * Called once the save file recording {@code savedGeneration} is on disk: the
+     * regions may now overwrite the tables of older generations, and reclaim space.
+     */
+    public void onSaveWritten(long savedGeneration) {
+        synchronized (commitLock) {
+            List<RegionFile.Rewrite> compactions = new ArrayList<>();
+            synchronized (this) {
+                for (RegionFile region : openRegions) {
+                    if (region.getGeneration() > savedGeneration) continue;
+                    region.onSaveWritten();
+                    RegionFile.Rewrite compaction = region.prepareCompaction();
+                    if (compaction != null) compactions.add(compaction);
+                }
+            }
+            for (RegionFile.Rewrite compaction : compactions) {
+                if (!compaction.region.writeRewrite(compaction)) continue;
+                synchronized (this) {
+                    compaction.region.finishCompaction(compaction);
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings every region file in the directory back to the generation recorded in
+     * the save file being loaded, dropping tables committed for a save file that
+     * was never written. Call before reading chunks. 0 (a save that predates
+     * generations) keeps the newest table of each region.
+     */
+    public void recover(long savedGeneration) {
+        synchronized (commitLock) {
+            synchronized (this) {
+                recoverRegions(savedGeneration);
+            }
+        }
+    }
+
+    private void recoverRegions(long savedGeneration) {
+        closeRegions();
+        long newest = savedGeneration;
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + REGION_FILE_SUFFIX)) {
+                for (Path file : files) {
+                    try (RegionFile region = new RegionFile(file)) {
+                        if (savedGeneration > 0) region.discardNewerThan(savedGeneration);
+                        newest = Math.max(newest, region.getGeneration());
+                    } catch (IOException e) {
+                        System.err.println("RegionFileStore: Could not recover region file " + file + ": " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("RegionFileStore: Could not list region files in " + directory + ": " + e.getMessage());
+            }
+        }
+        generation = newest;
+    }
+
+    public synchronized boolean hasUncommittedChanges() {
+        for (RegionFile region : openRegions) {
+            if (region.hasUncommittedChanges()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes {@code target} the store's directory, copying every region file there.
+     * Used when a world is saved under a name for the first time (or a new one).
+     * Uncommitted writes move along and are committed by the next save as usual.
+     * A temporary source directory is deleted afterwards.
+     */
+    public void relocate(Path target) throws IOException {
+        synchronized (commitLock) {
+            synchronized (this) {
+                relocateRegions(target);
+            }
+        }
+    }
+
+    private void relocateRegions(Path target) throws IOException {
+        if (target.toAbsolutePath().normalize().equals(directory.toAbsolutePath().normalize())) return;
+        Files.createDirectories(target);
+        java.util.Set<Path> moved = new java.util.HashSet<>();
+        for (RegionFile region : openRegions) {
+            Path name = region.getPath().getFileName();
+            region.moveTo(target.resolve(name));
+            moved.add(name);
+        }
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + REGION_FILE_SUFFIX)) {
+                for (Path file : files) {
+                    if (moved.contains(file.getFileName())) continue;
+                    Files.copy(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+        if (temporary) deleteDirectory(directory);
+        directory = target;
+        temporary = false;
+        missingRegions.clear();
+    }
+
+    /** Closes every region file, dropping uncommitted writes; a temporary store also deletes its directory. */
+    public void close() {
+        synchronized (commitLock) {
+            synchronized (this) {
+                closeRegionsAndDirectory();
+            }
+        }
+    }
+
+    private void closeRegionsAndDirectory() {
+        closeRegions();
+        if (temporary) {
+            try {
+                deleteDirectory(directory);
+            } catch (IOException e) {
+                System.err.println("RegionFileStore: Could not delete temporary regions at " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeRegions() {
+        for (RegionFile region : openRegions) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                System.err.println("RegionFileStore: Failed to close " + region.getPath() + ": " + e.getMessage());
+            }
+        }
+        openRegions.clear();
+        missingRegions.clear();
+    }
+
+    private RegionFile region(int chunkX, int chunkY, boolean create) {
+        int regionX = RegionFile.regionCoordOf(chunkX);
+        int regionY = RegionFile.regionCoordOf(chunkY);
+        long key = ChunkIndex.key(regionX, regionY);
+        RegionFile region = openRegions.get(key);
+        if (region != null) return region;
+        if (!create && missingRegions.containsKey(key)) return null;
+
+        Path file = directory.resolve("r." + regionX + "." + regionY + REGION_FILE_SUFFIX);
+        if (!create && !Files.exists(file)) {
+            missingRegions.put(key, Boolean.TRUE);
+            return null;
+        }
+        try {
+            Files.createDirectories(directory);
+            region = new RegionFile(file);
+            openRegions.put(key, region);
+            missingRegions.remove(key);
+            return region;
+        } catch (IOException e) {
+            System.err.println("RegionFileStore: Could not open region file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Recursively deletes a region directory; missing directories are ignored. */
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    // --- Stats ---
+
+    public synchronized int getOpenRegionCount() { return openRegions.size(); }
+
+    public synchronized int getStoredChunkCount() {
+        int count = 0;
+        for (RegionFile region : openRegions) count += region.getChunkCount();
+        return count;
+    }
+
+    public synchronized long getStoredBytes() {
+        long bytes = 0;
+        for (RegionFile region : openRegions) bytes += region.getFileBytes();
+        return bytes;
+    }
+
+    public synchronized long getChunksWritten() { return chunksWritten; }
+    public synchronized long getChunksRead() { return chunksRead; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Regions[dir=%s, open=%d, chunks=%d, bytes=%d, written=%d, read=%d]",
+                directory, openRegions.size(), getStoredChunkCount(), getStoredBytes(), chunksWritten, chunksRead);
+    }
+}
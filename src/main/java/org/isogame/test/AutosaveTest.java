@@ -0,0 +1,184 @@
+package org.isogame.test;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.savegame.AutosaveManager;
+import org.isogame.savegame.BinarySaveCodec;
+import org.isogame.savegame.ChunkCodec;
+import org.isogame.savegame.GameSaveState;
+import org.isogame.savegame.MapSaveData;
+import org.isogame.savegame.PlayerSaveData;
+import org.isogame.savegame.RegionFileStore;
+import org.isogame.tile.Tile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exercises the background save path headlessly: copy-on-write chunk snapshots,
+ * the main-thread snapshot cost with many loaded chunks, a chunk unloaded while a
+ * save of an older snapshot is in flight, a failed save of an unloaded chunk, and a save interrupted halfway, which
+ * must leave the previous save readable. The interrupted save gets as far as
+ * committing its region writes, so loading must bring the regions back to the
+ * generation the previous .sav records.
+ */
+public class AutosaveTest {
+
+    private static final long WORLD_SEED = 4242L;
+    private static final int LOADED_RADIUS = 16; // 33x33 loaded chunks
+    private static final int DIRTY_CHUNKS = 64;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Autosave Test...");
+        Path dir = Files.createTempDirectory("autosave-test");
+        Path regionDir = dir.resolve("World.regions");
+        Path saveFile = dir.resolve("World" + BinarySaveCodec.FILE_EXTENSION);
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED, regionDir);
+        AutosaveManager autosave = new AutosaveManager();
+
+        // 1. A snapshot keeps its contents while the live chunk changes.
+        ChunkData live = map.getOrGenerateChunkTiles(0, 0);
+        byte[] before = ChunkCodec.encodeToArray(live);
+        ChunkData snapshot = live.snapshot();
+        edit(live, 1);
+        boolean snapshotFrozen = Arrays.equals(before, ChunkCodec.encodeToArray(snapshot))
+                && !Arrays.equals(before, ChunkCodec.encodeToArray(live));
+
+        // 2. Snapshot cost on the main thread with many loaded chunks.
+        for (int cy = -LOADED_RADIUS; cy <= LOADED_RADIUS; cy++) {
+            for (int cx = -LOADED_RADIUS; cx <= LOADED_RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+        long bestSnapshotNanos = Long.MAX_VALUE;
+        List<ChunkData> chunks = new ArrayList<>();
+        List<MapSaveData.EncodedChunk> encoded = new ArrayList<>();
+        for (int round = 0; round < 20; round++) {
+            for (int n = 0; n < DIRTY_CHUNKS; n++) {
+                int cx = (n * 7 + round) % (2 * LOADED_RADIUS + 1) - LOADED_RADIUS;
+                int cy = (n * 3) % (2 * LOADED_RADIUS + 1) - LOADED_RADIUS;
+                edit(map.getOrGenerateChunkTiles(cx, cy), n + round);
+                map.markChunkAsModified(cx, cy);
+            }
+            chunks.clear();
+            encoded.clear();
+            long start = System.nanoTime();
+            map.collectDirtyChunkSnapshots(chunks, encoded);
+            map.getRegionStore().nextStamp();
+            bestSnapshotNanos = Math.min(bestSnapshotNanos, System.nanoTime() - start);
+            map.onSaveFinished(round % 2 == 0); // odd rounds pretend the save failed
+        }
+        boolean failedSaveReflags = map.hasUnsavedChunks();
+
+        // 3. Save everything, then unload a chunk while an older snapshot of it is being saved.
+        boolean firstSaveOk = save(map, autosave, saveFile, 1.5);
+        ChunkData evicted = map.getOrGenerateChunkTiles(2, 2);
+        edit(evicted, 77);
+        map.markChunkAsModified(2, 2);
+        List<ChunkData> staleChunks = new ArrayList<>();
+        List<MapSaveData.EncodedChunk> staleEncoded = new ArrayList<>();
+        GameSaveState staleMeta = meta(2.5);
+        map.collectDirtyChunkSnapshots(staleChunks, staleEncoded);
+        long staleStamp = map.getRegionStore().nextStamp();
+        edit(evicted, 78);
+        map.markChunkAsModified(2, 2);
+        byte[] newest = ChunkCodec.encodeToArray(evicted);
+        map.unloadChunkData(2, 2);
+        autosave.submit(saveFile, staleMeta, map.getRegionStore(), staleChunks, staleEncoded, staleStamp);
+        autosave.awaitIdle();
+        AutosaveManager.Completion staleCompletion = autosave.pollCompletion();
+        map.onSaveFinished(staleCompletion != null && staleCompletion.success);
+        // The newest copy waits in the compressed tier; the next save puts it in the region files.
+        boolean unloadedStillUnsaved = map.hasUnsavedChunks() && map.getCompressedChunks().contains(2, 2);
+        boolean secondSaveOk = save(map, autosave, saveFile, 2.5);
+        boolean newestKept = unloadedStillUnsaved && secondSaveOk
+                && Arrays.equals(newest, ChunkCodec.encodeToArray(map.getRegionStore().read(2, 2)));
+
+        // A failed save of an unloaded chunk leaves it unsaved.
+        ChunkData failing = map.getOrGenerateChunkTiles(3, 2);
+        edit(failing, 5);
+        map.markChunkAsModified(3, 2);
+        map.unloadChunkData(3, 2);
+        List<ChunkData> failingChunks = new ArrayList<>();
+        List<MapSaveData.EncodedChunk> failingEncoded = new ArrayList<>();
+        map.collectDirtyChunkSnapshots(failingChunks, failingEncoded);
+        map.onSaveFinished(false);
+        boolean failedUnloadedReflagged = failingEncoded.size() == 1 && map.hasUnsavedChunks();
+        boolean reactivatedIntact = Arrays.equals(ChunkCodec.encodeToArray(failing), ChunkCodec.encodeToArray(map.getOrGenerateChunkTiles(3, 2)));
+        boolean thirdSaveOk = save(map, autosave, saveFile, 2.5);
+
+        // 4. A save that dies halfway: regions committed, garbage temp file instead of the new .sav,
+        //    and a later write never committed.
+        byte[] committed = ChunkCodec.encodeToArray(map.getRegionStore().read(2, 2));
+        ChunkData unsaved = map.getOrGenerateChunkTiles(2, 2);
+        edit(unsaved, 99);
+        map.getRegionStore().write(unsaved);
+        map.getRegionStore().commit();
+        ChunkData uncommitted = map.getOrGenerateChunkTiles(3, 2);
+        edit(uncommitted, 98);
+        map.getRegionStore().write(uncommitted);
+        Files.write(saveFile.resolveSibling(saveFile.getFileName() + ".tmp"), new byte[]{1, 2, 3});
+        map.shutdown();
+
+        GameSaveState previous = BinarySaveCodec.read(saveFile);
+        boolean saveIntact = previous.pseudoTimeOfDay == 2.5 && previous.mapData.worldSeed == WORLD_SEED;
+        RegionFileStore reopened = new RegionFileStore(regionDir, new ChunkGenerator(WORLD_SEED));
+        reopened.recover(previous.mapData.regionGeneration);
+        boolean regionsIntact = previous.mapData.regionGeneration > 0
+                && Arrays.equals(committed, ChunkCodec.encodeToArray(reopened.read(2, 2)))
+                && Arrays.equals(ChunkCodec.encodeToArray(failing), ChunkCodec.encodeToArray(reopened.read(3, 2)));
+        reopened.close();
+
+        autosave.shutdown();
+        RegionFileStore.deleteDirectory(dir.resolve("World.regions"));
+        RegionFileStore.deleteDirectory(dir);
+
+        System.out.println("Snapshot unaffected by later edits: " + (snapshotFrozen ? "YES" : "NO"));
+        System.out.printf("Snapshot of %d dirty chunks (%d loaded): %.1f us%n",
+                DIRTY_CHUNKS, (2 * LOADED_RADIUS + 1) * (2 * LOADED_RADIUS + 1), bestSnapshotNanos / 1e3);
+        System.out.println("Failed save re-flags chunks: " + (failedSaveReflags ? "YES" : "NO"));
+        System.out.println("Background save completed: " + (firstSaveOk ? "YES" : "NO"));
+        System.out.println("Chunk unloaded during save keeps newest data: " + (newestKept ? "YES" : "NO"));
+        System.out.println("Failed save keeps unloaded chunk unsaved: " + (failedUnloadedReflagged && reactivatedIntact && thirdSaveOk ? "YES" : "NO"));
+        System.out.println("Interrupted save leaves regions intact: " + (regionsIntact ? "YES" : "NO"));
+        System.out.println("Interrupted save leaves previous save readable: " + (saveIntact ? "YES" : "NO"));
+
+        boolean success = snapshotFrozen && bestSnapshotNanos < 1_000_000 && failedSaveReflags && firstSaveOk
+                && newestKept && failedUnloadedReflagged && reactivatedIntact && thirdSaveOk && regionsIntact && saveIntact;
+        System.out.println("\nAutosave Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    private static boolean save(org.isogame.map.Map map, AutosaveManager autosave, Path saveFile, double timeOfDay) {
+        List<ChunkData> chunks = new ArrayList<>();
+        List<MapSaveData.EncodedChunk> encoded = new ArrayList<>();
+        GameSaveState meta = meta(timeOfDay);
+        map.collectDirtyChunkSnapshots(chunks, encoded);
+        autosave.submit(saveFile, meta, map.getRegionStore(), chunks, encoded, map.getRegionStore().nextStamp());
+        autosave.awaitIdle();
+        AutosaveManager.Completion completion = autosave.pollCompletion();
+        boolean ok = completion != null && completion.success && completion.chunkCount == chunks.size() + encoded.size();
+        map.onSaveFinished(ok);
+        return ok && !map.hasUnsavedChunks();
+    }
+
+    private static GameSaveState meta(double timeOfDay) {
+        GameSaveState state = new GameSaveState();
+        state.pseudoTimeOfDay = timeOfDay;
+        state.mapData = new MapSaveData();
+        state.mapData.worldSeed = WORLD_SEED;
+        state.playerData = new PlayerSaveData();
+        state.playerData.inventory = new ArrayList<>();
+        return state;
+    }
+
+    private static void edit(ChunkData chunk, int salt) {
+        int i = Math.floorMod(salt * 37, ChunkData.TILE_COUNT);
+        chunk.setType(i, (chunk.getType(i) == Tile.TileType.DIRT) ? Tile.TileType.SAND : Tile.TileType.DIRT);
+        chunk.setElevation(i, Math.floorMod(salt, 30) + 1);
+        chunk.setTorch(i, !chunk.hasTorch(i));
+    }
+}
@@ -0,0 +1,80 @@
+package org.isogame.test;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerationService;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.map.ChunkIndex;
+import org.isogame.tile.Tile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Generates a region sequentially, then again in shuffled order on several worker
+ * threads, and checks that every chunk is bit-identical. Also regenerates a chunk
+ * from a fresh generator to check that an unloaded chunk comes back unchanged.
+ */
+public class ChunkDeterminismTest {
+
+    private static final long WORLD_SEED = 0x5EEDL;
+    private static final int REGION_RADIUS = 6; // 13x13 chunks
+    private static final int WORKERS = 4;
+
+    public static void main(String[] args) {
+        System.out.println("Starting Chunk Determinism Test...");
+
+        // 1. Sequential reference, row by row.
+        ChunkGenerator sequentialGenerator = new ChunkGenerator(WORLD_SEED);
+        ChunkIndex<ChunkData> reference = new ChunkIndex<>();
+        List<long[]> coords = new ArrayList<>();
+        for (int cy = -REGION_RADIUS; cy <= REGION_RADIUS; cy++) {
+            for (int cx = -REGION_RADIUS; cx <= REGION_RADIUS; cx++) {
+                reference.put(cx, cy, sequentialGenerator.generate(cx, cy));
+                coords.add(new long[]{cx, cy});
+            }
+        }
+
+        // 2. Shuffled order on a worker pool sharing one generator.
+        Collections.shuffle(coords, new Random(99));
+        ChunkGenerationService service = new ChunkGenerationService(new ChunkGenerator(WORLD_SEED), WORKERS);
+        List<CompletableFuture<ChunkData>> futures = new ArrayList<>();
+        for (long[] c : coords) {
+            futures.add(service.request((int) c[0], (int) c[1]));
+        }
+        int mismatches = 0;
+        for (CompletableFuture<ChunkData> future : futures) {
+            ChunkData parallel = future.join();
+            if (!parallel.contentEquals(reference.get(parallel.chunkX, parallel.chunkY))) {
+                System.out.println("Mismatch in parallel chunk " + parallel);
+                mismatches++;
+            }
+        }
+        service.shutdown();
+
+        // 3. Regenerating a single chunk out of context gives the same data.
+        ChunkData regenerated = new ChunkGenerator(WORLD_SEED).generate(3, -2);
+        boolean regenerationMatches = regenerated.contentEquals(reference.get(3, -2));
+
+        // 4. Sanity: decoration is actually present and differs between seeds.
+        int trees = 0;
+        for (ChunkData chunk : reference) {
+            for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+                if (chunk.getTreeType(i) != Tile.TreeVisualType.NONE) trees++;
+            }
+        }
+        boolean seedMatters = !new ChunkGenerator(WORLD_SEED + 1).generate(0, 0).contentEquals(reference.get(0, 0));
+
+        System.out.println("Chunks compared: " + futures.size() + " on " + WORKERS + " worker threads");
+        System.out.println("Parallel mismatches: " + mismatches);
+        System.out.println("Regenerated chunk matches: " + (regenerationMatches ? "YES" : "NO"));
+        System.out.println("Trees in region: " + trees);
+        System.out.println("Different seed changes output: " + (seedMatters ? "YES" : "NO"));
+
+        boolean success = mismatches == 0 && regenerationMatches && trees > 0 && seedMatters;
+        System.out.println("\nChunk Determinism Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+}
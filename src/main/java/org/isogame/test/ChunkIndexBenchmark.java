@@ -0,0 +1,154 @@
+package org.isogame.test;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkIndex;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Compares chunk lookups through the old HashMap&lt;ChunkCoordinate, ...&gt; path
+ * (new key object, 31*x+y hash, containsKey + get) against {@link ChunkIndex}.
+ * Also cross-checks ChunkIndex against a HashMap under random puts and removes.
+ *
+ * Usage: ChunkIndexBenchmark [lookupsPerRun]
+ */
+public class ChunkIndexBenchmark {
+
+    private static final int RENDER_DISTANCE = 10; // chunks in each direction, as in World
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    /** The coordinate key as it was before ChunkIndex, including its weak hash. */
+    private static final class LegacyCoord {
+        final int chunkX, chunkY;
+        LegacyCoord(int chunkX, int chunkY) { this.chunkX = chunkX; this.chunkY = chunkY; }
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LegacyCoord)) return false;
+            LegacyCoord cc = (LegacyCoord) o;
+            return chunkX == cc.chunkX && chunkY == cc.chunkY;
+        }
+        @Override public int hashCode() { return 31 * chunkX + chunkY; }
+    }
+
+    public static void main(String[] args) {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+
+        System.out.println("Starting ChunkIndex Benchmark...");
+        boolean correct = crossCheck();
+        System.out.println("Cross-check against HashMap: " + (correct ? "PASSED" : "FAILED"));
+
+        HashMap<LegacyCoord, Object> legacy = new HashMap<>();
+        ChunkIndex<Object> index = new ChunkIndex<>();
+        for (int cy = -RENDER_DISTANCE; cy <= RENDER_DISTANCE; cy++) {
+            for (int cx = -RENDER_DISTANCE; cx <= RENDER_DISTANCE; cx++) {
+                Object chunk = new ChunkData(cx, cy);
+                legacy.put(new LegacyCoord(cx, cy), chunk);
+                index.put(cx, cy, chunk);
+            }
+        }
+        System.out.println("Loaded chunks: " + index.size());
+
+        int span = (2 * RENDER_DISTANCE + 1) * 16;
+        int[][] patterns = { floodPattern(lookups, span), scatteredPattern(lookups, span) };
+        String[] names = { "flood-fill walk (lighting/A*)", "scattered tiles (picking/worst case)" };
+
+        for (int p = 0; p < patterns.length; p++) {
+            int[] tiles = patterns[p];
+            double legacyRate = 0, indexRate = 0;
+            long legacySum = 0, indexSum = 0;
+            for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+                long t0 = System.nanoTime();
+                legacySum = runLegacy(legacy, tiles);
+                long t1 = System.nanoTime();
+                indexSum = runIndex(index, tiles);
+                long t2 = System.nanoTime();
+                if (run >= WARMUP_RUNS) {
+                    legacyRate = Math.max(legacyRate, (tiles.length / 2) / ((t1 - t0) / 1e9));
+                    indexRate = Math.max(indexRate, (tiles.length / 2) / ((t2 - t1) / 1e9));
+                }
+            }
+            correct &= legacySum == indexSum;
+            System.out.printf("%-38s HashMap: %8.1f M lookups/s   ChunkIndex: %8.1f M lookups/s   (x%.2f)%n",
+                    names[p], legacyRate / 1e6, indexRate / 1e6, indexRate / legacyRate);
+        }
+
+        System.out.println("\nChunkIndex Benchmark completed.");
+        System.out.println("TEST RESULT: " + (correct ? "SUCCESS" : "FAILURE"));
+    }
+
+    private static long runLegacy(HashMap<LegacyCoord, Object> map, int[] tiles) {
+        long sum = 0;
+        for (int i = 0; i < tiles.length; i += 2) {
+            LegacyCoord coord = new LegacyCoord(Math.floorDiv(tiles[i + 1], 16), Math.floorDiv(tiles[i], 16));
+            if (map.containsKey(coord)) {
+                sum += ((ChunkData) map.get(coord)).chunkX;
+            }
+        }
+        return sum;
+    }
+
+    private static long runIndex(ChunkIndex<Object> index, int[] tiles) {
+        long sum = 0;
+        for (int i = 0; i < tiles.length; i += 2) {
+            Object chunk = index.get(ChunkData.chunkCoordOf(tiles[i + 1]), ChunkData.chunkCoordOf(tiles[i]));
+            if (chunk != null) {
+                sum += ((ChunkData) chunk).chunkX;
+            }
+        }
+        return sum;
+    }
+
+    /** Random 4-neighbour walk, like the tile order a light flood or A* search visits. */
+    private static int[] floodPattern(int count, int span) {
+        Random random = new Random(42);
+        int[] tiles = new int[count * 2];
+        int half = span / 2, r = 0, c = 0;
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(4)) {
+                case 0: r++; break;
+                case 1: r--; break;
+                case 2: c++; break;
+                default: c--; break;
+            }
+            r = Math.max(-half, Math.min(half - 1, r));
+            c = Math.max(-half, Math.min(half - 1, c));
+            tiles[2 * i] = r;
+            tiles[2 * i + 1] = c;
+        }
+        return tiles;
+    }
+
+    private static int[] scatteredPattern(int count, int span) {
+        Random random = new Random(7);
+        int[] tiles = new int[count * 2];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = random.nextInt(span) - span / 2;
+        }
+        return tiles;
+    }
+
+    private static boolean crossCheck() {
+        Random random = new Random(1234);
+        HashMap<Long, Integer> expected = new HashMap<>();
+        ChunkIndex<Integer> actual = new ChunkIndex<>();
+        for (int op = 0; op < 200_000; op++) {
+            int cx = random.nextInt(64) - 32;
+            int cy = random.nextInt(64) - 32;
+            long key = ChunkIndex.key(cx, cy);
+            if (random.nextInt(3) == 0) {
+                if (!java.util.Objects.equals(expected.remove(key), actual.remove(cx, cy))) return false;
+            } else {
+                if (!java.util.Objects.equals(expected.put(key, op), actual.put(cx, cy, op))) return false;
+            }
+            if (!java.util.Objects.equals(expected.get(key), actual.get(cx, cy))) return false;
+        }
+        if (expected.size() != actual.size()) return false;
+        for (java.util.Map.Entry<Long, Integer> e : expected.entrySet()) {
+            long key = e.getKey();
+            if (!e.getValue().equals(actual.get(ChunkIndex.keyX(key), ChunkIndex.keyY(key)))) return false;
+        }
+        return ChunkIndex.keyX(ChunkIndex.key(-5, 7)) == -5 && ChunkIndex.keyY(ChunkIndex.key(-5, 7)) == 7;
+    }
+}
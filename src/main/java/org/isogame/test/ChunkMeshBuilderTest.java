@@ -0,0 +1,182 @@
+package org.isogame.test;
+
+import org.isogame.gamedata.TileDefinition;
+import org.isogame.gamedata.TileRegistry;
+import org.isogame.map.ChunkData;
+import org.isogame.render.ChunkMeshBuilder;
+import org.isogame.render.ChunkMeshSnapshot;
+import org.isogame.render.ChunkMeshWorkers;
+import org.isogame.render.MeshData;
+import org.isogame.tile.Tile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds chunk meshes without a GL context and checks that: each tile adds the
+ * vertices its type, elevation and neighbours call for, trees and rocks match the chunk,
+ * editing a chunk after it was captured doesn't change the mesh built from the
+ * capture, and meshes built on the worker threads equal ones built inline.
+ */
+public class ChunkMeshBuilderTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 2;
+    private static final int ATLAS_SIZE = 1024;
+    private static final int WORKER_THREADS = 2;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Chunk Mesh Builder Test...");
+        TileRegistry.loadTileDefinitions();
+
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        ChunkMeshBuilder builder = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE);
+        // Counts are checked tile by tile, so with a top quad per tile (TopFaceMergingTest covers merging).
+        ChunkMeshBuilder perTileTops = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE, false);
+        List<ChunkMeshSnapshot> snapshots = new ArrayList<>();
+        List<MeshData> inline = new ArrayList<>();
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkMeshSnapshot snapshot = capture(map, cx, cy);
+                snapshots.add(snapshot);
+                inline.add(builder.build(snapshot));
+            }
+        }
+
+        // 1. Vertex, tree and rock counts per chunk.
+        int countMismatches = 0;
+        int decorationMismatches = 0;
+        long totalVertices = 0;
+        for (int k = 0; k < inline.size(); k++) {
+            MeshData mesh = inline.get(k);
+            ChunkData chunk = map.getLoadedChunk(mesh.chunkX, mesh.chunkY);
+            if (perTileTops.build(snapshots.get(k)).vertexCount != expectedVertices(map, chunk)) countMismatches++;
+            if (mesh.trees.size() != countTrees(chunk) || mesh.looseRocks.size() != countRocks(chunk)) decorationMismatches++;
+            totalVertices += mesh.vertexCount;
+        }
+
+        // 2. Edits after the capture don't reach a mesh built from it.
+        ChunkData edited = map.getLoadedChunk(0, 0);
+        ChunkMeshSnapshot beforeEdit = capture(map, 0, 0);
+        MeshData expected = builder.build(beforeEdit);
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            if (edited.getType(i) != Tile.TileType.WATER) edited.setElevation(i, edited.getElevation(i) + 3);
+        }
+        MeshData afterEdit = builder.build(beforeEdit);
+        boolean isolated = sameMesh(expected, afterEdit);
+        boolean editVisible = !sameMesh(expected, builder.build(capture(map, 0, 0)));
+
+        // 3. Worker builds equal inline builds.
+        ChunkMeshWorkers workers = new ChunkMeshWorkers(builder, WORKER_THREADS);
+        MeshData[] fromWorkers = new MeshData[snapshots.size()];
+        int submitted = 0;
+        int received = 0;
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (received < snapshots.size() && System.currentTimeMillis() < deadline) {
+            while (submitted < snapshots.size() && workers.hasCapacity()) {
+                workers.submit(snapshots.get(submitted++));
+            }
+            MeshData mesh;
+            while ((mesh = workers.poll()) != null) {
+                fromWorkers[(mesh.chunkY + RADIUS) * (2 * RADIUS + 1) + (mesh.chunkX + RADIUS)] = mesh;
+                received++;
+            }
+            Thread.sleep(1);
+        }
+        workers.shutdown();
+        int workerMismatches = 0;
+        for (int k = 0; k < inline.size(); k++) {
+            if (fromWorkers[k] == null || !sameMesh(inline.get(k), fromWorkers[k])) workerMismatches++;
+        }
+        map.shutdown();
+
+        System.out.println("Chunks meshed: " + inline.size() + ", vertices: " + totalVertices);
+        System.out.println("Vertex count mismatches: " + countMismatches + ", tree/rock mismatches: " + decorationMismatches);
+        System.out.println("Mesh unchanged by later edits: " + (isolated ? "YES" : "NO") + ", edit visible on recapture: " + (editVisible ? "YES" : "NO"));
+        System.out.println("Worker meshes received: " + received + "/" + snapshots.size() + ", mismatches: " + workerMismatches
+                + " (" + workers.getMeshesBuilt() + " built in " + workers.getBuildNanos() / 1_000_000 + " ms)");
+
+        boolean success = totalVertices > 0 && countMismatches == 0 && decorationMismatches == 0
+                && isolated && editVisible
+                && received == snapshots.size() && workerMismatches == 0;
+        System.out.println("\nChunk Mesh Builder Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    private static ChunkMeshSnapshot capture(org.isogame.map.Map map, int cx, int cy) {
+        return ChunkMeshSnapshot.capture(map.getLoadedChunk(cx, cy), map.getLoadedChunk(cx, cy + 1),
+                map.getLoadedChunk(cx + 1, cy), map.getLightManager());
+    }
+
+    /**
+     * Four vertices (a quad) for the top diamond, and unless water: for each
+     * pedestal face not hidden by the column in front of it, and each side face
+     * whose column rises above that column.
+     */
+    private static int expectedVertices(org.isogame.map.Map map, ChunkData chunk) {
+        int vertices = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            Tile.TileType type = chunk.getType(i);
+            if (type == Tile.TileType.AIR) continue;
+            vertices += 4;
+            if (type == Tile.TileType.WATER) continue;
+            int r = chunk.globalRow(i);
+            int c = chunk.globalCol(i);
+            int[] covers = { cover(map, r + 1, c), cover(map, r, c + 1) };
+            for (int cover : covers) {
+                if (cover < 0 && hasSideTexture("dirt")) vertices += 4;
+                if (chunk.getElevation(i) > Math.max(0, cover) && hasSideTexture(type.id)) vertices += 4;
+            }
+        }
+        return vertices;
+    }
+
+    /** Height up to which the column at (r, c) hides the sides behind it; -1 for water, air or unloaded. */
+    private static int cover(org.isogame.map.Map map, int r, int c) {
+        ChunkData chunk = map.getLoadedChunk(ChunkData.chunkCoordOf(c), ChunkData.chunkCoordOf(r));
+        if (chunk == null) return -1;
+        int i = ChunkData.indexOfGlobal(r, c);
+        Tile.TileType type = chunk.getType(i);
+        if (type == Tile.TileType.WATER || type == Tile.TileType.AIR) return -1;
+        return chunk.getElevation(i);
+    }
+
+    private static boolean hasSideTexture(String id) {
+        TileDefinition def = TileRegistry.getTileDefinition(id);
+        return def != null && def.texture != null && def.texture.side != null;
+    }
+
+    private static int countTrees(ChunkData chunk) {
+        int trees = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            if (hasDecoration(chunk, i) && chunk.getTreeType(i) != Tile.TreeVisualType.NONE) trees++;
+        }
+        return trees;
+    }
+
+    private static int countRocks(ChunkData chunk) {
+        int rocks = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            if (hasDecoration(chunk, i) && chunk.getLooseRockType(i) != Tile.LooseRockType.NONE) rocks++;
+        }
+        return rocks;
+    }
+
+    private static boolean hasDecoration(ChunkData chunk, int i) {
+        Tile.TileType type = chunk.getType(i);
+        return type != Tile.TileType.WATER && type != Tile.TileType.AIR;
+    }
+
+    private static boolean sameMesh(MeshData a, MeshData b) {
+        return a.vertexCount == b.vertexCount
+                && Arrays.equals(Arrays.copyOf(a.vertices, a.getByteCount()), Arrays.copyOf(b.vertices, b.getByteCount()))
+                && a.trees.size() == b.trees.size() && a.looseRocks.size() == b.looseRocks.size();
+    }
+}
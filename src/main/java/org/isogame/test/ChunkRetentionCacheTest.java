@@ -0,0 +1,93 @@
+package org.isogame.test;
+
+import org.isogame.map.LightManager;
+import org.isogame.world.ChunkRetentionCache;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks the retention cache's eviction order, byte budget and staleness flags,
+ * then walks a simulated player back and forth across a chunk line the way
+ * World does (load radius, unload radius one further out, parked chunks
+ * reclaimed before anything is generated) and counts the chunks that would have
+ * to be generated on each pass.
+ */
+public class ChunkRetentionCacheTest {
+
+    private static final long CHUNK_BYTES = 1000;
+    private static final int LOAD_RADIUS = 4;
+    private static final int UNLOAD_RADIUS = LOAD_RADIUS + 1;
+
+    public static void main(String[] args) {
+        System.out.println("Starting Chunk Retention Cache Test...");
+
+        // 1. Oldest parked chunk goes first; reclaimed chunks free their bytes.
+        ChunkRetentionCache cache = new ChunkRetentionCache(3 * CHUNK_BYTES);
+        cache.retain(coord(0, 0), CHUNK_BYTES);
+        cache.retain(coord(1, 0), CHUNK_BYTES);
+        cache.retain(coord(2, 0), CHUNK_BYTES);
+        boolean reclaimed = cache.reclaim(coord(0, 0)) != null && cache.reclaim(coord(0, 0)) == null;
+        cache.retain(coord(3, 0), CHUNK_BYTES);
+        List<LightManager.ChunkCoordinate> evicted = cache.retain(coord(4, 0), CHUNK_BYTES);
+        boolean lruOrder = reclaimed && evicted.size() == 1 && evicted.get(0).equals(coord(1, 0))
+                && cache.contains(coord(2, 0)) && cache.getRetainedBytes() == 3 * CHUNK_BYTES;
+
+        // 2. Staleness travels with the entry.
+        cache.markMeshStale(coord(3, 0));
+        cache.markMeshStale(coord(9, 9)); // not parked: ignored
+        ChunkRetentionCache.Entry stale = cache.reclaim(coord(3, 0));
+        ChunkRetentionCache.Entry fresh = cache.reclaim(coord(4, 0));
+        boolean flags = stale.isMeshStale() && !fresh.isMeshStale();
+
+        // 3. Walk across the chunk line between x = 0 and x = 1 several times.
+        ChunkRetentionCache walkCache = new ChunkRetentionCache(64 * CHUNK_BYTES);
+        Set<LightManager.ChunkCoordinate> active = new HashSet<>();
+        int firstPass = step(active, walkCache, 0, 0);
+        int generatedLater = 0;
+        for (int pass = 0; pass < 10; pass++) {
+            generatedLater += step(active, walkCache, 1, 0);
+            generatedLater += step(active, walkCache, 2, 0);
+            generatedLater += step(active, walkCache, 1, 0);
+            generatedLater += step(active, walkCache, 0, 0);
+        }
+        // Without hysteresis or retention, every crossing to x = 2 and back generates a full column.
+        int naivePerCrossing = 2 * LOAD_RADIUS + 1;
+
+        System.out.println("Cache: " + walkCache);
+        System.out.println("LRU eviction order: " + (lruOrder ? "YES" : "NO"));
+        System.out.println("Stale mesh flag kept: " + (flags ? "YES" : "NO"));
+        System.out.println("Chunks generated on first visit: " + firstPass);
+        System.out.println("Chunks generated over 10 back-and-forth passes: " + generatedLater
+                + " (without retention: " + (10 * 4 * naivePerCrossing) + ")");
+
+        boolean success = lruOrder && flags && firstPass == naivePerCrossing * naivePerCrossing
+                && generatedLater == 2 * naivePerCrossing && walkCache.getChunksEvicted() == 0;
+        System.out.println("\nChunk Retention Cache Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** One update with the player in the given chunk; returns the number of chunks generated. */
+    private static int step(Set<LightManager.ChunkCoordinate> active, ChunkRetentionCache cache, int playerX, int playerY) {
+        active.removeIf(c -> {
+            if (Math.max(Math.abs(c.chunkX - playerX), Math.abs(c.chunkY - playerY)) > UNLOAD_RADIUS) {
+                cache.retain(c, CHUNK_BYTES);
+                return true;
+            }
+            return false;
+        });
+        int generated = 0;
+        for (int dy = -LOAD_RADIUS; dy <= LOAD_RADIUS; dy++) {
+            for (int dx = -LOAD_RADIUS; dx <= LOAD_RADIUS; dx++) {
+                LightManager.ChunkCoordinate c = coord(playerX + dx, playerY + dy);
+                if (active.add(c) && cache.reclaim(c) == null) generated++;
+            }
+        }
+        return generated;
+    }
+
+    private static LightManager.ChunkCoordinate coord(int x, int y) {
+        return new LightManager.ChunkCoordinate(x, y);
+    }
+}
@@ -0,0 +1,118 @@
+package org.isogame.test;
+
+import org.isogame.gamedata.TileRegistry;
+import org.isogame.render.ChunkMeshBuilder;
+import org.isogame.render.ChunkMeshSnapshot;
+import org.isogame.render.ChunkUploadStaging;
+import org.isogame.render.MeshData;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the staging side of chunk uploads without a GL context: stages the
+ * meshes of an area many times over, as rebuilds would, and checks that the
+ * staging buffers are reused rather than allocated per upload, that every
+ * buffer fits its mesh, that a buffer grown for an outlier mesh is let go once
+ * meshes are back to normal, and that the per-second rates add up.
+ */
+public class ChunkUploadStagingTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 2;
+    private static final int ATLAS_SIZE = 1024;
+    private static final int REBUILD_ROUNDS = 40;
+    private static final int MAX_BUFFERS_ALLOCATED = 3;
+    private static final long SECOND = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Chunk Upload Staging Test...");
+        TileRegistry.loadTileDefinitions();
+
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        ChunkMeshBuilder builder = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE);
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+        List<MeshData> meshes = new ArrayList<>();
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                meshes.add(builder.build(ChunkMeshSnapshot.capture(map.getLoadedChunk(cx, cy), map.getLoadedChunk(cx, cy + 1),
+                        map.getLoadedChunk(cx + 1, cy), map.getLightManager())));
+            }
+        }
+        map.shutdown();
+
+        // 1. Many rounds of rebuilds, one simulated second each.
+        ChunkUploadStaging staging = new ChunkUploadStaging();
+        long now = 0;
+        staging.tick(now);
+        int undersized = 0;
+        long perUploadAllocation = 0;
+        long roundBytes = 0;
+        for (int round = 0; round < REBUILD_ROUNDS; round++) {
+            roundBytes = 0;
+            for (MeshData mesh : meshes) {
+                if (!stage(staging, mesh.vertices, mesh.getByteCount())) undersized++;
+                perUploadAllocation += mesh.getByteCount();
+                roundBytes += mesh.getByteCount();
+            }
+            now += SECOND;
+            staging.tick(now);
+        }
+        long buffersAfterRounds = staging.getBuffersAllocated();
+        boolean rateOk = Math.abs(staging.getUploadedBytesPerSecond() - roundBytes) < 1.0;
+        // Steady state: nothing allocated over the last second.
+        boolean steadyOk = staging.getAllocatedBytesPerSecond() == 0;
+
+        // 2. An outlier mesh needs a bigger buffer; once meshes are normal again it is freed.
+        int outlierBytes = 8 * largest(meshes);
+        ByteBuffer outlier = staging.acquire(outlierBytes);
+        boolean outlierFits = outlier.capacity() >= outlierBytes;
+        staging.release(outlier);
+        now += SECOND;
+        staging.tick(now);
+        for (int round = 0; round < 2; round++) {
+            for (MeshData mesh : meshes) stage(staging, mesh.vertices, mesh.getByteCount());
+            now += SECOND;
+            staging.tick(now);
+        }
+        ByteBuffer usual = staging.acquire(largest(meshes));
+        boolean shrunkBack = usual.capacity() < outlierBytes;
+        staging.release(usual);
+        staging.cleanup();
+
+        System.out.println("Uploads staged: " + staging.getUploads() + ", " + staging.getBytesUploaded() + " bytes");
+        System.out.println("Staging buffers allocated: " + buffersAfterRounds + " (" + staging.getBytesAllocated()
+                + " bytes in all) vs " + perUploadAllocation + " bytes allocating per upload");
+        System.out.println("Buffers smaller than their mesh: " + undersized + ", last rate: "
+                + String.format("%.0f", staging.getUploadedBytesPerSecond()) + " B/s uploaded");
+        System.out.println("Outlier fits: " + (outlierFits ? "YES" : "NO") + ", back to usual size after: " + (shrunkBack ? "YES" : "NO"));
+        System.out.println(staging);
+
+        boolean success = buffersAfterRounds <= MAX_BUFFERS_ALLOCATED && undersized == 0 && rateOk && steadyOk
+                && outlierFits && shrunkBack && staging.getPooledBuffers() == 0;
+        System.out.println("\nChunk Upload Staging Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** What TerrainBufferArena.write does around the GL calls. False if the buffer was too small. */
+    private static boolean stage(ChunkUploadStaging staging, byte[] vertices, int bytes) {
+        ByteBuffer buffer = staging.acquire(bytes);
+        boolean fits = buffer.remaining() >= bytes;
+        if (fits) buffer.put(vertices, 0, bytes).flip();
+        staging.recordUpload(bytes, 0);
+        staging.release(buffer);
+        return fits;
+    }
+
+    private static int largest(List<MeshData> meshes) {
+        int largest = 0;
+        for (MeshData mesh : meshes) largest = Math.max(largest, mesh.getByteCount());
+        return largest;
+    }
+}
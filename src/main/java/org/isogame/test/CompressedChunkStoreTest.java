@@ -0,0 +1,128 @@
+package org.isogame.test;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.map.CompressedChunkStore;
+import org.isogame.savegame.ChunkCodec;
+import org.isogame.savegame.RegionFileStore;
+import org.isogame.tile.Tile;
+
+/**
+ * Fills the compressed chunk tier with edited generated chunks and checks that
+ * they come back identical, that decoding fits comfortably inside a frame, and
+ * that going over the byte budget moves the oldest chunks into the region files
+ * without losing any. Prints the compression statistics.
+ */
+public class CompressedChunkStoreTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 12; // 25x25 chunks
+    private static final long BUDGET_BYTES = 16 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Compressed Chunk Store Test...");
+        ChunkGenerator generator = new ChunkGenerator(WORLD_SEED);
+        RegionFileStore regions = RegionFileStore.temporary(generator);
+
+        // Warm up the codec so the decode times below are steady-state ones.
+        CompressedChunkStore warmup = new CompressedChunkStore(regions, generator, Long.MAX_VALUE);
+        boolean[] unsaved = new boolean[1];
+        for (int round = 0; round < 200; round++) {
+            warmup.put(edited(generator, round, 0));
+            warmup.take(round, 0, unsaved);
+        }
+
+        // 1. Round trip with a budget large enough to keep everything.
+        CompressedChunkStore roomy = new CompressedChunkStore(regions, generator, Long.MAX_VALUE);
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                roomy.put(edited(generator, cx, cy));
+            }
+        }
+        double ratio = roomy.getCompressionRatio();
+        long bytesPerChunk = roomy.getStoredBytes() / roomy.getChunkCount();
+        System.out.println("Stored: " + roomy);
+        int mismatches = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData back = roomy.take(cx, cy, unsaved);
+                if (!edited(generator, cx, cy).contentEquals(back) || !unsaved[0]) mismatches++;
+            }
+        }
+        System.out.println("Decoded: " + roomy);
+
+        // 2. A uniform chunk collapses to almost nothing.
+        ChunkData flat = new ChunkData(100, 100);
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            flat.setType(i, Tile.TileType.GRASS);
+            flat.setElevation(i, 12);
+            flat.setSkyLight(i, (byte) 15);
+        }
+        CompressedChunkStore uniform = new CompressedChunkStore(regions, generator, Long.MAX_VALUE);
+        uniform.put(flat);
+        System.out.println("Uniform chunk: " + uniform);
+
+        // 3. Diffs: one torch costs a few bytes, light is not stored, undone edits cost nothing.
+        ChunkData torch = generator.generate(5, 5);
+        torch.setTorch(40, true);
+        int torchBytes = ChunkCodec.encodeToArray(torch, generator).length;
+        ChunkData lit = edited(generator, 6, 5);
+        lit.setBlockLight(3, (byte) 14);
+        ChunkData litBack = ChunkCodec.decode(6, 5, ChunkCodec.encodeToArray(lit, generator), generator);
+        boolean lightDropped = litBack.getBlockLight(3) == 0 && edited(generator, 6, 5).contentEquals(litBack);
+        ChunkData reverted = edited(generator, 7, 5);
+        int i = Math.floorMod(7 * 31 + 5 * 17, ChunkData.TILE_COUNT);
+        ChunkData original = generator.generate(7, 5);
+        reverted.setType(i, original.getType(i));
+        reverted.setTorch(i, false);
+        int revertedBytes = ChunkCodec.encodeToArray(reverted, generator).length;
+        regions.write(edited(generator, 7, 5));
+        boolean storedBeforeRevert = regions.contains(7, 5);
+        regions.write(reverted);
+        boolean revertedDropped = storedBeforeRevert && !regions.contains(7, 5) && regions.read(7, 5) == null;
+
+        // 4. A small budget spills the oldest chunks to the region files.
+        CompressedChunkStore tight = new CompressedChunkStore(regions, generator, BUDGET_BYTES);
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                tight.put(edited(generator, cx, cy));
+            }
+        }
+        int lost = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData back = tight.contains(cx, cy) ? tight.take(cx, cy, unsaved) : regions.read(cx, cy);
+                if (!edited(generator, cx, cy).contentEquals(back)) lost++;
+            }
+        }
+        boolean spilled = tight.getChunksSpilled() > 0;
+        System.out.println("Budgeted: " + tight);
+        regions.close();
+
+        System.out.println("Round-trip mismatches: " + mismatches);
+        System.out.printf("Bytes per inactive chunk: %d (expanded: %d, ratio %.1fx)%n",
+                bytesPerChunk, CompressedChunkStore.EXPANDED_CHUNK_BYTES, ratio);
+        System.out.printf("Uniform chunk ratio: %.1fx%n", uniform.getCompressionRatio());
+        System.out.printf("Decode time: avg %.1f us, max %.1f us%n", roomy.getAverageDecodeMicros(), roomy.getMaxDecodeMicros());
+        System.out.println("Chunk with one torch: " + torchBytes + " bytes");
+        System.out.println("Light left out of diffs: " + (lightDropped ? "YES" : "NO"));
+        System.out.println("Reverted chunk: " + revertedBytes + " bytes, region slot freed: " + (revertedDropped ? "YES" : "NO"));
+        System.out.println("Over budget spills to regions: " + (spilled ? "YES" : "NO") + ", chunks lost: " + lost);
+
+        boolean success = mismatches == 0 && ratio > 2.0 && uniform.getCompressionRatio() > 10.0
+                && roomy.getAverageDecodeMicros() < 1000 && spilled && lost == 0
+                && tight.getStoredBytes() <= BUDGET_BYTES
+                && torchBytes <= 8 && lightDropped && revertedBytes == 0 && revertedDropped;
+        System.out.println("\nCompressed Chunk Store Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** A generated chunk with a few player-style edits. */
+    private static ChunkData edited(ChunkGenerator generator, int cx, int cy) {
+        ChunkData chunk = generator.generate(cx, cy);
+        int i = Math.floorMod(cx * 31 + cy * 17, ChunkData.TILE_COUNT);
+        chunk.setType(i, Tile.TileType.DIRT);
+        chunk.setTorch(i, true);
+        return chunk;
+    }
+}
@@ -0,0 +1,149 @@
+package org.isogame.test;
+
+import org.isogame.gamedata.TileRegistry;
+import org.isogame.map.ChunkData;
+import org.isogame.render.ChunkMeshBuilder;
+import org.isogame.render.ChunkMeshSnapshot;
+import org.isogame.render.MeshData;
+import org.isogame.render.Renderer;
+import org.isogame.render.TerrainVertexFormat;
+import org.isogame.tile.Tile;
+
+/**
+ * Meshes an area of one seed and compares the vertex count with what the old
+ * mesher emitted for it (pedestal, top, and two side quads per elevation unit
+ * on every land tile). Hilly chunks should shrink by about an order of
+ * magnitude, and the merged side quads must still cover every elevation unit
+ * that isn't hidden by the column in front of it.
+ */
+public class HiddenFaceCullingTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 3;
+    private static final int ATLAS_SIZE = 1024;
+    private static final int FLOATS = Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
+    // A chunk counts as hilly when its land averages at least this many elevation units.
+    private static final double HILLY_MEAN_ELEVATION = 10.0;
+    private static final double MIN_HILLY_REDUCTION = 8.0;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Hidden Face Culling Test...");
+        TileRegistry.loadTileDefinitions();
+
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        ChunkMeshBuilder builder = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE);
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+
+        long before = 0, after = 0, hillyBefore = 0, hillyAfter = 0;
+        int hillyChunks = 0;
+        int coverageMismatches = 0;
+        int badRepeats = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData chunk = map.getLoadedChunk(cx, cy);
+                MeshData mesh = builder.build(ChunkMeshSnapshot.capture(chunk, map.getLoadedChunk(cx, cy + 1),
+                        map.getLoadedChunk(cx + 1, cy), map.getLightManager()));
+                float[] triangles = TerrainVertexFormat.unpack(mesh, builder.getMaterials(), null);
+                long oldCount = unculledVertices(chunk);
+                before += oldCount;
+                after += mesh.vertexCount;
+                if (meanLandElevation(chunk) >= HILLY_MEAN_ELEVATION) {
+                    hillyChunks++;
+                    hillyBefore += oldCount;
+                    hillyAfter += mesh.vertexCount;
+                }
+                if (drawnSideUnits(triangles) != exposedSideUnits(map, chunk)) coverageMismatches++;
+                badRepeats += badRepeatVertices(triangles);
+            }
+        }
+        map.shutdown();
+
+        double reduction = (double) before / Math.max(1, after);
+        double hillyReduction = (double) hillyBefore / Math.max(1, hillyAfter);
+        System.out.println("All chunks: " + before + " -> " + after + " vertices (" + String.format("%.1f", reduction) + "x fewer)");
+        System.out.println("Hilly chunks (" + hillyChunks + "): " + hillyBefore + " -> " + hillyAfter
+                + " vertices (" + String.format("%.1f", hillyReduction) + "x fewer)");
+        System.out.println("Chunks whose side quads miss or repeat exposed units: " + coverageMismatches);
+        System.out.println("Side vertices with V repeat outside the atlas: " + badRepeats);
+
+        boolean success = hillyChunks > 0 && hillyReduction >= MIN_HILLY_REDUCTION && after < before
+                && coverageMismatches == 0 && badRepeats == 0;
+        System.out.println("\nHidden Face Culling Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** What the mesher emitted before culling: every face of every column, one side quad pair per unit, six vertices a quad. */
+    private static long unculledVertices(ChunkData chunk) {
+        long vertices = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            Tile.TileType type = chunk.getType(i);
+            if (type == Tile.TileType.AIR) continue;
+            vertices += 6;
+            if (type != Tile.TileType.WATER) vertices += 12 + 12L * chunk.getElevation(i);
+        }
+        return vertices;
+    }
+
+    private static double meanLandElevation(ChunkData chunk) {
+        long sum = 0;
+        int land = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            if (chunk.getType(i) == Tile.TileType.WATER || chunk.getType(i) == Tile.TileType.AIR) continue;
+            sum += chunk.getElevation(i);
+            land++;
+        }
+        return (land == 0) ? 0 : (double) sum / land;
+    }
+
+    /** Elevation units of side faces left in view by the columns one row down and one column right. */
+    private static long exposedSideUnits(org.isogame.map.Map map, ChunkData chunk) {
+        long units = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            Tile.TileType type = chunk.getType(i);
+            if (type == Tile.TileType.WATER || type == Tile.TileType.AIR) continue;
+            int r = chunk.globalRow(i);
+            int c = chunk.globalCol(i);
+            int elevation = chunk.getElevation(i);
+            units += Math.max(0, elevation - Math.max(0, cover(map, r + 1, c)));
+            units += Math.max(0, elevation - Math.max(0, cover(map, r, c + 1)));
+        }
+        return units;
+    }
+
+    /** Units drawn by repeating side quads (unpacked, six vertices each): each quad's V runs from 0 to its number of units. */
+    private static long drawnSideUnits(float[] triangles) {
+        long units = 0;
+        for (int base = 0; base < triangles.length; base += 6 * FLOATS) {
+            if (triangles[base + 14] != 1) continue; // not a repeating side quad (ChunkMeshBuilder.TEX_REPEAT_V)
+            float maxT = 0;
+            for (int k = 0; k < 6; k++) maxT = Math.max(maxT, triangles[base + k * FLOATS + 8]);
+            units += Math.round(maxT);
+        }
+        return units;
+    }
+
+    private static int badRepeatVertices(float[] triangles) {
+        int bad = 0;
+        for (int base = 0; base < triangles.length; base += FLOATS) {
+            if (triangles[base + 14] != 1) continue;
+            float start = triangles[base + 11];
+            float span = triangles[base + 13];
+            if (span < 0 || start < 0 || start + span > 1) bad++;
+        }
+        return bad;
+    }
+
+    private static int cover(org.isogame.map.Map map, int r, int c) {
+        ChunkData chunk = map.getLoadedChunk(ChunkData.chunkCoordOf(c), ChunkData.chunkCoordOf(r));
+        if (chunk == null) return -1;
+        int i = ChunkData.indexOfGlobal(r, c);
+        Tile.TileType type = chunk.getType(i);
+        if (type == Tile.TileType.WATER || type == Tile.TileType.AIR) return -1;
+        return chunk.getElevation(i);
+    }
+}
@@ -0,0 +1,106 @@
+package org.isogame.test;
+
+import org.isogame.constants.Constants;
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.tile.Tile;
+
+/**
+ * Places a torch on the east edge of a chunk whose east neighbour is not loaded
+ * and checks that lighting leaves the neighbour unloaded, keeps the light that
+ * would have crossed as pending border light, and applies it once the neighbour
+ * loads, ending up with exactly the light of a map where both chunks were loaded
+ * from the start. Also checks that unloading the source drops its pending light.
+ */
+public class LightBorderTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int CHUNK_Y = 3;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Light Border Test...");
+
+        // Reference: both chunks loaded before the torch goes down.
+        org.isogame.map.Map reference = new org.isogame.map.Map(WORLD_SEED);
+        int[] torch = findEdgeTorchTile(reference);
+        if (torch == null) {
+            System.out.println("No suitable edge tile found.");
+            System.out.println("TEST RESULT: FAILURE");
+            return;
+        }
+        int r = torch[0], c = torch[1];
+        int cx = ChunkData.chunkCoordOf(c);
+        System.out.println("Torch at (" + r + "," + c + ") on the east edge of chunk (" + cx + "," + CHUNK_Y + ")");
+        reference.getLightManager().addLightSource(r, c, (byte) Constants.TORCH_LIGHT_LEVEL);
+        reference.getLightManager().processAllQueuesToCompletion();
+
+        // 1. Neighbour not loaded: the light waits at the edge instead of generating it.
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        LightManager lightManager = map.getLightManager();
+        map.getOrGenerateChunkTiles(cx, CHUNK_Y);
+        lightManager.addLightSource(r, c, (byte) Constants.TORCH_LIGHT_LEVEL);
+        lightManager.processAllQueuesToCompletion();
+        boolean notGenerated = !map.isChunkLoaded(cx + 1, CHUNK_Y);
+        boolean deferred = lightManager.hasPendingBorderLight(cx + 1, CHUNK_Y) && lightManager.getBorderTilesDeferred() > 0;
+        boolean sourceSame = sameBlockLight(map, reference, cx);
+
+        // 2. Loading the neighbour applies the pending light.
+        map.getOrGenerateChunkTiles(cx + 1, CHUNK_Y);
+        lightManager.processAllQueuesToCompletion();
+        boolean applied = !lightManager.hasPendingBorderLight(cx + 1, CHUNK_Y) && lightManager.getBorderTilesApplied() > 0;
+        boolean neighbourLit = reference.getBlockLight(r, c + 1) > 0 && map.getBlockLight(r, c + 1) == reference.getBlockLight(r, c + 1);
+        boolean bothSame = sameBlockLight(map, reference, cx) && sameBlockLight(map, reference, cx + 1);
+
+        // 3. Unloading the only source drops the pending light with it (on every side it reached).
+        org.isogame.map.Map dropped = new org.isogame.map.Map(WORLD_SEED);
+        dropped.getOrGenerateChunkTiles(cx, CHUNK_Y);
+        dropped.getLightManager().addLightSource(r, c, (byte) Constants.TORCH_LIGHT_LEVEL);
+        dropped.getLightManager().processAllQueuesToCompletion();
+        int pendingBefore = dropped.getLightManager().getPendingBorderChunkCount();
+        dropped.unloadChunkData(cx, CHUNK_Y);
+        boolean droppedWithSource = pendingBefore >= 1 && dropped.getLightManager().getPendingBorderChunkCount() == 0;
+
+        reference.shutdown();
+        map.shutdown();
+        dropped.shutdown();
+
+        System.out.println("Unloaded neighbour left ungenerated: " + (notGenerated ? "YES" : "NO"));
+        System.out.println("Edge light kept pending: " + (deferred ? "YES" : "NO")
+                + " (" + lightManager.getBorderTilesDeferred() + " tiles deferred, " + lightManager.getBorderTilesApplied() + " applied)");
+        System.out.println("Source chunk matches reference before neighbour loads: " + (sourceSame ? "YES" : "NO"));
+        System.out.println("Both chunks match reference after it loads: " + (bothSame && neighbourLit && applied ? "YES" : "NO"));
+        System.out.println("Pending light dropped with its source: " + (droppedWithSource ? "YES" : "NO"));
+
+        boolean success = notGenerated && deferred && sourceSame && applied && neighbourLit && bothSame && droppedWithSource;
+        System.out.println("\nLight Border Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** A torch-capable tile on some chunk's east edge whose light can step into the next chunk. */
+    private static int[] findEdgeTorchTile(org.isogame.map.Map map) {
+        for (int cx = 2; cx < 12; cx++) {
+            int c = cx * Constants.CHUNK_SIZE_TILES + Constants.CHUNK_SIZE_TILES - 1;
+            for (int ly = 2; ly < Constants.CHUNK_SIZE_TILES - 2; ly++) {
+                int r = CHUNK_Y * Constants.CHUNK_SIZE_TILES + ly;
+                Tile.TileType type = map.getTileType(r, c);
+                Tile.TileType across = map.getTileType(r, c + 1);
+                if (Tile.isSolidOpaqueBlock(type) && type != Tile.TileType.WATER && across != Tile.TileType.AIR
+                        && Math.abs(map.getElevation(r, c) - map.getElevation(r, c + 1)) <= 1) {
+                    return new int[] { r, c };
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean sameBlockLight(org.isogame.map.Map a, org.isogame.map.Map b, int cx) {
+        ChunkData chunkA = a.getLoadedChunk(cx, CHUNK_Y);
+        ChunkData chunkB = b.getLoadedChunk(cx, CHUNK_Y);
+        if (chunkA == null || chunkB == null) return false;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            if (chunkA.getBlockLight(i) != chunkB.getBlockLight(i)) return false;
+        }
+        return true;
+    }
+}
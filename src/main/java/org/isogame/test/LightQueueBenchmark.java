@@ -0,0 +1,300 @@
+package org.isogame.test;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.map.LightQueue;
+import org.isogame.tile.Tile;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import static org.isogame.constants.Constants.LIGHT_PROPAGATION_COST;
+import static org.isogame.constants.Constants.TORCH_LIGHT_LEVEL;
+
+/**
+ * Places and removes a torch in open terrain over and over and compares the
+ * block light flood through the old LinkedList&lt;LightNode&gt; queues (replicated
+ * below, one object per node) against {@link LightManager}'s {@link LightQueue}s.
+ * Reports queue nodes per second for both, the heap allocated per torch cycle
+ * once warmed up, and cross-checks that both leave the same light behind.
+ *
+ * Usage: LightQueueBenchmark [cyclesPerRun]
+ */
+public class LightQueueBenchmark {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int LOADED_RADIUS_CHUNKS = 2;
+    private static final int SEARCH_RADIUS_TILES = 24;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    /** The queue node as it was before LightQueue. */
+    private static final class LegacyNode {
+        final int r, c;
+        final byte lightLevel;
+        LegacyNode(int r, int c, byte lightLevel) { this.r = r; this.c = c; this.lightLevel = lightLevel; }
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LegacyNode)) return false;
+            LegacyNode ln = (LegacyNode) o;
+            return r == ln.r && c == ln.c && lightLevel == ln.lightLevel;
+        }
+        @Override public int hashCode() { int result = r; result = 31 * result + c; result = 31 * result + (int) lightLevel; return result; }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        System.out.println("Starting Light Queue Benchmark...");
+
+        org.isogame.map.Map current = loadedMap();
+        org.isogame.map.Map legacy = loadedMap();
+        LightManager lightManager = current.getLightManager();
+        LegacyBlockLight legacyLight = new LegacyBlockLight(legacy);
+        int[] spot = openTerrainTile(current);
+        int r = spot[0], c = spot[1];
+        System.out.println("Torch at (" + r + "," + c + ")");
+
+        // Same light after placing the torch and after removing it again.
+        lightManager.addLightSource(r, c, (byte) TORCH_LIGHT_LEVEL);
+        lightManager.processAllQueuesToCompletion();
+        legacyLight.addLightSource(r, c, (byte) TORCH_LIGHT_LEVEL);
+        legacyLight.processAll();
+        int litTiles = countLit(current, r, c);
+        boolean sameLit = sameBlockLight(current, legacy, r, c);
+        lightManager.removeLightSource(r, c);
+        lightManager.processAllQueuesToCompletion();
+        legacyLight.removeLightSource(r, c);
+        legacyLight.processAll();
+        boolean sameDark = sameBlockLight(current, legacy, r, c);
+        System.out.println("Tiles lit by one torch: " + litTiles);
+        System.out.println("Same light as LinkedList queues: " + (sameLit && sameDark ? "PASSED" : "FAILED"));
+
+        double legacyRate = 0, queueRate = 0;
+        long legacyNodes = 0, queueNodes = 0;
+        for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+            long nodesBefore = legacyLight.nodesProcessed;
+            long start = System.nanoTime();
+            for (int n = 0; n < cycles; n++) {
+                legacyLight.addLightSource(r, c, (byte) TORCH_LIGHT_LEVEL);
+                legacyLight.processAll();
+                legacyLight.removeLightSource(r, c);
+                legacyLight.processAll();
+            }
+            double legacySeconds = (System.nanoTime() - start) / 1e9;
+            long legacyRunNodes = legacyLight.nodesProcessed - nodesBefore;
+
+            nodesBefore = lightManager.getNodesProcessed();
+            start = System.nanoTime();
+            for (int n = 0; n < cycles; n++) {
+                lightManager.addLightSource(r, c, (byte) TORCH_LIGHT_LEVEL);
+                lightManager.processAllQueuesToCompletion();
+                lightManager.removeLightSource(r, c);
+                lightManager.processAllQueuesToCompletion();
+            }
+            double queueSeconds = (System.nanoTime() - start) / 1e9;
+            long queueRunNodes = lightManager.getNodesProcessed() - nodesBefore;
+
+            if (run >= WARMUP_RUNS) {
+                legacyRate += legacyRunNodes / legacySeconds / MEASURED_RUNS;
+                queueRate += queueRunNodes / queueSeconds / MEASURED_RUNS;
+                legacyNodes = legacyRunNodes / cycles;
+                queueNodes = queueRunNodes / cycles;
+            }
+        }
+
+        // Dirty chunks are collected once per frame, not per node; they stay marked here.
+        long legacyBytes = allocatedPerCycle(() -> {
+            legacyLight.addLightSource(r, c, (byte) TORCH_LIGHT_LEVEL);
+            legacyLight.processAll();
+            legacyLight.removeLightSource(r, c);
+            legacyLight.processAll();
+        });
+        long queueBytes = allocatedPerCycle(() -> {
+            lightManager.addLightSource(r, c, (byte) TORCH_LIGHT_LEVEL);
+            lightManager.processAllQueuesToCompletion();
+            lightManager.removeLightSource(r, c);
+            lightManager.processAllQueuesToCompletion();
+        });
+
+        System.out.printf("LinkedList queues: %,12.0f nodes/s (%d nodes per place+remove, %d bytes allocated)%n",
+                legacyRate, legacyNodes, legacyBytes);
+        System.out.printf("LightQueue:        %,12.0f nodes/s (%d nodes per place+remove, %d bytes allocated)%n",
+                queueRate, queueNodes, queueBytes);
+        System.out.printf("Speedup: %.2fx%n", queueRate / legacyRate);
+        current.shutdown();
+        legacy.shutdown();
+    }
+
+    private static org.isogame.map.Map loadedMap() {
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        int cx = ChunkData.chunkCoordOf(map.getCharacterSpawnCol());
+        int cy = ChunkData.chunkCoordOf(map.getCharacterSpawnRow());
+        for (int dy = -LOADED_RADIUS_CHUNKS; dy <= LOADED_RADIUS_CHUNKS; dy++) {
+            for (int dx = -LOADED_RADIUS_CHUNKS; dx <= LOADED_RADIUS_CHUNKS; dx++) {
+                map.getOrGenerateChunkTiles(cx + dx, cy + dy);
+            }
+        }
+        return map;
+    }
+
+    /** The torch-capable tile near spawn with the most neighbours light can step onto. */
+    private static int[] openTerrainTile(org.isogame.map.Map map) {
+        int sr = map.getCharacterSpawnRow(), sc = map.getCharacterSpawnCol();
+        int[] best = { sr, sc };
+        int bestOpen = -1;
+        for (int r = sr - SEARCH_RADIUS_TILES; r <= sr + SEARCH_RADIUS_TILES; r++) {
+            for (int c = sc - SEARCH_RADIUS_TILES; c <= sc + SEARCH_RADIUS_TILES; c++) {
+                Tile.TileType type = map.getTileType(r, c);
+                if (!Tile.isSolidOpaqueBlock(type) || type == Tile.TileType.WATER) continue;
+                int open = 0;
+                for (int dr = -4; dr <= 4; dr++) {
+                    for (int dc = -4; dc <= 4; dc++) {
+                        Tile.TileType t = map.getTileType(r + dr, c + dc);
+                        if (t != Tile.TileType.AIR && t != Tile.TileType.WATER
+                                && Math.abs(map.getElevation(r + dr, c + dc) - map.getElevation(r, c)) <= 1) open++;
+                    }
+                }
+                if (open > bestOpen) {
+                    bestOpen = open;
+                    best = new int[] { r, c };
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int countLit(org.isogame.map.Map map, int r, int c) {
+        int lit = 0;
+        for (int dr = -TORCH_LIGHT_LEVEL; dr <= TORCH_LIGHT_LEVEL; dr++) {
+            for (int dc = -TORCH_LIGHT_LEVEL; dc <= TORCH_LIGHT_LEVEL; dc++) {
+                if (map.getBlockLight(r + dr, c + dc) > 0) lit++;
+            }
+        }
+        return lit;
+    }
+
+    private static boolean sameBlockLight(org.isogame.map.Map a, org.isogame.map.Map b, int r, int c) {
+        for (int dr = -TORCH_LIGHT_LEVEL; dr <= TORCH_LIGHT_LEVEL; dr++) {
+            for (int dc = -TORCH_LIGHT_LEVEL; dc <= TORCH_LIGHT_LEVEL; dc++) {
+                if (a.getBlockLight(r + dr, c + dc) != b.getBlockLight(r + dr, c + dc)) return false;
+            }
+        }
+        return true;
+    }
+
+    private static long allocatedPerCycle(Runnable cycle) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int measured = 100;
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int n = 0; n < measured; n++) cycle.run();
+        return (threads.getThreadAllocatedBytes(thread) - before) / measured;
+    }
+
+    /** LightManager's block light add/remove/propagate logic as it was, on LinkedList queues. */
+    private static final class LegacyBlockLight {
+        private final org.isogame.map.Map map;
+        private final LightManager dirtyTracker;
+        private final Queue<LegacyNode> propagationQueue = new LinkedList<>();
+        private final Queue<LegacyNode> removalQueue = new LinkedList<>();
+        private static final int[] DR = {-1, 1, 0, 0};
+        private static final int[] DC = {0, 0, -1, 1};
+        long nodesProcessed;
+
+        LegacyBlockLight(org.isogame.map.Map map) {
+            this.map = map;
+            this.dirtyTracker = map.getLightManager();
+        }
+
+        void addLightSource(int r, int c, byte lightLevel) {
+            ChunkData chunk = map.getChunkForTile(r, c);
+            int i = ChunkData.indexOfGlobal(r, c);
+            Tile.TileType type = chunk.getType(i);
+            if (Tile.isSolidOpaqueBlock(type) && type != Tile.TileType.WATER) {
+                chunk.setTorch(i, true);
+                byte existing = chunk.getBlockLight(i);
+                if (lightLevel > existing) {
+                    chunk.setBlockLight(i, lightLevel);
+                    propagationQueue.add(new LegacyNode(r, c, lightLevel));
+                    dirtyTracker.markChunkDirty(r, c);
+                } else if (existing > 0 && !propagationQueue.contains(new LegacyNode(r, c, existing))) {
+                    propagationQueue.add(new LegacyNode(r, c, existing));
+                }
+            }
+        }
+
+        void removeLightSource(int r, int c) {
+            ChunkData chunk = map.getChunkForTile(r, c);
+            int i = ChunkData.indexOfGlobal(r, c);
+            if (chunk.hasTorch(i)) {
+                byte oldLight = chunk.getBlockLight(i);
+                chunk.setTorch(i, false);
+                if (oldLight > 0) {
+                    removalQueue.add(new LegacyNode(r, c, oldLight));
+                    dirtyTracker.markChunkDirty(r, c);
+                }
+            }
+        }
+
+        void processAll() {
+            while (!removalQueue.isEmpty() || !propagationQueue.isEmpty()) {
+                while (!removalQueue.isEmpty()) {
+                    removalStep(removalQueue.poll());
+                    nodesProcessed++;
+                }
+                while (!propagationQueue.isEmpty()) {
+                    LegacyNode current = propagationQueue.poll();
+                    ChunkData chunk = map.getChunkForTile(current.r, current.c);
+                    int i = ChunkData.indexOfGlobal(current.r, current.c);
+                    if (chunk.getBlockLight(i) >= current.lightLevel && current.lightLevel > 0) {
+                        propagationStep(current.r, current.c, chunk, i);
+                    }
+                    nodesProcessed++;
+                }
+            }
+        }
+
+        private void propagationStep(int r, int c, ChunkData sourceChunk, int sourceIndex) {
+            byte strength = sourceChunk.getBlockLight(sourceIndex);
+            if (strength == 0) return;
+            int sourceElevation = sourceChunk.getElevation(sourceIndex);
+            for (int d = 0; d < 4; d++) {
+                int nr = r + DR[d]; int nc = c + DC[d];
+                ChunkData neighborChunk = map.getChunkForTile(nr, nc);
+                int ni = ChunkData.indexOfGlobal(nr, nc);
+                Tile.TileType neighborType = neighborChunk.getType(ni);
+                if (neighborType == Tile.TileType.AIR) continue;
+                if (Math.abs(neighborChunk.getElevation(ni) - sourceElevation) > 2) continue;
+                byte reaching = (byte) Math.max(0, strength - LIGHT_PROPAGATION_COST - LightManager.getHorizontalPassOpacity(neighborType));
+                if (reaching > neighborChunk.getBlockLight(ni)) {
+                    neighborChunk.setBlockLight(ni, reaching);
+                    propagationQueue.add(new LegacyNode(nr, nc, reaching));
+                    dirtyTracker.markChunkDirty(nr, nc);
+                }
+            }
+        }
+
+        private void removalStep(LegacyNode node) {
+            for (int d = 0; d < 4; d++) {
+                int nr = node.r + DR[d]; int nc = node.c + DC[d];
+                ChunkData neighborChunk = map.getChunkForTile(nr, nc);
+                int ni = ChunkData.indexOfGlobal(nr, nc);
+                byte neighborLight = neighborChunk.getBlockLight(ni);
+                if (neighborLight == 0) continue;
+                if (neighborChunk.hasTorch(ni)) {
+                    propagationQueue.add(new LegacyNode(nr, nc, neighborLight));
+                    continue;
+                }
+                byte fromRemoved = (byte) Math.max(0, node.lightLevel - LIGHT_PROPAGATION_COST
+                        - LightManager.getHorizontalPassOpacity(neighborChunk.getType(ni)));
+                if (neighborLight <= fromRemoved) {
+                    neighborChunk.setBlockLight(ni, (byte) 0);
+                    removalQueue.add(new LegacyNode(nr, nc, neighborLight));
+                    dirtyTracker.markChunkDirty(nr, nc);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.isogame.test;
+
+import org.isogame.constants.Constants;
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.tile.Tile;
+
+/**
+ * Lights a 13x13 chunk area frame by frame under a small time budget, with the
+ * focus in the middle and only the eastern half on screen, and checks that:
+ * work is done nearest and on-screen first (a bucket is only touched once every
+ * bucket before it is empty), a frame stays near its budget, the final light is
+ * the same as draining everything at once, and a torch the player places is
+ * fully lit in the same call while the rest of the work is still pending.
+ */
+public class LightSchedulerTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 6;
+    private static final long FRAME_BUDGET_MICROS = 300;
+    // A frame may overrun by one slice; generous, since the clock here is noisy.
+    private static final long OVERRUN_TOLERANCE_MICROS = 20_000;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Light Scheduler Test...");
+
+        LightManager.ChunkVisibility eastHalf = (cx, cy) -> cx >= 0;
+        org.isogame.map.Map scheduled = new org.isogame.map.Map(WORLD_SEED);
+        scheduled.getLightManager().setLightWorkerThreads(0);
+        scheduled.getLightManager().setFocus(0, 0, eastHalf);
+        org.isogame.map.Map reference = new org.isogame.map.Map(WORLD_SEED);
+        reference.getLightManager().setLightWorkerThreads(0);
+        queueAreaLight(scheduled);
+        queueAreaLight(reference);
+        reference.getLightManager().processAllQueuesToCompletion();
+
+        // 1. Frame by frame: buckets are worked in order, within the budget.
+        LightManager lightManager = scheduled.getLightManager();
+        int[][] probes = bucketProbes();
+        int frames = 0;
+        int orderViolations = 0;
+        long worstFrameMicros = 0;
+        int pendingAfterFirstFrame = -1;
+        int farPendingBefore = lightManager.getPendingLightNodes(RADIUS, RADIUS);
+        int farPendingAfterFirstFrame = -1;
+        while (lightManager.isAnyLightQueueNotEmpty()) {
+            int[] before = pendingPerProbe(lightManager, probes);
+            lightManager.processLightQueuesForFrame(FRAME_BUDGET_MICROS);
+            frames++;
+            worstFrameMicros = Math.max(worstFrameMicros, lightManager.getLastFrameLightMicros());
+            int[] after = pendingPerProbe(lightManager, probes);
+            for (int p = 0; p < probes.length; p++) {
+                if (after[p] >= before[p]) continue;
+                // Bucket p made progress, so every bucket ahead of it must be done.
+                for (int q = 0; q < p; q++) {
+                    if (after[q] > 0) orderViolations++;
+                }
+            }
+            if (frames == 1) {
+                pendingAfterFirstFrame = lightManager.getPendingLightNodes();
+                farPendingAfterFirstFrame = lightManager.getPendingLightNodes(RADIUS, RADIUS);
+            }
+        }
+        int drainMismatches = lightMismatches(scheduled, reference);
+
+        // 2. An edit next to the player is resolved at once, with far work still queued.
+        requeueFarBorders(scheduled);
+        requeueFarBorders(reference);
+        int[] torch = torchTile(scheduled);
+        int pendingBeforeEdit = lightManager.getPendingLightNodes();
+        scheduled.toggleTorch(torch[0], torch[1]);
+        int torchLight = scheduled.getLoadedChunk(0, 0).getBlockLight(ChunkData.indexOfGlobal(torch[0], torch[1]));
+        boolean farWorkStillPending = lightManager.getPendingLightNodes() >= pendingBeforeEdit && pendingBeforeEdit > 0;
+        reference.toggleTorch(torch[0], torch[1]);
+        reference.getLightManager().processAllQueuesToCompletion();
+        int editMismatches = chunkMismatches(scheduled, reference, 0, 0);
+        lightManager.processAllQueuesToCompletion();
+        int finalMismatches = lightMismatches(scheduled, reference);
+        scheduled.shutdown();
+        reference.shutdown();
+
+        System.out.println("Frames to light " + (2 * RADIUS + 1) + "x" + (2 * RADIUS + 1) + " chunks at "
+                + FRAME_BUDGET_MICROS + " us: " + frames + " (worst frame " + worstFrameMicros + " us)");
+        System.out.println("Pending after first frame: " + pendingAfterFirstFrame
+                + " (far corner " + farPendingBefore + " -> " + farPendingAfterFirstFrame + ")");
+        System.out.println("Priority order violations: " + orderViolations);
+        System.out.println("Light mismatches after frame-by-frame drain: " + drainMismatches);
+        System.out.println("Placed torch light: " + torchLight + ", far work still pending: " + (farWorkStillPending ? "YES" : "NO"));
+        System.out.println("Edited chunk mismatches: " + editMismatches + ", final mismatches: " + finalMismatches);
+
+        boolean success = frames > 1 && orderViolations == 0
+                && farPendingAfterFirstFrame == farPendingBefore && farPendingBefore > 0
+                && worstFrameMicros < FRAME_BUDGET_MICROS + OVERRUN_TOLERANCE_MICROS
+                && drainMismatches == 0
+                && torchLight == Constants.TORCH_LIGHT_LEVEL && farWorkStillPending
+                && editMismatches == 0 && finalMismatches == 0;
+        System.out.println("\nLight Scheduler Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** Queues what chunk activation would for the whole area, plus a few torches, without processing it. */
+    private static void queueAreaLight(org.isogame.map.Map map) {
+        LightManager lightManager = map.getLightManager();
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData chunk = map.getLoadedChunk(cx, cy);
+                LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(cx, cy);
+                lightManager.initializeSkylightForChunk(coord);
+                int i = Math.floorMod(cx * 73 + cy * 151, ChunkData.TILE_COUNT);
+                Tile.TileType type = chunk.getType(i);
+                if (Tile.isSolidOpaqueBlock(type) && type != Tile.TileType.WATER) {
+                    lightManager.addLightSource(chunk.globalRow(i), chunk.globalCol(i), (byte) Constants.TORCH_LIGHT_LEVEL);
+                }
+                if (cx > -RADIUS) borders(map, coord, new LightManager.ChunkCoordinate(cx - 1, cy));
+                if (cy > -RADIUS) borders(map, coord, new LightManager.ChunkCoordinate(cx, cy - 1));
+            }
+        }
+    }
+
+    /** Border exchange along the area's far east column again: work that changes nothing but has to be done. */
+    private static void requeueFarBorders(org.isogame.map.Map map) {
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            borders(map, new LightManager.ChunkCoordinate(RADIUS, cy), new LightManager.ChunkCoordinate(RADIUS - 1, cy));
+        }
+    }
+
+    private static void borders(org.isogame.map.Map map, LightManager.ChunkCoordinate a, LightManager.ChunkCoordinate b) {
+        map.propagateLightAcrossChunkBorder(a, b, map.getLightManager());
+        map.propagateLightAcrossChunkBorder(b, a, map.getLightManager());
+    }
+
+    /** One chunk per bucket, most urgent first: the focus, then each ring on screen (east) and off screen (west). */
+    private static int[][] bucketProbes() {
+        int[][] probes = new int[1 + 2 * RADIUS][];
+        probes[0] = new int[] { 0, 0 };
+        for (int ring = 1; ring <= RADIUS; ring++) {
+            probes[2 * ring - 1] = new int[] { ring, 0 };
+            probes[2 * ring] = new int[] { -ring, 0 };
+        }
+        return probes;
+    }
+
+    private static int[] pendingPerProbe(LightManager lightManager, int[][] probes) {
+        int[] pending = new int[probes.length];
+        for (int p = 0; p < probes.length; p++) pending[p] = lightManager.getPendingLightNodes(probes[p][0], probes[p][1]);
+        return pending;
+    }
+
+    /** A torch-capable tile without a torch in the focus chunk. */
+    private static int[] torchTile(org.isogame.map.Map map) {
+        ChunkData chunk = map.getLoadedChunk(0, 0);
+        for (int i = ChunkData.TILE_COUNT / 2; i < ChunkData.TILE_COUNT; i++) {
+            Tile.TileType type = chunk.getType(i);
+            if (Tile.isSolidOpaqueBlock(type) && type != Tile.TileType.WATER && !chunk.hasTorch(i)) {
+                return new int[] { chunk.globalRow(i), chunk.globalCol(i) };
+            }
+        }
+        throw new IllegalStateException("No torch tile in chunk (0,0)");
+    }
+
+    private static int lightMismatches(org.isogame.map.Map a, org.isogame.map.Map b) {
+        int mismatches = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                mismatches += chunkMismatches(a, b, cx, cy);
+            }
+        }
+        return mismatches;
+    }
+
+    private static int chunkMismatches(org.isogame.map.Map a, org.isogame.map.Map b, int cx, int cy) {
+        ChunkData chunkA = a.getLoadedChunk(cx, cy);
+        ChunkData chunkB = b.getLoadedChunk(cx, cy);
+        int mismatches = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            if (chunkA.getPackedLight(i) != chunkB.getPackedLight(i)) mismatches++;
+        }
+        return mismatches;
+    }
+}
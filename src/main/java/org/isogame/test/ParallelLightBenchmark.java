@@ -0,0 +1,110 @@
+package org.isogame.test;
+
+import org.isogame.constants.Constants;
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.tile.Tile;
+
+/**
+ * Initial lighting of a 21x21 chunk view, as at world load: every chunk's sky
+ * exposure, the border exchange between neighbours and a few torches per
+ * chunk, then {@link LightManager#processAllQueuesToCompletion()}. Times that
+ * last call with 0 light workers (calling thread only) and with 1, 2, 4 ... up
+ * to the number of cores, prints the speedup over the serial run and checks that
+ * every run leaves exactly the serial light behind.
+ *
+ * Usage: ParallelLightBenchmark [torchesPerChunk]
+ */
+public class ParallelLightBenchmark {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int VIEW_RADIUS = 10; // 21x21 chunks
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int torchesPerChunk = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Starting Parallel Light Benchmark (" + cores + " cores, " + torchesPerChunk + " torches per chunk)...");
+
+        byte[] reference = null;
+        double serialMillis = 0;
+        boolean allSame = true;
+        java.util.List<Integer> workerCounts = new java.util.ArrayList<>();
+        workerCounts.add(0);
+        for (int workers = 1; workers < cores; workers *= 2) workerCounts.add(workers);
+        workerCounts.add(cores);
+        for (int workers : workerCounts) {
+            double best = Double.MAX_VALUE;
+            long nodes = 0;
+            for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+                org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+                LightManager lightManager = map.getLightManager();
+                lightManager.setLightWorkerThreads(workers);
+                queueInitialLight(map, torchesPerChunk);
+                long nodesBefore = lightManager.getNodesProcessed();
+                long start = System.nanoTime();
+                lightManager.processAllQueuesToCompletion();
+                double millis = (System.nanoTime() - start) / 1e6;
+                nodes = lightManager.getNodesProcessed() - nodesBefore;
+                if (run >= WARMUP_RUNS) best = Math.min(best, millis);
+                byte[] light = snapshotLight(map);
+                if (reference == null) reference = light;
+                else allSame &= java.util.Arrays.equals(reference, light);
+                map.shutdown();
+            }
+            if (workers == 0) serialMillis = best;
+            System.out.printf("%-10s %8.2f ms  %,10d nodes  %5.2fx%n",
+                    workers == 0 ? "serial" : workers + " workers", best, nodes, serialMillis / best);
+        }
+
+        System.out.println("Same light as serial in every run: " + (allSame ? "YES" : "NO"));
+        System.out.println("\nParallel Light Benchmark completed.");
+        System.out.println("TEST RESULT: " + (allSame ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** Queues what chunk activation would for the whole view, without processing it. */
+    private static void queueInitialLight(org.isogame.map.Map map, int torchesPerChunk) {
+        LightManager lightManager = map.getLightManager();
+        for (int cy = -VIEW_RADIUS; cy <= VIEW_RADIUS; cy++) {
+            for (int cx = -VIEW_RADIUS; cx <= VIEW_RADIUS; cx++) {
+                map.requestChunk(cx, cy);
+            }
+        }
+        for (int cy = -VIEW_RADIUS; cy <= VIEW_RADIUS; cy++) {
+            for (int cx = -VIEW_RADIUS; cx <= VIEW_RADIUS; cx++) {
+                ChunkData chunk = map.getOrGenerateChunkTiles(cx, cy);
+                LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(cx, cy);
+                lightManager.initializeSkylightForChunk(coord);
+                for (int t = 0; t < torchesPerChunk; t++) {
+                    int i = Math.floorMod((cx * 73 + cy * 151) * (t + 1) + t * 97, ChunkData.TILE_COUNT);
+                    Tile.TileType type = chunk.getType(i);
+                    if (Tile.isSolidOpaqueBlock(type) && type != Tile.TileType.WATER) {
+                        lightManager.addLightSource(chunk.globalRow(i), chunk.globalCol(i), (byte) Constants.TORCH_LIGHT_LEVEL);
+                    }
+                }
+                if (cx > -VIEW_RADIUS) borders(map, coord, new LightManager.ChunkCoordinate(cx - 1, cy));
+                if (cy > -VIEW_RADIUS) borders(map, coord, new LightManager.ChunkCoordinate(cx, cy - 1));
+            }
+        }
+    }
+
+    private static void borders(org.isogame.map.Map map, LightManager.ChunkCoordinate a, LightManager.ChunkCoordinate b) {
+        map.propagateLightAcrossChunkBorder(a, b, map.getLightManager());
+        map.propagateLightAcrossChunkBorder(b, a, map.getLightManager());
+    }
+
+    private static byte[] snapshotLight(org.isogame.map.Map map) {
+        int side = 2 * VIEW_RADIUS + 1;
+        byte[] light = new byte[side * side * ChunkData.TILE_COUNT];
+        int n = 0;
+        for (int cy = -VIEW_RADIUS; cy <= VIEW_RADIUS; cy++) {
+            for (int cx = -VIEW_RADIUS; cx <= VIEW_RADIUS; cx++) {
+                ChunkData chunk = map.getLoadedChunk(cx, cy);
+                for (int i = 0; i < ChunkData.TILE_COUNT; i++) light[n++] = (byte) chunk.getPackedLight(i);
+            }
+        }
+        return light;
+    }
+}
@@ -0,0 +1,148 @@
+package org.isogame.test;
+
+import org.isogame.constants.Constants;
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.tile.Tile;
+
+import java.util.Set;
+
+/**
+ * Lights the same area twice, once on the calling thread only and once with
+ * the parallel region propagator, and checks the results are identical: light
+ * of every tile, the chunks marked dirty and the pending border light. Torches
+ * sit on and around region borders, so light has to cross between regions.
+ * Then removes every other torch in both maps and compares again.
+ */
+public class ParallelLightTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 6; // 13x13 chunks, several regions
+    private static final int WORKERS = 4;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Parallel Light Test...");
+
+        org.isogame.map.Map serial = new org.isogame.map.Map(WORLD_SEED);
+        serial.getLightManager().setLightWorkerThreads(0);
+        org.isogame.map.Map parallel = new org.isogame.map.Map(WORLD_SEED);
+        parallel.getLightManager().setLightWorkerThreads(WORKERS);
+
+        // 1. Initial lighting with torches.
+        int[][] torches = torchTiles(serial, 40);
+        lightArea(serial, torches);
+        lightArea(parallel, torches);
+        Set<LightManager.ChunkCoordinate> serialDirty = serial.getLightManager().getDirtyChunksAndClear();
+        Set<LightManager.ChunkCoordinate> parallelDirty = parallel.getLightManager().getDirtyChunksAndClear();
+        int initialMismatches = lightMismatches(serial, parallel);
+        boolean sameDirty = serialDirty.equals(parallelDirty);
+        boolean samePending = samePendingBorderLight(serial, parallel);
+        long runsAfterInitial = parallel.getLightManager().getParallelLightRuns();
+
+        // 2. Remove every other torch, and re-queue the chunk borders so the batch is big enough to go parallel.
+        for (org.isogame.map.Map map : new org.isogame.map.Map[] { serial, parallel }) {
+            for (int n = 0; n < torches.length; n += 2) {
+                map.getLightManager().removeLightSource(torches[n][0], torches[n][1]);
+            }
+            for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+                for (int cx = -RADIUS + 1; cx <= RADIUS; cx++) {
+                    borders(map, new LightManager.ChunkCoordinate(cx, cy), new LightManager.ChunkCoordinate(cx - 1, cy));
+                }
+            }
+            map.getLightManager().processAllQueuesToCompletion();
+        }
+        int editMismatches = lightMismatches(serial, parallel);
+        boolean sameDirtyAfterEdit = serial.getLightManager().getDirtyChunksAndClear()
+                .equals(parallel.getLightManager().getDirtyChunksAndClear());
+        boolean usedParallel = runsAfterInitial > 0 && parallel.getLightManager().getParallelLightRuns() > runsAfterInitial;
+
+        System.out.println("Parallel runs: " + parallel.getLightManager().getParallelLightRuns()
+                + ", rounds: " + parallel.getLightManager().getParallelLightRounds()
+                + ", region tasks: " + parallel.getLightManager().getParallelRegionTasks());
+        System.out.println("Nodes processed: serial " + serial.getLightManager().getNodesProcessed()
+                + ", parallel " + parallel.getLightManager().getNodesProcessed());
+        serial.shutdown();
+        parallel.shutdown();
+
+        System.out.println("Initial light mismatches: " + initialMismatches);
+        System.out.println("Same dirty chunks: " + (sameDirty && sameDirtyAfterEdit ? "YES" : "NO") + " (" + serialDirty.size() + ")");
+        System.out.println("Same pending border light: " + (samePending ? "YES" : "NO"));
+        System.out.println("Light mismatches after torch removal: " + editMismatches);
+        System.out.println("Parallel propagator used: " + (usedParallel ? "YES" : "NO"));
+
+        boolean success = initialMismatches == 0 && sameDirty && samePending && editMismatches == 0
+                && sameDirtyAfterEdit && usedParallel;
+        System.out.println("\nParallel Light Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** Lights the area the way chunk activation does, then runs the queues to completion. */
+    private static void lightArea(org.isogame.map.Map map, int[][] torches) {
+        LightManager lightManager = map.getLightManager();
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(cx, cy);
+                lightManager.initializeSkylightForChunk(coord);
+                if (cx > -RADIUS) borders(map, coord, new LightManager.ChunkCoordinate(cx - 1, cy));
+                if (cy > -RADIUS) borders(map, coord, new LightManager.ChunkCoordinate(cx, cy - 1));
+            }
+        }
+        for (int[] torch : torches) {
+            lightManager.addLightSource(torch[0], torch[1], (byte) Constants.TORCH_LIGHT_LEVEL);
+        }
+        lightManager.processAllQueuesToCompletion();
+    }
+
+    private static void borders(org.isogame.map.Map map, LightManager.ChunkCoordinate a, LightManager.ChunkCoordinate b) {
+        map.propagateLightAcrossChunkBorder(a, b, map.getLightManager());
+        map.propagateLightAcrossChunkBorder(b, a, map.getLightManager());
+    }
+
+    /** Torch-capable tiles spread over the area, half of them right next to a region border (every 4 chunks). */
+    private static int[][] torchTiles(org.isogame.map.Map map, int count) {
+        int[][] torches = new int[count][];
+        int found = 0;
+        int min = -RADIUS * Constants.CHUNK_SIZE_TILES;
+        int span = (2 * RADIUS + 1) * Constants.CHUNK_SIZE_TILES;
+        java.util.Random random = new java.util.Random(WORLD_SEED);
+        while (found < count) {
+            int r = min + random.nextInt(span);
+            int c = min + random.nextInt(span);
+            if (found % 2 == 0) c = Math.floorDiv(c, 4 * Constants.CHUNK_SIZE_TILES) * 4 * Constants.CHUNK_SIZE_TILES - random.nextInt(2);
+            if (c < min) continue;
+            Tile.TileType type = map.getTileType(r, c);
+            if (Tile.isSolidOpaqueBlock(type) && type != Tile.TileType.WATER) torches[found++] = new int[] { r, c };
+        }
+        return torches;
+    }
+
+    private static int lightMismatches(org.isogame.map.Map a, org.isogame.map.Map b) {
+        int mismatches = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData chunkA = a.getLoadedChunk(cx, cy);
+                ChunkData chunkB = b.getLoadedChunk(cx, cy);
+                for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+                    if (chunkA.getPackedLight(i) != chunkB.getPackedLight(i)) mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static boolean samePendingBorderLight(org.isogame.map.Map a, org.isogame.map.Map b) {
+        if (a.getLightManager().getPendingBorderChunkCount() != b.getLightManager().getPendingBorderChunkCount()) return false;
+        for (int cy = -RADIUS - 1; cy <= RADIUS + 1; cy++) {
+            for (int cx = -RADIUS - 1; cx <= RADIUS + 1; cx++) {
+                if (a.getLightManager().hasPendingBorderLight(cx, cy) != b.getLightManager().hasPendingBorderLight(cx, cy)) return false;
+            }
+        }
+        return a.getLightManager().getPendingBorderChunkCount() > 0;
+    }
+}
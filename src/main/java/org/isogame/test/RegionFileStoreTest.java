@@ -0,0 +1,205 @@
+package org.isogame.test;
+
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.savegame.ChunkCodec;
+import org.isogame.savegame.RegionFileStore;
+import org.isogame.tile.Tile;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes generated and edited chunks to a region store spanning several region
+ * files (including negative coordinates), reopens the store from disk and checks
+ * every chunk comes back identical. Also rewrites chunks across enough saves to
+ * force compaction, moves a temporary store into a named directory, and checks that a
+ * commit for a save leaves out chunks written after that save's snapshot. Last,
+ * saves commit and compact on another thread while chunks are written and read,
+ * and a payload read before a compaction is still held while the file is
+ * replaced, reopened and its temporary directory deleted.
+ */
+public class RegionFileStoreTest {
+
+    private static final long WORLD_SEED = 42L;
+    private static final int RADIUS = 20; // 41x41 chunks -> spans 2x2 regions
+    private static final int CONCURRENT_CHUNKS = 16;
+    private static final int CONCURRENT_WRITES = 3000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Region File Store Test...");
+        ChunkGenerator generator = new ChunkGenerator(WORLD_SEED);
+        Path dir = Files.createTempDirectory("region-test");
+        boolean success = true;
+
+        // 1. Store a block of edited chunks.
+        RegionFileStore store = new RegionFileStore(dir.resolve("World.regions"));
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                if (!store.write(edited(generator, cx, cy))) success = false;
+            }
+        }
+        store.commit();
+        int written = store.getStoredChunkCount();
+        System.out.println("Stored: " + store);
+        store.close();
+
+        // 2. Reopen and compare.
+        RegionFileStore reopened = new RegionFileStore(dir.resolve("World.regions"));
+        int mismatches = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                if (!edited(generator, cx, cy).contentEquals(reopened.read(cx, cy))) mismatches++;
+            }
+        }
+        boolean missingIsNull = !reopened.contains(RADIUS + 40, 0) && reopened.read(RADIUS + 40, 0) == null;
+
+        // 3. Rewrite one chunk many times across saves; the file must not grow without bound.
+        long bytesBeforeChurn = reopened.getStoredBytes();
+        ChunkData churn = edited(generator, 1, 1);
+        for (int i = 0; i < 2000; i++) {
+            churn.setElevation(i % ChunkData.TILE_COUNT, i % 40);
+            reopened.write(churn);
+            if (i % 100 == 99) {
+                reopened.commit();
+                reopened.onSaveWritten(reopened.getGeneration());
+            }
+        }
+        long bytesAfterChurn = reopened.getStoredBytes();
+        boolean churnReadsBack = churn.contentEquals(reopened.read(1, 1));
+        long appendedWithoutCompaction = 2000L * ChunkCodec.encodeToArray(churn).length;
+        boolean compacted = bytesAfterChurn - bytesBeforeChurn < appendedWithoutCompaction / 2;
+        reopened.close();
+
+        // 4. A temporary store can be moved under a save name.
+        RegionFileStore temp = RegionFileStore.temporary();
+        Path tempDir = temp.getDirectory();
+        temp.write(edited(generator, -33, 7));
+        temp.relocate(dir.resolve("Named.regions"));
+        boolean relocated = edited(generator, -33, 7).contentEquals(temp.read(-33, 7)) && !Files.exists(tempDir);
+        temp.close();
+        boolean survivesClose = Files.exists(dir.resolve("Named.regions"));
+
+        // 5. A chunk evicted after a save's snapshot: the save commits its own older copy,
+        //    the evicted one is read back meanwhile but only committed by a later save.
+        RegionFileStore saving = new RegionFileStore(dir.resolve("Saving.regions"));
+        ChunkData older = edited(generator, 5, -3);
+        ChunkData newer = edited(generator, 5, -3);
+        newer.setElevation(0, 33);
+        long snapshotStamp = saving.nextStamp();
+        saving.write(newer);
+        saving.write(older, snapshotStamp);
+        boolean newestVisible = newer.contentEquals(saving.read(5, -3));
+        saving.commit(snapshotStamp);
+        boolean evictionPending = saving.hasUncommittedChanges();
+        saving.close();
+        RegionFileStore afterSave = new RegionFileStore(dir.resolve("Saving.regions"));
+        boolean saveCopyCommitted = older.contentEquals(afterSave.read(5, -3));
+        afterSave.close();
+
+        // 6. Background saves while the main thread writes and reads: reads always see the
+        //    newest write, and the final save reads back after reopening.
+        RegionFileStore shared = new RegionFileStore(dir.resolve("Shared.regions"));
+        java.util.concurrent.atomic.AtomicBoolean stop = new java.util.concurrent.atomic.AtomicBoolean();
+        java.util.concurrent.atomic.AtomicInteger backgroundSaves = new java.util.concurrent.atomic.AtomicInteger();
+        Thread saver = new Thread(() -> {
+            while (!stop.get()) {
+                if (shared.commit(shared.nextStamp())) {
+                    shared.onSaveWritten(shared.getGeneration());
+                    backgroundSaves.incrementAndGet();
+                }
+            }
+        }, "RegionFileStoreTest-saver");
+        saver.start();
+        ChunkData[] latest = new ChunkData[CONCURRENT_CHUNKS];
+        int staleReads = 0;
+        for (int i = 0; i < CONCURRENT_WRITES; i++) {
+            int c = i % CONCURRENT_CHUNKS;
+            if (latest[c] == null) latest[c] = edited(generator, c, 40);
+            latest[c].setElevation((i * 7) % ChunkData.TILE_COUNT, i % 40);
+            shared.write(latest[c]);
+            if (!latest[c].contentEquals(shared.read(c, 40))) staleReads++;
+        }
+        stop.set(true);
+        saver.join();
+        shared.commit();
+        shared.onSaveWritten(shared.getGeneration());
+        shared.close();
+        RegionFileStore sharedReopened = new RegionFileStore(dir.resolve("Shared.regions"));
+        int concurrentMismatches = 0;
+        for (int c = 0; c < CONCURRENT_CHUNKS; c++) {
+            if (!latest[c].contentEquals(sharedReopened.read(c, 40))) concurrentMismatches++;
+        }
+        sharedReopened.close();
+
+        // 7. Hold a payload buffer across compaction, reopening and deletion. Payloads must
+        //    not be mappings: a mapped file can't be replaced or deleted on Windows.
+        RegionFileStore holding = RegionFileStore.temporary();
+        Path holdingDir = holding.getDirectory();
+        ChunkData held = edited(generator, 2, 2);
+        holding.write(held);
+        holding.commit();
+        holding.onSaveWritten(holding.getGeneration());
+        ByteBuffer heldPayload = holding.readEncoded(2, 2);
+        boolean notMapped = heldPayload != null && !(heldPayload instanceof MappedByteBuffer);
+        ChunkData rewritten = edited(generator, 2, 3);
+        for (int i = 0; i < 2000; i++) {
+            rewritten.setElevation(i % ChunkData.TILE_COUNT, i % 40);
+            holding.write(rewritten);
+            if (i % 100 == 99) {
+                holding.commit();
+                holding.onSaveWritten(holding.getGeneration());
+            }
+        }
+        boolean heldCompacted = holding.getStoredBytes() < 2000L * ChunkCodec.encodeToArray(rewritten).length / 2;
+        holding.relocate(dir.resolve("Holding.regions"));
+        boolean heldTempDeleted = !Files.exists(holdingDir);
+        holding.close();
+        RegionFileStore holdingReopened = new RegionFileStore(dir.resolve("Holding.regions"));
+        boolean heldIntact = held.contentEquals(ChunkCodec.decode(2, 2, heldPayload))
+                && held.contentEquals(holdingReopened.read(2, 2)) && rewritten.contentEquals(holdingReopened.read(2, 3));
+        holdingReopened.close();
+
+        RegionFileStore.deleteDirectory(dir.resolve("World.regions"));
+        RegionFileStore.deleteDirectory(dir.resolve("Holding.regions"));
+        RegionFileStore.deleteDirectory(dir.resolve("Named.regions"));
+        RegionFileStore.deleteDirectory(dir.resolve("Saving.regions"));
+        RegionFileStore.deleteDirectory(dir.resolve("Shared.regions"));
+        Files.deleteIfExists(dir);
+
+        System.out.println("Chunks written: " + written);
+        System.out.println("Mismatches after reopen: " + mismatches);
+        System.out.println("Missing chunk reads as null: " + (missingIsNull ? "YES" : "NO"));
+        System.out.println("Region bytes after 2000 rewrites: " + bytesAfterChurn + " (compacted: " + (compacted ? "YES" : "NO") + ")");
+        System.out.println("Rewritten chunk reads back: " + (churnReadsBack ? "YES" : "NO"));
+        System.out.println("Temporary store relocated: " + (relocated && survivesClose ? "YES" : "NO"));
+        System.out.println("Chunk evicted after snapshot left out of the save: "
+                + (newestVisible && evictionPending && saveCopyCommitted ? "YES" : "NO"));
+        System.out.println("Concurrent saves: " + backgroundSaves.get() + ", stale reads: " + staleReads
+                + ", mismatches after reopen: " + concurrentMismatches);
+        System.out.println("Payload held across compaction: not mapped " + (notMapped ? "YES" : "NO")
+                + ", compacted " + (heldCompacted ? "YES" : "NO") + ", temp deleted " + (heldTempDeleted ? "YES" : "NO")
+                + ", intact " + (heldIntact ? "YES" : "NO"));
+
+        success &= written == (2 * RADIUS + 1) * (2 * RADIUS + 1) && mismatches == 0 && missingIsNull
+                && churnReadsBack && compacted && relocated && survivesClose
+                && newestVisible && evictionPending && saveCopyCommitted
+                && backgroundSaves.get() > 0 && staleReads == 0 && concurrentMismatches == 0
+                && notMapped && heldCompacted && heldTempDeleted && heldIntact;
+        System.out.println("\nRegion File Store Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** A generated chunk with a few player-style edits, so stored data differs from regenerated data. */
+    private static ChunkData edited(ChunkGenerator generator, int cx, int cy) {
+        ChunkData chunk = generator.generate(cx, cy);
+        int i = Math.floorMod(cx * 31 + cy * 17, ChunkData.TILE_COUNT);
+        chunk.setType(i, Tile.TileType.DIRT);
+        chunk.setTorch(i, true);
+        chunk.setBlockLight(i, (byte) 14);
+        chunk.setSkyLight((i + 1) % ChunkData.TILE_COUNT, (byte) 9);
+        return chunk;
+    }
+}
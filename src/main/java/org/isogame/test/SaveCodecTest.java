@@ -0,0 +1,201 @@
+package org.isogame.test;
+
+import com.google.gson.Gson;
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.savegame.*;
+import org.isogame.tile.Tile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Round-trips chunks through ChunkCodec (generated terrain, edited chunks, noise
+ * that defeats the palette, and the old raw layout), a full GameSaveState through
+ * BinarySaveCodec, and checks that a JSON save still imports into a Map, with
+ * its chunks decoded only when first asked for.
+ */
+public class SaveCodecTest {
+
+    private static final long WORLD_SEED = 1234L;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Save Codec Test...");
+        ChunkGenerator generator = new ChunkGenerator(WORLD_SEED);
+        Random random = new Random(7);
+
+        // 1. Chunk payloads.
+        int chunkMismatches = 0;
+        long encodedBytes = 0;
+        int chunks = 0;
+        for (int cy = -6; cy <= 6; cy++) {
+            for (int cx = -6; cx <= 6; cx++) {
+                ChunkData chunk = generator.generate(cx, cy);
+                if (random.nextBoolean()) edit(chunk, random);
+                byte[] payload = ChunkCodec.encodeToArray(chunk);
+                encodedBytes += payload.length;
+                chunks++;
+                if (!chunk.contentEquals(ChunkCodec.decode(cx, cy, payload))) chunkMismatches++;
+            }
+        }
+        ChunkData noisy = randomChunk(random);
+        if (!noisy.contentEquals(ChunkCodec.decode(0, 0, ChunkCodec.encodeToArray(noisy)))) chunkMismatches++;
+        boolean noisyFits = ChunkCodec.encodeToArray(noisy).length <= ChunkCodec.maxEncodedSize();
+        boolean corruptRejected = ChunkCodec.decode(0, 0, new byte[]{ChunkCodec.VERSION_PALETTE, 1, 9}) == null;
+        // Pregenerated payloads keep their light and say so; ordinary ones don't.
+        ChunkData prelit = ChunkCodec.decode(0, 0, ChunkCodec.encodeLitToArray(noisy));
+        boolean litMarked = prelit != null && noisy.contentEquals(prelit) && prelit.isLightStored()
+                && !ChunkCodec.decode(0, 0, ChunkCodec.encodeToArray(noisy)).isLightStored();
+
+        // 2. Whole save state.
+        GameSaveState state = sampleState(generator);
+        Path dir = Files.createTempDirectory("save-codec-test");
+        Path file = dir.resolve("World" + BinarySaveCodec.FILE_EXTENSION);
+        BinarySaveCodec.write(state, file);
+        GameSaveState loaded = BinarySaveCodec.read(file);
+        Gson gson = new Gson();
+        boolean metaMatches = gson.toJson(state.playerData).equals(gson.toJson(loaded.playerData))
+                && gson.toJson(state.mapData.entities).equals(gson.toJson(loaded.mapData.entities))
+                && gson.toJson(state.tileEntityData).equals(gson.toJson(loaded.tileEntityData))
+                && state.pseudoTimeOfDay == loaded.pseudoTimeOfDay
+                && state.mapData.worldSeed == loaded.mapData.worldSeed
+                && state.mapData.playerSpawnR == loaded.mapData.playerSpawnR
+                && state.mapData.playerSpawnC == loaded.mapData.playerSpawnC
+                && state.mapData.regionGeneration == loaded.mapData.regionGeneration;
+        int savedChunkMismatches = 0;
+        for (int i = 0; i < state.mapData.encodedChunks.size(); i++) {
+            MapSaveData.EncodedChunk a = state.mapData.encodedChunks.get(i);
+            MapSaveData.EncodedChunk b = loaded.mapData.encodedChunks.get(i);
+            if (a.chunkX != b.chunkX || a.chunkY != b.chunkY || !java.util.Arrays.equals(a.data, b.data)) savedChunkMismatches++;
+        }
+        long fileBytes = Files.size(file);
+
+        // 3. A JSON save imports into the map.
+        ChunkData edited = generator.generate(2, -3);
+        edit(edited, random);
+        MapSaveData jsonMap = new MapSaveData();
+        jsonMap.worldSeed = WORLD_SEED;
+        MapSaveData.ChunkDiskData disk = new MapSaveData.ChunkDiskData(2, -3);
+        for (int y = 0; y < 16; y++) {
+            List<TileSaveData> row = new ArrayList<>();
+            for (int x = 0; x < 16; x++) {
+                int i = ChunkData.index(x, y);
+                TileSaveData tsd = new TileSaveData();
+                tsd.typeOrdinal = edited.getTypeOrdinal(i);
+                tsd.elevation = edited.getElevation(i);
+                tsd.hasTorch = edited.hasTorch(i);
+                tsd.skyLightLevel = edited.getSkyLight(i);
+                tsd.blockLightLevel = edited.getBlockLight(i);
+                tsd.treeTypeOrdinal = edited.getTreeTypeOrdinal(i);
+                tsd.looseRockTypeOrdinal = edited.getLooseRockTypeOrdinal(i);
+                row.add(tsd);
+            }
+            disk.tiles.add(row);
+        }
+        jsonMap.explicitlySavedChunks.add(disk);
+        MapSaveData parsed = gson.fromJson(gson.toJson(jsonMap), MapSaveData.class);
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        map.loadState(parsed);
+        boolean decodedLazily = !map.isChunkLoaded(2, -3) && map.getRegionStore().contains(2, -3);
+        // Imported chunks are stored as diffs against the generated terrain, which leave light out.
+        ChunkData baseline = generator.generate(2, -3);
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) edited.setPackedLight(i, baseline.getPackedLight(i));
+        boolean jsonImports = edited.contentEquals(map.getOrGenerateChunkTiles(2, -3));
+        // A pregenerated chunk loads with its light marked final until it is modified.
+        map.getRegionStore().writeEncoded(5, 5, ChunkCodec.encodeLitToArray(generator.generate(5, 5)));
+        ChunkData pregenerated = map.getOrGenerateChunkTiles(5, 5);
+        litMarked &= pregenerated.isLightStored();
+        map.markChunkAsModified(5, 5);
+        litMarked &= !pregenerated.isLightStored();
+        map.shutdown();
+
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+
+        System.out.println("Chunks encoded: " + chunks + ", average " + (encodedBytes / chunks) + " bytes (raw arrays: 1313)");
+        System.out.println("Chunk round-trip mismatches: " + chunkMismatches);
+        System.out.println("Incompressible chunk within bound: " + (noisyFits ? "YES" : "NO"));
+        System.out.println("Corrupt payload rejected: " + (corruptRejected ? "YES" : "NO"));
+        System.out.println("Pregenerated light marked until modified: " + (litMarked ? "YES" : "NO"));
+        System.out.println("Save state metadata matches: " + (metaMatches ? "YES" : "NO"));
+        System.out.println("Saved chunk mismatches: " + savedChunkMismatches + " (file " + fileBytes + " bytes)");
+        System.out.println("JSON save imports: " + (jsonImports ? "YES" : "NO") + " (decoded on first use: " + (decodedLazily ? "YES" : "NO") + ")");
+
+        boolean success = chunkMismatches == 0 && noisyFits && corruptRejected && litMarked && metaMatches
+                && savedChunkMismatches == 0 && loaded.mapData.encodedChunks.size() == state.mapData.encodedChunks.size()
+                && jsonImports && decodedLazily;
+        System.out.println("\nSave Codec Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    private static void edit(ChunkData chunk, Random random) {
+        for (int n = 0; n < 12; n++) {
+            int i = random.nextInt(ChunkData.TILE_COUNT);
+            chunk.setType(i, Tile.TileType.values()[random.nextInt(Tile.TileType.values().length)]);
+            chunk.setElevation(i, random.nextInt(41));
+            chunk.setTorch(i, random.nextBoolean());
+            chunk.setBlockLight(i, (byte) random.nextInt(15));
+        }
+    }
+
+    private static ChunkData randomChunk(Random random) {
+        ChunkData chunk = new ChunkData(0, 0);
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            chunk.setType(i, Tile.TileType.values()[random.nextInt(Tile.TileType.values().length)]);
+            chunk.setElevation(i, random.nextInt(128));
+            chunk.setPackedLight(i, random.nextInt(256));
+            chunk.setTreeType(i, Tile.TreeVisualType.values()[random.nextInt(Tile.TreeVisualType.values().length)]);
+            chunk.setLooseRockType(i, Tile.LooseRockType.values()[random.nextInt(Tile.LooseRockType.values().length)]);
+            chunk.setTorch(i, random.nextBoolean());
+        }
+        return chunk;
+    }
+
+    private static GameSaveState sampleState(ChunkGenerator generator) {
+        GameSaveState state = new GameSaveState();
+        state.pseudoTimeOfDay = 0.4375;
+        state.mapData = new MapSaveData();
+        state.mapData.worldSeed = WORLD_SEED;
+        state.mapData.regionGeneration = 17;
+        state.mapData.playerSpawnR = -17;
+        state.mapData.playerSpawnC = 300;
+        state.playerData = new PlayerSaveData();
+        state.playerData.mapRow = -12.5f;
+        state.playerData.mapCol = 99.25f;
+        state.playerData.inventory = new ArrayList<>();
+        for (int s = 0; s < 5; s++) {
+            InventorySlotSaveData slot = new InventorySlotSaveData();
+            slot.itemId = "wood";
+            slot.quantity = s * 7 + 1;
+            state.playerData.inventory.add((s % 2 == 0) ? slot : null);
+        }
+        for (int e = 0; e < 3; e++) {
+            EntitySaveData entity = new EntitySaveData();
+            entity.entityType = (e == 0) ? "COW" : "SLIME";
+            entity.mapRow = e * 3.5f;
+            entity.mapCol = -e;
+            entity.health = 10 - e;
+            state.mapData.entities.add(entity);
+        }
+        TileEntitySaveData furnace = new TileEntitySaveData();
+        furnace.type = "FURNACE";
+        furnace.row = -4;
+        furnace.col = 8;
+        Map<String, Object> slot = new HashMap<>();
+        slot.put("itemId", "sand");
+        slot.put("quantity", 3.0);
+        furnace.customData.put("inputSlot", slot);
+        furnace.customData.put("cookProgress", 0.5);
+        state.tileEntityData.add(furnace);
+        for (int c = 0; c < 20; c++) {
+            ChunkData chunk = generator.generate(c - 10, c * 3);
+            state.mapData.encodedChunks.add(new MapSaveData.EncodedChunk(chunk.chunkX, chunk.chunkY, ChunkCodec.encodeToArray(chunk)));
+        }
+        return state;
+    }
+}
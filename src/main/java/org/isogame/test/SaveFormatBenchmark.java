@@ -0,0 +1,142 @@
+package org.isogame.test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkGenerator;
+import org.isogame.savegame.*;
+import org.isogame.tile.Tile;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.isogame.constants.Constants.CHUNK_SIZE_TILES;
+
+/**
+ * Compares the old pretty-printed JSON saves with the binary save format for
+ * worlds with increasing numbers of modified chunks. Save time includes turning
+ * ChunkData into the on-disk form; load time includes turning it back.
+ */
+public class SaveFormatBenchmark {
+
+    private static final int[] CHUNK_COUNTS = {50, 400, 2000};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting Save Format Benchmark...");
+        ChunkGenerator generator = new ChunkGenerator(99L);
+        Path dir = Files.createTempDirectory("save-bench");
+        Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
+
+        System.out.printf("%8s | %12s %10s %10s | %12s %10s %10s%n",
+                "chunks", "json bytes", "save ms", "load ms", "binary bytes", "save ms", "load ms");
+        for (int count : CHUNK_COUNTS) {
+            List<ChunkData> chunks = new ArrayList<>(count);
+            int side = (int) Math.ceil(Math.sqrt(count));
+            for (int n = 0; n < count; n++) {
+                ChunkData chunk = generator.generate(n % side, n / side);
+                chunk.setType(n % ChunkData.TILE_COUNT, Tile.TileType.DIRT);
+                chunk.setTorch((n * 7) % ChunkData.TILE_COUNT, true);
+                chunks.add(chunk);
+            }
+            Path jsonFile = dir.resolve("bench.json");
+            Path binaryFile = dir.resolve("bench" + BinarySaveCodec.FILE_EXTENSION);
+
+            double jsonSave = Double.MAX_VALUE, jsonLoad = Double.MAX_VALUE;
+            double binarySave = Double.MAX_VALUE, binaryLoad = Double.MAX_VALUE;
+            long checksum = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                GameSaveState jsonState = baseState();
+                for (ChunkData chunk : chunks) jsonState.mapData.explicitlySavedChunks.add(toDiskData(chunk));
+                try (Writer writer = Files.newBufferedWriter(jsonFile)) {
+                    prettyGson.toJson(jsonState, writer);
+                }
+                long t1 = System.nanoTime();
+                GameSaveState jsonLoaded;
+                try (Reader reader = Files.newBufferedReader(jsonFile)) {
+                    jsonLoaded = new Gson().fromJson(reader, GameSaveState.class);
+                }
+                for (MapSaveData.ChunkDiskData cdd : jsonLoaded.mapData.explicitlySavedChunks) checksum += fromDiskData(cdd).getElevation(5);
+                long t2 = System.nanoTime();
+
+                GameSaveState binaryState = baseState();
+                for (ChunkData chunk : chunks) {
+                    binaryState.mapData.encodedChunks.add(new MapSaveData.EncodedChunk(chunk.chunkX, chunk.chunkY, ChunkCodec.encodeToArray(chunk)));
+                }
+                BinarySaveCodec.write(binaryState, binaryFile);
+                long t3 = System.nanoTime();
+                GameSaveState binaryLoaded = BinarySaveCodec.read(binaryFile);
+                for (MapSaveData.EncodedChunk encoded : binaryLoaded.mapData.encodedChunks) {
+                    checksum += ChunkCodec.decode(encoded.chunkX, encoded.chunkY, encoded.data).getElevation(5);
+                }
+                long t4 = System.nanoTime();
+
+                jsonSave = Math.min(jsonSave, (t1 - t0) / 1e6);
+                jsonLoad = Math.min(jsonLoad, (t2 - t1) / 1e6);
+                binarySave = Math.min(binarySave, (t3 - t2) / 1e6);
+                binaryLoad = Math.min(binaryLoad, (t4 - t3) / 1e6);
+            }
+            System.out.printf("%8d | %12d %10.1f %10.1f | %12d %10.1f %10.1f%n",
+                    count, Files.size(jsonFile), jsonSave, jsonLoad, Files.size(binaryFile), binarySave, binaryLoad);
+            if (checksum == 42) System.out.println(); // keep the decode work observable
+            Files.deleteIfExists(jsonFile);
+            Files.deleteIfExists(binaryFile);
+        }
+        Files.deleteIfExists(dir);
+        System.out.println("\nSave Format Benchmark completed.");
+    }
+
+    private static GameSaveState baseState() {
+        GameSaveState state = new GameSaveState();
+        state.mapData = new MapSaveData();
+        state.mapData.worldSeed = 99L;
+        state.playerData = new PlayerSaveData();
+        state.playerData.inventory = new ArrayList<>();
+        return state;
+    }
+
+    /** The per-tile conversion the JSON save path performed. */
+    private static MapSaveData.ChunkDiskData toDiskData(ChunkData chunk) {
+        MapSaveData.ChunkDiskData cdd = new MapSaveData.ChunkDiskData(chunk.chunkX, chunk.chunkY);
+        for (int y = 0; y < CHUNK_SIZE_TILES; y++) {
+            List<TileSaveData> row = new ArrayList<>();
+            for (int x = 0; x < CHUNK_SIZE_TILES; x++) {
+                int i = ChunkData.index(x, y);
+                TileSaveData tsd = new TileSaveData();
+                tsd.typeOrdinal = chunk.getTypeOrdinal(i);
+                tsd.elevation = chunk.getElevation(i);
+                tsd.hasTorch = chunk.hasTorch(i);
+                tsd.skyLightLevel = chunk.getSkyLight(i);
+                tsd.blockLightLevel = chunk.getBlockLight(i);
+                tsd.treeTypeOrdinal = chunk.getTreeTypeOrdinal(i);
+                tsd.looseRockTypeOrdinal = chunk.getLooseRockTypeOrdinal(i);
+                row.add(tsd);
+            }
+            cdd.tiles.add(row);
+        }
+        return cdd;
+    }
+
+    private static ChunkData fromDiskData(MapSaveData.ChunkDiskData cdd) {
+        ChunkData chunk = new ChunkData(cdd.chunkX, cdd.chunkY);
+        for (int y = 0; y < CHUNK_SIZE_TILES; y++) {
+            for (int x = 0; x < CHUNK_SIZE_TILES; x++) {
+                TileSaveData tsd = cdd.tiles.get(y).get(x);
+                int i = ChunkData.index(x, y);
+                chunk.setType(i, Tile.TileType.values()[tsd.typeOrdinal]);
+                chunk.setElevation(i, tsd.elevation);
+                chunk.setTorch(i, tsd.hasTorch);
+                chunk.setSkyLight(i, tsd.skyLightLevel);
+                chunk.setBlockLight(i, tsd.blockLightLevel);
+                chunk.setTreeType(i, Tile.TreeVisualType.values()[tsd.treeTypeOrdinal]);
+                chunk.setLooseRockType(i, Tile.LooseRockType.values()[tsd.looseRockTypeOrdinal]);
+            }
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,79 @@
+package org.isogame.test;
+
+import org.isogame.map.ChunkGenerator;
+import org.isogame.map.SimplexNoise;
+
+import java.util.Random;
+
+import static org.isogame.constants.Constants.CHUNK_SIZE_TILES;
+
+/**
+ * Verifies that the SimplexNoise grid API returns exactly the same bits as the
+ * scalar noise()/octaveNoise() path, and that chunk heightmaps built with
+ * ChunkGenerator.fillCombinedNoise match calculateCombinedNoise tile by tile.
+ */
+public class SimplexNoiseParityTest {
+
+    private static final int SEEDS = 300;
+
+    public static void main(String[] args) {
+        System.out.println("Starting SimplexNoise Parity Test...");
+        Random random = new Random(20240601L);
+        long mismatches = 0;
+        long samples = 0;
+
+        SimplexNoise.GridScratch scratch = new SimplexNoise.GridScratch();
+        for (int s = 0; s < SEEDS; s++) {
+            int seed = (s < 100) ? s - 50 : random.nextInt();
+            SimplexNoise noise = new SimplexNoise(seed);
+            ChunkGenerator generator = new ChunkGenerator(seed);
+
+            // Chunk-sized grids around the origin, far away, and at negative coordinates.
+            for (int probe = 0; probe < 4; probe++) {
+                int originX = (probe == 0) ? -CHUNK_SIZE_TILES : random.nextInt(2_000_000) - 1_000_000;
+                int originY = (probe == 0) ? 0 : random.nextInt(2_000_000) - 1_000_000;
+                int width = CHUNK_SIZE_TILES + (probe == 3 ? 7 : 0); // one non-square grid
+                int height = CHUNK_SIZE_TILES;
+                int cells = width * height;
+                double scale = (probe == 2) ? random.nextDouble() * 3.0 : 0.02 * (0.05 + probe * 0.35);
+
+                double[] grid = new double[cells];
+                float[] gridF = new float[cells];
+                double[] octaveGrid = new double[cells];
+                float[] octaveGridF = new float[cells];
+                double[] heightGrid = new double[cells];
+                noise.noiseGrid(grid, originX, originY, width, height, scale, scratch);
+                noise.noiseGrid(gridF, originX, originY, width, height, scale, scratch);
+                noise.octaveNoiseGrid(octaveGrid, originX, originY, width, height, scale, 4, 0.6, scratch);
+                noise.octaveNoiseGrid(octaveGridF, originX, originY, width, height, scale, 4, 0.6, scratch);
+                generator.fillCombinedNoise(heightGrid, originX, originY, width, height);
+
+                for (int row = 0; row < height; row++) {
+                    for (int col = 0; col < width; col++) {
+                        int i = row * width + col;
+                        double x = (originX + col), y = (originY + row);
+                        double scalar = noise.noise(x * scale, y * scale);
+                        double octave = noise.octaveNoise(x * scale, y * scale, 4, 0.6);
+                        double combined = generator.calculateCombinedNoise(x, y);
+                        if (!sameBits(grid[i], scalar)) mismatches++;
+                        if (Float.floatToRawIntBits(gridF[i]) != Float.floatToRawIntBits((float) scalar)) mismatches++;
+                        if (!sameBits(octaveGrid[i], octave)) mismatches++;
+                        if (Float.floatToRawIntBits(octaveGridF[i]) != Float.floatToRawIntBits((float) octave)) mismatches++;
+                        if (!sameBits(heightGrid[i], combined)) mismatches++;
+                        samples += 5;
+                    }
+                }
+            }
+        }
+
+        System.out.println("Seeds checked: " + SEEDS);
+        System.out.println("Samples compared: " + samples);
+        System.out.println("Mismatching samples: " + mismatches);
+        System.out.println("\nSimplexNoise Parity Test completed.");
+        System.out.println("TEST RESULT: " + (mismatches == 0 ? "SUCCESS" : "FAILURE"));
+    }
+
+    private static boolean sameBits(double a, double b) {
+        return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+    }
+}
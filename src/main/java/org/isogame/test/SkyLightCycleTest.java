@@ -0,0 +1,116 @@
+package org.isogame.test;
+
+import org.isogame.constants.Constants;
+import org.isogame.map.ChunkData;
+import org.isogame.map.LightManager;
+import org.isogame.world.World;
+
+import java.util.Arrays;
+
+/**
+ * Steps a lit 3x3 chunk area through a full day/night cycle the way the world
+ * does and checks that no chunk is marked dirty (so none is re-meshed) and no
+ * stored light changes. Also checks that the sky light applied at each level of
+ * the cycle equals what relighting every chunk for that level used to store.
+ */
+public class SkyLightCycleTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 1;
+    private static final int CYCLE_STEPS = 2000;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Sky Light Cycle Test...");
+
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        LightManager lightManager = map.getLightManager();
+        loadAndLight(map);
+        int torchRow = Constants.CHUNK_SIZE_TILES / 2, torchCol = torchRow;
+        lightManager.addLightSource(torchRow, torchCol, (byte) Constants.TORCH_LIGHT_LEVEL);
+        lightManager.processAllQueuesToCompletion();
+        lightManager.getDirtyChunksAndClear();
+        byte[][] before = snapshotLight(map);
+
+        // 1. A whole cycle: only the global level moves.
+        int dirtyChunks = 0;
+        int levelChanges = 0;
+        byte lastLevel = lightManager.getCurrentGlobalSkyLightTarget();
+        for (int step = 0; step <= CYCLE_STEPS; step++) {
+            byte level = World.calculateSkyLightForTime(step / (double) CYCLE_STEPS);
+            if (level != lastLevel) levelChanges++;
+            lastLevel = level;
+            lightManager.setCurrentGlobalSkyLightTarget(level);
+            lightManager.processLightQueuesIncrementally();
+            dirtyChunks += lightManager.getDirtyChunksAndClear().size();
+        }
+        boolean lightUnchanged = Arrays.deepEquals(before, snapshotLight(map));
+
+        // 2. Applied sky light matches the old per-level relight.
+        int mismatches = 0;
+        for (int level = Constants.SKY_LIGHT_NIGHT_MINIMUM; level <= Constants.SKY_LIGHT_DAY; level++) {
+            lightManager.setCurrentGlobalSkyLightTarget((byte) level);
+            org.isogame.map.Map relit = new org.isogame.map.Map(WORLD_SEED);
+            relit.getLightManager().setCurrentGlobalSkyLightTarget((byte) level);
+            loadAndLight(relit);
+            for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+                for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                    LightManager.ChunkCoordinate coord = new LightManager.ChunkCoordinate(cx, cy);
+                    relit.getLightManager().refreshSkyLightForSingleChunk(coord, (byte) level);
+                }
+            }
+            relit.getLightManager().processAllQueuesToCompletion();
+            for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+                for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                    ChunkData exposure = map.getLoadedChunk(cx, cy);
+                    ChunkData old = relit.getLoadedChunk(cx, cy);
+                    for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+                        if (lightManager.effectiveSkyLight(exposure.getSkyLight(i)) != old.getSkyLight(i)) mismatches++;
+                    }
+                }
+            }
+            relit.shutdown();
+        }
+        map.shutdown();
+
+        System.out.println("Sky level changes over the cycle: " + levelChanges);
+        System.out.println("Chunks marked for rebuild: " + dirtyChunks);
+        System.out.println("Stored light unchanged: " + (lightUnchanged ? "YES" : "NO"));
+        System.out.println("Applied sky light mismatches vs relighting: " + mismatches);
+
+        boolean success = levelChanges > 0 && dirtyChunks == 0 && lightUnchanged && mismatches == 0;
+        System.out.println("\nSky Light Cycle Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** Loads the area and lights it like chunk activation does. */
+    private static void loadAndLight(org.isogame.map.Map map) {
+        LightManager lightManager = map.getLightManager();
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                lightManager.initializeSkylightForChunk(new LightManager.ChunkCoordinate(cx, cy));
+            }
+        }
+        lightManager.processAllQueuesToCompletion();
+    }
+
+    private static byte[][] snapshotLight(org.isogame.map.Map map) {
+        int side = 2 * RADIUS + 1;
+        byte[][] light = new byte[side * side][ChunkData.TILE_COUNT];
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData chunk = map.getLoadedChunk(cx, cy);
+                byte[] out = light[(cy + RADIUS) * side + cx + RADIUS];
+                for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+                    out[i] = (byte) ((chunk.getSkyLight(i) << 4) | chunk.getBlockLight(i));
+                }
+            }
+        }
+        return light;
+    }
+}
@@ -0,0 +1,143 @@
+package org.isogame.test;
+
+import org.isogame.render.TerrainArenaAllocator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the terrain arena's allocator without a GL context, against simulated
+ * page memory: random allocate/free churn must never hand out overlapping
+ * ranges, defragmentation moves (applied as copies, like the GPU side does)
+ * must keep every range's contents intact, stay within their budget and reduce
+ * fragmentation, and freeing everything must leave each page one free block.
+ */
+public class TerrainArenaAllocatorTest {
+
+    private static final long SEED = 77L;
+    private static final int PAGE_VERTICES = 8192;
+    private static final int CHURN_OPERATIONS = 20000;
+    private static final int MAX_RANGE = 1024;
+    private static final int DEFRAG_BUDGET = 1024;
+
+    private static final class Live {
+        final TerrainArenaAllocator.Range range;
+        final int id;
+        Live(TerrainArenaAllocator.Range range, int id) { this.range = range; this.id = id; }
+    }
+
+    private static final List<int[]> memory = new ArrayList<>();
+    private static int overlaps;
+    private static int nextId = 1;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Terrain Arena Allocator Test...");
+
+        TerrainArenaAllocator allocator = new TerrainArenaAllocator(PAGE_VERTICES);
+        Random random = new Random(SEED);
+        List<Live> live = new ArrayList<>();
+
+        // 1. Churn: chunks rebuilt at new sizes, loaded and unloaded.
+        long expectedUsed = 0;
+        int accountingErrors = 0;
+        for (int op = 0; op < CHURN_OPERATIONS; op++) {
+            if (!live.isEmpty() && (random.nextInt(100) < 45 || live.size() > 60)) {
+                Live victim = live.remove(random.nextInt(live.size()));
+                release(allocator, victim);
+                expectedUsed -= victim.range.getLength();
+            } else {
+                Live fresh = allocate(allocator, 1 + random.nextInt(MAX_RANGE));
+                live.add(fresh);
+                expectedUsed += fresh.range.getLength();
+            }
+            if (allocator.getUsedVertices() != expectedUsed) accountingErrors++;
+        }
+        int corrupted = countCorrupted(live);
+
+        // 2. Fragment it further, then compact a budget at a time.
+        for (int i = live.size() - 1; i >= 0; i -= 2) {
+            Live victim = live.remove(i);
+            release(allocator, victim);
+        }
+        double fragmentationBefore = allocator.getFragmentation();
+        List<TerrainArenaAllocator.Move> moves = new ArrayList<>();
+        int rounds = 0, overBudget = 0, badMoves = 0;
+        while (true) {
+            moves.clear();
+            int moved = allocator.defragment(DEFRAG_BUDGET, moves);
+            if (moved == 0) break;
+            rounds++;
+            if (moved > DEFRAG_BUDGET) overBudget++;
+            for (TerrainArenaAllocator.Move move : moves) {
+                if (move.to + move.length > move.from && move.from + move.length > move.to) badMoves++; // overlaps itself
+                int[] page = memory.get(move.page);
+                System.arraycopy(page, move.from, page, move.to, move.length);
+                Arrays.fill(page, move.from, move.from + move.length, 0);
+            }
+        }
+        corrupted += countCorrupted(live);
+        double fragmentationAfter = allocator.getFragmentation();
+
+        // 3. Free everything: every page coalesces back to one block.
+        for (Live l : live) release(allocator, l);
+        boolean coalesced = allocator.getFreeBlockCount() == allocator.getPageCount()
+                && allocator.getLargestFreeBlock() == PAGE_VERTICES && allocator.getUsedVertices() == 0;
+
+        // 4. Misuse is rejected.
+        boolean doubleFreeRejected = false, oversizeRejected = false;
+        TerrainArenaAllocator.Range once = allocator.allocate(16);
+        allocator.free(once);
+        try { allocator.free(once); } catch (IllegalStateException e) { doubleFreeRejected = true; }
+        try { allocator.allocate(PAGE_VERTICES + 1); } catch (IllegalArgumentException e) { oversizeRejected = true; }
+
+        System.out.println("Churn: " + CHURN_OPERATIONS + " operations over " + allocator.getPageCount() + " pages, "
+                + overlaps + " overlapping ranges, " + accountingErrors + " accounting errors");
+        System.out.println("Defragmentation: " + rounds + " rounds, fragmentation "
+                + String.format("%.2f -> %.2f", fragmentationBefore, fragmentationAfter)
+                + ", over budget: " + overBudget + ", self-overlapping moves: " + badMoves);
+        System.out.println("Corrupted ranges: " + corrupted + ", coalesced after freeing all: " + (coalesced ? "YES" : "NO"));
+        System.out.println("Double free rejected: " + (doubleFreeRejected ? "YES" : "NO")
+                + ", oversize rejected: " + (oversizeRejected ? "YES" : "NO"));
+        System.out.println(allocator);
+
+        boolean success = overlaps == 0 && accountingErrors == 0 && corrupted == 0 && overBudget == 0 && badMoves == 0
+                && rounds > 0 && fragmentationAfter < fragmentationBefore && coalesced
+                && doubleFreeRejected && oversizeRejected;
+        System.out.println("\nTerrain Arena Allocator Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** Allocates and fills the range with a fresh id, counting any cell already taken. */
+    private static Live allocate(TerrainArenaAllocator allocator, int vertices) {
+        TerrainArenaAllocator.Range range = allocator.allocate(vertices);
+        while (memory.size() < allocator.getPageCount()) memory.add(new int[PAGE_VERTICES]);
+        int[] page = memory.get(range.getPage());
+        int id = nextId++;
+        for (int i = range.getStart(); i < range.getStart() + range.getLength(); i++) {
+            if (page[i] != 0) overlaps++;
+            page[i] = id;
+        }
+        return new Live(range, id);
+    }
+
+    private static void release(TerrainArenaAllocator allocator, Live live) {
+        TerrainArenaAllocator.Range range = live.range;
+        Arrays.fill(memory.get(range.getPage()), range.getStart(), range.getStart() + range.getLength(), 0);
+        allocator.free(range);
+    }
+
+    /** Ranges whose memory no longer holds their own id throughout. */
+    private static int countCorrupted(List<Live> live) {
+        int corrupted = 0;
+        for (Live l : live) {
+            int[] page = memory.get(l.range.getPage());
+            for (int i = l.range.getStart(); i < l.range.getStart() + l.range.getLength(); i++) {
+                if (page[i] != l.id) { corrupted++; break; }
+            }
+        }
+        return corrupted;
+    }
+}
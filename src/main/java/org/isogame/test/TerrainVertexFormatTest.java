@@ -0,0 +1,270 @@
+package org.isogame.test;
+
+import org.isogame.constants.Constants;
+import org.isogame.gamedata.TileDefinition;
+import org.isogame.gamedata.TileRegistry;
+import org.isogame.map.ChunkData;
+import org.isogame.render.ChunkMeshBuilder;
+import org.isogame.render.ChunkMeshSnapshot;
+import org.isogame.render.MeshData;
+import org.isogame.render.Renderer;
+import org.isogame.render.TerrainVertexFormat;
+import org.isogame.tile.Tile;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds packed chunk meshes and decodes them back to the float layout the
+ * shaders work with ({@link TerrainVertexFormat#unpack}), then checks that:
+ * every tile's top decodes to the position, depth, texture region, tint and light
+ * it is drawn with; positions and depths land exactly on the packed grid;
+ * pedestal texture coordinates decode to the dirt side texture; chunk meshes
+ * carry no selection tint, while a tile's highlight is exactly its faces in the
+ * chunk mesh, flagged for the selection tint; and the meshes fit the shared
+ * 16-bit quad index buffer. Reports the size against the layout the packed
+ * format replaced: 10 floats per vertex, six vertices per quad.
+ */
+public class TerrainVertexFormatTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 2;
+    private static final int ATLAS_SIZE = 1024;
+    private static final int FLOATS = Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
+    // The unpacked vertex before the packed format (position, tint, UV, light), drawn unindexed.
+    private static final int ORIGINAL_FLOATS = 10;
+    private static final int ORIGINAL_VERTICES_PER_QUAD = 6;
+    private static final float EPSILON = 1e-4f;
+    private static final float[] SELECTION_TINT = {0.25f, 0.5f, 0.75f, 1.0f};
+    private static final double MIN_SIZE_REDUCTION = 5.0;
+    private static final int HIGHLIGHT_CHUNK_X = -1;
+    private static final int HIGHLIGHT_CHUNK_Y = 1;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Terrain Vertex Format Test...");
+        TileRegistry.loadTileDefinitions();
+
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        ChunkMeshBuilder merged = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE);
+        // One top quad per tile, so the k-th top quad belongs to the k-th tile.
+        ChunkMeshBuilder perTile = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE, false);
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+
+        int topMismatches = 0, offGrid = 0, pedestalMismatches = 0, tooLarge = 0;
+        long packedBytes = 0, floatBytes = 0, vertices = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData chunk = map.getLoadedChunk(cx, cy);
+                MeshData mesh = perTile.build(capture(map, cx, cy));
+                float[] triangles = TerrainVertexFormat.unpack(mesh, perTile.getMaterials(), SELECTION_TINT);
+                topMismatches += checkTops(chunk, triangles);
+                offGrid += offGridVertices(mesh, triangles);
+                pedestalMismatches += checkPedestals(triangles);
+
+                MeshData mergedMesh = merged.build(capture(map, cx, cy));
+                if (mergedMesh.getQuadCount() > TerrainVertexFormat.MAX_QUADS_PER_CHUNK) tooLarge++;
+                packedBytes += mergedMesh.getByteCount();
+                floatBytes += (long) mergedMesh.getQuadCount() * ORIGINAL_VERTICES_PER_QUAD * ORIGINAL_FLOATS * Float.BYTES;
+                vertices += mergedMesh.vertexCount;
+            }
+        }
+
+        // Selection: chunk meshes never take the selection tint. A highlight is the tile's own
+        // faces (as drawn with a top per tile), all flagged for the tint, one top among them.
+        float[] chunkTriangles = TerrainVertexFormat.unpack(merged.build(capture(map, 0, 0)), merged.getMaterials(), SELECTION_TINT);
+        int tintedInChunk = 0;
+        for (int base = 0; base < chunkTriangles.length; base += FLOATS) {
+            if (sameColor(chunkTriangles, base, SELECTION_TINT)) tintedInChunk++;
+        }
+        // The tile with the most faces, in a chunk with raised columns, so sides are covered too.
+        ChunkData origin = map.getLoadedChunk(HIGHLIGHT_CHUNK_X, HIGHLIGHT_CHUNK_Y);
+        ByteBuffer highlight = ByteBuffer.allocate(ChunkMeshBuilder.MAX_VERTICES_PER_TILE * TerrainVertexFormat.BYTES_PER_VERTEX)
+                .order(ByteOrder.nativeOrder());
+        int highlighted = 0, highlightVertices = 0;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            highlight.clear();
+            int count = highlightTile(perTile, map, origin, i, highlight);
+            if (count > highlightVertices) { highlighted = i; highlightVertices = count; }
+        }
+        highlight.clear();
+        highlightTile(perTile, map, origin, highlighted, highlight);
+        MeshData plain = perTile.build(capture(map, HIGHLIGHT_CHUNK_X, HIGHLIGHT_CHUNK_Y));
+        Set<ByteBuffer> tileFaces = quads(plain.vertices, 0, plain.vertexCount);
+        int unflagged = 0, highlightTops = 0;
+        for (int v = 0; v < highlightVertices; v++) {
+            int mode = highlight.get(v * TerrainVertexFormat.BYTES_PER_VERTEX + 10);
+            if ((mode & TerrainVertexFormat.MODE_SELECTED) == 0) unflagged++;
+            if (v % 4 == 0 && (mode & 3) == 2) highlightTops++;
+        }
+        Set<ByteBuffer> highlightFaces = quads(highlight.array(), TerrainVertexFormat.MODE_SELECTED, highlightVertices);
+        int tinted = highlightVertices / TerrainVertexFormat.VERTICES_PER_QUAD;
+        boolean selectionOk = tintedInChunk == 0 && tinted > 1 && unflagged == 0 && highlightTops == 1
+                && highlightFaces.size() == tinted && tileFaces.containsAll(highlightFaces);
+        map.shutdown();
+
+        boolean indicesOk = checkQuadIndices();
+        double reduction = (double) floatBytes / Math.max(1, packedBytes);
+        System.out.println("Bytes per vertex: " + TerrainVertexFormat.BYTES_PER_VERTEX + " (was " + ORIGINAL_FLOATS * Float.BYTES + ")");
+        System.out.println("Terrain meshes: " + vertices + " vertices, " + packedBytes + " bytes (was "
+                + floatBytes + " unindexed, " + String.format("%.1f", reduction) + "x smaller)");
+        System.out.println("Top quads decoded wrong: " + topMismatches + ", vertices off the packed grid: " + offGrid
+                + ", pedestal texture coordinates wrong: " + pedestalMismatches);
+        System.out.println("Highlight quads: " + tinted + " (" + (tileFaces.containsAll(highlightFaces) ? "all" : "NOT all")
+                + " chunk faces), tinted vertices in chunk meshes: " + tintedInChunk + ", chunks over the index buffer: " + tooLarge
+                + ", quad indices: " + (indicesOk ? "OK" : "WRONG"));
+
+        boolean success = TerrainVertexFormat.BYTES_PER_VERTEX <= 12 && reduction >= MIN_SIZE_REDUCTION
+                && topMismatches == 0 && offGrid == 0 && pedestalMismatches == 0
+                && selectionOk && tooLarge == 0 && indicesOk;
+        System.out.println("\nTerrain Vertex Format Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    private static ChunkMeshSnapshot capture(org.isogame.map.Map map, int cx, int cy) {
+        return ChunkMeshSnapshot.capture(map.getLoadedChunk(cx, cy), map.getLoadedChunk(cx, cy + 1),
+                map.getLoadedChunk(cx + 1, cy), map.getLightManager());
+    }
+
+    private static int highlightTile(ChunkMeshBuilder builder, org.isogame.map.Map map, ChunkData chunk, int i, ByteBuffer out) {
+        return builder.buildTileHighlight(chunk, map.getLoadedChunk(chunk.chunkX, chunk.chunkY + 1),
+                map.getLoadedChunk(chunk.chunkX + 1, chunk.chunkY), map.getLightManager(),
+                chunk.globalRow(i), chunk.globalCol(i), out);
+    }
+
+    /** The packed quads among the first {@code vertexCount} vertices, with {@code modeFlag} cleared from the mode byte. */
+    private static Set<ByteBuffer> quads(byte[] vertices, int modeFlag, int vertexCount) {
+        int quadBytes = TerrainVertexFormat.VERTICES_PER_QUAD * TerrainVertexFormat.BYTES_PER_VERTEX;
+        Set<ByteBuffer> quads = new HashSet<>();
+        for (int q = 0; q < vertexCount / TerrainVertexFormat.VERTICES_PER_QUAD; q++) {
+            byte[] quad = Arrays.copyOfRange(vertices, q * quadBytes, (q + 1) * quadBytes);
+            for (int v = 0; v < TerrainVertexFormat.VERTICES_PER_QUAD; v++) {
+                quad[v * TerrainVertexFormat.BYTES_PER_VERTEX + 10] &= (byte) ~modeFlag;
+            }
+            quads.add(ByteBuffer.wrap(quad));
+        }
+        return quads;
+    }
+
+    /**
+     * Compares each tile's top quad, decoded as triangles (top, left, bottom),
+     * (top, bottom, right), with the diamond the tile is drawn as: corners at
+     * the tile's centre and elevation, Z a DEPTH_SORT_FACTOR either side of the
+     * tile's at the top and bottom corners (the fragment shader steps it back),
+     * texture coordinates counting one tile, the type's top texture region, and the tile's light.
+     */
+    private static int checkTops(ChunkData chunk, float[] triangles) {
+        int mismatches = 0;
+        int quad = 0;
+        float[][] corners = { {0, -1, -1, 0, 0}, {-1, 0, 0, 0, 1}, {0, 1, 1, 1, 1}, {0, -1, -1, 0, 0}, {0, 1, 1, 1, 1}, {1, 0, 0, 1, 0} };
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            Tile.TileType type = chunk.getType(i);
+            if (type == Tile.TileType.AIR) continue;
+            while (quad * 6 * FLOATS < triangles.length && triangles[quad * 6 * FLOATS + 14] != 2) quad++;
+            if (quad * 6 * FLOATS >= triangles.length) return mismatches + 1;
+
+            int r = chunk.globalRow(i), c = chunk.globalCol(i);
+            int elevation = chunk.getElevation(i);
+            int height = (type == Tile.TileType.WATER) ? Math.max(Constants.NIVEL_MAR - 1, elevation) : elevation;
+            float centerX = (c - r) * (Constants.TILE_WIDTH / 2.0f);
+            float centerY = (c + r) * (Constants.TILE_HEIGHT / 2.0f) - height * Constants.TILE_THICKNESS;
+            float z = (r + c) * Constants.DEPTH_SORT_FACTOR + elevation * 0.005f;
+            TileDefinition def = TileRegistry.getTileDefinition(type.id);
+            TileDefinition.TextureCoords top = (type != Tile.TileType.WATER && def != null && def.texture != null) ? def.texture.top : null;
+            float[] region = (top == null) ? new float[4]
+                    : new float[] { top.x / (float) ATLAS_SIZE, top.y / (float) ATLAS_SIZE, top.w / (float) ATLAS_SIZE, top.h / (float) ATLAS_SIZE };
+            float light = chunk.getSkyLight(i) * 16 + chunk.getBlockLight(i);
+
+            boolean ok = true;
+            for (int k = 0; k < 6; k++) {
+                int o = (quad * 6 + k) * FLOATS;
+                float[] corner = corners[k];
+                ok &= near(triangles[o], centerX + corner[0] * Constants.TILE_WIDTH / 2.0f)
+                        && near(triangles[o + 1], centerY + corner[1] * Constants.TILE_HEIGHT / 2.0f)
+                        && near(triangles[o + 2], z + corner[2] * Constants.DEPTH_SORT_FACTOR)
+                        && near(triangles[o + 7], corner[3]) && near(triangles[o + 8], corner[4])
+                        && near(triangles[o + 9], light)
+                        && near(triangles[o + 10], region[0]) && near(triangles[o + 11], region[1])
+                        && near(triangles[o + 12], region[2]) && near(triangles[o + 13], region[3]);
+                // Textured tops are untinted; water is the one translucent top.
+                if (top != null) ok &= sameColor(triangles, o, new float[] {1, 1, 1, 1});
+                if (type == Tile.TileType.WATER) ok &= triangles[o + 6] < 1.0f;
+            }
+            if (!ok) mismatches++;
+            quad++;
+        }
+        return mismatches;
+    }
+
+    /** Decoded vertices whose position or depth isn't a whole step from the chunk's origin. */
+    private static int offGridVertices(MeshData mesh, float[] triangles) {
+        Vector3f origin = TerrainVertexFormat.chunkOrigin(mesh.chunkX, mesh.chunkY, new Vector3f());
+        int off = 0;
+        for (int base = 0; base < triangles.length; base += FLOATS) {
+            double x = triangles[base] - origin.x, y = triangles[base + 1] - origin.y;
+            double zSteps = (triangles[base + 2] - origin.z) / TerrainVertexFormat.Z_UNIT;
+            if (!whole(x, 1e-3) || !whole(y, 1e-3) || !whole(zSteps, 1e-2)) off++;
+        }
+        return off;
+    }
+
+    /**
+     * Pedestal vertices (plain texture mode) must map to the dirt side texture's
+     * corners, BASE_THICKNESS deep; without that texture there are no pedestals.
+     */
+    private static int checkPedestals(float[] triangles) {
+        TileDefinition dirt = TileRegistry.getTileDefinition("dirt");
+        TileDefinition.TextureCoords side = (dirt != null && dirt.texture != null) ? dirt.texture.side : null;
+        if (side == null) {
+            int pedestalVertices = 0;
+            for (int base = 0; base < triangles.length; base += FLOATS) {
+                if (triangles[base + 14] == 0) pedestalVertices++;
+            }
+            return pedestalVertices;
+        }
+        float u0 = side.x / (float) ATLAS_SIZE, u1 = (side.x + side.w) / (float) ATLAS_SIZE;
+        float v0 = side.y / (float) ATLAS_SIZE, v1 = (side.y + side.h) / (float) ATLAS_SIZE;
+        float vBottom = v0 + (v1 - v0) * (Constants.BASE_THICKNESS / (float) Constants.TILE_HEIGHT);
+        int bad = 0;
+        for (int base = 0; base < triangles.length; base += FLOATS) {
+            if (triangles[base + 14] != 0) continue;
+            boolean uOk = near(triangles[base + 7], u0) || near(triangles[base + 7], u1);
+            boolean vOk = near(triangles[base + 8], v0) || near(triangles[base + 8], vBottom);
+            if (!uOk || !vOk) bad++;
+        }
+        return bad;
+    }
+
+    private static boolean checkQuadIndices() {
+        short[] indices = TerrainVertexFormat.quadIndices(TerrainVertexFormat.MAX_QUADS_PER_CHUNK);
+        if (indices.length != TerrainVertexFormat.MAX_QUADS_PER_CHUNK * 6) return false;
+        int[] pattern = {0, 1, 2, 0, 2, 3};
+        for (int k = 0; k < indices.length; k++) {
+            if ((indices[k] & 0xFFFF) != (k / 6) * 4 + pattern[k % 6]) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameColor(float[] triangles, int base, float[] color) {
+        for (int j = 0; j < 4; j++) {
+            if (!near(triangles[base + 3 + j], color[j])) return false;
+        }
+        return true;
+    }
+
+    private static boolean near(float a, float b) {
+        return Math.abs(a - b) <= EPSILON * Math.max(1.0f, Math.abs(b));
+    }
+
+    private static boolean whole(double value, double tolerance) {
+        return Math.abs(value - Math.rint(value)) <= tolerance;
+    }
+}
@@ -0,0 +1,199 @@
+package org.isogame.test;
+
+import org.isogame.constants.Constants;
+import org.isogame.gamedata.TileRegistry;
+import org.isogame.map.ChunkData;
+import org.isogame.render.ChunkMeshBuilder;
+import org.isogame.render.ChunkMeshSnapshot;
+import org.isogame.render.MeshData;
+import org.isogame.render.Renderer;
+import org.isogame.render.TerrainVertexFormat;
+import org.isogame.tile.Tile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Meshes an area with merged tops and with a top per tile, and checks that the
+ * merged mesh draws the same picture and is much smaller on flat ground.
+ * "Same picture" is checked by rasterising both meshes at points inside every
+ * tile's top, the way the shaders do (texture modes, the depth step of merged
+ * tops, LEQUAL depth test, blending order): the fragments that reach each point
+ * must be the same atlas texels, tints, light and depth, in the same order.
+ */
+public class TopFaceMergingTest {
+
+    private static final long WORLD_SEED = 2024L;
+    private static final int RADIUS = 3;
+    private static final int ATLAS_SIZE = 1024;
+    private static final int FLOATS = Renderer.FLOATS_PER_VERTEX_TERRAIN_TEXTURED;
+    // Points inside a tile's top, as (column, row) fractions; off its diagonals and texel edges.
+    private static final double[][] SAMPLES = { {0.31, 0.57}, {0.69, 0.43}, {0.45, 0.18}, {0.22, 0.83} };
+    // Barycentric and depth margins below which a sample is too close to call.
+    private static final double EDGE_EPSILON = 1e-5;
+    private static final double DEPTH_EPSILON = 1e-4;
+    // A chunk counts as flat when at most this share of its tiles differ in height from the tile to their right.
+    private static final double FLAT_MAX_STEPS = 0.1;
+    private static final double MIN_FLAT_REDUCTION = 3.0;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.out.println("Starting Top Face Merging Test...");
+        TileRegistry.loadTileDefinitions();
+
+        org.isogame.map.Map map = new org.isogame.map.Map(WORLD_SEED);
+        ChunkMeshBuilder merged = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE);
+        ChunkMeshBuilder perTile = new ChunkMeshBuilder(ATLAS_SIZE, ATLAS_SIZE, false);
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                map.getOrGenerateChunkTiles(cx, cy);
+            }
+        }
+
+        long before = 0, after = 0, flatBefore = 0, flatAfter = 0;
+        int flatChunks = 0;
+        int samples = 0, skipped = 0, mismatches = 0;
+        for (int cy = -RADIUS; cy <= RADIUS; cy++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                ChunkData chunk = map.getLoadedChunk(cx, cy);
+                ChunkMeshSnapshot snapshot = ChunkMeshSnapshot.capture(chunk, map.getLoadedChunk(cx, cy + 1),
+                        map.getLoadedChunk(cx + 1, cy), map.getLightManager());
+                MeshData mergedMesh = merged.build(snapshot);
+                MeshData perTileMesh = perTile.build(snapshot);
+                float[] mergedTriangles = TerrainVertexFormat.unpack(mergedMesh, merged.getMaterials(), null);
+                float[] perTileTriangles = TerrainVertexFormat.unpack(perTileMesh, perTile.getMaterials(), null);
+                before += perTileMesh.vertexCount;
+                after += mergedMesh.vertexCount;
+                if (heightSteps(chunk) <= FLAT_MAX_STEPS) {
+                    flatChunks++;
+                    flatBefore += perTileMesh.vertexCount;
+                    flatAfter += mergedMesh.vertexCount;
+                }
+
+                for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+                    if (chunk.getType(i) == Tile.TileType.AIR) continue;
+                    for (double[] sample : SAMPLES) {
+                        double[] point = topPoint(chunk, i, sample[0], sample[1]);
+                        List<float[]> expected = rasterize(perTileTriangles, point[0], point[1]);
+                        List<float[]> actual = rasterize(mergedTriangles, point[0], point[1]);
+                        samples++;
+                        if (expected == null || actual == null) {
+                            skipped++;
+                        } else if (!sameFragments(expected, actual)) {
+                            mismatches++;
+                        }
+                    }
+                }
+            }
+        }
+        map.shutdown();
+
+        double reduction = (double) before / Math.max(1, after);
+        double flatReduction = (double) flatBefore / Math.max(1, flatAfter);
+        System.out.println("All chunks: " + before + " -> " + after + " vertices (" + String.format("%.1f", reduction) + "x fewer)");
+        System.out.println("Flat chunks (" + flatChunks + "): " + flatBefore + " -> " + flatAfter
+                + " vertices (" + String.format("%.1f", flatReduction) + "x fewer)");
+        System.out.println("Top samples: " + samples + ", too close to an edge or depth tie: " + skipped
+                + ", different picture: " + mismatches);
+
+        boolean success = flatChunks > 0 && flatReduction >= MIN_FLAT_REDUCTION && after < before
+                && mismatches == 0 && skipped < samples / 20;
+        System.out.println("\nTop Face Merging Test completed.");
+        System.out.println("TEST RESULT: " + (success ? "SUCCESS" : "FAILURE"));
+    }
+
+    /** Share of tiles whose height differs from the tile in the next column. */
+    private static double heightSteps(ChunkData chunk) {
+        int steps = 0, pairs = 0;
+        for (int r = 0; r < Constants.CHUNK_SIZE_TILES; r++) {
+            for (int c = 0; c + 1 < Constants.CHUNK_SIZE_TILES; c++) {
+                pairs++;
+                if (chunk.getElevation(ChunkData.index(c, r)) != chunk.getElevation(ChunkData.index(c + 1, r))) steps++;
+            }
+        }
+        return (double) steps / pairs;
+    }
+
+    /** Screen position of a point on a tile's top, {@code a} along its columns and {@code b} along its rows. */
+    private static double[] topPoint(ChunkData chunk, int i, double a, double b) {
+        int r = chunk.globalRow(i);
+        int c = chunk.globalCol(i);
+        int height = chunk.getElevation(i);
+        if (chunk.getType(i) == Tile.TileType.WATER) height = Math.max(Constants.NIVEL_MAR - 1, height);
+        double halfW = Constants.TILE_WIDTH / 2.0, halfH = Constants.TILE_HEIGHT / 2.0;
+        double x = (c - r) * halfW;
+        double y = (c + r) * halfH - height * Constants.TILE_THICKNESS;
+        // Top corner, plus a towards the right corner and b towards the left corner.
+        return new double[] { x + (a - b) * halfW, y - halfH + (a + b) * halfH };
+    }
+
+    /**
+     * The fragments that end up at a screen point of an unpacked mesh
+     * ({@link TerrainVertexFormat#unpack}), in drawing order from the
+     * last opaque one: {texel u, texel v, r, g, b, a, light, depth as world Z},
+     * the depth being what sprites drawn later sort against. Null if the point
+     * is on an edge or two surfaces there are too close in depth to call.
+     */
+    private static List<float[]> rasterize(float[] v, double px, double py) {
+        List<float[]> fragments = new ArrayList<>();
+        double storedZ = Double.NEGATIVE_INFINITY;
+        int vertexCount = v.length / FLOATS;
+        for (int t = 0; t + 2 < vertexCount; t += 3) {
+            int o0 = t * FLOATS, o1 = o0 + FLOATS, o2 = o1 + FLOATS;
+            double x0 = v[o0], y0 = v[o0 + 1], x1 = v[o1], y1 = v[o1 + 1], x2 = v[o2], y2 = v[o2 + 1];
+            double d = (y1 - y2) * (x0 - x2) + (x2 - x1) * (y0 - y2);
+            if (d == 0) continue;
+            double w0 = ((y1 - y2) * (px - x2) + (x2 - x1) * (py - y2)) / d;
+            double w1 = ((y2 - y0) * (px - x2) + (x0 - x2) * (py - y2)) / d;
+            double w2 = 1 - w0 - w1;
+            double min = Math.min(w0, Math.min(w1, w2));
+            if (min < -EDGE_EPSILON) continue;
+            if (min < EDGE_EPSILON) return null;
+
+            double s = w0 * v[o0 + 7] + w1 * v[o1 + 7] + w2 * v[o2 + 7];
+            double tc = w0 * v[o0 + 8] + w1 * v[o1 + 8] + w2 * v[o2 + 8];
+            double z = w0 * v[o0 + 2] + w1 * v[o1 + 2] + w2 * v[o2 + 2];
+            double rx = v[o0 + 10], ry = v[o0 + 11], rw = v[o0 + 12], rh = v[o0 + 13];
+            int mode = (int) v[o0 + 14];
+            double u = s, vv = tc;
+            if (mode == 2) {
+                double fs = s - Math.floor(s), ft = tc - Math.floor(tc);
+                u = rx + (0.5 + (fs - ft) * 0.5) * rw;
+                vv = ry + (fs + ft) * 0.5 * rh;
+                z += Constants.DEPTH_SORT_FACTOR * (1 - fs - ft);
+            } else if (mode == 1) {
+                vv = ry + (tc - Math.floor(tc)) * rh;
+            }
+
+            // Larger Z is nearer the camera; LEQUAL lets equal depth through.
+            if (Math.abs(z - storedZ) < DEPTH_EPSILON) return null;
+            if (z < storedZ) continue;
+            storedZ = z;
+            float[] fragment = {
+                    (float) Math.floor(u * ATLAS_SIZE), (float) Math.floor(vv * ATLAS_SIZE),
+                    v[o0 + 3], v[o0 + 4], v[o0 + 5], v[o0 + 6],
+                    (float) (w0 * v[o0 + 9] + w1 * v[o1 + 9] + w2 * v[o2 + 9]),
+                    (float) z
+            };
+            if (fragment[5] >= 1.0f) fragments.clear();
+            fragments.add(fragment);
+        }
+        return fragments;
+    }
+
+    private static boolean sameFragments(List<float[]> a, List<float[]> b) {
+        if (a.size() != b.size()) return false;
+        for (int k = 0; k < a.size(); k++) {
+            float[] fa = a.get(k), fb = b.get(k);
+            for (int j = 0; j < fa.length; j++) {
+                double tolerance = (j == 6) ? 1e-3 : (j == 7) ? DEPTH_EPSILON : 0;
+                if (Math.abs(fa[j] - fb[j]) > tolerance) {
+                    System.err.println("Fragment differs: " + Arrays.toString(fa) + " vs " + Arrays.toString(fb));
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
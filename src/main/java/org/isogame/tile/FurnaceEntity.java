@@ -79,6 +79,10 @@ public class FurnaceEntity extends TileEntity {
             currentFrame = 0;
         }
 
+        if (fuelTime > 0 || isSmelting != wasSmelting) {
+            markDirty();
+        }
+
         if (isSmelting && !wasSmelting) {
             game.getLightManager().addLightSource(this.row, this.col, (byte)13);
         } else if (!isSmelting && wasSmelting) {
@@ -118,7 +122,10 @@ public class FurnaceEntity extends TileEntity {
     }
 
     @Override
-    public void onInteract(Game game) { game.getUiManager().openFurnaceUI(this); }
+    public void onInteract(Game game) {
+        markDirty();
+        game.getUiManager().openFurnaceUI(this);
+    }
 
     @Override
     public TileEntitySaveData getSaveData() {
@@ -140,7 +147,8 @@ public class FurnaceEntity extends TileEntity {
 
     public boolean isSmelting() { return isSmelting; }
     public int getCurrentFrame() { return currentFrame; }
-    public InventorySlot getInputSlot() { return inputSlot; }
-    public InventorySlot getFuelSlot() { return fuelSlot; }
-    public InventorySlot getOutputSlot() { return outputSlot; }
+    // Callers may change the slots through these, so handing one out counts as a change.
+    public InventorySlot getInputSlot() { markDirty(); return inputSlot; }
+    public InventorySlot getFuelSlot() { markDirty(); return fuelSlot; }
+    public InventorySlot getOutputSlot() { markDirty(); return outputSlot; }
 }
\ No newline at end of file
@@ -1,7 +1,13 @@
 package org.isogame.tile;
 
-import static org.isogame.constants.Constants.MAX_LIGHT_LEVEL;
-
+import org.isogame.map.ChunkData;
+
+/**
+ * A lightweight view of a single tile inside a {@link ChunkData}.
+ * The tile itself owns no state: every getter and setter reads or writes the
+ * packed chunk arrays, so views are cheap to create and two views of the same
+ * tile are {@link #equals(Object) equal}.
+ */
 public class Tile {
 
     // In Tile.java
@@ -36,50 +42,35 @@ public class Tile {
         NONE, APPLE_TREE_FRUITING, PINE_TREE_SMALL, PALM_TREE
     }
 
-    private TileType type;
-    private int elevation;
-    private TreeVisualType treeType;
-    private LooseRockType looseRockType = LooseRockType.NONE;
-    private TileEntity tileEntity = null;
-
-    private int health = 0;
-    private int maxHealth = 0;
-
-    private byte skyLightLevel = 0;
-    private byte blockLightLevel = 0;
-    private boolean hasTorch = false;
-
-    // --- NEW: Fields for tree shake effect ---
-    public double treeShakeTimer = 0.0;
     private static final double TREE_SHAKE_DURATION = 0.2; // How long the shake lasts in seconds
 
-    public Tile(TileType type, int elevation) {
-        this.type = type;
-        this.elevation = elevation;
-        this.treeType = TreeVisualType.NONE;
+    private final ChunkData chunk;
+    private final int index;
+
+    public Tile(ChunkData chunk, int index) {
+        this.chunk = chunk;
+        this.index = index;
     }
 
     /**
-     * --- NEW: Starts the tree shake timer. ---
+     * Starts the tree shake timer.
      * This is called when a projectile hits the tree.
      */
     public void startShake() {
-        if (this.treeType != TreeVisualType.NONE) {
-            this.treeShakeTimer = TREE_SHAKE_DURATION;
+        if (getTreeType() != TreeVisualType.NONE) {
+            chunk.setShakeTimer(index, TREE_SHAKE_DURATION);
         }
     }
 
     public void takeDamage(int amount) {
-        if (this.health > 0) {
-            this.health -= amount;
-        }
+        chunk.damage(index, amount);
     }
 
-    public boolean isTransparentToSkyLight() {
+    public static boolean isTransparentToSkyLight(TileType type) {
         return type == TileType.AIR || type == TileType.WATER;
     }
 
-    public boolean isSolidOpaqueBlock() {
+    public static boolean isSolidOpaqueBlock(TileType type) {
         switch (type) {
             case AIR:
             case WATER:
@@ -89,36 +80,48 @@ public class Tile {
         }
     }
 
+    public boolean isTransparentToSkyLight() { return isTransparentToSkyLight(getType()); }
+    public boolean isSolidOpaqueBlock() { return isSolidOpaqueBlock(getType()); }
+
     // --- Getters and Setters ---
-    public TileType getType() { return type; }
-    public void setType(TileType type) { this.type = type; }
-    public int getElevation() { return elevation; }
-    public void setElevation(int elevation) { this.elevation = elevation; }
-    public TreeVisualType getTreeType() { return treeType; }
-    public int getHealth() { return health; }
-
-    public void setTreeType(TreeVisualType treeType) {
-        this.treeType = treeType;
-        if (treeType != TreeVisualType.NONE) {
-            this.maxHealth = 50;
-            this.health = this.maxHealth;
-        } else {
-            this.health = 0;
-            this.maxHealth = 0;
-        }
+    public TileType getType() { return chunk.getType(index); }
+    public void setType(TileType type) { chunk.setType(index, type); }
+    public int getElevation() { return chunk.getElevation(index); }
+    public void setElevation(int elevation) { chunk.setElevation(index, elevation); }
+    public TreeVisualType getTreeType() { return chunk.getTreeType(index); }
+    public void setTreeType(TreeVisualType treeType) { chunk.setTreeType(index, treeType); }
+    public int getHealth() { return chunk.getHealth(index); }
+
+    public double getTreeShakeTimer() { return chunk.getShakeTimer(index); }
+    public void setTreeShakeTimer(double seconds) { chunk.setShakeTimer(index, seconds); }
+
+    public TileEntity getTileEntity() { return chunk.getTileEntity(index); }
+    public void setTileEntity(TileEntity tileEntity) { chunk.setTileEntity(index, tileEntity); }
+    public boolean hasTileEntity() { return chunk.getTileEntity(index) != null; }
+
+    public byte getSkyLightLevel() { return chunk.getSkyLight(index); }
+    public void setSkyLightLevel(byte level) { chunk.setSkyLight(index, level); }
+    public byte getBlockLightLevel() { return chunk.getBlockLight(index); }
+    public void setBlockLightLevel(byte level) { chunk.setBlockLight(index, level); }
+    public boolean hasTorch() { return chunk.hasTorch(index); }
+    public void setHasTorch(boolean hasTorch) { chunk.setTorch(index, hasTorch); }
+    public byte getFinalLightLevel() { return chunk.getFinalLight(index); }
+    public LooseRockType getLooseRockType() { return chunk.getLooseRockType(index); }
+    public void setLooseRockType(LooseRockType looseRockType) { chunk.setLooseRockType(index, looseRockType); }
+
+    public ChunkData getChunk() { return chunk; }
+    public int getLocalIndex() { return index; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Tile)) return false;
+        Tile other = (Tile) o;
+        return chunk == other.chunk && index == other.index;
     }
 
-    public TileEntity getTileEntity() { return tileEntity; }
-    public void setTileEntity(TileEntity tileEntity) { this.tileEntity = tileEntity; }
-    public boolean hasTileEntity() { return tileEntity != null; }
-
-    public byte getSkyLightLevel() { return skyLightLevel; }
-    public void setSkyLightLevel(byte level) { this.skyLightLevel = (byte) Math.max(0, Math.min(MAX_LIGHT_LEVEL, level)); }
-    public byte getBlockLightLevel() { return blockLightLevel; }
-    public void setBlockLightLevel(byte level) { this.blockLightLevel = (byte) Math.max(0, Math.min(MAX_LIGHT_LEVEL, level)); }
-    public boolean hasTorch() { return hasTorch; }
-    public void setHasTorch(boolean hasTorch) { this.hasTorch = hasTorch; }
-    public byte getFinalLightLevel() { return (byte) Math.max(skyLightLevel, blockLightLevel); }
-    public LooseRockType getLooseRockType() { return looseRockType; }
-    public void setLooseRockType(LooseRockType looseRockType) { this.looseRockType = looseRockType; }
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(chunk) + index;
+    }
 }
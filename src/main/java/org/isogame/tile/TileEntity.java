@@ -8,6 +8,8 @@ import org.isogame.savegame.TileEntitySaveData;
 public abstract class TileEntity {
     protected final int row;
     protected final int col;
+    // Set whenever the state returned by getSaveData() may have changed since the last save.
+    private boolean dirty = true;
 
     public TileEntity(int row, int col) {
         this.row = row;
@@ -23,6 +25,10 @@ public abstract class TileEntity {
 
 
 
+    public void markDirty() { dirty = true; }
+    public boolean isDirty() { return dirty; }
+    public void clearDirty() { dirty = false; }
+
     // Getters
     public int getRow() { return row; }
     public int getCol() { return col; }
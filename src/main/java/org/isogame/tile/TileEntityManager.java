@@ -1,8 +1,8 @@
 package org.isogame.tile;
 
 import org.isogame.game.Game;
-import org.isogame.map.LightManager.ChunkCoordinate;
-import org.isogame.constants.Constants;
+import org.isogame.map.ChunkData;
+import org.isogame.map.ChunkIndex;
 import org.isogame.savegame.TileEntitySaveData;
 
 import java.util.ArrayList;
@@ -11,21 +11,25 @@ import java.util.List;
 import java.util.Map;
 
 public class TileEntityManager {
-    // The key is a coordinate, the value is the TileEntity at that location
-    private final Map<ChunkCoordinate, Map<String, TileEntity>> tileEntities = new HashMap<>();
+    // Outer key is the chunk, inner key is the tile's local index within that chunk
+    private final ChunkIndex<Map<Integer, TileEntity>> tileEntities = new ChunkIndex<>();
+    // Last save data of each tile entity, so a save only rebuilds the ones that changed.
+    private final Map<TileEntity, TileEntitySaveData> savedData = new HashMap<>();
 
     public void addTileEntity(TileEntity te) {
-        ChunkCoordinate coord = new ChunkCoordinate(
-                Math.floorDiv(te.getCol(), Constants.CHUNK_SIZE_TILES),
-                Math.floorDiv(te.getRow(), Constants.CHUNK_SIZE_TILES)
-        );
-        String posKey = te.getRow() + ":" + te.getCol();
-
-        tileEntities.computeIfAbsent(coord, k -> new HashMap<>()).put(posKey, te);
+        int chunkX = ChunkData.chunkCoordOf(te.getCol());
+        int chunkY = ChunkData.chunkCoordOf(te.getRow());
+        Map<Integer, TileEntity> chunkMap = tileEntities.get(chunkX, chunkY);
+        if (chunkMap == null) {
+            chunkMap = new HashMap<>();
+            tileEntities.put(chunkX, chunkY, chunkMap);
+        }
+        TileEntity replaced = chunkMap.put(ChunkData.indexOfGlobal(te.getRow(), te.getCol()), te);
+        if (replaced != null) savedData.remove(replaced);
     }
 
     public void update(double deltaTime, Game game) {
-        for (Map<String, TileEntity> chunkMap : tileEntities.values()) {
+        for (Map<Integer, TileEntity> chunkMap : tileEntities) {
             for (TileEntity te : chunkMap.values()) {
                 te.update(deltaTime, game);
             }
@@ -33,18 +37,18 @@ public class TileEntityManager {
     }
 
     public TileEntity getTileEntityAt(int row, int col) {
-        ChunkCoordinate coord = new ChunkCoordinate(
-                Math.floorDiv(col, Constants.CHUNK_SIZE_TILES),
-                Math.floorDiv(row, Constants.CHUNK_SIZE_TILES)
-        );
-        String posKey = row + ":" + col;
-
-        if (tileEntities.containsKey(coord)) {
-            return tileEntities.get(coord).get(posKey);
+        Map<Integer, TileEntity> chunkMap = tileEntities.get(ChunkData.chunkCoordOf(col), ChunkData.chunkCoordOf(row));
+        if (chunkMap != null) {
+            return chunkMap.get(ChunkData.indexOfGlobal(row, col));
         }
         return null;
     }
 
+    /** Tile entities inside one chunk, keyed by local tile index; null if there are none. */
+    public Map<Integer, TileEntity> getTileEntitiesInChunk(int chunkX, int chunkY) {
+        return tileEntities.get(chunkX, chunkY);
+    }
+
     /**
      * Gathers all TileEntity objects from all active chunks into a single list.
      * This is used by the Renderer to draw all interactive blocks.
@@ -53,22 +57,54 @@ public class TileEntityManager {
      */
     public List<TileEntity> getAllTileEntities() {
         List<TileEntity> allEntities = new ArrayList<>();
-        for (Map<String, TileEntity> chunkMap : tileEntities.values()) {
+        for (Map<Integer, TileEntity> chunkMap : tileEntities) {
             allEntities.addAll(chunkMap.values());
         }
         return allEntities;
     }
         public void populateSaveData (List < TileEntitySaveData > tileEntityData) {
-            for (Map<String, TileEntity> chunkMap : tileEntities.values()) {
+            for (Map<Integer, TileEntity> chunkMap : tileEntities) {
                 for (TileEntity te : chunkMap.values()) {
                     tileEntityData.add(te.getSaveData());
                 }
             }
         }
 
+        /**
+         * Like {@link #populateSaveData(List)}, but only tile entities marked dirty are
+         * serialized again; the rest reuse their data from the previous save. The
+         * returned objects are not touched afterwards, so a background saver may keep them.
+         */
+        public void snapshotSaveData (List < TileEntitySaveData > tileEntityData) {
+            for (Map<Integer, TileEntity> chunkMap : tileEntities) {
+                for (TileEntity te : chunkMap.values()) {
+                    TileEntitySaveData data = savedData.get(te);
+                    if (data == null || te.isDirty()) {
+                        data = te.getSaveData();
+                        savedData.put(te, data);
+                        te.clearDirty();
+                    }
+                    tileEntityData.add(data);
+                }
+            }
+        }
+
+        /** True if some tile entity changed (or was added) since the last {@link #snapshotSaveData(List)}. */
+        public boolean hasUnsavedChanges () {
+            int count = 0;
+            for (Map<Integer, TileEntity> chunkMap : tileEntities) {
+                for (TileEntity te : chunkMap.values()) {
+                    if (te.isDirty() || !savedData.containsKey(te)) return true;
+                    count++;
+                }
+            }
+            return count != savedData.size();
+        }
+
         // NEW METHOD: Load all tile entities
         public void loadState (List < TileEntitySaveData > tileEntityData, Game game){
             this.tileEntities.clear();
+            this.savedData.clear();
             for (TileEntitySaveData saveData : tileEntityData) {
                 if ("FURNACE".equals(saveData.type)) {
                     addTileEntity(new FurnaceEntity(saveData));
@@ -0,0 +1,121 @@
+package org.isogame.world;
+
+import org.isogame.map.LightManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Recently deactivated chunks whose tiles, lighting and mesh are kept around, so a
+ * player turning back doesn't pay for generation, relighting and meshing again.
+ *
+ * The cache only does the bookkeeping: {@link World} parks a chunk here when it
+ * leaves the unload radius and takes it back when it comes into the load radius
+ * again. Chunks are evicted least recently parked first once the estimated bytes
+ * of tile data and mesh exceed the budget; the caller then really unloads them.
+ *
+ * While parked, a chunk is not updated by the world. The entry remembers whether
+ * its mesh went stale (lighting reached into it from an active neighbour), so the
+ * caller only rebuilds it when needed. The time of day doesn't matter: stored sky
+ * light doesn't depend on it.
+ *
+ * Main thread only.
+ */
+public class ChunkRetentionCache {
+
+    /** What the world needs to know about a chunk it takes back. */
+    public static final class Entry {
+        public final long bytes;
+        private boolean meshStale;
+
+        Entry(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public boolean isMeshStale() { return meshStale; }
+    }
+
+    private final long budgetBytes;
+    // Insertion order is parking order, i.e. eviction order.
+    private final LinkedHashMap<LightManager.ChunkCoordinate, Entry> entries = new LinkedHashMap<>();
+    private long retainedBytes;
+
+    // --- Stats ---
+    private long chunksRetained;
+    private long chunksReclaimed;
+    private long chunksEvicted;
+
+    public ChunkRetentionCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public boolean contains(LightManager.ChunkCoordinate coord) {
+        return entries.containsKey(coord);
+    }
+
+    /**
+     * Parks a chunk that was just deactivated. {@code bytes} is its estimated footprint.
+     * Returns the chunks that no longer fit, oldest first; the caller unloads them.
+     */
+    public List<LightManager.ChunkCoordinate> retain(LightManager.ChunkCoordinate coord, long bytes) {
+        Entry previous = entries.remove(coord);
+        if (previous != null) retainedBytes -= previous.bytes;
+        entries.put(coord, new Entry(bytes));
+        retainedBytes += bytes;
+        chunksRetained++;
+        return evictOverBudget();
+    }
+
+    /** Removes a chunk that is becoming active again; null if it is not parked here. */
+    public Entry reclaim(LightManager.ChunkCoordinate coord) {
+        Entry entry = entries.remove(coord);
+        if (entry == null) return null;
+        retainedBytes -= entry.bytes;
+        chunksReclaimed++;
+        return entry;
+    }
+
+    /** Records that the chunk's tiles or lighting changed while parked, so its mesh needs a rebuild. */
+    public void markMeshStale(LightManager.ChunkCoordinate coord) {
+        Entry entry = entries.get(coord);
+        if (entry != null) entry.meshStale = true;
+    }
+
+    /** Empties the cache and returns everything that was in it, for the caller to unload. */
+    public List<LightManager.ChunkCoordinate> clear() {
+        List<LightManager.ChunkCoordinate> all = new ArrayList<>(entries.keySet());
+        entries.clear();
+        retainedBytes = 0;
+        return all;
+    }
+
+    private List<LightManager.ChunkCoordinate> evictOverBudget() {
+        List<LightManager.ChunkCoordinate> evicted = new ArrayList<>();
+        Iterator<java.util.Map.Entry<LightManager.ChunkCoordinate, Entry>> it = entries.entrySet().iterator();
+        while (retainedBytes > budgetBytes && it.hasNext()) {
+            java.util.Map.Entry<LightManager.ChunkCoordinate, Entry> oldest = it.next();
+            it.remove();
+            retainedBytes -= oldest.getValue().bytes;
+            evicted.add(oldest.getKey());
+            chunksEvicted++;
+        }
+        return evicted;
+    }
+
+    // --- Stats ---
+
+    public int getChunkCount() { return entries.size(); }
+    public long getRetainedBytes() { return retainedBytes; }
+    public long getBudgetBytes() { return budgetBytes; }
+    public long getChunksRetained() { return chunksRetained; }
+    public long getChunksReclaimed() { return chunksReclaimed; }
+    public long getChunksEvicted() { return chunksEvicted; }
+
+    @Override
+    public String toString() {
+        return String.format("ChunkRetention[chunks=%d, bytes=%d/%d, retained=%d, reclaimed=%d, evicted=%d]",
+                entries.size(), retainedBytes, budgetBytes, chunksRetained, chunksReclaimed, chunksEvicted);
+    }
+}
@@ -1,14 +1,19 @@
 // src/main/java/org/isogame/world/World.java
 package org.isogame.world;
 
+import org.isogame.camera.CameraManager;
 import org.isogame.constants.Constants;
 import org.isogame.entity.*;
 import org.isogame.game.EntityManager;
 import org.isogame.game.Game;
 import org.isogame.game.PlacementManager;
+import org.isogame.map.ChunkData;
+import org.isogame.map.CompressedChunkStore;
 import org.isogame.map.LightManager;
 import org.isogame.map.Map;
+import org.isogame.render.Renderer;
 import org.isogame.savegame.GameSaveState;
+import org.isogame.savegame.InventorySlotSaveData;
 import org.isogame.savegame.MapSaveData;
 import org.isogame.savegame.PlayerSaveData;
 import org.isogame.tile.Tile;
@@ -16,6 +21,7 @@ import org.isogame.tile.TileEntity;
 import org.isogame.tile.TileEntityManager;
 import org.isogame.world.structure.StructureManager;
 
+import java.nio.file.Path;
 import java.util.*;
 
 import static org.isogame.constants.Constants.*;
@@ -32,8 +38,12 @@ public class World {
     private final StructureManager structureManager; // <-- Add this field
 
     private double pseudoTimeOfDay;
+    // Player state as of the last save snapshot; null until the first one.
+    private PlayerSaveData lastSavedPlayerData;
     private byte lastGlobalSkyLightTargetSetInLM;
     private final Set<LightManager.ChunkCoordinate> currentlyActiveLogicalChunks = new HashSet<>();
+    // Deactivated chunks that keep their tiles, lighting and mesh until the budget pushes them out.
+    private final ChunkRetentionCache retainedChunks = new ChunkRetentionCache(CHUNK_RETENTION_BUDGET_BYTES);
 
     private double spawnTimer = 0.0;
     private final Random spawnRandom = new Random();
@@ -41,18 +51,20 @@ public class World {
     private static final int SPAWN_RADIUS = 32;
 
     private final Queue<LightManager.ChunkCoordinate> chunkRenderUpdateQueue = new LinkedList<>();
-    private final Queue<LightManager.ChunkCoordinate> globalSkyRefreshNeededQueue = new LinkedList<>();
-    private static final int MAX_CHUNK_GEOMETRY_UPDATES_PER_FRAME = 2;
-    private static final int CHUNKS_TO_REFRESH_SKY_PER_FRAME = 4;
+    // Time per frame for uploading finished chunk meshes; building them runs on the renderer's mesh workers.
+    private static final long CHUNK_MESH_UPLOAD_BUDGET_MICROS = 3000;
+    // Chunks finished by the background generator that are moved into the world per frame.
+    private static final int MAX_GENERATED_CHUNKS_PUBLISHED_PER_FRAME = 3;
+    private final Set<LightManager.ChunkCoordinate> pendingGenerationChunks = new LinkedHashSet<>();
 
 
 
-    public World(Game game, long seed) {
+    public World(Game game, long seed, Path regionDirectory) {
         this.game = game;
         this.entityManager = new EntityManager();
         this.tileEntityManager = new TileEntityManager(); // Correctly initialized here
 
-        this.map = new Map(seed);
+        this.map = new Map(seed, regionDirectory);
         this.player = new PlayerModel(map.getCharacterSpawnRow(), map.getCharacterSpawnCol());
         this.entityManager.addEntity(player);
 
@@ -67,12 +79,12 @@ public class World {
     }
 
 
-    public World(Game game, GameSaveState saveState) {
+    public World(Game game, GameSaveState saveState, Path regionDirectory) {
         this.game = game;
         this.entityManager = new EntityManager();
         this.tileEntityManager = new TileEntityManager();
 
-        this.map = new Map(saveState.mapData.worldSeed);
+        this.map = new Map(saveState.mapData.worldSeed, regionDirectory);
         this.map.loadState(saveState.mapData);
         this.player = new PlayerModel(this.map.getCharacterSpawnRow(), this.map.getCharacterSpawnCol());
         this.player.loadState(saveState.playerData);
@@ -85,17 +97,10 @@ public class World {
         byte initialSkyLight = calculateSkyLightForTime(pseudoTimeOfDay);
         this.lightManager.setCurrentGlobalSkyLightTarget(initialSkyLight);
         this.lastGlobalSkyLightTargetSetInLM = initialSkyLight;
+        // Tile entities and torches are hooked up per chunk as chunks activate (see activateChunk),
+        // so loading never has to decode chunks far away from the player.
         this.tileEntityManager.loadState(saveState.tileEntityData, game);
-        for (TileEntity te : this.tileEntityManager.getAllTileEntities()) {
-            if (te != null) {
-                Tile tile = this.map.getTile(te.getRow(), te.getCol());
-                if (tile != null) {
-                    tile.setTileEntity(te);
-                }
-            }
-        }
         initializeWorldState();
-        restoreTorchLightSources(saveState);
     }
 
     public void update(double deltaTime) {
@@ -104,67 +109,233 @@ public class World {
         updateActiveChunksAroundPlayer();
         updateSkyLightBasedOnTimeOfDay();
         handleDynamicSpawning(deltaTime);
-        processSkyRefreshQueue();
         entityManager.update(deltaTime, this.game);
         tileEntityManager.update(deltaTime, this.game);
+        updateLightFocus();
         lightManager.processLightQueuesIncrementally();
         queueDirtyChunksForRenderUpdate();
         processChunkRenderUpdateQueue();
         entityManager.removeDeadEntities();
     }
 
-    public void populateSaveData(GameSaveState saveState) {
+    /**
+     * Gathers everything a save needs on the calling (main) thread, cheaply enough
+     * to run during a frame: snapshots of the chunks modified since the last save go
+     * to {@code chunksOut} (or {@code encodedOut} for unloaded ones), everything else
+     * into the returned state. Neither is
+     * shared with live game objects, so both can be written by a background thread.
+     * Finish with {@link #onSaveFinished(boolean)}.
+     */
+    public GameSaveState createSaveSnapshot(List<ChunkData> chunksOut, List<MapSaveData.EncodedChunk> encodedOut) {
+        GameSaveState saveState = new GameSaveState();
         saveState.pseudoTimeOfDay = this.pseudoTimeOfDay;
         saveState.playerData = new PlayerSaveData();
         player.populateSaveData(saveState.playerData);
         saveState.mapData = new MapSaveData();
         map.populateSaveData(saveState.mapData);
+        entityManager.removeDeadEntities();
         entityManager.populateSaveData(saveState);
-        tileEntityManager.populateSaveData(saveState.tileEntityData);
+        tileEntityManager.snapshotSaveData(saveState.tileEntityData);
+        map.collectDirtyChunkSnapshots(chunksOut, encodedOut);
+        lastSavedPlayerData = saveState.playerData;
+        return saveState;
+    }
+
+    public void onSaveFinished(boolean success) {
+        map.onSaveFinished(success);
+        if (!success) lastSavedPlayerData = null;
+    }
 
+    /**
+     * True if the player, a tile entity or a chunk changed since the last save.
+     * Wandering creatures and the time of day alone don't warrant a save.
+     */
+    public boolean hasUnsavedChanges() {
+        if (map.hasUnsavedChunks() || tileEntityManager.hasUnsavedChanges()) return true;
+        if (lastSavedPlayerData == null) return true;
+        PlayerSaveData current = new PlayerSaveData();
+        player.populateSaveData(current);
+        return !samePlayerData(current, lastSavedPlayerData);
+    }
 
+    private static boolean samePlayerData(PlayerSaveData a, PlayerSaveData b) {
+        if (a.mapRow != b.mapRow || a.mapCol != b.mapCol) return false;
+        if (a.inventory.size() != b.inventory.size()) return false;
+        for (int i = 0; i < a.inventory.size(); i++) {
+            InventorySlotSaveData slotA = a.inventory.get(i);
+            InventorySlotSaveData slotB = b.inventory.get(i);
+            if (slotA == null || slotB == null) {
+                if (slotA != slotB) return false;
+            } else if (!Objects.equals(slotA.itemId, slotB.itemId) || slotA.quantity != slotB.quantity) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void initializeWorldState() {
         this.chunkRenderUpdateQueue.clear();
-        this.globalSkyRefreshNeededQueue.clear();
         this.currentlyActiveLogicalChunks.clear();
-        updateActiveChunksAroundPlayer();
+        this.pendingGenerationChunks.clear();
+        // Queue every chunk in range on the worker pool, then wait for all of them before the first frame.
+        updateActiveChunksAroundPlayer(true);
         performIntensiveInitialLightProcessing();
         // Ensure the initial chunks are loaded and ready for rendering
     }
 
     private void updateActiveChunksAroundPlayer() {
+        updateActiveChunksAroundPlayer(false);
+    }
+
+    /**
+     * Chunks load within the render distance but only deactivate once they are
+     * {@link Constants#CHUNK_UNLOAD_HYSTERESIS_CHUNKS} further out. Deactivated
+     * chunks are parked in {@link #retainedChunks} and come back from there
+     * without generation, lighting or meshing.
+     */
+    private void updateActiveChunksAroundPlayer(boolean waitForGeneration) {
         List<LightManager.ChunkCoordinate> desiredCoords = getDesiredActiveChunkCoordinates();
-        Set<LightManager.ChunkCoordinate> desiredSet = new HashSet<>(desiredCoords);
+        int playerChunkX = Math.floorDiv(player.getTileCol(), CHUNK_SIZE_TILES);
+        int playerChunkY = Math.floorDiv(player.getTileRow(), CHUNK_SIZE_TILES);
+        int unloadDist = game.getCurrentRenderDistanceChunks() + CHUNK_UNLOAD_HYSTERESIS_CHUNKS;
 
         currentlyActiveLogicalChunks.removeIf(currentActiveCoord -> {
-            if (!desiredSet.contains(currentActiveCoord)) {
-                entityManager.unloadEntitiesInChunk(currentActiveCoord);
-                // We can safely call unload, as this only happens on subsequent frames when the renderer is ready
-                game.getRenderer().unloadChunkGraphics(currentActiveCoord.chunkX, currentActiveCoord.chunkY);
-                map.unloadChunkData(currentActiveCoord.chunkX, currentActiveCoord.chunkY);
-                globalSkyRefreshNeededQueue.remove(currentActiveCoord);
+            if (chunkDistance(currentActiveCoord, playerChunkX, playerChunkY) > unloadDist) {
+                deactivateChunk(currentActiveCoord);
                 return true;
             }
             return false;
         });
 
+        pendingGenerationChunks.removeIf(pendingCoord -> {
+            if (chunkDistance(pendingCoord, playerChunkX, playerChunkY) > unloadDist) {
+                map.cancelChunkRequest(pendingCoord.chunkX, pendingCoord.chunkY);
+                return true;
+            }
+            return false;
+        });
+
+        // Desired coordinates are sorted nearest-first, so the generator works outwards from the player.
         for (LightManager.ChunkCoordinate newCoord : desiredCoords) {
-            if (currentlyActiveLogicalChunks.add(newCoord)) {
-                map.getOrGenerateChunkTiles(newCoord.chunkX, newCoord.chunkY);
+            if (currentlyActiveLogicalChunks.contains(newCoord) || pendingGenerationChunks.contains(newCoord)) continue;
+            ChunkRetentionCache.Entry retained = retainedChunks.reclaim(newCoord);
+            if (retained != null) {
+                reactivateChunk(newCoord, retained);
+            } else if (map.requestChunk(newCoord.chunkX, newCoord.chunkY)) {
+                activateChunk(newCoord);
+            } else {
+                pendingGenerationChunks.add(newCoord);
+            }
+        }
 
-                // *** THIS IS THE FIX ***
-                // We no longer call game.getRenderer().ensureChunkGraphicsLoaded() here.
-                // The World's job is to manage the data. The Game class will orchestrate
-                // the initial rendering of this data via forceFullRenderUpdate().
+        if (waitForGeneration) {
+            for (LightManager.ChunkCoordinate pendingCoord : pendingGenerationChunks) {
+                map.getOrGenerateChunkTiles(pendingCoord.chunkX, pendingCoord.chunkY);
+            }
+        } else {
+            map.publishGeneratedChunks(MAX_GENERATED_CHUNKS_PUBLISHED_PER_FRAME);
+        }
 
-                lightManager.initializeSkylightForChunk(newCoord);
-                globalSkyRefreshNeededQueue.offer(newCoord);
-                propagateLightToNewChunkBorders(newCoord);
+        // Activate whatever has arrived. Lighting can also pull a pending neighbour in early.
+        Iterator<LightManager.ChunkCoordinate> it = pendingGenerationChunks.iterator();
+        while (it.hasNext()) {
+            LightManager.ChunkCoordinate pendingCoord = it.next();
+            if (map.isChunkLoaded(pendingCoord.chunkX, pendingCoord.chunkY)) {
+                it.remove();
+                activateChunk(pendingCoord);
             }
         }
     }
+
+    /** Lighting goes nearest the camera and on-screen first; without a renderer yet, around the player. */
+    private void updateLightFocus() {
+        Renderer renderer = game.getRenderer();
+        if (renderer == null) {
+            lightManager.setFocus(Math.floorDiv(player.getTileCol(), CHUNK_SIZE_TILES),
+                    Math.floorDiv(player.getTileRow(), CHUNK_SIZE_TILES), null);
+            return;
+        }
+        CameraManager camera = renderer.getCamera();
+        lightManager.setFocus(Math.floorDiv((int) Math.floor(camera.getCameraX()), CHUNK_SIZE_TILES),
+                Math.floorDiv((int) Math.floor(camera.getCameraY()), CHUNK_SIZE_TILES), renderer::isChunkOnScreen);
+    }
+
+    private static int chunkDistance(LightManager.ChunkCoordinate coord, int playerChunkX, int playerChunkY) {
+        return Math.max(Math.abs(coord.chunkX - playerChunkX), Math.abs(coord.chunkY - playerChunkY));
+    }
+
+    /** Takes a chunk out of the simulation but keeps its tiles, lighting and mesh in {@link #retainedChunks}. */
+    private void deactivateChunk(LightManager.ChunkCoordinate coord) {
+        entityManager.unloadEntitiesInChunk(coord);
+        // We can safely touch the renderer, as this only happens on subsequent frames when it is ready
+        boolean meshCurrent = game.getRenderer().isChunkGraphicsLoaded(coord.chunkX, coord.chunkY)
+                && !chunkRenderUpdateQueue.remove(coord);
+        long meshBytes = game.getRenderer().parkChunkGraphics(coord.chunkX, coord.chunkY);
+        List<LightManager.ChunkCoordinate> evicted = retainedChunks.retain(coord,
+                CompressedChunkStore.EXPANDED_CHUNK_BYTES + meshBytes);
+        if (!meshCurrent) retainedChunks.markMeshStale(coord);
+        for (LightManager.ChunkCoordinate evictedCoord : evicted) {
+            unloadChunk(evictedCoord);
+        }
+        remeshChunksBehind(coord);
+    }
+
+    /**
+     * Rebuilds the chunks north and west of a chunk that is no longer drawn:
+     * their edge columns had sides culled against it that are now in view.
+     */
+    private void remeshChunksBehind(LightManager.ChunkCoordinate coord) {
+        LightManager.ChunkCoordinate[] behind = {
+                new LightManager.ChunkCoordinate(coord.chunkX, coord.chunkY - 1),
+                new LightManager.ChunkCoordinate(coord.chunkX - 1, coord.chunkY)
+        };
+        for (LightManager.ChunkCoordinate neighbour : behind) {
+            if (currentlyActiveLogicalChunks.contains(neighbour)) {
+                if (!chunkRenderUpdateQueue.contains(neighbour)) chunkRenderUpdateQueue.offer(neighbour);
+            } else {
+                retainedChunks.markMeshStale(neighbour);
+            }
+        }
+    }
+
+    private void unloadChunk(LightManager.ChunkCoordinate coord) {
+        game.getRenderer().unloadChunkGraphics(coord.chunkX, coord.chunkY);
+        map.unloadChunkData(coord.chunkX, coord.chunkY);
+    }
+
+    /** Brings a parked chunk back; only a stale mesh costs any work. */
+    private void reactivateChunk(LightManager.ChunkCoordinate coord, ChunkRetentionCache.Entry retained) {
+        currentlyActiveLogicalChunks.add(coord);
+        game.getRenderer().restoreChunkGraphics(coord.chunkX, coord.chunkY);
+        if (retained.isMeshStale()) chunkRenderUpdateQueue.offer(coord);
+    }
+
+    private void activateChunk(LightManager.ChunkCoordinate newCoord) {
+        currentlyActiveLogicalChunks.add(newCoord);
+
+        // We don't call game.getRenderer().ensureChunkGraphicsLoaded() here.
+        // The World's job is to manage the data; geometry follows through the
+        // dirty-chunk -> render update queue once lighting has touched the chunk.
+        ChunkData chunk = map.getOrGenerateChunkTiles(newCoord.chunkX, newCoord.chunkY);
+        attachTileEntities(chunk);
+        if (chunk.isLightStored()) {
+            // Pregenerated with its light: nothing to compute unless a neighbour was relit.
+            if (!chunkRenderUpdateQueue.contains(newCoord)) chunkRenderUpdateQueue.offer(newCoord);
+        } else {
+            lightManager.initializeSkylightForChunk(newCoord);
+        }
+        restoreTorchLightSources(chunk);
+        propagateLightToNewChunkBorders(newCoord, chunk);
+    }
+
+    /** Links the chunk's tiles to their tile entities; the links don't survive unloading the chunk. */
+    private void attachTileEntities(ChunkData chunk) {
+        java.util.Map<Integer, TileEntity> inChunk = tileEntityManager.getTileEntitiesInChunk(chunk.chunkX, chunk.chunkY);
+        if (inChunk == null) return;
+        for (java.util.Map.Entry<Integer, TileEntity> entry : inChunk.entrySet()) {
+            chunk.setTileEntity(entry.getKey(), entry.getValue());
+        }
+    }
     private List<LightManager.ChunkCoordinate> getDesiredActiveChunkCoordinates() {
         List<LightManager.ChunkCoordinate> desiredActive = new ArrayList<>();
         int playerChunkX = Math.floorDiv(player.getTileCol(), CHUNK_SIZE_TILES);
@@ -175,9 +346,18 @@ public class World {
                 desiredActive.add(new LightManager.ChunkCoordinate(playerChunkX + dx, playerChunkY + dy));
             }
         }
+        desiredActive.sort(Comparator.comparingInt(coord -> {
+            int dx = coord.chunkX - playerChunkX;
+            int dy = coord.chunkY - playerChunkY;
+            return dx * dx + dy * dy;
+        }));
         return desiredActive;
     }
 
+    /**
+     * Only moves the light manager's sky level. Chunks store sky exposure at full
+     * daylight and the renderer dims it per frame, so no chunk is relit or re-meshed.
+     */
     private void updateSkyLightBasedOnTimeOfDay() {
         byte currentGlobalSkyLightActual = calculateSkyLightForTime(pseudoTimeOfDay);
         boolean significantChange = Math.abs(currentGlobalSkyLightActual - lastGlobalSkyLightTargetSetInLM) >= SKY_LIGHT_UPDATE_THRESHOLD;
@@ -185,7 +365,6 @@ public class World {
                 (currentGlobalSkyLightActual == SKY_LIGHT_NIGHT_MINIMUM && lastGlobalSkyLightTargetSetInLM != SKY_LIGHT_NIGHT_MINIMUM);
         if (significantChange || boundaryReached) {
             lightManager.setCurrentGlobalSkyLightTarget(currentGlobalSkyLightActual);
-            globalSkyRefreshNeededQueue.addAll(currentlyActiveLogicalChunks);
             lastGlobalSkyLightTargetSetInLM = currentGlobalSkyLightActual;
         }
     }
@@ -217,49 +396,33 @@ public class World {
         }
     }
 
+    /** Lights every chunk of the initial view in one batch, which spreads over the light worker threads. */
     private void performIntensiveInitialLightProcessing() {
-        int initialPasses = Math.max(15, currentlyActiveLogicalChunks.size());
-        globalSkyRefreshNeededQueue.addAll(currentlyActiveLogicalChunks);
-        for (int i = 0; i < initialPasses; i++) {
-            processSkyRefreshQueue();
-            lightManager.processLightQueuesIncrementally(LightManager.BATCH_LIGHT_UPDATE_BUDGET * 2);
-            queueDirtyChunksForRenderUpdate();
-            processChunkRenderUpdateQueue();
-            if (!lightManager.isAnyLightQueueNotEmpty() && globalSkyRefreshNeededQueue.isEmpty()) break;
-        }
         lightManager.processAllQueuesToCompletion();
         queueDirtyChunksForRenderUpdate();
     }
 
-    private void processSkyRefreshQueue() {
-        int refreshedThisFrame = 0;
-        while (refreshedThisFrame < CHUNKS_TO_REFRESH_SKY_PER_FRAME && !globalSkyRefreshNeededQueue.isEmpty()) {
-            LightManager.ChunkCoordinate coordToRefresh = globalSkyRefreshNeededQueue.poll();
-            if (currentlyActiveLogicalChunks.contains(coordToRefresh)) {
-                lightManager.refreshSkyLightForSingleChunk(coordToRefresh, lightManager.getCurrentGlobalSkyLightTarget());
-            }
-            refreshedThisFrame++;
-        }
-    }
-
     private void queueDirtyChunksForRenderUpdate() {
         Set<LightManager.ChunkCoordinate> dirtyFromLighting = lightManager.getDirtyChunksAndClear();
         for (LightManager.ChunkCoordinate dirtyCoord : dirtyFromLighting) {
-            if (currentlyActiveLogicalChunks.contains(dirtyCoord) && !chunkRenderUpdateQueue.contains(dirtyCoord)) {
-                chunkRenderUpdateQueue.offer(dirtyCoord);
+            if (currentlyActiveLogicalChunks.contains(dirtyCoord)) {
+                if (!chunkRenderUpdateQueue.contains(dirtyCoord)) chunkRenderUpdateQueue.offer(dirtyCoord);
+            } else {
+                retainedChunks.markMeshStale(dirtyCoord);
             }
         }
     }
 
+    /** Hands queued chunks to the mesh workers while they have room, then uploads what they finished. */
     private void processChunkRenderUpdateQueue() {
-        int updatedThisFrame = 0;
-        while (updatedThisFrame < MAX_CHUNK_GEOMETRY_UPDATES_PER_FRAME && !chunkRenderUpdateQueue.isEmpty()) {
+        Renderer renderer = game.getRenderer();
+        while (!chunkRenderUpdateQueue.isEmpty() && renderer.canRequestChunkMesh()) {
             LightManager.ChunkCoordinate coordToUpdate = chunkRenderUpdateQueue.poll();
             if (currentlyActiveLogicalChunks.contains(coordToUpdate)) {
-                game.getRenderer().updateChunkByGridCoords(coordToUpdate.chunkX, coordToUpdate.chunkY);
-                updatedThisFrame++;
+                renderer.requestChunkMesh(coordToUpdate.chunkX, coordToUpdate.chunkY);
             }
         }
+        renderer.uploadFinishedChunkMeshes(CHUNK_MESH_UPLOAD_BUDGET_MICROS);
     }
 
     // *** NEW METHOD ***
@@ -267,40 +430,34 @@ public class World {
         this.chunkRenderUpdateQueue.addAll(this.currentlyActiveLogicalChunks);
     }
 
-    private void propagateLightToNewChunkBorders(LightManager.ChunkCoordinate newCoord) {
+    /** Exchanges light with loaded neighbours, except between two chunks whose stored light already agrees. */
+    private void propagateLightToNewChunkBorders(LightManager.ChunkCoordinate newCoord, ChunkData chunk) {
         int[] dNeighborsX = {0, 0, 1, -1};
         int[] dNeighborsY = {1, -1, 0, 0};
         for (int i = 0; i < 4; i++) {
             LightManager.ChunkCoordinate neighborCoord = new LightManager.ChunkCoordinate(newCoord.chunkX + dNeighborsX[i], newCoord.chunkY + dNeighborsY[i]);
-            if (currentlyActiveLogicalChunks.contains(neighborCoord)) {
+            // Parked neighbours are still loaded, so they take part too; their meshes just go stale.
+            if (currentlyActiveLogicalChunks.contains(neighborCoord) || retainedChunks.contains(neighborCoord)) {
+                ChunkData neighbor = map.getLoadedChunk(neighborCoord.chunkX, neighborCoord.chunkY);
+                if (chunk.isLightStored() && neighbor != null && neighbor.isLightStored()) continue;
                 map.propagateLightAcrossChunkBorder(newCoord, neighborCoord, lightManager);
                 map.propagateLightAcrossChunkBorder(neighborCoord, newCoord, lightManager);
             }
         }
     }
 
-    private void restoreTorchLightSources(GameSaveState saveState) {
-        if (saveState.mapData.explicitlySavedChunks == null) return;
-        for (MapSaveData.ChunkDiskData cdd : saveState.mapData.explicitlySavedChunks) {
-            LightManager.ChunkCoordinate activeChunk = new LightManager.ChunkCoordinate(cdd.chunkX, cdd.chunkY);
-            if (currentlyActiveLogicalChunks.contains(activeChunk)) {
-                Tile[][] tiles = map.getOrGenerateChunkTiles(activeChunk.chunkX, activeChunk.chunkY);
-                if (tiles == null) continue;
-                for (int r_local = 0; r_local < CHUNK_SIZE_TILES; r_local++) {
-                    for (int c_local = 0; c_local < CHUNK_SIZE_TILES; c_local++) {
-                        if (tiles[r_local][c_local].hasTorch()) {
-                            int globalR = activeChunk.chunkY * CHUNK_SIZE_TILES + r_local;
-                            int globalC = activeChunk.chunkX * CHUNK_SIZE_TILES + c_local;
-                            lightManager.addLightSource(globalR, globalC, (byte) TORCH_LIGHT_LEVEL);
-                        }
-                    }
-                }
+    /** Registers the chunk's torches as light sources again, so removing one later dims its light. */
+    private void restoreTorchLightSources(ChunkData chunk) {
+        if (!chunk.hasAnyTorch()) return;
+        for (int i = 0; i < ChunkData.TILE_COUNT; i++) {
+            if (chunk.hasTorch(i)) {
+                lightManager.addLightSource(chunk.globalRow(i), chunk.globalCol(i), (byte) TORCH_LIGHT_LEVEL);
             }
         }
-        lightManager.processAllQueuesToCompletion();
     }
 
-    private byte calculateSkyLightForTime(double time) {
+    /** Global sky level at a point of the day cycle (0..1). */
+    public static byte calculateSkyLightForTime(double time) {
         float phase;
         if (time < 0.40) return SKY_LIGHT_DAY;
         else if (time < 0.60) {
@@ -323,7 +480,13 @@ public class World {
     public TileEntityManager getTileEntityManager() {
         return this.tileEntityManager;
     }
+    /** Releases background resources (chunk generator threads). Call when the world is discarded. */
+    public void shutdown() {
+        map.shutdown();
+    }
+
     public Map getMap() { return map; }
+    public ChunkRetentionCache getRetainedChunks() { return retainedChunks; }
     public PlayerModel getPlayer() { return player; }
     public EntityManager getEntityManager() { return entityManager; }
     public LightManager getLightManager() { return lightManager; }
@@ -1,9 +1,16 @@
 #version 330 core
 
+// Compiled twice: plain, and with TERRAIN_DEPTH defined for chunk meshes only.
+// Writing gl_FragDepth turns off early depth testing, so only the program that
+// draws merged tops does it.
+
 // INPUTS from the Vertex Shader
 in vec4 fColor;
 in vec2 fTexCoord;
 in float fLightValue;
+in vec4 fTexRegion;
+in float fTexMode;
+in float fDepthPerZ;
 
 // UNIFORMS
 uniform sampler2D uTextureSampler;
@@ -12,11 +19,16 @@ uniform int uIsFont;
 uniform int uIsSimpleUiElement;
 uniform int uIsShadow;
 uniform vec3 u_ambientLightColor;
+uniform float u_depthSortFactor; // world Z between neighbouring tiles (Constants.DEPTH_SORT_FACTOR)
 
 // OUTPUT to the screen
 out vec4 FragColor;
 
 void main() {
+#ifdef TERRAIN_DEPTH
+    gl_FragDepth = gl_FragCoord.z;
+#endif
+
     // Path 1: Shadow Rendering (CORRECTED)
     if (uIsShadow == 1) {
         // Sample the sprite's texture to get its shape (alpha)
@@ -46,7 +58,20 @@ void main() {
         vec4 materialColor;
 
         if (uHasTexture == 1) {
-            vec4 texColor = texture(uTextureSampler, fTexCoord);
+            vec2 texCoord = fTexCoord;
+            if (fTexMode > 1.5) {
+                // Merged top: texCoord counts tiles. Lay the top texture diamond-wise on each
+                // tile, and step the depth from the quad's slope to that tile's own Z.
+                vec2 inTile = fract(fTexCoord);
+                texCoord = fTexRegion.xy + vec2(0.5 + (inTile.x - inTile.y) * 0.5, (inTile.x + inTile.y) * 0.5) * fTexRegion.zw;
+#ifdef TERRAIN_DEPTH
+                gl_FragDepth = gl_FragCoord.z + fDepthPerZ * u_depthSortFactor * (1.0 - inTile.x - inTile.y);
+#endif
+            } else if (fTexMode > 0.5) {
+                // Merged side run: V counts elevation units; wrap it into the atlas cell.
+                texCoord.t = fTexRegion.y + fract(fTexCoord.t) * fTexRegion.w;
+            }
+            vec4 texColor = texture(uTextureSampler, texCoord);
             // Combine material color (from tint) and texture color
             materialColor = texColor * fColor;
             // Apply lighting
@@ -5,20 +5,36 @@ layout (location = 0) in vec3 aPos;
 layout (location = 1) in vec4 aColor;
 layout (location = 2) in vec2 aTexCoord;
 layout (location = 3) in float aLightValue;
+layout (location = 4) in float aMaterial; // chunk meshes: index into the material table
+layout (location = 5) in float aTexMode;  // chunk meshes: ChunkMeshBuilder.TEX_* + TerrainVertexFormat.MODE_SELECTED; 0 elsewhere
 
 // INPUT: Uniforms (global variables from Java)
 uniform mat4 uProjectionMatrix;
 uniform mat4 uModelViewMatrix;
 uniform float u_time;
 uniform bool u_isSelectedIcon;
+uniform int uPackedLight;      // 1 for chunk meshes: aLightValue = skyExposure * 16 + blockLight
+uniform float u_skyIntensity;  // current sky level / full daylight
+// Chunk meshes (uPackedLight == 1) are TerrainVertexFormat: see TerrainVertexFormat.unpack for the same decoding.
+uniform vec3 u_chunkOrigin;    // position and world Z the chunk's vertices are relative to
+uniform float u_zUnit;         // world Z per step of aPos.z
+uniform vec4 u_materialRegion[64]; // TerrainMaterials: atlas region (x, y, w, h)
+uniform vec4 u_materialColor[64];  // TerrainMaterials: tint
+uniform vec4 u_selectionTint;
 
 // OUTPUT: Variables to be interpolated and sent to the Fragment Shader
 out vec4 fColor;
 out vec2 fTexCoord;
 out float fLightValue;
+out vec4 fTexRegion;
+out float fTexMode;
+out float fDepthPerZ; // window depth per unit of world Z
 
 void main() {
     vec4 position = vec4(aPos, 1.0);
+    if (uPackedLight == 1) {
+        position.xyz = u_chunkOrigin + vec3(aPos.xy, aPos.z * u_zUnit);
+    }
 
     // This block handles the "wobble" effect for selected UI icons
     if (u_isSelectedIcon) {
@@ -36,5 +52,32 @@ void main() {
     // Pass the vertex data to the fragment shader
     fColor = aColor;
     fTexCoord = aTexCoord;
-    fLightValue = aLightValue;
+    fTexRegion = vec4(0.0);
+    fTexMode = 0.0;
+    fDepthPerZ = 0.5 * (uProjectionMatrix * uModelViewMatrix * vec4(0.0, 0.0, 1.0, 0.0)).z;
+    if (uPackedLight == 1) {
+        int material = int(aMaterial);
+        int mode = int(aTexMode);
+        vec4 region = u_materialRegion[material];
+        fColor = (mode >= 4) ? u_selectionTint : u_materialColor[material];
+        fTexMode = float(mode & 3);
+        if (fTexMode > 1.5) {
+            // Merged top: texCoord counts tiles; the fragment shader lays the region on each.
+            fTexRegion = region;
+        } else if (fTexMode > 0.5) {
+            // Side run: U across the region, V counts elevation units and wraps in the fragment shader.
+            fTexCoord = vec2(region.x + aTexCoord.s * region.z, aTexCoord.t);
+            fTexRegion = vec4(0.0, region.y, 0.0, region.w);
+        } else {
+            fTexCoord = region.xy + aTexCoord * region.zw;
+        }
+
+        // Every level the sky is below full daylight takes one level off the exposure.
+        float skyExposure = floor(aLightValue / 16.0);
+        float blockLight = aLightValue - skyExposure * 16.0;
+        float skyLight = max(0.0, skyExposure / 15.0 - (1.0 - u_skyIntensity));
+        fLightValue = max(max(skyLight, blockLight / 15.0), 0.05);
+    } else {
+        fLightValue = aLightValue;
+    }
 }
@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the AutosaveTest.
+ */
+public class RunAutosaveTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of AutosaveTest
+        AutosaveTest.main(args);
+    }
+}
@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the ChunkDeterminismTest.
+ */
+public class RunChunkDeterminismTest {
+    public static void main(String[] args) {
+        // Call the main method of ChunkDeterminismTest
+        ChunkDeterminismTest.main(args);
+    }
+}
@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the ChunkMeshBuilderTest.
+ */
+public class RunChunkMeshBuilderTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of ChunkMeshBuilderTest
+        ChunkMeshBuilderTest.main(args);
+    }
+}
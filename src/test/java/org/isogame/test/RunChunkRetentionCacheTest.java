@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the ChunkRetentionCacheTest.
+ */
+public class RunChunkRetentionCacheTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of ChunkRetentionCacheTest
+        ChunkRetentionCacheTest.main(args);
+    }
+}
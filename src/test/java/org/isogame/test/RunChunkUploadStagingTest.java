@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the ChunkUploadStagingTest.
+ */
+public class RunChunkUploadStagingTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of ChunkUploadStagingTest
+        ChunkUploadStagingTest.main(args);
+    }
+}
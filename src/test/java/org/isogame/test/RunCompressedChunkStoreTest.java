@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the CompressedChunkStoreTest.
+ */
+public class RunCompressedChunkStoreTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of CompressedChunkStoreTest
+        CompressedChunkStoreTest.main(args);
+    }
+}
@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the HiddenFaceCullingTest.
+ */
+public class RunHiddenFaceCullingTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of HiddenFaceCullingTest
+        HiddenFaceCullingTest.main(args);
+    }
+}
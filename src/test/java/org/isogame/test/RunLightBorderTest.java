@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the LightBorderTest.
+ */
+public class RunLightBorderTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of LightBorderTest
+        LightBorderTest.main(args);
+    }
+}
@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the LightSchedulerTest.
+ */
+public class RunLightSchedulerTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of LightSchedulerTest
+        LightSchedulerTest.main(args);
+    }
+}
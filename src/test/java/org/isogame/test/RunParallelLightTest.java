@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the ParallelLightTest.
+ */
+public class RunParallelLightTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of ParallelLightTest
+        ParallelLightTest.main(args);
+    }
+}
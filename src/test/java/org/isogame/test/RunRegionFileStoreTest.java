@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the RegionFileStoreTest.
+ */
+public class RunRegionFileStoreTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of RegionFileStoreTest
+        RegionFileStoreTest.main(args);
+    }
+}
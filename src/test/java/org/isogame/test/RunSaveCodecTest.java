@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the SaveCodecTest.
+ */
+public class RunSaveCodecTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of SaveCodecTest
+        SaveCodecTest.main(args);
+    }
+}
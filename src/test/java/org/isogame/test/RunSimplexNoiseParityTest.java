@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the SimplexNoiseParityTest.
+ */
+public class RunSimplexNoiseParityTest {
+    public static void main(String[] args) {
+        // Call the main method of SimplexNoiseParityTest
+        SimplexNoiseParityTest.main(args);
+    }
+}
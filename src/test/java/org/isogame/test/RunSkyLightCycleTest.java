@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the SkyLightCycleTest.
+ */
+public class RunSkyLightCycleTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of SkyLightCycleTest
+        SkyLightCycleTest.main(args);
+    }
+}
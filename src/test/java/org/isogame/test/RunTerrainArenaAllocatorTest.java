@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the TerrainArenaAllocatorTest.
+ */
+public class RunTerrainArenaAllocatorTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of TerrainArenaAllocatorTest
+        TerrainArenaAllocatorTest.main(args);
+    }
+}
@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the TerrainVertexFormatTest.
+ */
+public class RunTerrainVertexFormatTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of TerrainVertexFormatTest
+        TerrainVertexFormatTest.main(args);
+    }
+}
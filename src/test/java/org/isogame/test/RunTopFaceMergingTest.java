@@ -0,0 +1,11 @@
+package org.isogame.test;
+
+/**
+ * A simple runner class to execute the TopFaceMergingTest.
+ */
+public class RunTopFaceMergingTest {
+    public static void main(String[] args) throws Exception {
+        // Call the main method of TopFaceMergingTest
+        TopFaceMergingTest.main(args);
+    }
+}